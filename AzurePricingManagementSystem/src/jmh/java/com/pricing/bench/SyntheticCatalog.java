@@ -0,0 +1,210 @@
+package com.pricing.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Deterministic generator for Azure-shaped price catalogs.
+ * <p>
+ * The same (rows, seed) always yields the same rows, so benchmark runs on
+ * different machines or commits compare like for like. Rows mimic the
+ * Retail Prices API: meters with one to three consumption tiers, a share of
+ * Reservation and DevTest rows, SKU names that hit the default derived
+ * column rules (MySQL deployment/compute, LRS/ZRS/GRS) and a few product
+ * names with commas and quotes so the CSV quoting paths are exercised.
+ */
+public final class SyntheticCatalog {
+
+    public static final long DEFAULT_SEED = 0x5eed_a2e1L;
+
+    private static final String[] PRODUCTS = {
+            "Azure Database for MySQL Flexible Server General Purpose Dsv4 Series Compute",
+            "Azure Database for MySQL Flexible Server Burstable BS Series Compute",
+            "Azure Database for MySQL Single Server Memory Optimized Compute Gen5",
+            "Azure Database for PostgreSQL Flexible Server Storage",
+            "Virtual Machines Dv5 Series",
+            "Virtual Machines Esv5 Series Windows",
+            "Storage - Blob Storage",
+            "Storage - Files v2",
+            "Bandwidth - Data Transfer Out",
+            "Azure Cosmos DB",
+            "Azure App Service Premium v3 Plan",
+            "Azure Kubernetes Service",
+            "Log Analytics",
+            "Azure Monitor, Metrics \"Custom\"",
+    };
+
+    private static final String[] SERVICE_FAMILIES = {
+            "Databases", "Databases", "Databases", "Databases", "Compute", "Compute", "Storage", "Storage",
+            "Networking", "Databases", "Compute", "Compute", "Management and Governance", "Management and Governance",
+    };
+
+    private static final String[] UNITS = {
+            "1 Hour", "1 Hour", "1 Hour", "1 GB/Month", "1 Hour", "1 Hour", "1 GB/Month", "1 GB/Month",
+            "1 GB", "1M", "1 Hour", "1 Hour", "1 GB", "10M",
+    };
+
+    private static final String[] SKUS = {
+            "Standard LRS", "Standard ZRS", "Standard GRS", "Premium LRS", "Hot RA-GRS", "D2s v5", "D4s v5",
+            "E8s v5", "B1ms", "vCore", "P1v3", "Standard",
+    };
+
+    private static final String[][] REGIONS = {
+            {"eastus", "US East"}, {"eastus2", "US East 2"}, {"westus2", "US West 2"}, {"westus3", "US West 3"},
+            {"centralus", "US Central"}, {"northeurope", "EU North"}, {"westeurope", "EU West"},
+            {"uksouth", "UK South"}, {"francecentral", "FR Central"}, {"germanywestcentral", "DE West Central"},
+            {"swedencentral", "SE Central"}, {"centralindia", "IN Central"}, {"southindia", "IN South"},
+            {"japaneast", "JA East"}, {"koreacentral", "KR Central"}, {"southeastasia", "AP Southeast"},
+            {"eastasia", "AP East"}, {"australiaeast", "AU East"}, {"brazilsouth", "BR South"},
+            {"canadacentral", "CA Central"}, {"southafricanorth", "ZA North"}, {"uaenorth", "AE North"},
+            {"", "Global"},
+    };
+
+    private static final String[] DATES = {
+            "2021-05-01T00:00:00Z", "2022-01-01T00:00:00Z", "2023-03-01T00:00:00Z", "2024-07-01T00:00:00Z",
+            "2025-02-01T00:00:00Z",
+    };
+
+    private SyntheticCatalog() {
+    }
+
+    /**
+     * 🔹 Exactly {@code count} rows; tiers of one meter are always adjacent
+     */
+    public static List<AzurePriceDTO> rows(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<AzurePriceDTO> rows = new ArrayList<>(count);
+        while (rows.size() < count) {
+            int product = random.nextInt(PRODUCTS.length);
+            String[] region = REGIONS[random.nextInt(REGIONS.length)];
+            String sku = SKUS[random.nextInt(SKUS.length)];
+            String meterId = new UUID(random.nextLong(), random.nextLong()).toString();
+            String skuId = "DZH318Z0" + Integer.toString(random.nextInt(1 << 20), 36).toUpperCase()
+                    + "/" + String.format("%04d", random.nextInt(10_000));
+            String date = DATES[random.nextInt(DATES.length)];
+
+            int roll = random.nextInt(100);
+            String type = roll < 85 ? "Consumption" : roll < 95 ? "Reservation" : "DevTestConsumption";
+            String term = "Reservation".equals(type) ? (roll < 90 ? "1 Year" : "3 Years") : null;
+            int tiers = "Consumption".equals(type) ? 1 + random.nextInt(3) : 1;
+            double price = Math.round(random.nextDouble(0.0005, 12.0) * 10_000) / 10_000.0;
+
+            int min = 0;
+            for (int t = 0; t < tiers && rows.size() < count; t++) {
+                AzurePriceDTO dto = new AzurePriceDTO();
+                dto.setMeterId(meterId);
+                dto.setProductName(PRODUCTS[product]);
+                dto.setSkuName(sku);
+                dto.setArmRegionName(region[0]);
+                dto.setLocation(region[1]);
+                dto.setRetailPrice(tiers > 1 && t == 0 ? 0 : price);
+                dto.setCurrencyCode("USD");
+                dto.setServiceFamily(SERVICE_FAMILIES[product]);
+                dto.setUnitOfMeasure(UNITS[product]);
+                dto.setEffectiveStartDate(date);
+                dto.setType(type);
+                dto.setTierMinimumUnits(min);
+                dto.setSkuId(skuId);
+                dto.setReservationTerm(term);
+                rows.add(dto);
+
+                min = min == 0 ? 5 + random.nextInt(100) : min * (5 + random.nextInt(20));
+                price = Math.round(price * 0.8 * 10_000) / 10_000.0;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Retail API page shape: {"Items": [...], "NextPageLink": null}
+     */
+    public static Path writeJson(Path file, List<AzurePriceDTO> rows) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file);
+             JsonGenerator json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("BillingCurrency", "USD");
+            json.writeStringField("CustomerEntityId", "Default");
+            json.writeArrayFieldStart("Items");
+            for (AzurePriceDTO p : rows) {
+                json.writeStartObject();
+                json.writeStringField("currencyCode", p.getCurrencyCode());
+                json.writeNumberField("tierMinimumUnits", (double) p.getTierMinimumUnits());
+                json.writeNumberField("retailPrice", p.getRetailPrice());
+                json.writeNumberField("unitPrice", p.getRetailPrice());
+                json.writeStringField("armRegionName", p.getArmRegionName());
+                json.writeStringField("location", p.getLocation());
+                json.writeStringField("effectiveStartDate", p.getEffectiveStartDate());
+                json.writeStringField("meterId", p.getMeterId());
+                json.writeStringField("meterName", p.getSkuName() + " Meter");
+                json.writeStringField("productId", "DZH318Z0BQ4L");
+                json.writeStringField("skuId", p.getSkuId());
+                json.writeStringField("productName", p.getProductName());
+                json.writeStringField("skuName", p.getSkuName());
+                json.writeStringField("serviceName", p.getProductName());
+                json.writeStringField("serviceId", "DZH317F1HKN0");
+                json.writeStringField("serviceFamily", p.getServiceFamily());
+                json.writeStringField("unitOfMeasure", p.getUnitOfMeasure());
+                json.writeStringField("type", p.getType());
+                if (p.getReservationTerm() != null) json.writeStringField("reservationTerm", p.getReservationTerm());
+                json.writeBooleanField("isPrimaryMeterRegion", true);
+                json.writeStringField("armSkuName", "");
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeNullField("NextPageLink");
+            json.writeNumberField("Count", rows.size());
+            json.writeEndObject();
+        }
+        return file;
+    }
+
+    /**
+     * Cache CSV shape read by CsvPriceFileParser, quoted per RFC 4180 where needed
+     */
+    public static Path writeCsv(Path file, List<AzurePriceDTO> rows) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("MeterId,ProductName,SKU,Region,Location,Price,Currency,ServiceFamily,Unit,EffectiveDate,Type,ReservationTerm\n");
+            for (AzurePriceDTO p : rows) {
+                field(out, p.getMeterId()).write(',');
+                field(out, p.getProductName()).write(',');
+                field(out, p.getSkuName()).write(',');
+                field(out, p.getArmRegionName()).write(',');
+                field(out, p.getLocation()).write(',');
+                out.write(String.valueOf(p.getRetailPrice()));
+                out.write(',');
+                field(out, p.getCurrencyCode()).write(',');
+                field(out, p.getServiceFamily()).write(',');
+                field(out, p.getUnitOfMeasure()).write(',');
+                field(out, p.getEffectiveStartDate()).write(',');
+                field(out, p.getType()).write(',');
+                field(out, p.getReservationTerm()).write('\n');
+            }
+        }
+        return file;
+    }
+
+    private static Writer field(Writer out, String value) throws IOException {
+        if (value == null) return out;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            out.write(value);
+        } else {
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+        return out;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pricing.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pricing.bench.SyntheticCatalog;
+import com.pricing.catalog.PriceCatalog;
+import com.pricing.catalog.TierTable;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+import com.pricing.model.EstimationRequestDTO;
+
+/**
+ * {@code estimateCost} against an in-memory catalog: a fixed, seeded mix of
+ * product / region / quantity requests drawn from the catalog itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class EstimateBenchmark {
+
+    private static final int REQUESTS = 1024;
+
+    @Param({"10000", "1000000"})
+    int rows;
+
+    private PriceCatalog catalog;
+    private AzureEstimateService estimator;
+    private EstimationRequestDTO[] requests;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<AzurePriceDTO> data = SyntheticCatalog.rows(rows, SyntheticCatalog.DEFAULT_SEED);
+        catalog = PriceCatalog.build(1, "synthetic", data);
+        estimator = new AzureEstimateService(null, PricingMetrics.noop(), 1);
+
+        SplittableRandom random = new SplittableRandom(SyntheticCatalog.DEFAULT_SEED);
+        requests = new EstimationRequestDTO[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            AzurePriceDTO row = data.get(random.nextInt(data.size()));
+            EstimationRequestDTO request = new EstimationRequestDTO();
+            request.setProductName(row.getProductName());
+            request.setRegion(i % 4 == 0 ? null : row.getArmRegionName());
+            request.setQuantity(1 + random.nextInt(50_000));
+            requests[i] = request;
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> estimateCost(Cursor cursor) {
+        return estimator.estimate(catalog, catalog, requests[cursor.next++ & (REQUESTS - 1)]);
+    }
+
+    @Benchmark
+    public TierTable cheapestMeter(Cursor cursor) {
+        EstimationRequestDTO request = requests[cursor.next++ & (REQUESTS - 1)];
+        return catalog.cheapestMeter(request.getProductName(), request.getRegion(), request.getQuantity());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        estimator.shutdown();
+    }
+}
@@ -0,0 +1,81 @@
+package com.pricing.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pricing.bench.SyntheticCatalog;
+import com.pricing.export.ExportFormat;
+import com.pricing.export.RecordWriter;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Row writing of the full export ({@code AzurePriceService.writeRow}) in
+ * every export format, including compression. Returns the encoded size so
+ * formats can be compared on bytes as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ExportBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    @Param({"csv", "csv.gz", "csv.zst", "ndjson", "parquet"})
+    String format;
+
+    private List<AzurePriceDTO> data;
+    private AzurePriceService exporter;
+    private ExportFormat exportFormat;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = SyntheticCatalog.rows(rows, SyntheticCatalog.DEFAULT_SEED);
+        exporter = new AzurePriceService(null, null, null, null, PricingMetrics.noop());
+        exportFormat = ExportFormat.of(format);
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        RecordWriter writer = exportFormat.open(AzurePriceService.SCHEMA, out);
+        for (AzurePriceDTO p : data) {
+            exporter.writeRow(writer, p);
+        }
+        writer.finish();
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
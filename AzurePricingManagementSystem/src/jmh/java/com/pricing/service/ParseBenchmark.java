@@ -0,0 +1,75 @@
+package com.pricing.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.pricing.bench.SyntheticCatalog;
+import com.pricing.catalog.PriceTable;
+import com.pricing.ingest.RetailPricePageReader;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * {@code PriceCacheService.parseFile} on the same synthetic catalog saved as
+ * Retail API JSON and as the cache CSV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ParseBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    private Path dir;
+    private String jsonFile;
+    private String csvFile;
+    private PriceCacheService cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("azure-bench-parse");
+        List<AzurePriceDTO> data = SyntheticCatalog.rows(rows, SyntheticCatalog.DEFAULT_SEED);
+        jsonFile = SyntheticCatalog.writeJson(dir.resolve("prices.json"), data).toString();
+        csvFile = SyntheticCatalog.writeCsv(dir.resolve("prices.csv"), data).toString();
+        cache = new PriceCacheService(null, new RetailPricePageReader(new JsonFactory()), PricingMetrics.noop(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Path.of(jsonFile));
+        Files.deleteIfExists(Path.of(csvFile));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public PriceTable json() throws Exception {
+        return cache.parseFile(jsonFile);
+    }
+
+    @Benchmark
+    public PriceTable csv() throws Exception {
+        return cache.parseFile(csvFile);
+    }
+}
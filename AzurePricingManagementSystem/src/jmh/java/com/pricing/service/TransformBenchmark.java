@@ -0,0 +1,115 @@
+package com.pricing.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pricing.bench.SyntheticCatalog;
+import com.pricing.catalog.PriceSnapshot;
+import com.pricing.config.DerivedColumnProperties;
+import com.pricing.export.ExportFormat;
+import com.pricing.export.ExportSchema;
+import com.pricing.export.RecordWriter;
+import com.pricing.job.JobProgress;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+import com.pricing.transform.DerivedColumnEngine;
+
+/**
+ * {@code AzurePriceProcessorService.transform} to CSV over a mapped
+ * snapshot, plus the derived-column extractors on their own with a cold memo.
+ * Uses the same derived column rules as application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class TransformBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    int rows;
+
+    private Path snapshotFile;
+    private PriceSnapshot snapshot;
+    private List<AzurePriceDTO> data;
+    private DerivedColumnProperties properties;
+    private AzurePriceProcessorService processor;
+    private ExportSchema schema;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        data = SyntheticCatalog.rows(rows, SyntheticCatalog.DEFAULT_SEED);
+        snapshotFile = Files.createTempFile("azure-bench", ".snap");
+        PriceSnapshot.write(snapshotFile, data);
+        snapshot = PriceSnapshot.open(snapshotFile);
+        properties = defaultRules();
+        processor = new AzurePriceProcessorService(null, null, properties, PricingMetrics.noop());
+        schema = new DerivedColumnEngine(properties.getColumns()).getSchema();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        snapshot = null;
+        Files.deleteIfExists(snapshotFile);
+    }
+
+    @Benchmark
+    public long transformAndWriteCsv() throws IOException {
+        RecordWriter writer = ExportFormat.CSV.open(schema, OutputStream.nullOutputStream());
+        long nanos = processor.transform(snapshot, writer, JobProgress.untracked());
+        writer.finish();
+        return nanos;
+    }
+
+    @Benchmark
+    public void derivedColumnsColdMemo(Blackhole bh) {
+        DerivedColumnEngine engine = new DerivedColumnEngine(properties.getColumns());
+        String[] values = new String[engine.width()];
+        for (AzurePriceDTO dto : data) {
+            engine.fill(dto, values);
+            bh.consume(values);
+        }
+    }
+
+    private static DerivedColumnProperties defaultRules() {
+        DerivedColumnProperties properties = new DerivedColumnProperties();
+        properties.getColumns().add(rule("DeploymentOption", "productName", "ProductName", false,
+                "MySQL\\s+(\\w+\\s+\\w+)"));
+        properties.getColumns().add(rule("Compute", "productName", "DeploymentOption", false,
+                "(Compute[^,]*)", "([\\w\\s]*Compute[\\w\\s]*)"));
+        properties.getColumns().add(rule("VCore", "skuName", "SKU", true,
+                "(?i)(LRS)", "(?i)(ZRS)", "(?i)(GRS)"));
+        return properties;
+    }
+
+    private static DerivedColumnProperties.Rule rule(String name, String source, String after,
+                                                     boolean upperCase, String... patterns) {
+        DerivedColumnProperties.Rule rule = new DerivedColumnProperties.Rule();
+        rule.setName(name);
+        rule.setSource(source);
+        rule.setAfter(after);
+        rule.setUpperCase(upperCase);
+        rule.setPatterns(List.of(patterns));
+        return rule;
+    }
+}
@@ -3,27 +3,40 @@ package com.pricing;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import com.pricing.service.AzurePriceService;
+import com.pricing.model.JobStatusDTO;
+import com.pricing.service.PriceJobService;
+import com.pricing.service.SharedSnapshotService;
 
 @Component
 public class AzurePriceScheduler {
 
-	private final AzurePriceService azurePriceService;
+	private final PriceJobService priceJobService;
+    private final SharedSnapshotService shared;
 
-    public AzurePriceScheduler(AzurePriceService azurePriceService) {
-        this.azurePriceService = azurePriceService;
+    public AzurePriceScheduler(PriceJobService priceJobService, SharedSnapshotService shared) {
+        this.priceJobService = priceJobService;
+        this.shared = shared;
     }
 
     /**
-     * Runs automatically every Monday at 10:00 AM IST
+     * Runs automatically every Monday at 10:00 AM IST.
+     * Uploads only the rows that changed since the previous run; a full
+     * export is still available on demand via POST /api/azure/fetch-upload.
+     * The run is queued as a job (shared with any delta already in flight)
+     * and can be followed at /api/azure/jobs/{id}.
+     * With several instances sharing a bucket only the leader runs it.
      */
     @Scheduled(cron = "0 0 10 ? * MON", zone = "Asia/Kolkata")
     public void scheduleWeeklyUpload() {
-        System.out.println("📅 Starting scheduled Azure pricing upload to S3...");
+        if (!shared.isLeader()) {
+            System.out.println("⏭️ Skipping scheduled delta upload: another instance holds the leader lease");
+            return;
+        }
+        System.out.println("📅 Starting scheduled Azure pricing delta upload to S3...");
 
         try {
-            azurePriceService.fetchAndUploadData(null);
-            System.out.println("✅ Weekly Azure pricing upload completed successfully!");
+            JobStatusDTO job = priceJobService.submitDelta(null);
+            System.out.println("✅ Weekly Azure pricing delta queued as job " + job.getJobId());
         } catch (Exception e) {
             System.err.println("❌ Error during scheduled upload: " + e.getMessage());
             e.printStackTrace();
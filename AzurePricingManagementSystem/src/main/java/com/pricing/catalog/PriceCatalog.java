@@ -0,0 +1,432 @@
+package com.pricing.catalog;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Immutable, versioned snapshot of the Azure retail price catalog.
+ * Rows live in a dictionary-encoded {@link PriceTable}; they are indexed
+ * productName → armRegionName → row ids once at build time, so lookups
+ * never touch the network and the indexes hold ints rather than DTOs.
+ * A {@link PriceIndex} of per-column bitmaps backs the filtered price query,
+ * and the cheapest region/SKU offers of every product (and product + unit
+ * of measure) are ranked up front.
+ * Rows are decoded to {@link AzurePriceDTO} only when handed to callers.
+ * A new snapshot is built on every refresh and swapped in atomically by
+ * {@code PriceCatalogService}.
+ */
+public final class PriceCatalog {
+
+    private static final PriceCatalog EMPTY = new PriceCatalog(0, Instant.EPOCH, "none", false, PriceTable.empty(),
+            PriceIndex.build(PriceTable.empty()), Map.of(), List.of(), Map.of(), Map.of(), Map.of(), Map.of(),
+            Map.of(), Map.of(), Map.of(), Map.of());
+
+    /**
+     * Offers ranked per product and per product + unit; the most {@link #cheapestOffers} returns
+     */
+    public static final int CHEAPEST_OFFERS = 50;
+
+    private static final TierTable[] NO_METERS = new TierTable[0];
+    private static final int[] NO_ROWS = new int[0];
+
+    private final long version;
+    private final Instant loadedAt;
+    private final String source;
+    private final boolean complete;
+    private final PriceTable rows;
+    private final PriceIndex queryIndex;
+    private final Map<String, Map<String, int[]>> index;
+    private final List<String> products;
+    private final Map<String, List<String>> regionsByProduct;
+    private final Map<String, Integer> cheapestByProduct;
+    private final Map<String, Map<String, Integer>> cheapestByProductRegion;
+    private final Map<String, TierTable> tiersByMeter;
+    private final Map<String, TierTable[]> metersByProduct;
+    private final Map<String, Map<String, TierTable[]>> metersByProductRegion;
+    private final Map<String, int[]> offersByProduct;
+    private final Map<String, Map<String, int[]>> offersByProductUnit;
+
+    private PriceCatalog(long version, Instant loadedAt, String source, boolean complete, PriceTable rows,
+                         PriceIndex queryIndex,
+                         Map<String, Map<String, int[]>> index, List<String> products,
+                         Map<String, List<String>> regionsByProduct,
+                         Map<String, Integer> cheapestByProduct,
+                         Map<String, Map<String, Integer>> cheapestByProductRegion,
+                         Map<String, TierTable> tiersByMeter,
+                         Map<String, TierTable[]> metersByProduct,
+                         Map<String, Map<String, TierTable[]>> metersByProductRegion,
+                         Map<String, int[]> offersByProduct,
+                         Map<String, Map<String, int[]>> offersByProductUnit) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.source = source;
+        this.complete = complete;
+        this.rows = rows;
+        this.queryIndex = queryIndex;
+        this.index = index;
+        this.products = products;
+        this.regionsByProduct = regionsByProduct;
+        this.cheapestByProduct = cheapestByProduct;
+        this.cheapestByProductRegion = cheapestByProductRegion;
+        this.tiersByMeter = tiersByMeter;
+        this.metersByProduct = metersByProduct;
+        this.metersByProductRegion = metersByProductRegion;
+        this.offersByProduct = offersByProduct;
+        this.offersByProductUnit = offersByProductUnit;
+    }
+
+    public static PriceCatalog empty() {
+        return EMPTY;
+    }
+
+    public static PriceCatalog build(long version, String source, List<AzurePriceDTO> rows) {
+        return build(version, source, PriceTable.of(rows));
+    }
+
+    public static PriceCatalog build(long version, String source, PriceTable rows) {
+        return build(version, source, rows, true);
+    }
+
+    /**
+     * 🔹 Build a snapshot and all of its indexes from encoded rows;
+     * {@code complete} is false when the load stopped at a page limit
+     */
+    public static PriceCatalog build(long version, String source, PriceTable rows, boolean complete) {
+        Map<String, Map<String, IntList>> index = new HashMap<>();
+        Map<String, Integer> cheapestByProduct = new HashMap<>();
+        Map<String, Map<String, Integer>> cheapestByProductRegion = new HashMap<>();
+
+        for (int row = 0; row < rows.size(); row++) {
+            String product = rows.productName(row);
+            if (product == null) continue;
+            String region = region(rows, row);
+
+            index.computeIfAbsent(product, k -> new HashMap<>())
+                    .computeIfAbsent(region, k -> new IntList())
+                    .add(row);
+
+            if (rows.retailPrice(row) > 0) {
+                cheapestByProduct.merge(product, row, (a, b) -> cheaper(rows, a, b));
+                cheapestByProductRegion.computeIfAbsent(product, k -> new HashMap<>())
+                        .merge(region, row, (a, b) -> cheaper(rows, a, b));
+            }
+        }
+
+        // ✅ One cumulative tier table per meter, then per product / product+region meter arrays
+        int[][] rowsByMeter = consumptionRowsByMeter(rows);
+        Map<String, TierTable> tiersByMeter = new HashMap<>(rowsByMeter.length * 2);
+        Map<String, List<TierTable>> productMeters = new HashMap<>();
+        Map<String, Map<String, List<TierTable>>> productRegionMeters = new HashMap<>();
+        for (int[] meterRows : rowsByMeter) {
+            if (meterRows.length == 0) continue;
+            TierTable table = TierTable.of(rows, meterRows);
+            tiersByMeter.put(table.getMeterId(), table);
+            int meter = table.meterRow();
+            String product = rows.productName(meter);
+            if (!table.isBillable() || product == null) continue;
+            productMeters.computeIfAbsent(product, k -> new ArrayList<>()).add(table);
+            productRegionMeters.computeIfAbsent(product, k -> new HashMap<>())
+                    .computeIfAbsent(region(rows, meter), k -> new ArrayList<>()).add(table);
+        }
+        Map<String, TierTable[]> metersByProduct = new HashMap<>(productMeters.size() * 2);
+        productMeters.forEach((p, list) -> metersByProduct.put(p, list.toArray(NO_METERS)));
+        Map<String, Map<String, TierTable[]>> metersByProductRegion = new HashMap<>(productRegionMeters.size() * 2);
+        productRegionMeters.forEach((p, byRegion) -> {
+            Map<String, TierTable[]> arrays = new HashMap<>(byRegion.size() * 2);
+            byRegion.forEach((region, list) -> arrays.put(region, list.toArray(NO_METERS)));
+            metersByProductRegion.put(p, Collections.unmodifiableMap(arrays));
+        });
+
+        // ✅ Cheapest offers per product, and per product + unit (prices in different units don't compare)
+        Map<String, int[]> offersByProduct = new HashMap<>(productMeters.size() * 2);
+        Map<String, Map<String, int[]>> offersByProductUnit = new HashMap<>(productMeters.size() * 2);
+        productMeters.forEach((p, list) -> {
+            offersByProduct.put(p, cheapestOffers(rows, list));
+            Map<String, List<TierTable>> byUnit = new HashMap<>();
+            for (TierTable table : list) {
+                byUnit.computeIfAbsent(unit(rows, table.meterRow()), k -> new ArrayList<>()).add(table);
+            }
+            Map<String, int[]> units = new HashMap<>(byUnit.size() * 2);
+            byUnit.forEach((unit, meters) -> units.put(unit, cheapestOffers(rows, meters)));
+            offersByProductUnit.put(p, Collections.unmodifiableMap(units));
+        });
+
+        Map<String, Map<String, int[]>> frozenIndex = new HashMap<>(index.size() * 2);
+        Map<String, List<String>> regionsByProduct = new HashMap<>(index.size() * 2);
+        for (Map.Entry<String, Map<String, IntList>> e : index.entrySet()) {
+            Map<String, int[]> byRegion = new HashMap<>(e.getValue().size() * 2);
+            e.getValue().forEach((region, list) -> byRegion.put(region, list.toArray()));
+            frozenIndex.put(e.getKey(), Collections.unmodifiableMap(byRegion));
+
+            TreeSet<String> regions = new TreeSet<>(byRegion.keySet());
+            regions.remove("");
+            regionsByProduct.put(e.getKey(), List.copyOf(regions));
+        }
+        Map<String, Map<String, Integer>> frozenCheapest = new HashMap<>(cheapestByProductRegion.size() * 2);
+        cheapestByProductRegion.forEach((p, m) -> frozenCheapest.put(p, Collections.unmodifiableMap(m)));
+
+        return new PriceCatalog(version, Instant.now(), source, complete, rows, PriceIndex.build(rows),
+                Collections.unmodifiableMap(frozenIndex),
+                List.copyOf(new TreeMap<>(index).keySet()),
+                Collections.unmodifiableMap(regionsByProduct),
+                Collections.unmodifiableMap(cheapestByProduct),
+                Collections.unmodifiableMap(frozenCheapest),
+                Collections.unmodifiableMap(tiersByMeter),
+                Collections.unmodifiableMap(metersByProduct),
+                Collections.unmodifiableMap(metersByProductRegion),
+                Collections.unmodifiableMap(offersByProduct),
+                Collections.unmodifiableMap(offersByProductUnit));
+    }
+
+    /**
+     * Row ids of the {@link #CHEAPEST_OFFERS} cheapest offers among {@code meters},
+     * cheapest first. An offer is one region + SKU, represented by its
+     * cheapest meter's first paid tier.
+     */
+    private static int[] cheapestOffers(PriceTable rows, List<TierTable> meters) {
+        Map<String, Integer> bestByOffer = new HashMap<>(meters.size() * 2);
+        for (TierTable table : meters) {
+            int row = table.meterRow();
+            bestByOffer.merge(region(rows, row) + '\0' + rows.string(PriceTable.SKU_NAME, row), row,
+                    (a, b) -> cheaper(rows, a, b));
+        }
+        return bestByOffer.values().stream()
+                .sorted(Comparator.comparingDouble((Integer row) -> rows.retailPrice(row))
+                        .thenComparing(row -> region(rows, row))
+                        .thenComparing(row -> rows.string(PriceTable.SKU_NAME, row),
+                                Comparator.nullsFirst(Comparator.naturalOrder())))
+                .limit(CHEAPEST_OFFERS)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static String unit(PriceTable rows, int row) {
+        String unit = rows.string(PriceTable.UNIT_OF_MEASURE, row);
+        return unit != null ? unit : "";
+    }
+
+    /**
+     * Consumption row ids grouped by meterId: meters are numbered in the
+     * order they first appear, then a counting sort over those numbers fills
+     * one exact-size array per meter (no per-meter list is allocated)
+     */
+    private static int[][] consumptionRowsByMeter(PriceTable rows) {
+        String[] meterIds = rows.meterIds();
+        Map<String, Integer> numbers = new HashMap<>();
+        int[] meterCodes = new int[rows.size()];
+        int[] counts = new int[16];
+        for (int row = 0; row < rows.size(); row++) {
+            if (meterIds[row] == null || !isConsumption(rows, row)) {
+                meterCodes[row] = -1;
+                continue;
+            }
+            int m = numbers.computeIfAbsent(meterIds[row], k -> numbers.size());
+            if (m == counts.length) counts = Arrays.copyOf(counts, m * 2);
+            meterCodes[row] = m;
+            counts[m]++;
+        }
+        int meters = numbers.size();
+        int[][] grouped = new int[meters][];
+        for (int m = 0; m < meters; m++) grouped[m] = counts[m] == 0 ? NO_ROWS : new int[counts[m]];
+        Arrays.fill(counts, 0);
+        for (int row = 0; row < rows.size(); row++) {
+            int m = meterCodes[row];
+            if (m >= 0) grouped[m][counts[m]++] = row;
+        }
+        return grouped;
+    }
+
+    private static String region(PriceRows rows, int row) {
+        String region = rows.armRegionName(row);
+        return region != null ? region : "";
+    }
+
+    private static int cheaper(PriceRows rows, int a, int b) {
+        return rows.retailPrice(b) < rows.retailPrice(a) ? b : a;
+    }
+
+    /**
+     * Reservation and other term-priced rows are not per-unit, so they are kept out of tier tables
+     */
+    private static boolean isConsumption(PriceRows rows, int row) {
+        String type = rows.type(row);
+        return type == null || "Consumption".equals(type);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * False when the snapshot holds only the first pages of the source, so a
+     * product in it may be missing regions or meters
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * Encoded rows backing this snapshot; row ids from the indexes address it
+     */
+    public PriceTable getTable() {
+        return rows;
+    }
+
+    public List<String> getProducts() {
+        return products;
+    }
+
+    public boolean hasProduct(String product) {
+        return product != null && index.containsKey(product);
+    }
+
+    public List<String> getRegionsForProduct(String product) {
+        if (product == null) return List.of();
+        return regionsByProduct.getOrDefault(product, List.of());
+    }
+
+    /**
+     * Rows for a product, optionally narrowed to one region (null/empty = all regions)
+     */
+    public List<AzurePriceDTO> find(String product, String region) {
+        Map<String, int[]> byRegion = product != null ? index.get(product) : null;
+        if (byRegion == null) return List.of();
+        List<AzurePriceDTO> found = new ArrayList<>();
+        if (region != null && !region.isEmpty()) {
+            for (int row : byRegion.getOrDefault(region, NO_ROWS)) found.add(rows.get(row));
+            return found;
+        }
+        byRegion.values().forEach(ids -> {
+            for (int row : ids) found.add(rows.get(row));
+        });
+        return found;
+    }
+
+    /**
+     * 🔹 Filtered, sorted page of rows; see {@link PriceQuery} for the semantics
+     */
+    public PriceQuery.Page query(PriceQuery query) {
+        return queryIndex.query(query);
+    }
+
+    /**
+     * 🔹 Every row id matching {@code query}, in its sort order, without
+     * paging (limit and cursor are ignored); read the rows from {@link #getTable()}
+     */
+    public void forEach(PriceQuery query, IntConsumer rows) {
+        queryIndex.forEach(query, rows);
+    }
+
+    /**
+     * Cheapest non-zero price for a product, optionally in one region (null/empty = any region)
+     */
+    public AzurePriceDTO cheapest(String product, String region) {
+        if (product == null) return null;
+        Integer row;
+        if (region == null || region.isEmpty()) {
+            row = cheapestByProduct.get(product);
+        } else {
+            Map<String, Integer> byRegion = cheapestByProductRegion.get(product);
+            row = byRegion != null ? byRegion.get(region) : null;
+        }
+        return row != null ? rows.get(row) : null;
+    }
+
+    /**
+     * 🔹 Up to {@code n} (at most {@link #CHEAPEST_OFFERS}) cheapest region/SKU
+     * offers of a product, cheapest first, optionally only those billed per
+     * {@code unit}. The ranking is built with the snapshot, so this only
+     * decodes the rows it returns.
+     */
+    public List<AzurePriceDTO> cheapestOffers(String product, String unit, int n) {
+        if (product == null) return List.of();
+        int[] ranked;
+        if (unit == null || unit.isEmpty()) {
+            ranked = offersByProduct.getOrDefault(product, NO_ROWS);
+        } else {
+            Map<String, int[]> byUnit = offersByProductUnit.get(product);
+            ranked = byUnit != null ? byUnit.getOrDefault(unit, NO_ROWS) : NO_ROWS;
+        }
+        List<AzurePriceDTO> offers = new ArrayList<>(Math.min(n, ranked.length));
+        for (int i = 0; i < ranked.length && i < n; i++) offers.add(rows.get(ranked[i]));
+        return offers;
+    }
+
+    /**
+     * Tier table for one meter, or null when the meter is unknown
+     */
+    public TierTable tiers(String meterId) {
+        return meterId != null ? tiersByMeter.get(meterId) : null;
+    }
+
+    /**
+     * 🔹 Meter with the lowest total cost for {@code quantity} units, priced
+     * across its tiers. One binary search per candidate meter, no allocation.
+     */
+    public TierTable cheapestMeter(String product, String region, double quantity) {
+        if (product == null) return null;
+        TierTable[] candidates;
+        if (region == null || region.isEmpty()) {
+            candidates = metersByProduct.getOrDefault(product, NO_METERS);
+        } else {
+            Map<String, TierTable[]> byRegion = metersByProductRegion.get(product);
+            candidates = byRegion != null ? byRegion.getOrDefault(region, NO_METERS) : NO_METERS;
+        }
+
+        TierTable best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (TierTable table : candidates) {
+            double cost = table.cost(quantity);
+            if (cost < bestCost || (cost == bestCost && best != null
+                    && table.priceAt(quantity) < best.priceAt(quantity))) {
+                best = table;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Growable int array for row ids while the index is being built
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,607 @@
+package com.pricing.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Secondary indexes behind {@link PriceCatalog#query}, built once per
+ * snapshot over its {@link PriceTable}:
+ * <ul>
+ * <li>a run-compressed bitmap of row ids per distinct value of every
+ * {@link PriceQuery.Field}, so filters are bitmap unions and intersections;</li>
+ * <li>row ids ordered by price, which answers price ranges with two binary
+ * searches and lets price-sorted pages stop after {@code limit} rows;</li>
+ * <li>the case-insensitive alphabetical order of every dictionary, so name
+ * sorts walk the value bitmaps in order instead of sorting rows.</li>
+ * </ul>
+ * Catalog rows arrive grouped by service and product, so most bitmaps
+ * collapse to a few runs.
+ */
+final class PriceIndex {
+
+    private static final PriceQuery.Field[] FIELDS = PriceQuery.Field.values();
+
+    private final PriceTable table;
+    private final RoaringBitmap[][] postings;
+    private final List<Map<String, int[]>> codesByValue;
+    private final int[][] ranks;
+    private final int[][] codesByRank;
+    private final boolean[] hasNulls;
+    private final int[] byPrice;
+
+    private PriceIndex(PriceTable table, RoaringBitmap[][] postings, List<Map<String, int[]>> codesByValue,
+                       int[][] ranks, int[][] codesByRank, boolean[] hasNulls, int[] byPrice) {
+        this.table = table;
+        this.postings = postings;
+        this.codesByValue = codesByValue;
+        this.ranks = ranks;
+        this.codesByRank = codesByRank;
+        this.hasNulls = hasNulls;
+        this.byPrice = byPrice;
+    }
+
+    static PriceIndex build(PriceTable table) {
+        RoaringBitmap[][] postings = new RoaringBitmap[FIELDS.length][];
+        List<Map<String, int[]>> codesByValue = new ArrayList<>(FIELDS.length);
+        int[][] ranks = new int[FIELDS.length][];
+        int[][] codesByRank = new int[FIELDS.length][];
+        boolean[] hasNulls = new boolean[FIELDS.length];
+        for (PriceQuery.Field field : FIELDS) {
+            int f = field.ordinal();
+            String[] dictionary = table.dictionary(field.column);
+            postings[f] = bitmapsByCode(table.codes(field.column), dictionary.length);
+            codesByValue.add(codesByValue(dictionary));
+            codesByRank[f] = alphabeticalOrder(dictionary);
+            ranks[f] = new int[dictionary.length];
+            for (int rank = 0; rank < dictionary.length; rank++) ranks[f][codesByRank[f][rank]] = rank;
+            for (int code : table.codes(field.column)) {
+                if (code < 0) {
+                    hasNulls[f] = true;
+                    break;
+                }
+            }
+        }
+        return new PriceIndex(table, postings, codesByValue, ranks, codesByRank, hasNulls,
+                rowsByPrice(table.prices()));
+    }
+
+    /**
+     * One bitmap per dictionary code; rows are grouped by a counting sort so
+     * every bitmap is filled in ascending row order in one call
+     */
+    private static RoaringBitmap[] bitmapsByCode(int[] codes, int distinct) {
+        int[] counts = new int[distinct + 1];
+        for (int code : codes) {
+            if (code >= 0) counts[code + 1]++;
+        }
+        for (int c = 0; c < distinct; c++) counts[c + 1] += counts[c];
+        int[] grouped = new int[counts[distinct]];
+        int[] next = Arrays.copyOf(counts, distinct);
+        for (int row = 0; row < codes.length; row++) {
+            if (codes[row] >= 0) grouped[next[codes[row]]++] = row;
+        }
+
+        RoaringBitmap[] bitmaps = new RoaringBitmap[distinct];
+        for (int c = 0; c < distinct; c++) {
+            RoaringBitmap bitmap = new RoaringBitmap();
+            bitmap.addN(grouped, counts[c], counts[c + 1] - counts[c]);
+            bitmap.runOptimize();
+            bitmaps[c] = bitmap;
+        }
+        return bitmaps;
+    }
+
+    private static Map<String, int[]> codesByValue(String[] dictionary) {
+        Map<String, int[]> codes = new HashMap<>(dictionary.length * 2);
+        for (int c = 0; c < dictionary.length; c++) {
+            int code = c;
+            codes.merge(dictionary[c].toLowerCase(Locale.ROOT), new int[] {code}, (a, b) -> {
+                int[] merged = Arrays.copyOf(a, a.length + 1);
+                merged[a.length] = code;
+                return merged;
+            });
+        }
+        return codes;
+    }
+
+    /**
+     * Dictionary codes in case-insensitive alphabetical order of their values
+     */
+    private static int[] alphabeticalOrder(String[] dictionary) {
+        Integer[] order = new Integer[dictionary.length];
+        for (int c = 0; c < order.length; c++) order[c] = c;
+        Arrays.sort(order, Comparator.comparing((Integer c) -> dictionary[c], String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(c -> dictionary[c]));
+        int[] codes = new int[order.length];
+        for (int i = 0; i < order.length; i++) codes[i] = order[i];
+        return codes;
+    }
+
+    /**
+     * Row ids ordered by (price, row): a counting sort over the rank of each
+     * price among the distinct prices, so ties stay in row order
+     */
+    private static int[] rowsByPrice(double[] prices) {
+        double[] distinct = prices.clone();
+        Arrays.sort(distinct);
+        int unique = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (unique == 0 || Double.compare(distinct[i], distinct[unique - 1]) != 0) distinct[unique++] = distinct[i];
+        }
+
+        int[] rank = new int[prices.length];
+        int[] counts = new int[unique + 1];
+        for (int row = 0; row < prices.length; row++) {
+            rank[row] = Arrays.binarySearch(distinct, 0, unique, prices[row]);
+            counts[rank[row] + 1]++;
+        }
+        for (int r = 0; r < unique; r++) counts[r + 1] += counts[r];
+        int[] sorted = new int[prices.length];
+        for (int row = 0; row < prices.length; row++) sorted[counts[rank[row]]++] = row;
+        return sorted;
+    }
+
+    // ---------------------------------------------------------------- query
+
+    /**
+     * 🔹 Resolve filters to one bitmap (smallest first, so every intersection
+     * shrinks the next), narrow it by price, then read one page in the
+     * requested order
+     */
+    PriceQuery.Page query(PriceQuery query) {
+        Scan scan = scan(query);
+        if (scan == null || scan.total == 0) return PriceQuery.Page.EMPTY;
+
+        int[] rows;
+        if (query.sort() == null || query.sort() == PriceQuery.Sort.CATALOG) {
+            rows = scan.inRowOrder();
+        } else if (query.sort() == PriceQuery.Sort.PRICE) {
+            rows = scan.inPriceOrder();
+        } else {
+            rows = scan.inNameOrder(query.sort().field);
+        }
+
+        boolean hasMore = rows.length > query.limit();
+        int count = Math.min(rows.length, query.limit());
+        List<AzurePriceDTO> prices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) prices.add(table.get(rows[i]));
+        return new PriceQuery.Page(prices, scan.total, count > 0 ? rows[count - 1] : -1, hasMore);
+    }
+
+    /**
+     * 🔹 Hand every match of {@code query} to {@code rows} in the requested
+     * order; limit and cursor are ignored. Row ids are produced while the
+     * filter bitmap, the price order or the value bitmaps are walked, never
+     * collected, so memory does not grow with the number of matches.
+     */
+    void forEach(PriceQuery query, IntConsumer rows) {
+        Scan scan = scan(query);
+        if (scan == null || scan.total == 0) return;
+        if (query.sort() == null || query.sort() == PriceQuery.Sort.CATALOG) {
+            scan.eachInRowOrder(rows);
+        } else if (query.sort() == PriceQuery.Sort.PRICE) {
+            scan.eachInPriceOrder(rows);
+        } else {
+            scan.eachInNameOrder(query.sort().field, rows);
+        }
+    }
+
+    /**
+     * Candidate rows of a query, or null when one of its filters matches nothing
+     */
+    private Scan scan(PriceQuery query) {
+        List<RoaringBitmap> sets = new ArrayList<>();
+        if (query.filters() != null) {
+            for (Map.Entry<PriceQuery.Field, List<String>> filter : query.filters().entrySet()) {
+                if (filter.getValue() == null || filter.getValue().isEmpty()) continue;
+                RoaringBitmap set = union(filter.getKey(), filter.getValue());
+                if (set.isEmpty()) return null;
+                sets.add(set);
+            }
+        }
+        sets.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+        RoaringBitmap matches = null;
+        for (RoaringBitmap set : sets) {
+            matches = matches == null ? set : RoaringBitmap.and(matches, set);
+            if (matches.isEmpty()) return null;
+        }
+        return new Scan(query, matches);
+    }
+
+    private RoaringBitmap union(PriceQuery.Field field, List<String> values) {
+        RoaringBitmap[] bitmaps = postings[field.ordinal()];
+        Map<String, int[]> lookup = codesByValue.get(field.ordinal());
+        List<RoaringBitmap> selected = new ArrayList<>();
+        for (String value : values) {
+            int[] codes = value != null ? lookup.get(value.toLowerCase(Locale.ROOT)) : null;
+            if (codes == null) continue;
+            for (int code : codes) selected.add(bitmaps[code]);
+        }
+        if (selected.isEmpty()) return new RoaringBitmap();
+        return selected.size() == 1 ? selected.get(0) : RoaringBitmap.or(selected.iterator());
+    }
+
+    /**
+     * First position in {@link #byPrice} whose price is >= {@code price} (or > when {@code after})
+     */
+    private int pricePosition(double price, boolean after) {
+        double[] prices = table.prices();
+        int lo = 0;
+        int hi = byPrice.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Double.compare(prices[byPrice[mid]], price);
+            if (c < 0 || (after && c == 0)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Position of a row in {@link #byPrice}, found by its (price, row) key
+     */
+    private int positionOf(int row) {
+        double[] prices = table.prices();
+        int lo = pricePosition(prices[row], false);
+        int hi = pricePosition(prices[row], true);
+        int at = Arrays.binarySearch(byPrice, lo, hi, row);
+        return at >= 0 ? at : -(at + 1);
+    }
+
+    /**
+     * Total order for sorted pages: (key, row), reversed for descending
+     */
+    private static int compare(long keyA, int rowA, long keyB, int rowB, boolean descending) {
+        int c = Long.compare(keyA, keyB);
+        if (c == 0) c = Integer.compare(rowA, rowB);
+        return descending ? -c : c;
+    }
+
+    /**
+     * Price as a long that sorts the same way as the double
+     */
+    private static long priceKey(double price) {
+        long bits = Double.doubleToLongBits(price);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Candidate rows for one query: {@code matches} (null = every row), the
+     * price slice {@code [lo, hi)} of {@link #byPrice}, and whether rows read
+     * from {@code matches} still need their price checked.
+     */
+    private final class Scan {
+
+        private final double[] prices = table.prices();
+        private final int size = table.size();
+        private final double min;
+        private final double max;
+        private final int lo;
+        private final int hi;
+        private final int want;
+        private final int after;
+        private final boolean descending;
+        private RoaringBitmap matches;
+        private boolean checkPrice;
+        private long total;
+
+        Scan(PriceQuery query, RoaringBitmap matches) {
+            this.matches = matches;
+            this.min = query.minPrice() != null ? query.minPrice() : Double.NEGATIVE_INFINITY;
+            this.max = query.maxPrice() != null ? query.maxPrice() : Double.POSITIVE_INFINITY;
+            this.lo = query.minPrice() != null ? pricePosition(min, false) : 0;
+            this.hi = query.maxPrice() != null ? pricePosition(max, true) : size;
+            this.want = query.limit() + 1;
+            this.after = query.afterRow();
+            this.descending = query.descending();
+
+            int candidates = matches != null ? matches.getCardinality() : size;
+            boolean priced = query.minPrice() != null || query.maxPrice() != null;
+            if (!priced) {
+                total = candidates;
+            } else if (hi <= lo) {
+                total = 0;
+            } else if ((long) (hi - lo) * 8 < candidates) {
+                // ✅ Selective range: turn the price slice into a bitmap and intersect
+                int[] slice = Arrays.copyOfRange(byPrice, lo, hi);
+                Arrays.sort(slice);
+                RoaringBitmap inRange = RoaringBitmap.bitmapOf(slice);
+                this.matches = matches != null ? RoaringBitmap.and(matches, inRange) : inRange;
+                total = this.matches.getCardinality();
+            } else {
+                checkPrice = true;
+                total = matches != null ? countInRange(matches) : hi - lo;
+            }
+        }
+
+        private boolean inRange(int row) {
+            return !checkPrice || (prices[row] >= min && prices[row] <= max);
+        }
+
+        private long countInRange(RoaringBitmap rows) {
+            long count = 0;
+            PeekableIntIterator it = rows.getIntIterator();
+            while (it.hasNext()) {
+                if (inRange(it.next())) count++;
+            }
+            return count;
+        }
+
+        /**
+         * Ascending row ids after the cursor; stops as soon as the page is full
+         */
+        int[] inRowOrder() {
+            int[] out = new int[want];
+            int found = 0;
+            if (matches == null) {
+                for (int row = after + 1; row < size && found < want; row++) {
+                    if (inRange(row)) out[found++] = row;
+                }
+            } else {
+                PeekableIntIterator it = matches.getIntIterator();
+                it.advanceIfNeeded(after + 1);
+                while (it.hasNext() && found < want) {
+                    int row = it.next();
+                    if (inRange(row)) out[found++] = row;
+                }
+            }
+            return Arrays.copyOf(out, found);
+        }
+
+        /**
+         * Walk the price order from the cursor, keeping rows that are in
+         * {@code matches}. When the matches are spread thinly over the price
+         * range the walk gives up after twice their count and the page is
+         * selected from the matches directly instead.
+         */
+        int[] inPriceOrder() {
+            int start;
+            if (after < 0) {
+                start = descending ? hi - 1 : lo;
+            } else {
+                int at = positionOf(after);
+                start = descending ? Math.min(at - 1, hi - 1) : Math.max(at + 1, lo);
+            }
+            int step = descending ? -1 : 1;
+            long budget = matches != null ? 2L * matches.getCardinality() + want : Long.MAX_VALUE;
+
+            int[] out = new int[want];
+            int found = 0;
+            for (int i = start; i >= lo && i < hi && found < want; i += step) {
+                if (budget-- == 0) {
+                    return ranked(null, -1);
+                }
+                int row = byPrice[i];
+                if (matches == null || matches.contains(row)) out[found++] = row;
+            }
+            return Arrays.copyOf(out, found);
+        }
+
+        /**
+         * Walk the value bitmaps of {@code field} in alphabetical order (rows
+         * of one value in row order), keeping candidate rows. Falls back to
+         * the heap when the column has nulls (they sort first and are in no
+         * bitmap) or when the walk runs past twice the candidate count.
+         */
+        int[] inNameOrder(PriceQuery.Field field) {
+            int f = field.ordinal();
+            if (hasNulls[f]) return ranked(ranks[f], field.column);
+
+            int[] order = codesByRank[f];
+            RoaringBitmap[] bitmaps = postings[f];
+            int[] codes = table.codes(field.column);
+            int startRank = after < 0 ? (descending ? order.length - 1 : 0) : ranks[f][codes[after]];
+            int step = descending ? -1 : 1;
+            long budget = matches != null ? 2L * matches.getCardinality() + want : Long.MAX_VALUE;
+
+            int[] out = new int[want];
+            int found = 0;
+            for (int rank = startRank; rank >= 0 && rank < order.length && found < want; rank += step) {
+                RoaringBitmap rows = bitmaps[order[rank]];
+                boolean cursorValue = after >= 0 && rank == startRank;
+                IntIterator it;
+                if (descending) {
+                    it = rows.getReverseIntIterator();
+                } else {
+                    PeekableIntIterator forward = rows.getIntIterator();
+                    if (cursorValue) forward.advanceIfNeeded(after + 1);
+                    it = forward;
+                }
+                while (it.hasNext() && found < want) {
+                    if (budget-- == 0) return ranked(ranks[f], field.column);
+                    int row = it.next();
+                    if (descending && cursorValue && row >= after) continue;
+                    if ((matches == null || matches.contains(row)) && inRange(row)) out[found++] = row;
+                }
+            }
+            return Arrays.copyOf(out, found);
+        }
+
+        /**
+         * Every candidate in row order, as {@link #inRowOrder} without a cursor or limit
+         */
+        void eachInRowOrder(IntConsumer out) {
+            if (matches == null) {
+                for (int row = 0; row < size; row++) {
+                    if (inRange(row)) out.accept(row);
+                }
+            } else {
+                PeekableIntIterator it = matches.getIntIterator();
+                while (it.hasNext()) {
+                    int row = it.next();
+                    if (inRange(row)) out.accept(row);
+                }
+            }
+        }
+
+        /**
+         * Every candidate in (price, row) order: one pass over the price slice
+         */
+        void eachInPriceOrder(IntConsumer out) {
+            for (int i = 0; i < hi - lo; i++) {
+                int row = byPrice[descending ? hi - 1 - i : lo + i];
+                if (matches == null || matches.contains(row)) out.accept(row);
+            }
+        }
+
+        /**
+         * Every candidate in (value, row) order: rows without a value first
+         * (last when descending), then the value bitmaps in alphabetical order
+         */
+        void eachInNameOrder(PriceQuery.Field field, IntConsumer out) {
+            int f = field.ordinal();
+            int[] order = codesByRank[f];
+            RoaringBitmap[] bitmaps = postings[f];
+            if (hasNulls[f] && !descending) eachWithoutValue(table.codes(field.column), out);
+            for (int i = 0; i < order.length; i++) {
+                RoaringBitmap rows = bitmaps[order[descending ? order.length - 1 - i : i]];
+                IntIterator it = descending ? rows.getReverseIntIterator() : rows.getIntIterator();
+                while (it.hasNext()) {
+                    int row = it.next();
+                    if ((matches == null || matches.contains(row)) && inRange(row)) out.accept(row);
+                }
+            }
+            if (hasNulls[f] && descending) eachWithoutValue(table.codes(field.column), out);
+        }
+
+        private void eachWithoutValue(int[] codes, IntConsumer out) {
+            if (matches == null) {
+                for (int i = 0; i < size; i++) {
+                    int row = descending ? size - 1 - i : i;
+                    if (codes[row] < 0 && inRange(row)) out.accept(row);
+                }
+                return;
+            }
+            IntIterator it = descending ? matches.getReverseIntIterator() : matches.getIntIterator();
+            while (it.hasNext()) {
+                int row = it.next();
+                if (codes[row] < 0 && inRange(row)) out.accept(row);
+            }
+        }
+
+        /**
+         * Page after the cursor by a sort key, chosen with a bounded heap over
+         * every candidate row. {@code ranks == null} sorts by price.
+         */
+        int[] ranked(int[] ranks, int column) {
+            int[] codes = ranks != null ? table.codes(column) : null;
+            TopRows top = new TopRows(want, descending);
+            long afterKey = after >= 0 ? key(ranks, codes, after) : 0;
+
+            if (matches == null) {
+                for (int row = 0; row < size; row++) {
+                    offer(top, ranks, codes, row, afterKey);
+                }
+            } else {
+                PeekableIntIterator it = matches.getIntIterator();
+                while (it.hasNext()) {
+                    offer(top, ranks, codes, it.next(), afterKey);
+                }
+            }
+            return top.sorted();
+        }
+
+        private void offer(TopRows top, int[] ranks, int[] codes, int row, long afterKey) {
+            if (!inRange(row)) return;
+            long key = key(ranks, codes, row);
+            if (after >= 0 && compare(key, row, afterKey, after, descending) <= 0) return;
+            top.offer(key, row);
+        }
+
+        private long key(int[] ranks, int[] codes, int row) {
+            if (ranks == null) return priceKey(prices[row]);
+            int code = codes[row];
+            return code < 0 ? -1 : ranks[code];
+        }
+    }
+
+    /**
+     * The {@code capacity} first rows in sort order, kept in a max-heap whose
+     * root is the last row still on the page
+     */
+    private static final class TopRows {
+
+        private final long[] keys;
+        private final int[] rows;
+        private final boolean descending;
+        private int size;
+
+        TopRows(int capacity, boolean descending) {
+            this.keys = new long[capacity];
+            this.rows = new int[capacity];
+            this.descending = descending;
+        }
+
+        void offer(long key, int row) {
+            if (size < keys.length) {
+                keys[size] = key;
+                rows[size] = row;
+                siftUp(size++);
+            } else if (compare(key, row, keys[0], rows[0], descending) < 0) {
+                keys[0] = key;
+                rows[0] = row;
+                siftDown(0, size);
+            }
+        }
+
+        /**
+         * Drain the heap into ascending sort order
+         */
+        int[] sorted() {
+            int[] out = new int[size];
+            for (int end = size - 1; end >= 0; end--) {
+                out[end] = rows[0];
+                swap(0, end);
+                siftDown(0, end);
+            }
+            return out;
+        }
+
+        private boolean above(int a, int b) {
+            return compare(keys[a], rows[a], keys[b], rows[b], descending) > 0;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!above(i, parent)) return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int end) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < end && above(left, largest)) largest = left;
+                if (right < end && above(right, largest)) largest = right;
+                if (largest == i) return;
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long key = keys[a];
+            keys[a] = keys[b];
+            keys[b] = key;
+            int row = rows[a];
+            rows[a] = rows[b];
+            rows[b] = row;
+        }
+    }
+}
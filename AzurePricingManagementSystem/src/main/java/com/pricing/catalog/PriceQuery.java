@@ -0,0 +1,63 @@
+package com.pricing.catalog;
+
+import java.util.List;
+import java.util.Map;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Filter, sort and page position for {@link PriceCatalog#query}.
+ * <p>
+ * Values given for one field are OR'ed and fields are AND'ed; matching is
+ * exact but case-insensitive. The price range is inclusive and either end
+ * may be null. {@code afterRow} is the last row id of the previous page
+ * (-1 for the first page) and only means something to the catalog version
+ * that returned it.
+ */
+public record PriceQuery(Map<Field, List<String>> filters, Double minPrice, Double maxPrice,
+                         Sort sort, boolean descending, int limit, int afterRow) {
+
+    /**
+     * Categorical columns with a bitmap index
+     */
+    public enum Field {
+        SERVICE_FAMILY(PriceTable.SERVICE_FAMILY),
+        PRODUCT(PriceTable.PRODUCT_NAME),
+        SKU(PriceTable.SKU_NAME),
+        REGION(PriceTable.ARM_REGION_NAME),
+        TYPE(PriceTable.TYPE),
+        UNIT(PriceTable.UNIT_OF_MEASURE);
+
+        final int column;
+
+        Field(int column) {
+            this.column = column;
+        }
+    }
+
+    /**
+     * Result order; CATALOG is row order and always ascending, name sorts are case-insensitive
+     */
+    public enum Sort {
+        CATALOG(null),
+        PRICE(null),
+        SERVICE_FAMILY(Field.SERVICE_FAMILY),
+        PRODUCT(Field.PRODUCT),
+        SKU(Field.SKU),
+        REGION(Field.REGION);
+
+        final Field field;
+
+        Sort(Field field) {
+            this.field = field;
+        }
+    }
+
+    /**
+     * One page of matches; {@code total} counts every match, not just this page
+     */
+    public record Page(List<AzurePriceDTO> prices, long total, int lastRow, boolean hasMore) {
+
+        static final Page EMPTY = new Page(List.of(), 0, -1, false);
+    }
+}
@@ -0,0 +1,42 @@
+package com.pricing.catalog;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Read access to a dictionary-encoded price row store, whether it lives on
+ * the heap ({@link PriceTable}) or in a memory-mapped file
+ * ({@link PriceSnapshot}). Rows are addressed by index; string accessors
+ * return shared dictionary instances, so scanning allocates nothing.
+ * {@link AzurePriceDTO}s are only created by {@link #get} at the API edge.
+ */
+public interface PriceRows {
+
+    int size();
+
+    double retailPrice(int row);
+
+    int tierMinimumUnits(int row);
+
+    int tierMaximumUnits(int row);
+
+    String meterId(int row);
+
+    String productName(int row);
+
+    String armRegionName(int row);
+
+    String effectiveStartDate(int row);
+
+    String type(int row);
+
+    /**
+     * Copy one row into a reusable DTO (no allocation; strings come from the dictionaries)
+     */
+    void readInto(int row, AzurePriceDTO dto);
+
+    default AzurePriceDTO get(int row) {
+        AzurePriceDTO dto = new AzurePriceDTO();
+        readInto(row, dto);
+        return dto;
+    }
+}
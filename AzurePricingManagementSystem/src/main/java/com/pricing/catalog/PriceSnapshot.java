@@ -0,0 +1,284 @@
+package com.pricing.catalog;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Columnar binary snapshot of the local price cache, read through a
+ * memory-mapped file.
+ * <p>
+ * Layout (big-endian, every section 8-byte aligned):
+ * <pre>
+ *   header : magic "AZPS", version, rowCount, stringColumnCount
+ *   per string column : dictSize, dictSize x (byteLength, UTF-8 bytes), rowCount x int code (-1 = null)
+ *   meterId, skuId    : rowCount x int offset, rowCount x int byteLength (-1 = null), byteCount, UTF-8 bytes
+ *   retailPrice       : rowCount x double
+ *   tierMinimumUnits  : rowCount x int
+ *   tierMaximumUnits  : rowCount x int
+ * </pre>
+ * Only the dictionaries are decoded when the file is opened; codes, prices
+ * and tiers are read straight from the mapping, so scanning rows allocates
+ * nothing per row. meterId and skuId are not dictionary-encoded (nearly
+ * every row has its own) and are decoded from the mapping when a row asks
+ * for them. Column order is that of {@link PriceTable}, whose dictionaries
+ * are written out unchanged.
+ */
+public final class PriceSnapshot implements PriceRows {
+
+    private static final int MAGIC = 0x415a5053; // "AZPS"
+    private static final int VERSION = 3; // 2: reservationTerm column, 3: per-row meterId / skuId
+
+    private final int rowCount;
+    private final String[][] dictionaries;
+    private final IntBuffer[] codes;
+    private final RowStrings meterIds;
+    private final RowStrings skuIds;
+    private final DoubleBuffer prices;
+    private final IntBuffer tierMin;
+    private final IntBuffer tierMax;
+
+    private PriceSnapshot(int rowCount, String[][] dictionaries, IntBuffer[] codes, RowStrings meterIds,
+                          RowStrings skuIds, DoubleBuffer prices, IntBuffer tierMin, IntBuffer tierMax) {
+        this.rowCount = rowCount;
+        this.dictionaries = dictionaries;
+        this.codes = codes;
+        this.meterIds = meterIds;
+        this.skuIds = skuIds;
+        this.prices = prices;
+        this.tierMin = tierMin;
+        this.tierMax = tierMax;
+    }
+
+    /**
+     * 🔹 Map a snapshot file; only the string dictionaries are materialised
+     */
+    public static PriceSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buf.getInt() != MAGIC) throw new IOException("Not a price snapshot: " + file);
+            int version = buf.getInt();
+            if (version != VERSION) throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            int rows = buf.getInt();
+            int columns = buf.getInt();
+            if (columns != PriceTable.STRING_COLUMNS.size()) throw new IOException("Unexpected column count in " + file);
+
+            String[][] dictionaries = new String[columns][];
+            IntBuffer[] codes = new IntBuffer[columns];
+            for (int c = 0; c < columns; c++) {
+                String[] dict = new String[buf.getInt()];
+                for (int i = 0; i < dict.length; i++) {
+                    byte[] bytes = new byte[buf.getInt()];
+                    buf.get(bytes);
+                    dict[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                align(buf);
+                dictionaries[c] = dict;
+                codes[c] = slice(buf, rows * Integer.BYTES).asIntBuffer();
+            }
+            RowStrings meterIds = RowStrings.read(buf, rows);
+            RowStrings skuIds = RowStrings.read(buf, rows);
+            DoubleBuffer prices = slice(buf, rows * Double.BYTES).asDoubleBuffer();
+            IntBuffer tierMin = slice(buf, rows * Integer.BYTES).asIntBuffer();
+            IntBuffer tierMax = slice(buf, rows * Integer.BYTES).asIntBuffer();
+
+            return new PriceSnapshot(rows, dictionaries, codes, meterIds, skuIds, prices, tierMin, tierMax);
+        }
+    }
+
+    /**
+     * 🔹 Write rows as a snapshot file (temp file + atomic move)
+     */
+    public static void write(Path file, List<AzurePriceDTO> rows) throws IOException {
+        write(file, PriceTable.of(rows));
+    }
+
+    /**
+     * Write an in-heap table; its dictionaries and code arrays are copied as-is
+     */
+    public static void write(Path file, PriceTable table) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(table.size());
+            out.writeInt(PriceTable.STRING_COLUMNS.size());
+
+            for (int c = 0; c < PriceTable.STRING_COLUMNS.size(); c++) {
+                String[] entries = table.dictionary(c);
+                out.writeInt(entries.length);
+                for (String v : entries) {
+                    byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                pad(out);
+                for (int code : table.codes(c)) out.writeInt(code);
+                pad(out);
+            }
+            writeRowStrings(out, table.meterIds());
+            writeRowStrings(out, table.skuIds());
+            for (double price : table.prices()) out.writeDouble(price);
+            for (int min : table.tierMinimums()) out.writeInt(min);
+            pad(out);
+            for (int max : table.tierMaximums()) out.writeInt(max);
+            pad(out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeRowStrings(DataOutputStream out, String[] values) throws IOException {
+        byte[][] encoded = new byte[values.length][];
+        int offset = 0;
+        for (int r = 0; r < values.length; r++) {
+            if (values[r] == null) continue;
+            encoded[r] = values[r].getBytes(StandardCharsets.UTF_8);
+            offset += encoded[r].length;
+        }
+        int bytes = offset;
+        offset = 0;
+        for (byte[] value : encoded) {
+            out.writeInt(offset);
+            if (value != null) offset += value.length;
+        }
+        pad(out);
+        for (byte[] value : encoded) out.writeInt(value == null ? -1 : value.length);
+        pad(out);
+        out.writeInt(bytes);
+        for (byte[] value : encoded) {
+            if (value != null) out.write(value);
+        }
+        pad(out);
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    @Override
+    public double retailPrice(int row) {
+        return prices.get(row);
+    }
+
+    @Override
+    public int tierMinimumUnits(int row) {
+        return tierMin.get(row);
+    }
+
+    @Override
+    public int tierMaximumUnits(int row) {
+        return tierMax.get(row);
+    }
+
+    String string(int column, int row) {
+        int code = codes[column].get(row);
+        return code < 0 ? null : dictionaries[column][code];
+    }
+
+    @Override
+    public String productName(int row) {
+        return string(PriceTable.PRODUCT_NAME, row);
+    }
+
+    @Override
+    public String armRegionName(int row) {
+        return string(PriceTable.ARM_REGION_NAME, row);
+    }
+
+    @Override
+    public String meterId(int row) {
+        return meterIds.get(row);
+    }
+
+    @Override
+    public String effectiveStartDate(int row) {
+        return string(PriceTable.EFFECTIVE_START_DATE, row);
+    }
+
+    @Override
+    public String type(int row) {
+        return string(PriceTable.TYPE, row);
+    }
+
+    @Override
+    public void readInto(int row, AzurePriceDTO dto) {
+        dto.setMeterId(meterIds.get(row));
+        dto.setProductName(string(PriceTable.PRODUCT_NAME, row));
+        dto.setSkuName(string(PriceTable.SKU_NAME, row));
+        dto.setArmRegionName(string(PriceTable.ARM_REGION_NAME, row));
+        dto.setLocation(string(PriceTable.LOCATION, row));
+        dto.setRetailPrice(prices.get(row));
+        dto.setCurrencyCode(string(PriceTable.CURRENCY_CODE, row));
+        dto.setServiceFamily(string(PriceTable.SERVICE_FAMILY, row));
+        dto.setUnitOfMeasure(string(PriceTable.UNIT_OF_MEASURE, row));
+        dto.setEffectiveStartDate(string(PriceTable.EFFECTIVE_START_DATE, row));
+        dto.setType(string(PriceTable.TYPE, row));
+        dto.setTierMinimumUnits(tierMin.get(row));
+        dto.setTierMaximumUnits(tierMax.get(row));
+        dto.setSkuId(skuIds.get(row));
+        dto.setReservationTerm(string(PriceTable.RESERVATION_TERM, row));
+    }
+
+    /**
+     * One per-row string column, left in the mapping and decoded on access
+     */
+    private record RowStrings(IntBuffer offsets, IntBuffer lengths, ByteBuffer bytes) {
+
+        static RowStrings read(ByteBuffer buf, int rows) {
+            IntBuffer offsets = slice(buf, rows * Integer.BYTES).asIntBuffer();
+            IntBuffer lengths = slice(buf, rows * Integer.BYTES).asIntBuffer();
+            int byteCount = buf.getInt();
+            return new RowStrings(offsets, lengths, slice(buf, byteCount));
+        }
+
+        String get(int row) {
+            int length = lengths.get(row);
+            if (length < 0) return null;
+            byte[] utf8 = new byte[length];
+            bytes.get(offsets.get(row), utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buf, int length) {
+        ByteBuffer section = buf.slice();
+        section.limit(length);
+        buf.position(buf.position() + length);
+        align(buf);
+        return section;
+    }
+
+    private static void align(ByteBuffer buf) {
+        int rem = buf.position() & 7;
+        if (rem != 0) buf.position(buf.position() + 8 - rem);
+    }
+
+    private static void pad(DataOutputStream out) throws IOException {
+        while ((out.size() & 7) != 0) out.writeByte(0);
+    }
+}
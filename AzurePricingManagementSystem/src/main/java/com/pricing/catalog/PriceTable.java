@@ -0,0 +1,333 @@
+package com.pricing.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Compact in-heap price rows: the repetitive string columns are
+ * dictionary-encoded (one shared String per distinct value, an int code per
+ * row) and prices and tiers are kept in primitive arrays.
+ * <p>
+ * A full catalog repeats a handful of product, region, currency, unit and
+ * date strings millions of times; as DTOs each row costs a header, fifteen
+ * fields and up to twelve String copies, here it is ten ints, a double and
+ * two ints. meterId and skuId are close to unique per row, so a dictionary
+ * would only add a code array and a lookup entry on top of every string;
+ * they are kept as plain per-row references instead. Tables are immutable
+ * once built and share the column layout of {@link PriceSnapshot}, which
+ * writes them out as-is.
+ */
+public final class PriceTable implements PriceRows {
+
+    static final int PRODUCT_NAME = 0;
+    static final int SKU_NAME = 1;
+    static final int ARM_REGION_NAME = 2;
+    static final int LOCATION = 3;
+    static final int CURRENCY_CODE = 4;
+    static final int SERVICE_FAMILY = 5;
+    static final int UNIT_OF_MEASURE = 6;
+    static final int EFFECTIVE_START_DATE = 7;
+    static final int TYPE = 8;
+    static final int RESERVATION_TERM = 9;
+
+    /**
+     * Dictionary-encoded columns; meterId and skuId are stored per row
+     */
+    static final List<Function<AzurePriceDTO, String>> STRING_COLUMNS = List.of(
+            AzurePriceDTO::getProductName,
+            AzurePriceDTO::getSkuName,
+            AzurePriceDTO::getArmRegionName,
+            AzurePriceDTO::getLocation,
+            AzurePriceDTO::getCurrencyCode,
+            AzurePriceDTO::getServiceFamily,
+            AzurePriceDTO::getUnitOfMeasure,
+            AzurePriceDTO::getEffectiveStartDate,
+            AzurePriceDTO::getType,
+            AzurePriceDTO::getReservationTerm);
+
+    private static final PriceTable EMPTY = new Builder().build();
+
+    private final int rowCount;
+    private final String[][] dictionaries;
+    private final int[][] codes;
+    private final String[] meterIds;
+    private final String[] skuIds;
+    private final double[] prices;
+    private final int[] tierMin;
+    private final int[] tierMax;
+
+    private PriceTable(int rowCount, String[][] dictionaries, int[][] codes, String[] meterIds, String[] skuIds,
+                       double[] prices, int[] tierMin, int[] tierMax) {
+        this.rowCount = rowCount;
+        this.dictionaries = dictionaries;
+        this.codes = codes;
+        this.meterIds = meterIds;
+        this.skuIds = skuIds;
+        this.prices = prices;
+        this.tierMin = tierMin;
+        this.tierMax = tierMax;
+    }
+
+    public static PriceTable empty() {
+        return EMPTY;
+    }
+
+    public static PriceTable of(List<AzurePriceDTO> rows) {
+        Builder builder = new Builder(rows.size());
+        rows.forEach(builder);
+        return builder.build();
+    }
+
+    /**
+     * 🔹 Concatenate tables in order, merging their dictionaries (codes are remapped once per distinct value)
+     */
+    public static PriceTable concat(List<PriceTable> tables) {
+        if (tables.size() == 1) return tables.get(0);
+        Builder builder = new Builder(tables.stream().mapToInt(PriceTable::size).sum());
+        tables.forEach(builder::addAll);
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return rowCount;
+    }
+
+    public boolean isEmpty() {
+        return rowCount == 0;
+    }
+
+    @Override
+    public double retailPrice(int row) {
+        return prices[row];
+    }
+
+    @Override
+    public int tierMinimumUnits(int row) {
+        return tierMin[row];
+    }
+
+    @Override
+    public int tierMaximumUnits(int row) {
+        return tierMax[row];
+    }
+
+    String string(int column, int row) {
+        int code = codes[column][row];
+        return code < 0 ? null : dictionaries[column][code];
+    }
+
+    @Override
+    public String meterId(int row) {
+        return meterIds[row];
+    }
+
+    @Override
+    public String productName(int row) {
+        return string(PRODUCT_NAME, row);
+    }
+
+    @Override
+    public String armRegionName(int row) {
+        return string(ARM_REGION_NAME, row);
+    }
+
+    @Override
+    public String effectiveStartDate(int row) {
+        return string(EFFECTIVE_START_DATE, row);
+    }
+
+    @Override
+    public String type(int row) {
+        return string(TYPE, row);
+    }
+
+    @Override
+    public void readInto(int row, AzurePriceDTO dto) {
+        dto.setMeterId(meterIds[row]);
+        dto.setProductName(string(PRODUCT_NAME, row));
+        dto.setSkuName(string(SKU_NAME, row));
+        dto.setArmRegionName(string(ARM_REGION_NAME, row));
+        dto.setLocation(string(LOCATION, row));
+        dto.setRetailPrice(prices[row]);
+        dto.setCurrencyCode(string(CURRENCY_CODE, row));
+        dto.setServiceFamily(string(SERVICE_FAMILY, row));
+        dto.setUnitOfMeasure(string(UNIT_OF_MEASURE, row));
+        dto.setEffectiveStartDate(string(EFFECTIVE_START_DATE, row));
+        dto.setType(string(TYPE, row));
+        dto.setTierMinimumUnits(tierMin[row]);
+        dto.setTierMaximumUnits(tierMax[row]);
+        dto.setSkuId(skuIds[row]);
+        dto.setReservationTerm(string(RESERVATION_TERM, row));
+    }
+
+    /**
+     * Distinct values of one string column (index = code); shared, do not modify
+     */
+    String[] dictionary(int column) {
+        return dictionaries[column];
+    }
+
+    /**
+     * Dictionary code of every row for one column (-1 = null); shared, do not modify
+     */
+    int[] codes(int column) {
+        return codes[column];
+    }
+
+    /**
+     * meterId of every row (null where absent); shared, do not modify
+     */
+    String[] meterIds() {
+        return meterIds;
+    }
+
+    /**
+     * skuId of every row (null where absent); shared, do not modify
+     */
+    String[] skuIds() {
+        return skuIds;
+    }
+
+    double[] prices() {
+        return prices;
+    }
+
+    int[] tierMinimums() {
+        return tierMin;
+    }
+
+    int[] tierMaximums() {
+        return tierMax;
+    }
+
+    /**
+     * Accumulates rows as they are parsed. The DTO passed to {@link #accept}
+     * is copied immediately, so callers may reuse one instance per stream.
+     * Not thread-safe; build one per parsing thread and {@link #concat} them.
+     */
+    public static final class Builder implements Consumer<AzurePriceDTO> {
+
+        private final List<Map<String, Integer>> lookups;
+        private final String[][] dictionaries;
+        private final int[] dictionarySizes;
+        private int[][] codes;
+        private String[] meterIds;
+        private String[] skuIds;
+        private double[] prices;
+        private int[] tierMin;
+        private int[] tierMax;
+        private int size;
+
+        public Builder() {
+            this(1024);
+        }
+
+        public Builder(int expectedRows) {
+            int capacity = Math.max(16, expectedRows);
+            int columns = STRING_COLUMNS.size();
+            this.lookups = new ArrayList<>(columns);
+            this.dictionaries = new String[columns][];
+            this.dictionarySizes = new int[columns];
+            this.codes = new int[columns][capacity];
+            for (int c = 0; c < columns; c++) {
+                lookups.add(new HashMap<>());
+                dictionaries[c] = new String[16];
+            }
+            this.meterIds = new String[capacity];
+            this.skuIds = new String[capacity];
+            this.prices = new double[capacity];
+            this.tierMin = new int[capacity];
+            this.tierMax = new int[capacity];
+        }
+
+        @Override
+        public void accept(AzurePriceDTO dto) {
+            ensureCapacity(size + 1);
+            for (int c = 0; c < codes.length; c++) {
+                codes[c][size] = encode(c, STRING_COLUMNS.get(c).apply(dto));
+            }
+            meterIds[size] = dto.getMeterId();
+            skuIds[size] = dto.getSkuId();
+            prices[size] = dto.getRetailPrice();
+            tierMin[size] = dto.getTierMinimumUnits();
+            tierMax[size] = dto.getTierMaximumUnits();
+            size++;
+        }
+
+        /**
+         * Append every row of another table, translating its codes into this builder's dictionaries
+         */
+        public Builder addAll(PriceTable table) {
+            ensureCapacity(size + table.rowCount);
+            for (int c = 0; c < codes.length; c++) {
+                String[] dict = table.dictionaries[c];
+                int[] remap = new int[dict.length];
+                for (int i = 0; i < dict.length; i++) remap[i] = encode(c, dict[i]);
+                int[] source = table.codes[c];
+                int[] target = codes[c];
+                for (int r = 0; r < table.rowCount; r++) {
+                    int code = source[r];
+                    target[size + r] = code < 0 ? -1 : remap[code];
+                }
+            }
+            System.arraycopy(table.meterIds, 0, meterIds, size, table.rowCount);
+            System.arraycopy(table.skuIds, 0, skuIds, size, table.rowCount);
+            System.arraycopy(table.prices, 0, prices, size, table.rowCount);
+            System.arraycopy(table.tierMin, 0, tierMin, size, table.rowCount);
+            System.arraycopy(table.tierMax, 0, tierMax, size, table.rowCount);
+            size += table.rowCount;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * 🔹 Freeze into an immutable table; arrays are trimmed to the row and dictionary counts
+         */
+        public PriceTable build() {
+            String[][] dicts = new String[dictionaries.length][];
+            int[][] trimmed = new int[codes.length][];
+            for (int c = 0; c < codes.length; c++) {
+                dicts[c] = Arrays.copyOf(dictionaries[c], dictionarySizes[c]);
+                trimmed[c] = Arrays.copyOf(codes[c], size);
+            }
+            return new PriceTable(size, dicts, trimmed, Arrays.copyOf(meterIds, size), Arrays.copyOf(skuIds, size),
+                    Arrays.copyOf(prices, size), Arrays.copyOf(tierMin, size), Arrays.copyOf(tierMax, size));
+        }
+
+        private int encode(int column, String value) {
+            if (value == null) return -1;
+            Map<String, Integer> lookup = lookups.get(column);
+            Integer code = lookup.get(value);
+            if (code != null) return code;
+
+            int next = dictionarySizes[column]++;
+            String[] dict = dictionaries[column];
+            if (next == dict.length) dictionaries[column] = dict = Arrays.copyOf(dict, dict.length * 2);
+            dict[next] = value;
+            lookup.put(value, next);
+            return next;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= prices.length) return;
+            int capacity = Math.max(needed, prices.length + (prices.length >> 1));
+            for (int c = 0; c < codes.length; c++) codes[c] = Arrays.copyOf(codes[c], capacity);
+            meterIds = Arrays.copyOf(meterIds, capacity);
+            skuIds = Arrays.copyOf(skuIds, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            tierMin = Arrays.copyOf(tierMin, capacity);
+            tierMax = Arrays.copyOf(tierMax, capacity);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.pricing.catalog;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Tier schedule of one meter, flattened into parallel primitive arrays.
+ * <p>
+ * {@code starts[i]} is the tierMinimumUnits of tier i, {@code prices[i]} its
+ * unit price and {@code cumulative[i]} the cost of every unit below
+ * {@code starts[i]}. A tier runs up to the next tier's start, so pricing a
+ * quantity is one binary search plus one multiply-add and allocates nothing.
+ * The meter itself is a row index into the catalog's {@link PriceRows} and
+ * is only decoded to a DTO by {@link #getMeter()}.
+ */
+public final class TierTable {
+
+    private final PriceRows rows;
+    private final int meterRow;
+    private final double[] starts;
+    private final double[] prices;
+    private final double[] cumulative;
+    private final boolean billable;
+
+    private TierTable(PriceRows rows, int meterRow, double[] starts, double[] prices, double[] cumulative,
+                      boolean billable) {
+        this.rows = rows;
+        this.meterRow = meterRow;
+        this.starts = starts;
+        this.prices = prices;
+        this.cumulative = cumulative;
+        this.billable = billable;
+    }
+
+    /**
+     * 🔹 Build the table for one meter. When several rows share a tier start
+     * (e.g. a price change with a later effectiveStartDate) the latest one wins.
+     */
+    static TierTable of(PriceRows rows, int[] meterRows) {
+        Integer[] sorted = new Integer[meterRows.length];
+        for (int i = 0; i < meterRows.length; i++) sorted[i] = meterRows[i];
+        Arrays.sort(sorted, Comparator.comparingInt((Integer r) -> rows.tierMinimumUnits(r))
+                .thenComparing(r -> rows.effectiveStartDate(r), Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        double[] starts = new double[sorted.length];
+        double[] prices = new double[sorted.length];
+        int n = 0;
+        for (int row : sorted) {
+            if (n > 0 && starts[n - 1] == rows.tierMinimumUnits(row)) {
+                n--; // later effective date replaces the earlier row for the same tier
+            }
+            starts[n] = rows.tierMinimumUnits(row);
+            prices[n] = rows.retailPrice(row);
+            n++;
+        }
+        starts = Arrays.copyOf(starts, n);
+        prices = Arrays.copyOf(prices, n);
+
+        double[] cumulative = new double[n];
+        boolean billable = false;
+        for (int i = 0; i < n; i++) {
+            if (i > 0) cumulative[i] = cumulative[i - 1] + (starts[i] - starts[i - 1]) * prices[i - 1];
+            if (prices[i] > 0) billable = true;
+        }
+
+        // ✅ Report the first paid tier's row (name, region, currency, unit) for this meter
+        int meter = sorted[0];
+        for (int row : sorted) {
+            if (rows.retailPrice(row) > 0) {
+                meter = row;
+                break;
+            }
+        }
+        return new TierTable(rows, meter, starts, prices, cumulative, billable);
+    }
+
+    /**
+     * Total cost of {@code quantity} units across all tiers: O(log tiers), allocation-free
+     */
+    public double cost(double quantity) {
+        int i = tierIndex(quantity);
+        if (i < 0) return 0;
+        return cumulative[i] + (quantity - starts[i]) * prices[i];
+    }
+
+    /**
+     * Marginal unit price of the tier that {@code quantity} falls into
+     */
+    public double priceAt(double quantity) {
+        int i = tierIndex(quantity);
+        return i < 0 ? 0 : prices[i];
+    }
+
+    private int tierIndex(double quantity) {
+        int found = Arrays.binarySearch(starts, quantity);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Decode the meter's representative row (API edge only)
+     */
+    public AzurePriceDTO getMeter() {
+        return rows.get(meterRow);
+    }
+
+    public String getMeterId() {
+        return rows.meterId(meterRow);
+    }
+
+    /**
+     * Row index of the meter's representative row in the catalog's rows
+     */
+    int meterRow() {
+        return meterRow;
+    }
+
+    public int tierCount() {
+        return starts.length;
+    }
+
+    /**
+     * False for meters that are free at every tier
+     */
+    public boolean isBillable() {
+        return billable;
+    }
+}
@@ -0,0 +1,127 @@
+package com.pricing.config;
+
+import java.net.http.HttpClient;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.pricing.ingest.CrawlCheckpointStore;
+import com.pricing.ingest.HttpFetcher;
+import com.pricing.ingest.PageSource;
+import com.pricing.ingest.ParallelPageFetcher;
+import com.pricing.ingest.PartitionedCrawler;
+import com.pricing.ingest.RateLimiter;
+import com.pricing.ingest.RetailPricePageReader;
+import com.pricing.metrics.PricingMetrics;
+
+@Configuration
+public class CrawlerConfig {
+
+    @Value("${azure.crawl.concurrency:8}")
+    private int concurrency;
+
+    @Value("${azure.http.connect.timeout.ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${azure.http.request.timeout.ms:30000}")
+    private long requestTimeoutMs;
+
+    @Value("${azure.http.read.timeout.ms:30000}")
+    private long readTimeoutMs;
+
+    @Value("${azure.http.max.retries:4}")
+    private int maxRetries;
+
+    @Value("${azure.http.backoff.initial.ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${azure.http.backoff.max.ms:30000}")
+    private long maxBackoffMs;
+
+    @Value("${azure.http.rate.limit.per.second:10}")
+    private double requestsPerSecond;
+
+    @Value("${azure.retail.url}")
+    private String retailUrl;
+
+    @Value("${azure.crawl.partition.workers:4}")
+    private int partitionWorkers;
+
+    @Value("${azure.crawl.partition.families:}")
+    private String[] partitionFamilies;
+
+    @Value("${azure.crawl.partition.split.families:}")
+    private String[] splitFamilies;
+
+    @Value("${azure.crawl.partition.regions:}")
+    private String[] partitionRegions;
+
+    @Value("${azure.checkpoint.dir:cache/checkpoints}")
+    private String checkpointDir;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService crawlExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread t = new Thread(r, "azure-crawl-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Bean
+    public HttpClient httpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Bean
+    public RateLimiter rateLimiter() {
+        return new RateLimiter(requestsPerSecond);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public HttpFetcher httpFetcher(HttpClient httpClient, RateLimiter rateLimiter, PricingMetrics metrics) {
+        return new HttpFetcher(httpClient, Duration.ofMillis(requestTimeoutMs), Duration.ofMillis(readTimeoutMs),
+                maxRetries, Duration.ofMillis(initialBackoffMs), Duration.ofMillis(maxBackoffMs), rateLimiter, metrics);
+    }
+
+    @Bean
+    public RetailPricePageReader retailPricePageReader() {
+        return new RetailPricePageReader(new JsonFactory());
+    }
+
+    @Bean
+    public ParallelPageFetcher parallelPageFetcher(PageSource pageSource, RetailPricePageReader reader,
+                                                   ExecutorService crawlExecutor, PricingMetrics metrics) {
+        return new ParallelPageFetcher(pageSource, reader, crawlExecutor, concurrency, metrics);
+    }
+
+    @Bean
+    public PartitionedCrawler partitionedCrawler(ParallelPageFetcher pageFetcher, PricingMetrics metrics) {
+        List<PartitionedCrawler.Partition> plan = PartitionedCrawler.plan(names(partitionFamilies),
+                names(splitFamilies), names(partitionRegions));
+        return new PartitionedCrawler(retailUrl, plan, pageFetcher, partitionWorkers, metrics);
+    }
+
+    @Bean
+    public CrawlCheckpointStore crawlCheckpointStore() {
+        return new CrawlCheckpointStore(Paths.get(checkpointDir));
+    }
+
+    private static List<String> names(String[] values) {
+        return Arrays.stream(values).map(String::trim).filter(v -> !v.isEmpty()).distinct().toList();
+    }
+}
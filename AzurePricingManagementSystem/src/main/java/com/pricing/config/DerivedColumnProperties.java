@@ -0,0 +1,41 @@
+package com.pricing.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Derived columns added to the processed pricing sheet, bound from
+ * {@code pricing.derived.columns[n].*}. Each rule reads one source field,
+ * tries its patterns in order and emits the first capture group that matches.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "pricing.derived")
+public class DerivedColumnProperties {
+
+    private List<Rule> columns = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+
+        /** Output column name. */
+        private String name;
+
+        /** AzurePriceDTO field the rule reads, e.g. productName or skuName. */
+        private String source;
+
+        /** Regexes tried in order; group 1 (or the whole match) of the first hit is the value. */
+        private List<String> patterns = new ArrayList<>();
+
+        /** Output column after which this column is placed; appended at the end when blank. */
+        private String after;
+
+        /** Upper-case the extracted value. */
+        private boolean upperCase;
+    }
+}
@@ -9,8 +9,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.pricing.cache.CoalescingCache;
+import com.pricing.model.BatchEstimationResponseDTO;
 import com.pricing.model.EstimationRequestDTO;
 import com.pricing.service.AzureEstimateService;
 
@@ -39,6 +42,32 @@ public class AzureEstimateController {
         return ResponseEntity.ok(estimateService.estimateCost(request));
     }
     
+    @PostMapping("/batch")
+    public ResponseEntity<BatchEstimationResponseDTO> getBatchEstimate(@RequestBody List<EstimationRequestDTO> items) {
+        return ResponseEntity.ok(estimateService.estimateBatch(items));
+    }
+    
+    /**
+     * 🔹 The n cheapest region/SKU offers of a product, optionally for one unit of measure.
+     * 400 for a blank product or n outside 1..50.
+     * Example: GET http://localhost:8080/api/azure/estimate/cheapest?product=Virtual Machines Dv3 Series&n=5&unit=1 Hour
+     */
+    @GetMapping("/cheapest")
+    public ResponseEntity<Object> getCheapest(@RequestParam("product") String product,
+                                              @RequestParam(value = "n", defaultValue = "5") int n,
+                                              @RequestParam(value = "unit", required = false) String unit) {
+        try {
+            return ResponseEntity.ok(estimateService.cheapestOffers(product, unit, n));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/lookup/stats")
+    public ResponseEntity<CoalescingCache.Stats> getLookupStats() {
+        return ResponseEntity.ok(estimateService.getLookupStats());
+    }
+
     @GetMapping("/ping")
     public String ping() {
         return "Azure Estimate API is alive!";
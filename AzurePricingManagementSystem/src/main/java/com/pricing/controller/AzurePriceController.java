@@ -1,34 +1,71 @@
 package com.pricing.controller;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import com.pricing.model.AzureFetchRequestDTO;
-import com.pricing.model.AzureFetchResponseDTO;
-import com.pricing.service.AzurePriceProcessorService;
-import com.pricing.service.AzurePriceService;
+import com.pricing.model.JobStatusDTO;
+import com.pricing.service.PriceCacheService;
+import com.pricing.service.PriceExportService;
+import com.pricing.service.PriceHistoryService;
+import com.pricing.service.PriceJobService;
+import com.pricing.service.PriceQueryService;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @ RequestMapping("/api/azure")
 public class AzurePriceController {
 
 	@Autowired
-    private AzurePriceService service;
-	
+    private PriceJobService priceJobService;
+
+	@Autowired
+    private PriceCacheService priceCacheService;
+
 	@Autowired
-    private AzurePriceProcessorService azurePriceProcessorService;
+    private PriceQueryService priceQueryService;
 
-    // 1️⃣ Trigger fetch and upload (optionally with custom URL)
+	@Autowired
+    private PriceHistoryService priceHistoryService;
+
+	@Autowired
+    private PriceExportService priceExportService;
+
+    @Value("${azure.export.stream.timeout.minutes:60}")
+    private long exportTimeoutMinutes;
+
+    // 1️⃣ Trigger fetch and upload (optionally with custom URL); runs as a background job
     @PostMapping("/fetch-upload")
-    public ResponseEntity<AzureFetchResponseDTO> fetchAndUpload(@RequestBody(required = false) AzureFetchRequestDTO request) {
+    public ResponseEntity<JobStatusDTO> fetchAndUpload(@RequestBody(required = false) AzureFetchRequestDTO request) {
+        String url = (request != null) ? request.getStartUrl() : null;
+        return accepted(priceJobService.submitFetchUpload(url));
+    }
+
+    // 1️⃣b Incremental export: only rows added, changed or removed since the last run
+    @PostMapping("/fetch-upload/delta")
+    public ResponseEntity<JobStatusDTO> fetchAndUploadDelta(@RequestBody(required = false) AzureFetchRequestDTO request) {
         String url = (request != null) ? request.getStartUrl() : null;
-        AzureFetchResponseDTO response = service.fetchAndUploadData(url);
-        return ResponseEntity.ok(response);
+        return accepted(priceJobService.submitDelta(url));
     }
 
     // 2️⃣ Simple GET endpoint for testing
@@ -38,30 +75,26 @@ public class AzurePriceController {
     }
     
     /**
-     * 🔹 Trigger the processing manually via API
-     * Example: GET http://localhost:8080/api/azure/pricing/process
+     * 🔹 Trigger the processing manually via API; returns 202 with the job to poll
+     * Example: GET http://localhost:8080/api/azure/process
      */
     @GetMapping("/process")
-    public ResponseEntity<String> processAndUploadPricing() {
-        try {
-            String s3Url = azurePriceProcessorService.processAndUploadPricingSheet();
-            return ResponseEntity.ok("✅ Processed pricing uploaded to: " + s3Url);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError()
-                    .body("❌ Failed to process pricing sheet: " + e.getMessage());
-        }
+    public ResponseEntity<JobStatusDTO> processAndUploadPricing() {
+        return accepted(priceJobService.submitProcess());
     }
-    
+
     /**
-     * 🔹 (Optional) Endpoint to refresh the cache only.
+     * 🔹 Endpoint to refresh the cache only (conditional request; no export).
+     * Concurrent calls share one refresh.
      * Example: GET http://localhost:8080/api/azure/pricing/cache-refresh
      */
     @GetMapping("/cache-refresh")
     public ResponseEntity<String> refreshCache() {
         try {
-            azurePriceProcessorService.processAndUploadPricingSheet();
-            return ResponseEntity.ok("✅ Cache refreshed and processed pricing uploaded.");
+            PriceCacheService.RefreshOutcome outcome = priceCacheService.refresh().join();
+            return ResponseEntity.ok(outcome.modified()
+                    ? "✅ Cache refreshed: " + outcome.rows() + " rows."
+                    : "✅ Cache already up to date (" + outcome.rows() + " rows).");
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError()
@@ -69,4 +102,96 @@ public class AzurePriceController {
         }
     }
 
+    /**
+     * 🔹 Filter, sort and page through the in-memory catalog (see PriceQueryService for parameters).
+     * 400 for a malformed request, 409 when the cursor belongs to an older catalog version.
+     * Example: GET http://localhost:8080/api/azure/prices?region=westeurope&type=Consumption&maxPrice=0.2&sort=price
+     */
+    @GetMapping("/prices")
+    public ResponseEntity<Object> queryPrices(@RequestParam MultiValueMap<String, String> params) {
+        try {
+            return ResponseEntity.ok(priceQueryService.query(params));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 🔹 Stream every matching row as NDJSON (default) or CSV, chunked and without paging; same filters
+     * and sort as /prices, fields picks and orders the columns (see PriceExportService).
+     * 400 for a malformed request, 429 while too many exports are running. The response may take up to
+     * azure.export.stream.timeout.minutes; other async requests keep the server's default timeout.
+     * Example: GET http://localhost:8080/api/azure/prices/export?serviceFamily=Compute&format=csv&fields=meterId,skuName,retailPrice
+     */
+    @GetMapping("/prices/export")
+    public WebAsyncTask<Void> exportPrices(@RequestParam MultiValueMap<String, String> params,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                           HttpServletResponse response) throws IOException {
+        PriceExportService.Export export;
+        try {
+            export = priceExportService.open(params, acceptEncoding);
+        } catch (IllegalStateException e) {
+            text(response, HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+            return null;
+        } catch (IllegalArgumentException e) {
+            text(response, HttpStatus.BAD_REQUEST, e.getMessage());
+            return null;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(export.getFormat().getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(export.getFilename()).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader("X-Catalog-Version", String.valueOf(export.getCatalogVersion()));
+        if (export.getFormat().getContentEncoding() != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, export.getFormat().getContentEncoding());
+        }
+        WebAsyncTask<Void> task = new WebAsyncTask<>(TimeUnit.MINUTES.toMillis(exportTimeoutMinutes), () -> {
+            export.writeTo(response.getOutputStream());
+            return null;
+        });
+        // ✅ Also frees the slot when the body never gets written (timed out or failed before the task ran)
+        task.onCompletion(export::release);
+        return task;
+    }
+
+    /**
+     * 🔹 Price time series from the local history log, for one meter or one product (optionally one region).
+     * from / to take an ISO instant or a yyyy-MM-dd date; limit caps a product series (newest kept).
+     * Example: GET http://localhost:8080/api/azure/prices/history?meterId=...&from=2026-01-01
+     */
+    @GetMapping("/prices/history")
+    public ResponseEntity<Object> priceHistory(@RequestParam(value = "meterId", required = false) String meterId,
+                                               @RequestParam(value = "product", required = false) String product,
+                                               @RequestParam(value = "region", required = false) String region,
+                                               @RequestParam(value = "from", required = false) String from,
+                                               @RequestParam(value = "to", required = false) String to,
+                                               @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            if (meterId != null && !meterId.isEmpty()) {
+                return ResponseEntity.ok(priceHistoryService.meterHistory(meterId, from, to));
+            }
+            if (product != null && !product.isEmpty()) {
+                return ResponseEntity.ok(priceHistoryService.productHistory(product, region, from, to, limit));
+            }
+            return ResponseEntity.badRequest().body("meterId or product is required");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static void text(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getOutputStream().write(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ResponseEntity<JobStatusDTO> accepted(JobStatusDTO job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/azure/jobs/" + job.getJobId()))
+                .body(job);
+    }
+
 }
@@ -0,0 +1,65 @@
+package com.pricing.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pricing.model.JobStatusDTO;
+import com.pricing.service.PriceJobService;
+
+@RestController
+@RequestMapping("/api/azure/jobs")
+public class JobController {
+
+    private final PriceJobService priceJobService;
+
+    public JobController(PriceJobService priceJobService) {
+        this.priceJobService = priceJobService;
+    }
+
+    // Recent jobs, newest first
+    @GetMapping
+    public ResponseEntity<List<JobStatusDTO>> listJobs() {
+        return ResponseEntity.ok(priceJobService.listJobs());
+    }
+
+    // State and progress (pages, rows, bytes) of one job
+    @GetMapping("/{id}")
+    public ResponseEntity<JobStatusDTO> getJob(@PathVariable String id) {
+        JobStatusDTO job = priceJobService.getJob(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * 🔹 Result of a finished job: 200 when it succeeded, 202 while it is
+     * still queued or running, 409 when it failed or was cancelled.
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Object> getResult(@PathVariable String id) {
+        JobStatusDTO job = priceJobService.getJob(id);
+        if (job == null) return ResponseEntity.notFound().build();
+
+        PriceJobService.State state = PriceJobService.State.valueOf(job.getState());
+        switch (state) {
+            case SUCCEEDED:
+                return ResponseEntity.ok(job.getResult());
+            case QUEUED:
+            case RUNNING:
+                return ResponseEntity.accepted().body(job);
+            default:
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(job);
+        }
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<JobStatusDTO> cancel(@PathVariable String id) {
+        JobStatusDTO job = priceJobService.cancel(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.pricing.delta;
+
+/**
+ * Open-addressing set of 64-bit row key hashes (no boxing; ~16 bytes per row)
+ */
+public final class KeyHashSet {
+
+    private long[] slots = new long[1 << 16];
+    private long size;
+
+    /**
+     * @return false if the hash was already in the set
+     */
+    public boolean add(long key) {
+        if (key == 0) key = 1; // 0 marks an empty slot
+        if (size * 4L >= slots.length * 3L) grow();
+        int mask = slots.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            if (slots[i] == 0) {
+                slots[i] = key;
+                size++;
+                return true;
+            }
+            if (slots[i] == key) return false;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        int mask = slots.length - 1;
+        for (long key : old) {
+            if (key == 0) continue;
+            int i = slot(key, mask);
+            while (slots[i] != 0) i = (i + 1) & mask;
+            slots[i] = key;
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
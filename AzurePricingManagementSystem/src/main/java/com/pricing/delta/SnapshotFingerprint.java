@@ -0,0 +1,222 @@
+package com.pricing.delta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Fingerprint of one exported snapshot: row key → 64-bit hash of the row's
+ * remaining fields. A row is keyed by
+ * meterId|skuId|tierMinimumUnits|effectiveStartDate|type|reservationTerm;
+ * without the last two, the 1 and 3 year reservations of a meter (and its
+ * DevTest price) would share one key.
+ * <p>
+ * File layout: magic, version, snapshotId, row count, then (UTF key, long hash)
+ * pairs with every key once.
+ */
+public final class SnapshotFingerprint {
+
+    private static final int MAGIC = 0x415a4650; // "AZFP"
+    private static final int VERSION = 2; // 2: type and reservation term in the key
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long snapshotId;
+    private final Map<String, Long> hashes;
+
+    private SnapshotFingerprint(long snapshotId, Map<String, Long> hashes) {
+        this.snapshotId = snapshotId;
+        this.hashes = hashes;
+    }
+
+    public static SnapshotFingerprint empty() {
+        return new SnapshotFingerprint(0, new HashMap<>());
+    }
+
+    public static SnapshotFingerprint load(Path file) throws IOException {
+        if (!Files.exists(file)) return empty();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) throw new IOException("Unrecognised fingerprint file: " + file);
+            int version = in.readInt();
+            if (version < VERSION) {
+                // Keys of older files cannot be matched against today's; diff against nothing instead
+                System.out.println("⚠️ Fingerprint " + file + " has version " + version
+                        + " row keys, starting a new baseline");
+                return empty();
+            }
+            if (version != VERSION) throw new IOException("Unsupported fingerprint version " + version + ": " + file);
+            long snapshotId = in.readLong();
+            long count = in.readLong();
+            Map<String, Long> hashes = new HashMap<>((int) Math.min(Integer.MAX_VALUE, count * 4 / 3 + 1));
+            long duplicates = 0;
+            for (long i = 0; i < count; i++) {
+                if (hashes.putIfAbsent(in.readUTF(), in.readLong()) != null) duplicates++;
+            }
+            if (duplicates > 0) {
+                System.err.println("⚠️ Fingerprint " + file + " repeats " + duplicates + " keys; kept the first of each");
+            }
+            return new SnapshotFingerprint(snapshotId, hashes);
+        }
+    }
+
+    public long getSnapshotId() {
+        return snapshotId;
+    }
+
+    public boolean isEmpty() {
+        return hashes.isEmpty();
+    }
+
+    /**
+     * Remove and return the previous hash for a key (null if the key is new).
+     * Whatever is left after a full pass is the set of removed rows.
+     */
+    public Long take(String key) {
+        return hashes.remove(key);
+    }
+
+    public Iterable<String> remainingKeys() {
+        return hashes.keySet();
+    }
+
+    public static String key(AzurePriceDTO p) {
+        return nz(p.getMeterId()) + '|' + nz(p.getSkuId()) + '|' + p.getTierMinimumUnits()
+                + '|' + nz(p.getEffectiveStartDate()) + '|' + nz(p.getType()) + '|' + nz(p.getReservationTerm());
+    }
+
+    /**
+     * 64-bit hash of {@link #key}, without building the key string
+     */
+    public static long keyHash(AzurePriceDTO p) {
+        long h = FNV_OFFSET;
+        h = mix(h, p.getMeterId());
+        h = mix(h, p.getSkuId());
+        h = mix(h, Integer.toString(p.getTierMinimumUnits()));
+        h = mix(h, p.getEffectiveStartDate());
+        h = mix(h, p.getType());
+        h = mix(h, p.getReservationTerm());
+        return h;
+    }
+
+    /**
+     * Parse a key back into {meterId, skuId, tierMinimumUnits, effectiveStartDate, type, reservationTerm}
+     */
+    public static String[] splitKey(String key) {
+        return key.split("\\|", -1);
+    }
+
+    public static long valueHash(AzurePriceDTO p) {
+        return mixValues(FNV_OFFSET, p);
+    }
+
+    /**
+     * 64-bit hash of every field of a row, key and values: two rows only
+     * share it when one is an exact repeat of the other
+     */
+    public static long rowHash(AzurePriceDTO p) {
+        return mixValues(keyHash(p), p);
+    }
+
+    private static long mixValues(long h, AzurePriceDTO p) {
+        h = mix(h, p.getProductName());
+        h = mix(h, p.getSkuName());
+        h = mix(h, p.getArmRegionName());
+        h = mix(h, p.getLocation());
+        h = mix(h, Double.toString(p.getRetailPrice()));
+        h = mix(h, p.getCurrencyCode());
+        h = mix(h, p.getServiceFamily());
+        h = mix(h, p.getUnitOfMeasure());
+        h = mix(h, Integer.toString(p.getTierMaximumUnits()));
+        return h;
+    }
+
+    private static long mix(long h, String s) {
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                h ^= s.charAt(i);
+                h *= FNV_PRIME;
+            }
+        }
+        h ^= 0x1f; // field separator
+        return h * FNV_PRIME;
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s;
+    }
+
+    /**
+     * Streams the next snapshot's fingerprint to a temp file; {@link #publish()}
+     * moves it over the live file only once the delta upload has succeeded.
+     * A key is only written once (see {@link #add}).
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path target;
+        private final Path temp;
+        private final long snapshotId;
+        private final DataOutputStream out;
+        private final KeyHashSet written = new KeyHashSet();
+        private long count;
+        private boolean published;
+
+        public Writer(Path target, long snapshotId) throws IOException {
+            this.target = target;
+            this.snapshotId = snapshotId;
+            Path dir = target.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            this.temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshotId);
+            out.writeLong(0); // patched on publish
+        }
+
+        /**
+         * @param keyHash {@link #keyHash} of the row that {@code key} belongs to
+         * @return false, writing nothing, if a row with the same key was already added
+         */
+        public boolean add(String key, long keyHash, long hash) throws IOException {
+            if (!written.add(keyHash)) return false;
+            out.writeUTF(key);
+            out.writeLong(hash);
+            count++;
+            return true;
+        }
+
+        public void publish() throws IOException {
+            out.close();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, count), Integer.BYTES * 2 + Long.BYTES);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            published = true;
+        }
+
+        public long getSnapshotId() {
+            return snapshotId;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!published) {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
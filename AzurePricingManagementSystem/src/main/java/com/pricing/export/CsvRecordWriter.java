@@ -0,0 +1,85 @@
+package com.pricing.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 4180 CSV with a header row (left out when continuing a resumed export). Fields are only quoted when they contain
+ * a comma, quote or line break, which keeps the common case (names, ids,
+ * numbers) free of quoting overhead for both the writer and the reader.
+ */
+final class CsvRecordWriter implements RecordWriter {
+
+    private final Writer writer;
+    private boolean firstColumn = true;
+
+    CsvRecordWriter(OutputStream out, ExportSchema schema, boolean header) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (!header) return;
+        for (ExportSchema.Column column : schema.getColumns()) {
+            string(column.name());
+        }
+        endRow();
+    }
+
+    @Override
+    public void string(String value) throws IOException {
+        separator();
+        if (value == null || value.isEmpty()) return;
+        if (!needsQuotes(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.indexOf('"') < 0 ? value : value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @Override
+    public void number(double value) throws IOException {
+        separator();
+        writer.write(Double.toString(value));
+    }
+
+    @Override
+    public void integer(int value) throws IOException {
+        separator();
+        writer.write(Integer.toString(value));
+    }
+
+    @Override
+    public void nullValue() throws IOException {
+        separator();
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        writer.write('\n');
+        firstColumn = true;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.close();
+    }
+
+    private void separator() throws IOException {
+        if (firstColumn) {
+            firstColumn = false;
+        } else {
+            writer.write(',');
+        }
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package com.pricing.export;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * Output formats for the S3 exports. Each one fixes the object's file
+ * extension, Content-Type and Content-Encoding, and opens the matching
+ * {@link RecordWriter} over the upload stream.
+ * <p>
+ * Compressed objects at rest are stored as {@code application/gzip} /
+ * {@code application/zstd} without a Content-Encoding, so clients get the
+ * compressed bytes the extension promises instead of a transparently
+ * decoded body. Content-Encoding is only sent by the streamed HTTP export.
+ * <p>
+ * Configured by extension, e.g. {@code aws.s3.output.format=csv.zst}.
+ */
+public enum ExportFormat {
+
+    CSV("csv", "text/csv", null),
+    CSV_GZIP("csv.gz", "text/csv", "gzip"),
+    CSV_ZSTD("csv.zst", "text/csv", "zstd"),
+    NDJSON("ndjson", "application/x-ndjson", null),
+    NDJSON_GZIP("ndjson.gz", "application/x-ndjson", "gzip"),
+    PARQUET("parquet", "application/vnd.apache.parquet", null);
+
+    private static final int ZSTD_LEVEL = 3;
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    private final String extension;
+    private final String contentType;
+    private final String contentEncoding;
+
+    ExportFormat(String extension, String contentType, String contentEncoding) {
+        this.extension = extension;
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * 🔹 Look up a format by extension ("csv.gz") or constant name ("CSV_GZIP")
+     */
+    public static ExportFormat of(String value) {
+        String v = value == null ? "" : value.trim();
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(v) || format.name().equalsIgnoreCase(v)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format '" + value + "', expected one of "
+                + Arrays.stream(values()).map(f -> f.extension).toList());
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Type of the decoded content, e.g. text/csv for csv.gz
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * 🔹 Content-Type of a stored object: the compression's own type for
+     * compressed formats, the content type otherwise
+     */
+    public String getObjectContentType() {
+        return contentEncoding == null ? contentType : "application/" + contentEncoding;
+    }
+
+    /**
+     * gzip / zstd for compressed text formats, null otherwise (Parquet compresses its own pages).
+     * Used as the HTTP Content-Encoding of streamed exports only.
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Parquet keeps its row group index in the footer, so only the text
+     * formats can be continued after a checkpoint
+     */
+    public boolean isResumable() {
+        return this != PARQUET;
+    }
+
+    /**
+     * 🔹 Open a writer over {@code out}. Finishing the writer ends the
+     * compression frame but never closes {@code out}.
+     */
+    public RecordWriter open(ExportSchema schema, OutputStream out) throws IOException {
+        return open(schema, out, true);
+    }
+
+    /**
+     * 🔹 Open a writer that continues earlier output of the same object: no
+     * CSV header, and a new gzip member / zstd frame (concatenated frames
+     * decode as one stream)
+     */
+    public RecordWriter resume(ExportSchema schema, OutputStream out) throws IOException {
+        if (!isResumable()) throw new IllegalStateException(extension + " exports cannot be resumed");
+        return open(schema, out, false);
+    }
+
+    private RecordWriter open(ExportSchema schema, OutputStream out, boolean header) throws IOException {
+        OutputStream target = encode(new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.flush();
+            }
+        });
+        return switch (this) {
+            case CSV, CSV_GZIP, CSV_ZSTD -> new CsvRecordWriter(target, schema, header);
+            case NDJSON, NDJSON_GZIP -> new NdjsonRecordWriter(target, schema);
+            case PARQUET -> new ParquetRecordWriter(target, schema);
+        };
+    }
+
+    private OutputStream encode(OutputStream out) throws IOException {
+        if (contentEncoding == null) return out;
+        return switch (contentEncoding) {
+            case "gzip" -> new GZIPOutputStream(out, GZIP_BUFFER);
+            case "zstd" -> new ZstdOutputStream(out, ZSTD_LEVEL);
+            default -> throw new IllegalStateException("Unsupported encoding " + contentEncoding);
+        };
+    }
+}
@@ -0,0 +1,56 @@
+package com.pricing.export;
+
+import java.util.List;
+
+/**
+ * Ordered, typed column list of one export. CSV and NDJSON use the names
+ * only; Parquet also uses the types, so prices and tier bounds are stored
+ * as numbers rather than text.
+ */
+public final class ExportSchema {
+
+    public enum Type { STRING, DOUBLE, INT }
+
+    public record Column(String name, Type type) {
+    }
+
+    private final String name;
+    private final List<Column> columns;
+
+    private ExportSchema(String name, List<Column> columns) {
+        this.name = name;
+        this.columns = List.copyOf(columns);
+    }
+
+    public static ExportSchema of(String name, List<Column> columns) {
+        return new ExportSchema(name, columns);
+    }
+
+    public static Column string(String name) {
+        return new Column(name, Type.STRING);
+    }
+
+    public static Column number(String name) {
+        return new Column(name, Type.DOUBLE);
+    }
+
+    public static Column integer(String name) {
+        return new Column(name, Type.INT);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public int size() {
+        return columns.size();
+    }
+
+    public Column column(int index) {
+        return columns.get(index);
+    }
+}
@@ -0,0 +1,73 @@
+package com.pricing.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Newline-delimited JSON: one object per row keyed by column name, with
+ * numbers written as JSON numbers and missing values as null.
+ */
+final class NdjsonRecordWriter implements RecordWriter {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JsonGenerator json;
+    private final SerializedString[] names;
+    private int column;
+
+    NdjsonRecordWriter(OutputStream out, ExportSchema schema) throws IOException {
+        this.json = JSON.createGenerator(out, JsonEncoding.UTF8);
+        this.json.setRootValueSeparator(null);
+        this.names = schema.getColumns().stream()
+                .map(c -> new SerializedString(c.name()))
+                .toArray(SerializedString[]::new);
+    }
+
+    @Override
+    public void string(String value) throws IOException {
+        field();
+        if (value == null) json.writeNull();
+        else json.writeString(value);
+    }
+
+    @Override
+    public void number(double value) throws IOException {
+        field();
+        json.writeNumber(value);
+    }
+
+    @Override
+    public void integer(int value) throws IOException {
+        field();
+        json.writeNumber(value);
+    }
+
+    @Override
+    public void nullValue() throws IOException {
+        field();
+        json.writeNull();
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        if (column == 0) json.writeStartObject();
+        json.writeEndObject();
+        json.writeRaw('\n');
+        column = 0;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        json.close();
+    }
+
+    private void field() throws IOException {
+        if (column == 0) json.writeStartObject();
+        json.writeFieldName(names[column++]);
+    }
+}
@@ -0,0 +1,238 @@
+package com.pricing.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+
+/**
+ * Parquet file with one optional column per schema column: strings as
+ * UTF-8 binary, prices as DOUBLE, tier bounds as INT32. Dictionary encoding
+ * is on (the catalog's string columns are highly repetitive) and pages are
+ * zstd-compressed, so readers can scan just the columns they need.
+ * <p>
+ * The file is streamed to the target; Parquet only needs a position
+ * counter, not a seekable file. One row group is buffered in memory at a time.
+ */
+final class ParquetRecordWriter implements RecordWriter {
+
+    private static final long ROW_GROUP_BYTES = 64L * 1024 * 1024;
+    private static final int PAGE_BYTES = 1024 * 1024;
+
+    private final ParquetWriter<Row> writer;
+    private final Row row;
+
+    ParquetRecordWriter(OutputStream out, ExportSchema schema) throws IOException {
+        MessageType messageType = toMessageType(schema);
+        this.row = new Row(schema);
+        this.writer = new Builder(new StreamOutputFile(out), messageType, schema)
+                .withConf(new Configuration(false))
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .withCompressionCodec(CompressionCodecName.ZSTD)
+                .withDictionaryEncoding(true)
+                .withRowGroupSize(ROW_GROUP_BYTES)
+                .withPageSize(PAGE_BYTES)
+                .build();
+    }
+
+    @Override
+    public void string(String value) {
+        row.present[row.column] = value != null;
+        row.strings[row.column++] = value;
+    }
+
+    @Override
+    public void number(double value) {
+        row.present[row.column] = true;
+        row.doubles[row.column++] = value;
+    }
+
+    @Override
+    public void integer(int value) {
+        row.present[row.column] = true;
+        row.ints[row.column++] = value;
+    }
+
+    @Override
+    public void nullValue() {
+        row.present[row.column++] = false;
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        writer.write(row);
+        row.column = 0;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writer.close();
+    }
+
+    private static MessageType toMessageType(ExportSchema schema) {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        for (ExportSchema.Column column : schema.getColumns()) {
+            switch (column.type()) {
+                case STRING -> builder.optional(PrimitiveTypeName.BINARY)
+                        .as(LogicalTypeAnnotation.stringType()).named(column.name());
+                case DOUBLE -> builder.optional(PrimitiveTypeName.DOUBLE).named(column.name());
+                case INT -> builder.optional(PrimitiveTypeName.INT32).named(column.name());
+            }
+        }
+        return builder.named(schema.getName());
+    }
+
+    /**
+     * The current row, reused for every record
+     */
+    private static final class Row {
+        final String[] strings;
+        final double[] doubles;
+        final int[] ints;
+        final boolean[] present;
+        int column;
+
+        Row(ExportSchema schema) {
+            int n = schema.size();
+            strings = new String[n];
+            doubles = new double[n];
+            ints = new int[n];
+            present = new boolean[n];
+        }
+    }
+
+    private static final class RowWriteSupport extends WriteSupport<Row> {
+
+        private final MessageType messageType;
+        private final ExportSchema schema;
+        private RecordConsumer consumer;
+
+        RowWriteSupport(MessageType messageType, ExportSchema schema) {
+            this.messageType = messageType;
+            this.schema = schema;
+        }
+
+        @Override
+        public WriteContext init(Configuration configuration) {
+            return new WriteContext(messageType, Map.of("writer.model.name", "azure-pricing"));
+        }
+
+        @Override
+        public void prepareForWrite(RecordConsumer recordConsumer) {
+            this.consumer = recordConsumer;
+        }
+
+        @Override
+        public void write(Row row) {
+            consumer.startMessage();
+            for (int i = 0; i < schema.size(); i++) {
+                if (!row.present[i]) continue;
+                ExportSchema.Column column = schema.column(i);
+                consumer.startField(column.name(), i);
+                switch (column.type()) {
+                    case STRING -> consumer.addBinary(Binary.fromString(row.strings[i]));
+                    case DOUBLE -> consumer.addDouble(row.doubles[i]);
+                    case INT -> consumer.addInteger(row.ints[i]);
+                }
+                consumer.endField(column.name(), i);
+            }
+            consumer.endMessage();
+        }
+    }
+
+    private static final class Builder extends ParquetWriter.Builder<Row, Builder> {
+
+        private final MessageType messageType;
+        private final ExportSchema schema;
+
+        Builder(OutputFile file, MessageType messageType, ExportSchema schema) {
+            super(file);
+            this.messageType = messageType;
+            this.schema = schema;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<Row> getWriteSupport(Configuration configuration) {
+            return new RowWriteSupport(messageType, schema);
+        }
+    }
+
+    /**
+     * Parquet output over a plain stream; only the position is tracked
+     */
+    private static final class StreamOutputFile implements OutputFile {
+
+        private final OutputStream out;
+
+        StreamOutputFile(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+                private long position;
+
+                @Override
+                public long getPos() {
+                    return position;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    position += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.pricing.export;
+
+import java.io.IOException;
+
+/**
+ * Streaming, row-at-a-time writer for one export format. Values are given
+ * in schema order, one call per column, followed by {@link #endRow()};
+ * nothing is allocated per row by the callers.
+ * <p>
+ * {@link #finish()} flushes buffers and writes any trailer (gzip/zstd frame
+ * end, Parquet footer) but leaves the target stream open, so the caller can
+ * still commit or abort the upload.
+ */
+public interface RecordWriter {
+
+    /**
+     * Next column as text; null is written as an empty / null value
+     */
+    void string(String value) throws IOException;
+
+    void number(double value) throws IOException;
+
+    void integer(int value) throws IOException;
+
+    /**
+     * Next column has no value (e.g. the price of a removed row)
+     */
+    void nullValue() throws IOException;
+
+    void endRow() throws IOException;
+
+    void finish() throws IOException;
+}
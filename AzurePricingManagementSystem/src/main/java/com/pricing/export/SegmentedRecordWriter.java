@@ -0,0 +1,80 @@
+package com.pricing.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link RecordWriter} whose output can be closed off at a row boundary and
+ * continued, so a long export can be checkpointed.
+ * <p>
+ * {@link #endSegment()} finishes the current writer (compression frame end
+ * included), after which every row so far has reached the target stream.
+ * The next row opens a continuation writer through
+ * {@link ExportFormat#resume}; a resumed export starts the same way.
+ */
+public final class SegmentedRecordWriter implements RecordWriter {
+
+    private final ExportFormat format;
+    private final ExportSchema schema;
+    private final OutputStream out;
+    private RecordWriter current;
+
+    /**
+     * @param continuation true when {@code out} continues output written by an earlier run
+     */
+    public SegmentedRecordWriter(ExportFormat format, ExportSchema schema, OutputStream out,
+                                 boolean continuation) throws IOException {
+        if (!format.isResumable()) {
+            throw new IllegalArgumentException(format.getExtension() + " exports cannot be segmented");
+        }
+        this.format = format;
+        this.schema = schema;
+        this.out = out;
+        this.current = continuation ? null : format.open(schema, out);
+    }
+
+    @Override
+    public void string(String value) throws IOException {
+        current().string(value);
+    }
+
+    @Override
+    public void number(double value) throws IOException {
+        current().number(value);
+    }
+
+    @Override
+    public void integer(int value) throws IOException {
+        current().integer(value);
+    }
+
+    @Override
+    public void nullValue() throws IOException {
+        current().nullValue();
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        current().endRow();
+    }
+
+    /**
+     * 🔹 Flush everything written so far to the target; call between rows only
+     */
+    public void endSegment() throws IOException {
+        if (current != null) {
+            current.finish();
+            current = null;
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        endSegment();
+    }
+
+    private RecordWriter current() throws IOException {
+        if (current == null) current = format.resume(schema, out);
+        return current;
+    }
+}
@@ -0,0 +1,588 @@
+package com.pricing.history;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Local, append-only log of price changes, split into fixed-size segment
+ * files that are memory-mapped for both appending and reading.
+ * <p>
+ * A price series is one (meterId, tierMinimumUnits, type, reservationTerm),
+ * the same identity as a delta row, so 1- and 3-year reservations of a
+ * meter are separate series. An ingest
+ * compares each incoming row with the last record of its series and
+ * appends a record only when the series is new (ADDED), its price moved
+ * (CHANGED), or, for a complete ingest, it is no longer listed (REMOVED).
+ * If a series appears twice in one ingest, the first row wins.
+ * <p>
+ * Every record links back to the previous record of the same meter and of
+ * the same product, so the meterId / product index is just the newest
+ * record per key held in memory; a history query walks one chain through
+ * the mapping. The newest record of every open (not removed) series is
+ * kept in memory as well, so closing the series a complete ingest did not
+ * list costs O(open series) rather than O(history). Strings are interned
+ * once in {@code strings.log} and records refer to them by id.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ *   segment-NNNNNNNNNN.log : magic "AZPH", version, committed record count, record capacity,
+ *                            then fixed 72-byte records
+ *   record : observedAt (long), retailPrice (double), meterId, productName, skuName,
+ *            armRegionName, unitOfMeasure, currencyCode, effectiveStartDate, type (string ids),
+ *            tierMinimumUnits, reservationTerm (string id), previous record of meter,
+ *            previous record of product (-1 = none), change, padding
+ *   strings.log : (int byteLength, UTF-8 bytes) per interned string; id = position
+ * </pre>
+ * A log written in an older layout is moved aside into {@code v<version>/}
+ * when opened and a new one is started. One ingest runs at a time; readers
+ * never block and only see committed records.
+ */
+public final class PriceHistoryLog implements Closeable {
+
+    public enum Change { ADDED, CHANGED, REMOVED }
+
+    private static final int MAGIC = 0x415a5048; // "AZPH"
+    private static final int VERSION = 2; // 2: reservationTerm in the series key
+    private static final int HEADER_BYTES = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    static final int RECORD_BYTES = 72;
+
+    private static final int OBSERVED_AT = 0;
+    private static final int PRICE = 8;
+    private static final int METER = 16;
+    private static final int PRODUCT = 20;
+    private static final int SKU = 24;
+    private static final int REGION = 28;
+    private static final int UNIT = 32;
+    private static final int CURRENCY = 36;
+    private static final int EFFECTIVE_DATE = 40;
+    private static final int TYPE = 44;
+    private static final int TIER_MIN = 48;
+    private static final int TERM = 52;
+    private static final int PREV_METER = 56;
+    private static final int PREV_PRODUCT = 60;
+    private static final int CHANGE = 64;
+
+    private static final Change[] CHANGES = Change.values();
+
+    private final Path dir;
+    private int recordsPerSegment;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> stringIds = new ConcurrentHashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final DataOutputStream stringOut;
+    private final FileChannel stringChannel;
+    private final AtomicBoolean ingesting = new AtomicBoolean();
+    private volatile View view;
+
+    /**
+     * Committed state as seen by readers: record count, newest record per
+     * meter / product string id, and the string table. {@code openSeries}
+     * (newest record of every series not removed) is only used by ingests.
+     */
+    private record View(int records, int[] meterHeads, int[] productHeads, int[] openSeries, String[] strings) {
+    }
+
+    private record Series(int meter, int tierMin, int type, int term) {
+    }
+
+    private PriceHistoryLog(Path dir, int recordsPerSegment, FileChannel stringChannel) {
+        this.dir = dir;
+        this.recordsPerSegment = recordsPerSegment;
+        this.stringChannel = stringChannel;
+        this.stringOut = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(stringChannel), 1 << 16));
+    }
+
+    /**
+     * 🔹 Open (or create) the log in {@code dir}; segments hold {@code segmentBytes} each
+     */
+    public static PriceHistoryLog open(Path dir, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        archiveOlderVersion(dir);
+        int perSegment = (int) Math.max(1, Math.min(Integer.MAX_VALUE - HEADER_BYTES,
+                segmentBytes - HEADER_BYTES) / RECORD_BYTES);
+        FileChannel strings = FileChannel.open(dir.resolve("strings.log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        PriceHistoryLog log = new PriceHistoryLog(dir, perSegment, strings);
+        try {
+            log.load();
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Read the string table and map every segment, then rebuild the chain
+     * heads and open series with one pass over the committed records
+     */
+    private void load() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE, stringChannel.size()));
+        stringChannel.read(buf, 0);
+        buf.flip();
+        while (buf.remaining() >= Integer.BYTES) {
+            int length = buf.getInt(buf.position());
+            if (length < 0 || buf.remaining() < Integer.BYTES + length) break; // torn tail from a crash
+            buf.position(buf.position() + Integer.BYTES);
+            byte[] bytes = new byte[length];
+            buf.get(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            stringIds.putIfAbsent(value, strings.size());
+            strings.add(value);
+        }
+        stringChannel.truncate(buf.position());
+        stringChannel.position(buf.position());
+
+        int records = 0;
+        if (Files.exists(segmentFile(0))) {
+            // ✅ Existing segments keep the capacity they were created with
+            try (FileChannel first = FileChannel.open(segmentFile(0), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                first.read(header, 0);
+                if (header.getInt(CAPACITY_OFFSET) > 0) recordsPerSegment = header.getInt(CAPACITY_OFFSET);
+            }
+        }
+        for (int s = 0; ; s++) {
+            Path file = segmentFile(s);
+            if (!Files.exists(file)) break;
+            MappedByteBuffer segment = map(file);
+            if (segment.getInt(0) != MAGIC || segment.getInt(4) != VERSION) {
+                throw new IOException("Not a price history segment: " + file);
+            }
+            segments.add(segment);
+            int count = segment.getInt(COUNT_OFFSET);
+            records += count;
+            if (count < recordsPerSegment) break;
+        }
+
+        int[] meterHeads = new int[strings.size()];
+        int[] productHeads = new int[strings.size()];
+        Arrays.fill(meterHeads, -1);
+        Arrays.fill(productHeads, -1);
+        Map<Series, Integer> newest = new HashMap<>();
+        for (int r = 0; r < records; r++) {
+            ByteBuffer segment = segments.get(r / recordsPerSegment);
+            int at = offset(r);
+            meterHeads[segment.getInt(at + METER)] = r;
+            productHeads[segment.getInt(at + PRODUCT)] = r;
+            newest.put(new Series(segment.getInt(at + METER), segment.getInt(at + TIER_MIN),
+                    segment.getInt(at + TYPE), segment.getInt(at + TERM)), r);
+        }
+        int[] openSeries = newest.values().stream()
+                .mapToInt(Integer::intValue)
+                .filter(r -> change(r) != Change.REMOVED)
+                .sorted()
+                .toArray();
+        view = new View(records, meterHeads, productHeads, openSeries, strings.toArray(new String[0]));
+    }
+
+    /**
+     * Move a log written in another layout into {@code v<version>/}, so it
+     * is kept for reference but a fresh log starts in its place
+     */
+    private static void archiveOlderVersion(Path dir) throws IOException {
+        Path first = dir.resolve(segmentName(0));
+        if (!Files.exists(first)) return;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.READ)) {
+            channel.read(header, 0);
+        }
+        int version = header.getInt(4);
+        if (header.getInt(0) != MAGIC || version == VERSION) return;
+
+        Path archive = dir.resolve("v" + version);
+        Files.createDirectories(archive);
+        for (int s = 0; Files.exists(dir.resolve(segmentName(s))); s++) {
+            Files.move(dir.resolve(segmentName(s)), archive.resolve(segmentName(s)),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (Files.exists(dir.resolve("strings.log"))) {
+            Files.move(dir.resolve("strings.log"), archive.resolve("strings.log"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.out.println("📜 Price history v" + version + " moved to " + archive + ", starting a v" + VERSION + " log");
+    }
+
+    private static String segmentName(int index) {
+        return String.format("segment-%010d.log", index);
+    }
+
+    private Path segmentFile(int index) {
+        return dir.resolve(segmentName(index));
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + (long) recordsPerSegment * RECORD_BYTES);
+        }
+    }
+
+    private int offset(int record) {
+        return HEADER_BYTES + (record % recordsPerSegment) * RECORD_BYTES;
+    }
+
+    private ByteBuffer segmentOf(int record) {
+        return segments.get(record / recordsPerSegment);
+    }
+
+    private Change change(int record) {
+        return CHANGES[segmentOf(record).getInt(offset(record) + CHANGE)];
+    }
+
+    public int size() {
+        return view.records;
+    }
+
+    // ---------------------------------------------------------------- ingest
+
+    /**
+     * 🔹 Start an ingest observed at {@code observedAt}, or return null when
+     * another ingest is still running (the next one will catch up)
+     */
+    public Ingest begin(long observedAt) {
+        if (!ingesting.compareAndSet(false, true)) return null;
+        return new Ingest(observedAt, view);
+    }
+
+    /**
+     * One ingest: rows are diffed as they are accepted and changes appended
+     * past the committed end of the log, where readers do not look. Nothing
+     * becomes visible until {@link #commit}; {@link #abort} drops it all.
+     */
+    public final class Ingest implements Consumer<AzurePriceDTO> {
+
+        public record Stats(long rows, long added, long changed, long removed, long duplicates) {
+        }
+
+        private final long observedAt;
+        private final int start;
+        private final int[] openAtStart;
+        private int[] meterHeads;
+        private int[] productHeads;
+        private int next;
+        private final BitSet seen = new BitSet();
+        // open series heads at the start that this ingest replaced with a CHANGED record
+        private final BitSet replaced = new BitSet();
+        private long rows;
+        private long added;
+        private long changed;
+        private long removed;
+        private long duplicates;
+        private boolean done;
+
+        private Ingest(long observedAt, View committed) {
+            this.observedAt = observedAt;
+            this.start = committed.records;
+            this.next = committed.records;
+            this.openAtStart = committed.openSeries;
+            this.meterHeads = committed.meterHeads.clone();
+            this.productHeads = committed.productHeads.clone();
+        }
+
+        @Override
+        public void accept(AzurePriceDTO price) {
+            if (price.getMeterId() == null) return;
+            rows++;
+            try {
+                int meter = intern(price.getMeterId());
+                int type = intern(price.getType());
+                int term = intern(price.getReservationTerm());
+                int last = lastOfSeries(meter, price.getTierMinimumUnits(), type, term);
+
+                if (last >= 0 && seen.get(last)) {
+                    duplicates++;
+                } else if (last < 0 || change(last) == Change.REMOVED) {
+                    seen.set(append(price, meter, type, term, Change.ADDED));
+                    added++;
+                } else if (Double.compare(segmentOf(last).getDouble(offset(last) + PRICE), price.getRetailPrice()) != 0) {
+                    replaced.set(last);
+                    seen.set(append(price, meter, type, term, Change.CHANGED));
+                    changed++;
+                } else {
+                    seen.set(last);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Newest record (committed or from this ingest) of one series, or -1
+         */
+        private int lastOfSeries(int meter, int tierMin, int type, int term) {
+            int r = meter < meterHeads.length ? meterHeads[meter] : -1;
+            while (r >= 0) {
+                ByteBuffer segment = segmentOf(r);
+                int at = offset(r);
+                if (sameSeries(segment, at, tierMin, type, term)) return r;
+                r = segment.getInt(at + PREV_METER);
+            }
+            return -1;
+        }
+
+        private int append(AzurePriceDTO p, int meter, int type, int term, Change change) throws IOException {
+            int product = intern(p.getProductName());
+            int record = allocate();
+            ByteBuffer segment = segmentOf(record);
+            int at = offset(record);
+            segment.putLong(at + OBSERVED_AT, observedAt);
+            segment.putDouble(at + PRICE, p.getRetailPrice());
+            segment.putInt(at + METER, meter);
+            segment.putInt(at + PRODUCT, product);
+            segment.putInt(at + SKU, intern(p.getSkuName()));
+            segment.putInt(at + REGION, intern(p.getArmRegionName()));
+            segment.putInt(at + UNIT, intern(p.getUnitOfMeasure()));
+            segment.putInt(at + CURRENCY, intern(p.getCurrencyCode()));
+            segment.putInt(at + EFFECTIVE_DATE, intern(p.getEffectiveStartDate()));
+            segment.putInt(at + TYPE, type);
+            segment.putInt(at + TIER_MIN, p.getTierMinimumUnits());
+            segment.putInt(at + TERM, term);
+            link(segment, at, record, meter, product, change);
+            return record;
+        }
+
+        /**
+         * A REMOVED record repeats the last known values of its series
+         */
+        private void appendRemoved(int last) throws IOException {
+            int record = allocate();
+            ByteBuffer source = segmentOf(last);
+            ByteBuffer target = segmentOf(record);
+            int from = offset(last);
+            int at = offset(record);
+            for (int i = 0; i < PREV_METER; i += Integer.BYTES) target.putInt(at + i, source.getInt(from + i));
+            target.putLong(at + OBSERVED_AT, observedAt);
+            link(target, at, record, source.getInt(from + METER), source.getInt(from + PRODUCT), Change.REMOVED);
+        }
+
+        private void link(ByteBuffer segment, int at, int record, int meter, int product, Change change) {
+            growHeads(Math.max(meter, product) + 1);
+            segment.putInt(at + PREV_METER, meterHeads[meter]);
+            segment.putInt(at + PREV_PRODUCT, productHeads[product]);
+            segment.putInt(at + CHANGE, change.ordinal());
+            meterHeads[meter] = record;
+            productHeads[product] = record;
+        }
+
+        private void growHeads(int needed) {
+            if (needed <= meterHeads.length) return;
+            int size = Math.max(needed, meterHeads.length + (meterHeads.length >> 1) + 16);
+            int old = meterHeads.length;
+            meterHeads = Arrays.copyOf(meterHeads, size);
+            productHeads = Arrays.copyOf(productHeads, size);
+            Arrays.fill(meterHeads, old, size, -1);
+            Arrays.fill(productHeads, old, size, -1);
+        }
+
+        private int allocate() throws IOException {
+            if (next == Integer.MAX_VALUE) throw new IOException("Price history log is full");
+            int record = next++;
+            int segment = record / recordsPerSegment;
+            if (segment == segments.size()) {
+                MappedByteBuffer created = map(segmentFile(segment));
+                created.putInt(0, MAGIC);
+                created.putInt(4, VERSION);
+                created.putInt(COUNT_OFFSET, 0);
+                created.putInt(CAPACITY_OFFSET, recordsPerSegment);
+                segments.add(created);
+            }
+            return record;
+        }
+
+        /**
+         * 🔹 Publish the appended records. A complete ingest (every price was
+         * listed) also closes every series that was not seen this time.
+         */
+        public Stats commit(boolean complete) throws IOException {
+            if (done) throw new IllegalStateException("Ingest already finished");
+            int[] openSeries = closeUnseen(complete);
+
+            // ✅ Strings first, then records, then the counts that make them visible
+            stringOut.flush();
+            stringChannel.force(false);
+            for (int s = start / recordsPerSegment; s < segments.size() && s * (long) recordsPerSegment < next; s++) {
+                MappedByteBuffer segment = segments.get(s);
+                segment.force();
+                int count = (int) Math.min(recordsPerSegment, next - (long) s * recordsPerSegment);
+                segment.putInt(COUNT_OFFSET, count);
+                segment.force();
+            }
+            synchronized (strings) {
+                view = new View(next, meterHeads, productHeads, openSeries, strings.toArray(new String[0]));
+            }
+            done = true;
+            ingesting.set(false);
+            return new Stats(rows, added, changed, removed, duplicates);
+        }
+
+        /**
+         * Open series after this ingest: those open at its start that it did
+         * not change (for a complete ingest only the ones it listed; the others
+         * get a REMOVED record), plus every series it added or changed.
+         * Costs O(open series), however long the history is.
+         */
+        private int[] closeUnseen(boolean complete) throws IOException {
+            int appended = next;
+            int[] open = new int[openAtStart.length + (appended - start)];
+            int n = 0;
+            for (int r : openAtStart) {
+                if (replaced.get(r)) continue;
+                if (!complete || seen.get(r)) {
+                    open[n++] = r;
+                } else {
+                    appendRemoved(r);
+                    removed++;
+                }
+            }
+            // every record accept() appended is the ADDED or CHANGED head of its series
+            for (int r = start; r < appended; r++) open[n++] = r;
+            return Arrays.copyOf(open, n);
+        }
+
+        /**
+         * Drop everything appended by this ingest (no-op once committed)
+         */
+        public void abort() {
+            if (done) return;
+            done = true;
+            // records past the committed count are simply overwritten by the next ingest
+            ingesting.set(false);
+        }
+    }
+
+    private static boolean sameSeries(ByteBuffer segment, int at, int tierMin, int type, int term) {
+        return segment.getInt(at + TIER_MIN) == tierMin && segment.getInt(at + TYPE) == type
+                && segment.getInt(at + TERM) == term;
+    }
+
+    private int intern(String value) throws IOException {
+        String key = value != null ? value : "";
+        Integer id = stringIds.get(key);
+        if (id != null) return id;
+        synchronized (strings) {
+            id = stringIds.get(key);
+            if (id != null) return id;
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            stringOut.writeInt(bytes.length);
+            stringOut.write(bytes);
+            id = strings.size();
+            strings.add(key);
+            stringIds.put(key, id);
+            return id;
+        }
+    }
+
+    // ----------------------------------------------------------------- query
+
+    /**
+     * One record, decoded
+     */
+    public record Entry(long observedAt, Change change, String meterId, String productName, String skuName,
+                        String armRegionName, String unitOfMeasure, String currencyCode,
+                        String effectiveStartDate, String type, String reservationTerm, int tierMinimumUnits,
+                        double retailPrice, Double previousPrice) {
+    }
+
+    /**
+     * 🔹 Every change of one meter observed in [from, to], oldest first
+     */
+    public List<Entry> meterHistory(String meterId, long from, long to) {
+        View v = view;
+        Integer id = meterId != null ? stringIds.get(meterId) : null;
+        int head = id != null && id < v.meterHeads.length ? v.meterHeads[id] : -1;
+        return walk(v, head, PREV_METER, null, from, to, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Every change of one product (optionally one region) observed in [from, to], oldest first,
+     * keeping at most the newest {@code limit}
+     */
+    public List<Entry> productHistory(String productName, String region, long from, long to, int limit) {
+        View v = view;
+        Integer id = productName != null ? stringIds.get(productName) : null;
+        int head = id != null && id < v.productHeads.length ? v.productHeads[id] : -1;
+        Integer regionId = region == null || region.isEmpty() ? null : stringIds.get(region);
+        if (region != null && !region.isEmpty() && regionId == null) return List.of();
+        return walk(v, head, PREV_PRODUCT, regionId, from, to, limit);
+    }
+
+    private List<Entry> walk(View v, int head, int link, Integer regionId, long from, long to, int limit) {
+        List<Entry> newestFirst = new ArrayList<>();
+        for (int r = head; r >= 0 && newestFirst.size() < limit; ) {
+            ByteBuffer segment = segmentOf(r);
+            int at = offset(r);
+            long observedAt = segment.getLong(at + OBSERVED_AT);
+            if (observedAt < from) break; // chains run newest → oldest
+            if (observedAt <= to && (regionId == null || segment.getInt(at + REGION) == regionId)) {
+                newestFirst.add(decode(v, segment, at, previousPrice(segment, at)));
+            }
+            r = segment.getInt(at + link);
+        }
+        List<Entry> entries = new ArrayList<>(newestFirst.size());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) entries.add(newestFirst.get(i));
+        return entries;
+    }
+
+    /**
+     * Price of the previous record in the same series (null for the first one)
+     */
+    private Double previousPrice(ByteBuffer segment, int at) {
+        int tierMin = segment.getInt(at + TIER_MIN);
+        int type = segment.getInt(at + TYPE);
+        int term = segment.getInt(at + TERM);
+        for (int r = segment.getInt(at + PREV_METER); r >= 0; ) {
+            ByteBuffer prev = segmentOf(r);
+            int prevAt = offset(r);
+            if (sameSeries(prev, prevAt, tierMin, type, term)) {
+                return prev.getDouble(prevAt + PRICE);
+            }
+            r = prev.getInt(prevAt + PREV_METER);
+        }
+        return null;
+    }
+
+    private static Entry decode(View v, ByteBuffer segment, int at, Double previousPrice) {
+        String[] s = v.strings;
+        return new Entry(segment.getLong(at + OBSERVED_AT), CHANGES[segment.getInt(at + CHANGE)],
+                s[segment.getInt(at + METER)], s[segment.getInt(at + PRODUCT)], s[segment.getInt(at + SKU)],
+                s[segment.getInt(at + REGION)], s[segment.getInt(at + UNIT)], s[segment.getInt(at + CURRENCY)],
+                s[segment.getInt(at + EFFECTIVE_DATE)], s[segment.getInt(at + TYPE)], s[segment.getInt(at + TERM)],
+                segment.getInt(at + TIER_MIN), segment.getDouble(at + PRICE), previousPrice);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            stringOut.flush();
+        } finally {
+            stringChannel.close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.pricing.ingest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pricing.model.CrawlCheckpointDTO;
+
+/**
+ * Local checkpoints of resumable crawls, one pair of files per job:
+ * <ul>
+ * <li>{@code <job>.json}: the {@link CrawlCheckpointDTO}, replaced atomically
+ * on every save so a crash leaves either the old or the new checkpoint</li>
+ * <li>{@code <job>.keys}: append-only little-endian row hashes of every row
+ * emitted by a partitioned crawl; only the first {@code keyCount} of them
+ * count, anything after that was appended by a save that did not finish</li>
+ * </ul>
+ */
+public final class CrawlCheckpointStore {
+
+    private final Path dir;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public CrawlCheckpointStore(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Last checkpoint of {@code job}, or null if there is none (or it is unreadable)
+     */
+    public CrawlCheckpointDTO load(String job) {
+        Path file = json(job);
+        if (!Files.exists(file)) return null;
+        try {
+            return mapper.readValue(file.toFile(), CrawlCheckpointDTO.class);
+        } catch (IOException e) {
+            System.err.println("⚠️ Ignoring unreadable crawl checkpoint " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 🔹 Crawl state at {@code checkpoint}; drops key hashes past its keyCount
+     */
+    public CrawlState restore(String job, CrawlCheckpointDTO checkpoint) throws IOException {
+        long[] keys = new long[Math.toIntExact(checkpoint.getKeyCount())];
+        if (keys.length > 0) {
+            try (FileChannel channel = FileChannel.open(keys(job), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                long bytes = (long) keys.length * Long.BYTES;
+                if (channel.size() < bytes) {
+                    throw new IOException("Checkpoint of " + job + " expects " + keys.length + " keys, file has "
+                            + channel.size() / Long.BYTES);
+                }
+                channel.truncate(bytes);
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+                int n = 0;
+                while (n < keys.length) {
+                    if (channel.read(buffer) < 0) throw new IOException("Truncated key file of " + job);
+                    buffer.flip();
+                    while (buffer.remaining() >= Long.BYTES && n < keys.length) {
+                        keys[n++] = buffer.getLong();
+                    }
+                    buffer.compact();
+                }
+            }
+        }
+        return CrawlState.restore(checkpoint.getNextPages(), checkpoint.getFinished(), keys);
+    }
+
+    /**
+     * 🔹 Append the state's new key hashes, then atomically replace the
+     * checkpoint with {@code checkpoint} + the state's positions
+     */
+    public void save(String job, CrawlCheckpointDTO checkpoint, CrawlState state) throws IOException {
+        Files.createDirectories(dir);
+        long[] newKeys = state.drainNewKeys();
+        if (newKeys.length > 0) {
+            try (FileChannel channel = FileChannel.open(keys(job), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+                for (long key : newKeys) {
+                    if (!buffer.hasRemaining()) {
+                        write(channel, buffer);
+                    }
+                    buffer.putLong(key);
+                }
+                write(channel, buffer);
+                channel.force(false);
+            }
+        }
+        checkpoint.setNextPages(state.getNextPages());
+        checkpoint.setFinished(state.getFinished().stream().toList());
+        checkpoint.setKeyCount(state.keyCount());
+        checkpoint.setUpdatedAt(Instant.now().toString());
+
+        Path tmp = dir.resolve(job + ".json.tmp");
+        Files.write(tmp, mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(checkpoint));
+        Files.move(tmp, json(job), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Forget the checkpoint of {@code job} (finished, cancelled or superseded)
+     */
+    public void delete(String job) {
+        try {
+            Files.deleteIfExists(json(job));
+            Files.deleteIfExists(keys(job));
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to delete crawl checkpoint of " + job + ": " + e.getMessage());
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private Path json(String job) {
+        return dir.resolve(job + ".json");
+    }
+
+    private Path keys(String job) {
+        return dir.resolve(job + ".keys");
+    }
+}
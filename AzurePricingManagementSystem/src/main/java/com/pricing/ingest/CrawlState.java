@@ -0,0 +1,117 @@
+package com.pricing.ingest;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.pricing.delta.KeyHashSet;
+
+/**
+ * Resume position of one crawl: the next page of every partition that has
+ * started, the partitions that are finished and, for partitioned crawls,
+ * the {@link com.pricing.delta.SnapshotFingerprint#rowHash row hash} of
+ * every row already emitted. Restoring it lets a new run
+ * skip finished work without emitting any row twice.
+ * <p>
+ * Not thread-safe; {@link PartitionedCrawler} only touches it under its
+ * merge lock, so it is consistent whenever the crawl's page callback runs.
+ */
+public final class CrawlState {
+
+    private final Map<String, String> nextPages = new LinkedHashMap<>();
+    private final Set<String> finished = new LinkedHashSet<>();
+    private final KeyHashSet keys = new KeyHashSet();
+    private final boolean journaled;
+    private long[] newKeys;
+    private int newKeyCount;
+
+    public CrawlState() {
+        this(false);
+    }
+
+    private CrawlState(boolean journaled) {
+        this.journaled = journaled;
+        this.newKeys = journaled ? new long[1024] : null;
+    }
+
+    /**
+     * State whose new keys are kept until {@link #drainNewKeys()}, for checkpointing
+     */
+    public static CrawlState journaled() {
+        return new CrawlState(true);
+    }
+
+    /**
+     * 🔹 Journaled state continuing from a checkpoint
+     */
+    public static CrawlState restore(Map<String, String> nextPages, Collection<String> finished, long[] keys) {
+        CrawlState state = new CrawlState(true);
+        state.nextPages.putAll(nextPages);
+        state.finished.addAll(finished);
+        for (long key : keys) {
+            state.keys.add(key);
+        }
+        return state;
+    }
+
+    /**
+     * Where {@code partition} continues; null when it has not started yet
+     */
+    public String nextPage(String partition) {
+        return nextPages.get(partition);
+    }
+
+    public boolean isFinished(String partition) {
+        return finished.contains(partition);
+    }
+
+    /**
+     * Everything of {@code partition} up to the page linking to {@code nextPage}
+     * has been emitted; a null link finishes the partition
+     */
+    public void advance(String partition, String nextPage) {
+        if (nextPage == null) {
+            nextPages.remove(partition);
+            finished.add(partition);
+        } else {
+            nextPages.put(partition, nextPage);
+        }
+    }
+
+    /**
+     * @return false if a row with this hash was already emitted
+     */
+    boolean addKey(long rowHash) {
+        if (!keys.add(rowHash)) return false;
+        if (journaled) {
+            if (newKeyCount == newKeys.length) newKeys = Arrays.copyOf(newKeys, newKeyCount * 2);
+            newKeys[newKeyCount++] = rowHash;
+        }
+        return true;
+    }
+
+    public Map<String, String> getNextPages() {
+        return new LinkedHashMap<>(nextPages);
+    }
+
+    public Set<String> getFinished() {
+        return new LinkedHashSet<>(finished);
+    }
+
+    public long keyCount() {
+        return keys.size();
+    }
+
+    /**
+     * Row hashes added since the previous call (only kept when journaled)
+     */
+    public long[] drainNewKeys() {
+        if (!journaled) return new long[0];
+        long[] drained = Arrays.copyOf(newKeys, newKeyCount);
+        newKeyCount = 0;
+        return drained;
+    }
+}
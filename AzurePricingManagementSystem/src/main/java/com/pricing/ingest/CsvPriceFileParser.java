@@ -0,0 +1,243 @@
+package com.pricing.ingest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.pricing.catalog.PriceTable;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Single-pass RFC 4180 parser for the cached price CSV
+ * (MeterId,ProductName,SKU,Region,Location,Price,Currency,ServiceFamily,Unit,EffectiveDate,Type,ReservationTerm;
+ * files written before the ReservationTerm column read it as empty).
+ * <p>
+ * The file is memory-mapped and split into chunks on record boundaries; a
+ * cheap byte scan that tracks quote parity finds the boundaries so quoted
+ * commas and newlines never straddle two chunks. Chunks are then parsed in
+ * parallel with a hand-written scanner (no regex, no intermediate line
+ * strings) into one dictionary-encoded {@link PriceTable} per chunk, which
+ * are concatenated in file order.
+ */
+public class CsvPriceFileParser {
+
+    private static final int COLUMNS = 12;
+    private static final long MIN_CHUNK = 1L << 20;
+    private static final long MAX_CHUNK = 256L << 20;
+    private static final long SCAN_WINDOW = 1L << 30;
+
+    private final int parallelism;
+
+    public CsvPriceFileParser(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public CsvPriceFileParser() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public PriceTable parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / (parallelism * 4L)));
+            long[] bounds = findRecordBoundaries(channel, size, chunkSize);
+
+            try {
+                List<PriceTable> chunks = IntStream.range(0, bounds.length - 1)
+                        .parallel()
+                        .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1]))
+                        .toList();
+                return chunks.isEmpty() ? PriceTable.empty() : PriceTable.concat(chunks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Offsets of chunk starts: the first record after the header, then the
+     * first record start after every {@code chunkSize} bytes, then EOF.
+     */
+    private long[] findRecordBoundaries(FileChannel channel, long size, long chunkSize) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        boolean inQuotes = false;
+        boolean headerDone = false;
+        long nextTarget = 0;
+
+        for (long base = 0; base < size; base += SCAN_WINDOW) {
+            long len = Math.min(SCAN_WINDOW, size - base);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, base, len);
+            for (int i = 0; i < len; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    long recordStart = base + i + 1;
+                    if (!headerDone) {
+                        headerDone = true;
+                        bounds.add(recordStart);
+                        nextTarget = recordStart + chunkSize;
+                    } else if (recordStart >= nextTarget && recordStart < size) {
+                        bounds.add(recordStart);
+                        nextTarget = recordStart + chunkSize;
+                    }
+                }
+            }
+        }
+        if (!headerDone) {
+            bounds.add(size); // header only (or empty file)
+        }
+        bounds.add(size);
+
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private PriceTable parseChunk(FileChannel channel, long start, long end) {
+        if (end <= start) return PriceTable.empty();
+        try {
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            // rough row count guess (~150 bytes per record) to avoid regrowing the columns
+            PriceTable.Builder rows = new PriceTable.Builder((int) Math.min(1 << 22, (end - start) / 150));
+            new Scanner(buf).readAll(rows);
+            return rows.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Byte-level record scanner over one chunk.
+     */
+    private static final class Scanner {
+
+        private final ByteBuffer buf;
+        private final int limit;
+        private final String[] cols = new String[COLUMNS];
+        private final AzurePriceDTO dto = new AzurePriceDTO();
+        private byte[] scratch = new byte[256];
+        private int pos;
+
+        Scanner(ByteBuffer buf) {
+            this.buf = buf;
+            this.limit = buf.limit();
+        }
+
+        void readAll(PriceTable.Builder rows) {
+            while (pos < limit) {
+                int count = readRecord();
+                if (count == 1 && cols[0].isEmpty()) continue; // blank line
+                rows.accept(toDto());
+            }
+        }
+
+        private int readRecord() {
+            int col = 0;
+            while (true) {
+                String value = (pos < limit && buf.get(pos) == '"') ? readQuoted() : readPlain();
+                if (col < COLUMNS) cols[col] = value;
+                col++;
+
+                if (pos >= limit || buf.get(pos) == '\n') {
+                    pos++;
+                    break;
+                }
+                pos++; // delimiter
+            }
+            for (int i = col; i < COLUMNS; i++) cols[i] = "";
+            return col;
+        }
+
+        private String readPlain() {
+            int start = pos;
+            while (pos < limit) {
+                byte b = buf.get(pos);
+                if (b == ',' || b == '\n') break;
+                pos++;
+            }
+            int end = pos;
+            while (start < end && (buf.get(start) & 0xff) <= ' ') start++;
+            while (end > start && (buf.get(end - 1) & 0xff) <= ' ') end--;
+            return decode(start, end);
+        }
+
+        private String readQuoted() {
+            pos++; // opening quote
+            int n = 0;
+            while (pos < limit) {
+                byte b = buf.get(pos);
+                if (b == '"') {
+                    if (pos + 1 < limit && buf.get(pos + 1) == '"') {
+                        n = append(n, b);
+                        pos += 2;
+                        continue;
+                    }
+                    pos++; // closing quote
+                    break;
+                }
+                n = append(n, b);
+                pos++;
+            }
+            // tolerate stray bytes (e.g. '\r') between closing quote and delimiter
+            while (pos < limit) {
+                byte b = buf.get(pos);
+                if (b == ',' || b == '\n') break;
+                pos++;
+            }
+            return new String(scratch, 0, n, StandardCharsets.UTF_8);
+        }
+
+        private int append(int n, byte b) {
+            if (n == scratch.length) {
+                byte[] grown = new byte[scratch.length * 2];
+                System.arraycopy(scratch, 0, grown, 0, n);
+                scratch = grown;
+            }
+            scratch[n] = b;
+            return n + 1;
+        }
+
+        private String decode(int start, int end) {
+            int len = end - start;
+            if (len == 0) return "";
+            if (len > scratch.length) scratch = new byte[Math.max(len, scratch.length * 2)];
+            buf.get(start, scratch, 0, len);
+            return new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Fill the scanner's reusable DTO; the builder copies it straight away
+         */
+        private AzurePriceDTO toDto() {
+            dto.setMeterId(cols[0]);
+            dto.setProductName(cols[1]);
+            dto.setSkuName(cols[2]);
+            dto.setArmRegionName(cols[3]);
+            dto.setLocation(cols[4]);
+            dto.setRetailPrice(parseDouble(cols[5]));
+            dto.setCurrencyCode(cols[6]);
+            dto.setServiceFamily(cols[7]);
+            dto.setUnitOfMeasure(cols[8]);
+            dto.setEffectiveStartDate(cols[9]);
+            dto.setType(cols[10]);
+            dto.setReservationTerm(cols[11]);
+            return dto;
+        }
+
+        private static double parseDouble(String val) {
+            if (val.isEmpty()) return 0.0;
+            try {
+                return Double.parseDouble(val);
+            } catch (NumberFormatException e) {
+                return 0.0;
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.pricing.ingest;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import com.pricing.metrics.PricingMetrics;
+
+/**
+ * Shared HTTP fetch layer for Azure Retail API pages and S3 objects.
+ * <p>
+ * One {@link HttpClient} is reused for every request, so connections are
+ * kept alive and pooled across pages and HTTP/2 is negotiated where the
+ * server supports it. Requests ask for gzip and bodies are decoded while
+ * they stream, never buffered here. Connect and response timeouts bound
+ * every attempt; 429 and 5xx responses and I/O failures are retried with
+ * full-jitter exponential backoff, honouring {@code Retry-After}.
+ * The response timeout only covers the headers, so a watchdog also fails
+ * any body read that has been blocked for longer than the read timeout,
+ * and {@link #read} retries a page whose body breaks off half way.
+ * Every HTTP attempt takes a permit from the shared {@link RateLimiter}
+ * first, and a 429 pauses that limiter for all crawl threads.
+ * Non-HTTP URLs (e.g. {@code file:}) are opened directly.
+ */
+public class HttpFetcher implements PageSource {
+
+    private static final Set<Integer> RETRYABLE = Set.of(429, 500, 502, 503, 504);
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final long readTimeoutNanos;
+    private final int maxRetries;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final RateLimiter rateLimiter;
+    private final PricingMetrics metrics;
+    private final Set<IdleTimeoutInputStream> reading = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService watchdog;
+
+    /**
+     * @param readTimeout longest a body read may block without a byte arriving; zero disables it
+     */
+    public HttpFetcher(HttpClient client, Duration requestTimeout, Duration readTimeout, int maxRetries,
+                       Duration initialBackoff, Duration maxBackoff, RateLimiter rateLimiter,
+                       PricingMetrics metrics) {
+        this.client = client;
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+        this.requestTimeout = requestTimeout;
+        this.readTimeoutNanos = Math.max(0, readTimeout.toNanos());
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoffMs = Math.max(1, initialBackoff.toMillis());
+        this.maxBackoffMs = Math.max(initialBackoffMs, maxBackoff.toMillis());
+        if (readTimeoutNanos > 0) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "http-read-watchdog");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(TimeUnit.MILLISECONDS.toNanos(50), readTimeoutNanos / 4);
+            watchdog.scheduleAtFixedRate(this::expireStalledReads, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            watchdog = null;
+        }
+    }
+
+    /**
+     * 🔹 Stop the read watchdog (bean destroy method)
+     */
+    public void shutdown() {
+        if (watchdog != null) watchdog.shutdownNow();
+    }
+
+    /**
+     * Status, headers and (decoded, streaming) body of one response
+     */
+    public record Response(int status, HttpHeaders headers, InputStream body) implements Closeable {
+
+        public String header(String name) {
+            return headers != null ? headers.firstValue(name).orElse(null) : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    /**
+     * 🔹 Body of a successful GET; any other final status is an IOException
+     */
+    @Override
+    public InputStream open(String url) throws IOException {
+        Response response = get(url, Map.of());
+        if (response.status() != 200) {
+            response.close();
+            throw new IOException("HTTP " + response.status() + " from " + url);
+        }
+        return response.body();
+    }
+
+    /**
+     * 🔹 Whole body of a successful GET. A body that fails part way (reset,
+     * truncated gzip, read timeout) is fetched again from the start with
+     * the same backoff as a failed request; a non-200 status is not.
+     */
+    @Override
+    public byte[] read(String url) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            InputStream body = open(url);
+            try (body) {
+                return body.readAllBytes();
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= maxRetries) throw e;
+                metrics.httpRetry("body");
+                long delay = backoff(attempt, null);
+                System.err.println("⚠️ " + e.getClass().getSimpleName() + " reading body of " + url
+                        + ", retry " + (attempt + 1) + "/" + maxRetries + " in " + delay + " ms");
+                sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * 🔹 GET with extra request headers (e.g. If-None-Match). Returns the
+     * first non-retryable response, or the last one once retries run out.
+     */
+    public Response get(String url, Map<String, String> headers) throws IOException {
+        URI uri = URI.create(url);
+        if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+            return new Response(200, null, new URL(url).openStream());
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        headers.forEach(builder::header);
+        HttpRequest request = builder.build();
+
+        for (int attempt = 0; ; attempt++) {
+            HttpResponse<InputStream> response;
+            long waited = rateLimiter.acquire();
+            if (waited > 0) metrics.httpThrottled(waited);
+            long start = System.nanoTime();
+            try {
+                response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted fetching " + url);
+            } catch (IOException e) {
+                metrics.httpResponse(uri.getHost(), -1, System.nanoTime() - start);
+                if (attempt >= maxRetries) throw e;
+                metrics.httpRetry("io");
+                System.err.println("⚠️ " + e.getClass().getSimpleName() + " fetching " + url
+                        + ", retry " + (attempt + 1) + "/" + maxRetries);
+                sleep(backoff(attempt, null));
+                continue;
+            }
+
+            int status = response.statusCode();
+            metrics.httpResponse(uri.getHost(), status, System.nanoTime() - start);
+            if (RETRYABLE.contains(status) && attempt < maxRetries) {
+                response.body().close();
+                metrics.httpRetry(String.valueOf(status));
+                long delay = backoff(attempt, response.headers().firstValue("Retry-After").orElse(null));
+                if (status == 429) rateLimiter.pause(delay);
+                System.err.println("⚠️ HTTP " + status + " from " + url + ", retry " + (attempt + 1) + "/"
+                        + maxRetries + " in " + delay + " ms");
+                sleep(delay);
+                continue;
+            }
+            InputStream body = response.body();
+            if (readTimeoutNanos > 0) body = new IdleTimeoutInputStream(body, uri.getHost());
+            return new Response(status, response.headers(), new CountingInputStream(decode(response, body), metrics));
+        }
+    }
+
+    private static InputStream decode(HttpResponse<InputStream> response, InputStream body) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        if ("gzip".equalsIgnoreCase(encoding.trim())) {
+            return new GZIPInputStream(body, 64 * 1024);
+        }
+        return body;
+    }
+
+    private void expireStalledReads() {
+        long now = System.nanoTime();
+        for (IdleTimeoutInputStream in : reading) {
+            long since = in.readingSince;
+            if (since != 0 && now - since > readTimeoutNanos) in.expire();
+        }
+    }
+
+    /**
+     * Raw response body watched by {@link #expireStalledReads}: a read that
+     * blocks past the read timeout gets its stream closed under it and then
+     * fails with an HttpTimeoutException. Time the caller spends between
+     * reads (parsing, a slow sink) does not count.
+     */
+    private final class IdleTimeoutInputStream extends FilterInputStream {
+
+        private final String host;
+        private volatile long readingSince;
+        private volatile boolean expired;
+
+        IdleTimeoutInputStream(InputStream in, String host) {
+            super(in);
+            this.host = host;
+            reading.add(this);
+        }
+
+        @Override
+        public int read() throws IOException {
+            begin();
+            try {
+                return super.read();
+            } finally {
+                end();
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            begin();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                end();
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            begin();
+            try {
+                return super.skip(n);
+            } finally {
+                end();
+            }
+        }
+
+        private void begin() throws IOException {
+            if (expired) throw timeout();
+            readingSince = Math.max(1, System.nanoTime());
+        }
+
+        private void end() throws IOException {
+            readingSince = 0;
+            // Closing the body ends a blocked read as EOF; report it as the timeout it was
+            if (expired) throw timeout();
+        }
+
+        private HttpTimeoutException timeout() {
+            return new HttpTimeoutException("No response body bytes from " + host + " for "
+                    + TimeUnit.NANOSECONDS.toMillis(readTimeoutNanos) + " ms");
+        }
+
+        void expire() {
+            expired = true;
+            reading.remove(this);
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // the pending read fails either way
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reading.remove(this);
+            super.close();
+        }
+    }
+
+    /**
+     * Counts body bytes as they stream and reports the total once, on close
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final PricingMetrics metrics;
+        private long count;
+        private boolean reported;
+
+        CountingInputStream(InputStream in, PricingMetrics metrics) {
+            super(in);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!reported) {
+                reported = true;
+                metrics.bytesDownloaded(count);
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * Retry-After when the server sent one (seconds or HTTP-date), otherwise
+     * a random delay in [0, min(max, initial * 2^attempt)]
+     */
+    long backoff(int attempt, String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return Math.min(maxBackoffMs, Math.max(0, Long.parseLong(retryAfter.trim()) * 1000));
+            } catch (NumberFormatException notSeconds) {
+                try {
+                    ZonedDateTime at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    long ms = Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis();
+                    return Math.min(maxBackoffMs, Math.max(0, ms));
+                } catch (RuntimeException ignored) {
+                    // fall through to exponential backoff
+                }
+            }
+        }
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static void sleep(long ms) throws InterruptedIOException {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted during retry backoff");
+        }
+    }
+}
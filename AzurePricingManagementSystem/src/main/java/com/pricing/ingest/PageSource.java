@@ -0,0 +1,23 @@
+package com.pricing.ingest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Opens the response body of one remote page (Azure Retail API or S3 object).
+ */
+@FunctionalInterface
+public interface PageSource {
+
+    InputStream open(String url) throws IOException;
+
+    /**
+     * Whole body of one page, for callers that parse it only once it has
+     * fully arrived
+     */
+    default byte[] read(String url) throws IOException {
+        try (InputStream in = open(url)) {
+            return in.readAllBytes();
+        }
+    }
+}
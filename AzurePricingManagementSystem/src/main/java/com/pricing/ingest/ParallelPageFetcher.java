@@ -0,0 +1,216 @@
+package com.pricing.ingest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Crawls an Azure Retail Prices result set with bounded concurrency.
+ * <p>
+ * The API pages by {@code $skip}, so once the first page reveals the page
+ * size every following URL can be predicted. Up to {@code concurrency} pages
+ * are fetched ahead on the executor while the calling thread parses them
+ * strictly in page order, so the sink sees items in the same order as a
+ * sequential crawl. The crawl stops at the first page without a
+ * NextPageLink and cancels any prefetches past it. If a NextPageLink ever
+ * disagrees with the prediction the crawl falls back to following links
+ * one by one.
+ * <p>
+ * Every page is read whole through {@link PageSource#read} before it is
+ * parsed, so a body that breaks off is retried there and the sink never
+ * sees half a page twice.
+ */
+public class ParallelPageFetcher {
+
+    private static final Pattern SKIP = Pattern.compile("([?&](?:\\$|%24)skip=)(\\d+)", Pattern.CASE_INSENSITIVE);
+
+    private final PageSource pageSource;
+    private final RetailPricePageReader reader;
+    private final ExecutorService executor;
+    private final int concurrency;
+    private final PricingMetrics metrics;
+
+    /**
+     * Outcome of one crawl: pages read and the NextPageLink of the last of
+     * them, null when the crawl reached the end of the result set rather
+     * than stopping at the page cap
+     */
+    public record Crawled(int pages, String nextPageLink) {
+
+        public boolean reachedEnd() {
+            return nextPageLink == null;
+        }
+    }
+
+    public ParallelPageFetcher(PageSource pageSource, RetailPricePageReader reader,
+                               ExecutorService executor, int concurrency, PricingMetrics metrics) {
+        this.metrics = metrics;
+        this.pageSource = pageSource;
+        this.reader = reader;
+        this.executor = executor;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Stream every item reachable from {@code startUrl} to {@code sink}, in
+     * page order, reading at most {@code maxPages} pages
+     */
+    public Crawled crawl(String startUrl, int maxPages, Consumer<AzurePriceDTO> sink) throws IOException {
+        return crawl(startUrl, maxPages, sink, () -> { });
+    }
+
+    /**
+     * Same as {@link #crawl(String, int, Consumer)}, calling {@code onPage} on
+     * the crawling thread after each page has been handed to the sink. A
+     * RuntimeException from {@code onPage} (e.g. a cancelled job) stops the
+     * crawl and cancels the outstanding prefetches.
+     */
+    public Crawled crawl(String startUrl, int maxPages, Consumer<AzurePriceDTO> sink, Runnable onPage)
+            throws IOException {
+        return crawl(startUrl, maxPages, sink, (String next) -> onPage.run());
+    }
+
+    /**
+     * Same as {@link #crawl(String, int, Consumer, Runnable)}, passing each
+     * page's NextPageLink (null after the last page) to {@code onPage}.
+     * Crawling again from that link continues right after the page, which
+     * is what a checkpoint records.
+     */
+    public Crawled crawl(String startUrl, int maxPages, Consumer<AzurePriceDTO> sink,
+                         Consumer<String> onPage) throws IOException {
+        if (maxPages <= 0) return new Crawled(0, startUrl);
+
+        TimedSink timed = new TimedSink(sink, onPage);
+        String next = parse(pageSource.read(startUrl), timed);
+        int pages = 1;
+
+        long startSkip = skipOf(startUrl, 0);
+        long nextSkip = skipOf(next, -1);
+        long step = nextSkip - startSkip;
+        if (next == null || nextSkip < 0 || step <= 0 || concurrency == 1) {
+            return followLinks(next, pages, maxPages, timed);
+        }
+
+        Deque<Prefetch> window = new ArrayDeque<>();
+        long skipToSubmit = nextSkip;
+        try {
+            while (pages < maxPages) {
+                while (window.size() < concurrency && pages + window.size() < maxPages) {
+                    String url = withSkip(next, skipToSubmit);
+                    window.add(new Prefetch(skipToSubmit, executor.submit(() -> pageSource.read(url))));
+                    skipToSubmit += step;
+                }
+
+                Prefetch page = window.poll();
+                next = parse(await(page.body), timed);
+                pages++;
+
+                if (next == null) {
+                    return new Crawled(pages, null);
+                }
+                if (skipOf(next, -1) != page.skip + step) {
+                    // Prediction broke down, finish by following links.
+                    cancel(window);
+                    return followLinks(next, pages, maxPages, timed);
+                }
+            }
+            return new Crawled(pages, next);
+        } finally {
+            cancel(window);
+        }
+    }
+
+    private Crawled followLinks(String url, int pages, int maxPages, TimedSink sink) throws IOException {
+        while (url != null && pages < maxPages) {
+            url = parse(pageSource.read(url), sink);
+            pages++;
+        }
+        return new Crawled(pages, url);
+    }
+
+    /**
+     * Parse one page and report its row count and parse time (sink time excluded)
+     */
+    private String parse(byte[] page, TimedSink sink) throws IOException {
+        int rowsBefore = sink.rows;
+        long sinkBefore = sink.nanos;
+        long start = System.nanoTime();
+        String next = reader.read(new ByteArrayInputStream(page), sink);
+        long elapsed = System.nanoTime() - start - (sink.nanos - sinkBefore);
+        metrics.pageParsed(sink.rows - rowsBefore, elapsed);
+        sink.onPage.accept(next);
+        return next;
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Crawl interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            throw new IOException("Page fetch failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static void cancel(Deque<Prefetch> window) {
+        Prefetch p;
+        while ((p = window.poll()) != null) {
+            p.body.cancel(true);
+        }
+    }
+
+    static long skipOf(String url, long fallback) {
+        if (url == null) return fallback;
+        Matcher m = SKIP.matcher(url);
+        return m.find() ? Long.parseLong(m.group(2)) : fallback;
+    }
+
+    static String withSkip(String url, long skip) {
+        Matcher m = SKIP.matcher(url);
+        if (m.find()) {
+            return url.substring(0, m.start(2)) + skip + url.substring(m.end(2));
+        }
+        return url + (url.contains("?") ? "&" : "?") + "$skip=" + skip;
+    }
+
+    private record Prefetch(long skip, Future<byte[]> body) {
+    }
+
+    /**
+     * Counts rows and the time the caller's sink spends on them; only used on the crawling thread
+     */
+    private static final class TimedSink implements Consumer<AzurePriceDTO> {
+
+        private final Consumer<AzurePriceDTO> delegate;
+        private final Consumer<String> onPage;
+        private int rows;
+        private long nanos;
+
+        TimedSink(Consumer<AzurePriceDTO> delegate, Consumer<String> onPage) {
+            this.delegate = delegate;
+            this.onPage = onPage;
+        }
+
+        @Override
+        public void accept(AzurePriceDTO price) {
+            long start = System.nanoTime();
+            delegate.accept(price);
+            nanos += System.nanoTime() - start;
+            rows++;
+        }
+    }
+}
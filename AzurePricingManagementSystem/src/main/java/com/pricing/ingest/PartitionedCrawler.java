@@ -0,0 +1,246 @@
+package com.pricing.ingest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.pricing.delta.SnapshotFingerprint;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Crawls the whole Retail Prices catalog as independent {@code $filter}
+ * partitions instead of one long NextPageLink chain.
+ * <p>
+ * Every configured service family is one partition; large families are
+ * split further into one partition per region plus one for all other
+ * regions, and a final partition catches every family that is not listed.
+ * Together the partitions cover the catalog exactly once. Up to
+ * {@code workers} partitions are crawled at a time, each with the usual
+ * page prefetch of {@link ParallelPageFetcher}; the request rate over all
+ * of them is bounded by the shared {@link RateLimiter} in {@link HttpFetcher}.
+ * <p>
+ * Pages are merged into the caller's sink one page at a time under a single
+ * lock, so the sink and {@code onPage} are never called concurrently.
+ * Only exact repeats are dropped, by {@link SnapshotFingerprint#rowHash}
+ * over every field: the partitions do not overlap, so a repeat is a row
+ * the API itself returned twice across pages. Rows that merely share a
+ * {@link SnapshotFingerprint#key row key} are distinct prices and all
+ * reach the sink; the delta export decides what to do with those. A
+ * {@link CrawlState} tracks where every partition stands, so an
+ * interrupted crawl can be resumed.
+ */
+public class PartitionedCrawler {
+
+    private static final String API_VERSION = "2023-01-01-preview";
+
+    /**
+     * What the row hashes in a {@link CrawlState} are computed over; checkpoints
+     * saved with another version cannot be resumed
+     */
+    public static final int ROW_HASH_VERSION = 2; // 2: every field, not just the row key
+
+    /**
+     * One slice of the catalog; a null filter is the whole catalog
+     */
+    public record Partition(String name, String filter) {
+    }
+
+    public record Result(int partitions, long pages, long rows, long duplicates) {
+    }
+
+    private final String baseUrl;
+    private final List<Partition> partitions;
+    private final ParallelPageFetcher pageFetcher;
+    private final int workers;
+    private final PricingMetrics metrics;
+
+    public PartitionedCrawler(String baseUrl, List<Partition> partitions, ParallelPageFetcher pageFetcher,
+                              int workers, PricingMetrics metrics) {
+        this.baseUrl = baseUrl;
+        this.partitions = List.copyOf(partitions);
+        this.pageFetcher = pageFetcher;
+        this.workers = Math.max(1, workers);
+        this.metrics = metrics;
+    }
+
+    /**
+     * 🔹 Partitions covering the catalog: one per family, one per region of
+     * each split family plus its remaining regions, and one for unlisted families
+     */
+    public static List<Partition> plan(List<String> families, List<String> splitFamilies, List<String> regions) {
+        List<Partition> plan = new ArrayList<>();
+        if (families.isEmpty()) {
+            plan.add(new Partition("all", null));
+            return plan;
+        }
+        List<String> notFamilies = new ArrayList<>();
+        for (String family : families) {
+            String byFamily = "serviceFamily eq " + quote(family);
+            notFamilies.add("serviceFamily ne " + quote(family));
+            if (!splitFamilies.contains(family) || regions.isEmpty()) {
+                plan.add(new Partition(family, byFamily));
+                continue;
+            }
+            List<String> notRegions = new ArrayList<>();
+            for (String region : regions) {
+                plan.add(new Partition(family + "/" + region, byFamily + " and armRegionName eq " + quote(region)));
+                notRegions.add("armRegionName ne " + quote(region));
+            }
+            plan.add(new Partition(family + "/other regions", byFamily + " and " + String.join(" and ", notRegions)));
+        }
+        plan.add(new Partition("other families", String.join(" and ", notFamilies)));
+        return plan;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Source description for manifests, logs and checkpoints; changes whenever the partition plan does
+     */
+    public String describe() {
+        return baseUrl + " (" + partitions.size() + " partitions, plan "
+                + Integer.toHexString(partitions.hashCode()) + ")";
+    }
+
+    public String url(Partition partition) {
+        String url = baseUrl + "?api-version=" + API_VERSION;
+        if (partition.filter() == null) return url;
+        return url + "&$filter=" + URLEncoder.encode(partition.filter(), StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * 🔹 Crawl every partition into {@code sink}, calling {@code onPage} after
+     * each merged page. The first failing partition (or an exception from
+     * {@code onPage}, e.g. a cancelled job) stops all others and is rethrown.
+     */
+    public Result crawl(Consumer<AzurePriceDTO> sink, Runnable onPage) throws IOException {
+        return crawl(sink, onPage, new CrawlState());
+    }
+
+    /**
+     * Same as {@link #crawl(Consumer, Runnable)}, continuing from {@code state}:
+     * finished partitions are skipped, started ones continue at their next
+     * page and rows whose key is already in the state are dropped. The state
+     * is advanced under the merge lock before {@code onPage} runs, so
+     * {@code onPage} can checkpoint it.
+     */
+    public Result crawl(Consumer<AzurePriceDTO> sink, Runnable onPage, CrawlState state) throws IOException {
+        long start = System.nanoTime();
+        List<Partition> remaining = partitions.stream().filter(p -> !state.isFinished(p.name())).toList();
+        if (remaining.isEmpty()) return new Result(0, 0, 0, 0);
+
+        Merge merge = new Merge(sink, onPage, state);
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, remaining.size()), r -> {
+            Thread t = new Thread(r, "azure-partition-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<Long> done = new ExecutorCompletionService<>(pool);
+        try {
+            for (Partition partition : remaining) {
+                String startUrl = state.nextPage(partition.name());
+                done.submit(() -> crawl(partition, startUrl != null ? startUrl : url(partition), merge));
+            }
+            long pages = 0;
+            for (int i = 0; i < remaining.size(); i++) {
+                pages += await(done);
+            }
+            metrics.crawlDuplicates(merge.duplicates);
+            System.out.println("✅ Partitioned crawl: " + remaining.size() + " partitions"
+                    + (remaining.size() < partitions.size()
+                    ? " (" + (partitions.size() - remaining.size()) + " already finished)" : "")
+                    + ", " + pages + " pages, " + merge.rows + " rows (" + merge.duplicates + " duplicates) in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return new Result(remaining.size(), pages, merge.rows, merge.duplicates);
+        } finally {
+            merge.stop();
+            pool.shutdownNow();
+        }
+    }
+
+    private long crawl(Partition partition, String startUrl, Merge merge) throws IOException {
+        long start = System.nanoTime();
+        List<AzurePriceDTO> page = new ArrayList<>();
+        long[] rows = {0};
+        int pages = pageFetcher.crawl(startUrl, Integer.MAX_VALUE, page::add, (String next) -> {
+            rows[0] += page.size();
+            merge.flush(partition.name(), page, next);
+        }).pages();
+        metrics.partitionCrawled(pages, rows[0], System.nanoTime() - start);
+        return pages;
+    }
+
+    private static long await(CompletionService<Long> done) throws IOException {
+        try {
+            return done.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Partitioned crawl interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("Partition crawl failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Hands pages to the caller's sink one at a time and drops exact repeats of rows already emitted
+     */
+    private static final class Merge {
+
+        private final Consumer<AzurePriceDTO> sink;
+        private final Runnable onPage;
+        private final CrawlState state;
+        private long rows;
+        private long duplicates;
+        private boolean stopped;
+
+        Merge(Consumer<AzurePriceDTO> sink, Runnable onPage, CrawlState state) {
+            this.sink = sink;
+            this.onPage = onPage;
+            this.state = state;
+        }
+
+        synchronized void flush(String partition, List<AzurePriceDTO> page, String nextPage) {
+            if (stopped) throw new CancellationException("Partitioned crawl stopped");
+            for (AzurePriceDTO price : page) {
+                if (state.addKey(SnapshotFingerprint.rowHash(price))) {
+                    sink.accept(price);
+                    rows++;
+                } else {
+                    duplicates++;
+                }
+            }
+            page.clear();
+            state.advance(partition, nextPage);
+            onPage.run();
+        }
+
+        /**
+         * After this no partition reaches the sink, even one still winding down
+         */
+        synchronized void stop() {
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.pricing.ingest;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide request rate limit for outgoing HTTP requests.
+ * <p>
+ * Permits are handed out on an even schedule ({@code 1 / permitsPerSecond}
+ * apart) without bursts, so any number of crawl threads together stay under
+ * the limit. A throttling response can push the whole schedule back with
+ * {@link #pause(long)}, which makes every thread back off instead of only
+ * the one that was throttled.
+ */
+public final class RateLimiter {
+
+    private final long intervalNanos;
+    private long nextFree = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond requests per second; 0 or less = unlimited
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+    }
+
+    public static RateLimiter unlimited() {
+        return new RateLimiter(0);
+    }
+
+    /**
+     * Block until the next permit is due
+     *
+     * @return nanos spent waiting
+     */
+    public long acquire() throws InterruptedIOException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (intervalNanos == 0 && nextFree - now <= 0) return 0;
+            long at = Math.max(now, nextFree);
+            nextFree = at + intervalNanos;
+            wait = at - now;
+        }
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a request permit");
+            }
+        }
+        return wait;
+    }
+
+    /**
+     * 🔹 Hand out no permit for the next {@code millis} (e.g. after a 429)
+     */
+    public synchronized void pause(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        if (until - nextFree > 0) nextFree = until;
+    }
+}
@@ -0,0 +1,96 @@
+package com.pricing.ingest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Token-level reader for one Azure Retail Prices page.
+ * Items are handed to the sink one at a time as they are parsed, so a page
+ * is never held in memory as a tree or as a list. Accepts both the API shape
+ * ({"Items": [...], "NextPageLink": ...}) and a bare JSON array of items.
+ */
+public class RetailPricePageReader {
+
+    private final JsonFactory factory;
+
+    public RetailPricePageReader(JsonFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Stream every item of the page to {@code sink}.
+     *
+     * @return the page's NextPageLink, or null when this is the last page
+     */
+    public String read(InputStream in, Consumer<AzurePriceDTO> sink) throws IOException {
+        try (JsonParser parser = factory.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                readItems(parser, sink);
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Unsupported JSON structure");
+            }
+
+            String nextPageLink = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("Items".equals(field) && value == JsonToken.START_ARRAY) {
+                    readItems(parser, sink);
+                } else if ("NextPageLink".equals(field)) {
+                    nextPageLink = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return (nextPageLink != null && !nextPageLink.isEmpty()) ? nextPageLink : null;
+        }
+    }
+
+    private void readItems(JsonParser parser, Consumer<AzurePriceDTO> sink) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            sink.accept(readItem(parser));
+        }
+    }
+
+    private AzurePriceDTO readItem(JsonParser parser) throws IOException {
+        AzurePriceDTO dto = new AzurePriceDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            if (value == JsonToken.VALUE_NULL) continue;
+
+            switch (field) {
+                case "meterId" -> dto.setMeterId(parser.getText());
+                case "productName" -> dto.setProductName(parser.getText());
+                case "skuName" -> dto.setSkuName(parser.getText());
+                case "armRegionName" -> dto.setArmRegionName(parser.getText());
+                case "location" -> dto.setLocation(parser.getText());
+                case "retailPrice" -> dto.setRetailPrice(parser.getValueAsDouble());
+                case "currencyCode" -> dto.setCurrencyCode(parser.getText());
+                case "serviceFamily" -> dto.setServiceFamily(parser.getText());
+                case "unitOfMeasure" -> dto.setUnitOfMeasure(parser.getText());
+                case "effectiveStartDate" -> dto.setEffectiveStartDate(parser.getText());
+                case "type" -> dto.setType(parser.getText());
+                case "tierMinimumUnits" -> dto.setTierMinimumUnits((int) parser.getValueAsDouble());
+                case "tierMaximumUnits" -> dto.setTierMaximumUnits((int) parser.getValueAsDouble());
+                case "skuId" -> dto.setSkuId(parser.getText());
+                case "reservationTerm" -> dto.setReservationTerm(parser.getText());
+                default -> { }
+            }
+        }
+        return dto;
+    }
+}
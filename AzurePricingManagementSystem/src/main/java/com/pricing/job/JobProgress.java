@@ -0,0 +1,67 @@
+package com.pricing.job;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Live progress and cancellation flag of one background job.
+ * <p>
+ * Long-running exports update it once per page (or every few thousand rows)
+ * from their worker thread and call {@link #checkCancelled()} at the same
+ * points, so a cancel request stops the crawl at the next page boundary and
+ * the unfinished upload is aborted by the normal close path.
+ */
+public final class JobProgress {
+
+    private volatile long pages;
+    private volatile long rows;
+    private volatile long bytes;
+    private volatile boolean cancelled;
+
+    /**
+     * Progress holder for work that is not running as a job
+     */
+    public static JobProgress untracked() {
+        return new JobProgress();
+    }
+
+    public void page(long rowsSoFar, long bytesSoFar) {
+        pages++;
+        rows = rowsSoFar;
+        bytes = bytesSoFar;
+    }
+
+    public void rows(long rowsSoFar) {
+        rows = rowsSoFar;
+    }
+
+    public void bytes(long bytesSoFar) {
+        bytes = bytesSoFar;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 🔹 Throw if the job has been cancelled; call between pages or row batches
+     */
+    public void checkCancelled() {
+        if (cancelled) throw new CancellationException("Job cancelled");
+    }
+
+    public long getPages() {
+        return pages;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
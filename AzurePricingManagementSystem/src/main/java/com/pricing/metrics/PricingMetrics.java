@@ -0,0 +1,270 @@
+package com.pricing.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.springframework.stereotype.Component;
+
+import com.pricing.cache.CoalescingCache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * All Micrometer meters for the ingest → transform → upload pipeline and
+ * the estimate API, in one place so names and tags stay consistent.
+ * Exposed through Actuator at /actuator/metrics and /actuator/prometheus.
+ * <p>
+ * Hot loops accumulate nanos locally and report once per page, part or run;
+ * nothing here is called per row.
+ */
+@Component
+public class PricingMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Counter pagesFetched;
+    private final DistributionSummary downloadBytes;
+    private final DistributionSummary s3PartBytes;
+    private final Counter s3UploadedBytes;
+    private final Timer s3PartUpload;
+    private final Timer s3Commit;
+    private final Map<String, AtomicLong> rowsPerSecond = new ConcurrentHashMap<>();
+
+    public PricingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.pagesFetched = Counter.builder("azure.pages.fetched")
+                .description("Azure Retail API pages fetched and parsed")
+                .register(registry);
+        this.downloadBytes = DistributionSummary.builder("azure.download.bytes")
+                .description("Response body bytes read per HTTP fetch (after gzip decoding)")
+                .baseUnit("bytes")
+                .register(registry);
+        this.s3PartBytes = DistributionSummary.builder("pricing.s3.part.bytes")
+                .baseUnit("bytes")
+                .register(registry);
+        this.s3UploadedBytes = Counter.builder("pricing.s3.uploaded.bytes")
+                .baseUnit("bytes")
+                .register(registry);
+        this.s3PartUpload = Timer.builder("pricing.s3.part.upload")
+                .description("Latency of one multipart part upload")
+                .register(registry);
+        this.s3Commit = Timer.builder("pricing.s3.commit")
+                .description("Time from commit() to a visible object (last part, pending parts, complete)")
+                .register(registry);
+    }
+
+    /**
+     * Meters backed by an in-memory registry, for tools and benchmarks outside Spring
+     */
+    public static PricingMetrics noop() {
+        return new PricingMetrics(new SimpleMeterRegistry());
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+
+    // ---------------------------------------------------------------- ingest
+
+    public void httpResponse(String host, int status, long nanos) {
+        registry.timer("azure.http.requests", "host", String.valueOf(host), "status", String.valueOf(status))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void httpRetry(String reason) {
+        registry.counter("azure.http.retries", "reason", reason).increment();
+    }
+
+    /**
+     * Time one request waited for a permit of the global rate limit
+     */
+    public void httpThrottled(long nanos) {
+        registry.timer("azure.http.rate.limit.wait").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void bytesDownloaded(long bytes) {
+        downloadBytes.record(bytes);
+    }
+
+    /**
+     * One Retail API page parsed; {@code nanos} excludes time spent in the row sink
+     */
+    public void pageParsed(int rows, long nanos) {
+        pagesFetched.increment();
+        rowsParsed("crawl", rows, nanos);
+    }
+
+    /**
+     * One partition of a partitioned catalog crawl finished
+     */
+    public void partitionCrawled(int pages, long rows, long nanos) {
+        registry.summary("pricing.crawl.partition.pages").record(pages);
+        registry.summary("pricing.crawl.partition.rows").record(rows);
+        registry.timer("pricing.crawl.partition").record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Rows dropped by a partitioned crawl because their key was already merged
+     */
+    public void crawlDuplicates(long rows) {
+        registry.counter("pricing.crawl.duplicates").increment(rows);
+    }
+
+    /**
+     * Time to cut an S3 part and save a crawl checkpoint
+     */
+    public void checkpointSaved(String export, long nanos) {
+        registry.timer("pricing.checkpoint.save", "export", export).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rowsParsed(String source, long rows, long nanos) {
+        registry.counter("pricing.rows.parsed", "source", source).increment(rows);
+        registry.timer("pricing.parse", "source", source).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ------------------------------------------------------------- transform
+
+    /**
+     * Rows serialised by one export run in {@code format} (csv, csv.gz, parquet, ...)
+     */
+    public void exportWritten(String export, String format, long rows, long nanos) {
+        registry.counter("pricing.export.rows", "export", export, "format", format).increment(rows);
+        registry.timer("pricing.export.write", "export", export, "format", format).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Uploaded object size, to compare formats and compression ratios
+     */
+    public void exportBytes(String export, String format, long bytes) {
+        DistributionSummary.builder("pricing.export.bytes")
+                .tag("export", export)
+                .tag("format", format)
+                .baseUnit("bytes")
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * End of one streamed HTTP export: completed, aborted (client went away or
+     * write failed) or rejected (too many running)
+     */
+    public void exportStreamed(String format, String outcome) {
+        registry.counter("pricing.export.streams", "format", format, "outcome", outcome).increment();
+    }
+
+    // ---------------------------------------------------------------- upload
+
+    public void s3PartUploaded(long bytes, long nanos) {
+        s3PartBytes.record(bytes);
+        s3UploadedBytes.increment(bytes);
+        s3PartUpload.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void s3Committed(long bytes, long nanos, boolean multipart) {
+        if (!multipart) s3UploadedBytes.increment(bytes);
+        s3Commit.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ------------------------------------------------ cache, estimate, query
+
+    /**
+     * Local price cache outcome: hit, stale, miss, not_modified, modified or pulled (shared snapshot)
+     */
+    public void priceCache(String result) {
+        registry.counter("pricing.cache.requests", "result", result).increment();
+    }
+
+    public void bindLookupCache(CoalescingCache<?, ?> cache) {
+        FunctionCounter.builder("pricing.lookup.cache.hits", cache, c -> c.stats().hits()).register(registry);
+        FunctionCounter.builder("pricing.lookup.cache.misses", cache, c -> c.stats().misses()).register(registry);
+        FunctionCounter.builder("pricing.lookup.cache.coalesced", cache, c -> c.stats().coalesced()).register(registry);
+        FunctionCounter.builder("pricing.lookup.cache.evictions", cache, c -> c.stats().evictions()).register(registry);
+        Gauge.builder("pricing.lookup.cache.size", cache, c -> c.stats().size()).register(registry);
+    }
+
+    /**
+     * Shared snapshot transfer: "published" by the leader or "pulled" by another instance
+     */
+    public void sharedSnapshot(String name, String event, long bytes, long nanos) {
+        registry.counter("pricing.shared.snapshots", "name", name, "event", event).increment();
+        registry.counter("pricing.shared.snapshot.bytes", "name", name, "event", event).increment(bytes);
+        registry.timer("pricing.shared.snapshot.transfer", "name", name, "event", event)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 1 while this instance holds the shared leader lease
+     */
+    public void bindSharedLeader(BooleanSupplier leader) {
+        Gauge.builder("pricing.shared.leader", leader, l -> l.getAsBoolean() ? 1 : 0).register(registry);
+    }
+
+    public Timer estimateTimer(String kind) {
+        return registry.timer("pricing.estimate", "kind", kind);
+    }
+
+    /**
+     * Latency of a catalog query endpoint (e.g. "prices")
+     */
+    public Timer queryTimer(String endpoint) {
+        return registry.timer("pricing.query", "endpoint", endpoint);
+    }
+
+    public void estimateLines(int lines) {
+        registry.summary("pricing.estimate.lines").record(lines);
+    }
+
+    // --------------------------------------------------------------- history
+
+    /**
+     * Changes appended to the price history by one ingest (catalog refresh or delta crawl)
+     */
+    public void historyIngest(String source, long added, long changed, long removed, long nanos) {
+        registry.counter("pricing.history.changes", "source", source, "change", "added").increment(added);
+        registry.counter("pricing.history.changes", "source", source, "change", "changed").increment(changed);
+        registry.counter("pricing.history.changes", "source", source, "change", "removed").increment(removed);
+        registry.timer("pricing.history.ingest", "source", source).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ------------------------------------------------------------------ runs
+
+    /**
+     * 🔹 Start a per-run stage breakdown (e.g. "weekly_delta", "processed_sheet")
+     */
+    public RunTimer run(String name) {
+        return new RunTimer(this, name);
+    }
+
+    void runFinished(String run, boolean success, long totalNanos, Map<String, Long> stages, long rows) {
+        Timer.builder("pricing.run")
+                .tag("run", run)
+                .tag("outcome", success ? "success" : "failure")
+                .register(registry)
+                .record(totalNanos, TimeUnit.NANOSECONDS);
+        stages.forEach((stage, nanos) -> Timer.builder("pricing.run.stage")
+                .tag("run", run)
+                .tag("stage", stage)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+        if (success && rows > 0) {
+            rowsPerSecond.computeIfAbsent(run, r -> {
+                AtomicLong holder = new AtomicLong();
+                Gauge.builder("pricing.run.rows.per.second", holder, AtomicLong::get)
+                        .tag("run", r)
+                        .description("Rows processed per second by the last successful run")
+                        .register(registry);
+                return holder;
+            }).set(Math.round(rows / Math.max(totalNanos / 1e9, 1e-9)));
+            registry.summary("pricing.run.rows", "run", run).record(rows);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.pricing.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stage breakdown for one pipeline run. Callers time each stage themselves
+ * (stages of a streaming run interleave, so they are summed rather than
+ * nested) and hand the totals over with {@link #add}. {@link #finish}
+ * records the run and stage timers and prints a one-line summary.
+ */
+public final class RunTimer {
+
+    private final PricingMetrics metrics;
+    private final String name;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+    private long rows;
+    private boolean finished;
+
+    RunTimer(PricingMetrics metrics, String name) {
+        this.metrics = metrics;
+        this.name = name;
+    }
+
+    public synchronized void add(String stage, long nanos) {
+        stages.merge(stage, nanos, Long::sum);
+    }
+
+    /**
+     * Time a stage from {@code startNanos} (a System.nanoTime() value) until now
+     */
+    public void since(String stage, long startNanos) {
+        add(stage, System.nanoTime() - startNanos);
+    }
+
+    public synchronized void rows(long rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * 🔹 Record the run; only the first call counts
+     */
+    public synchronized void finish(boolean success) {
+        if (finished) return;
+        finished = true;
+        long total = System.nanoTime() - startNanos;
+        metrics.runFinished(name, success, total, stages, rows);
+
+        StringBuilder line = new StringBuilder("📊 ").append(name)
+                .append(success ? " run: " : " run FAILED: ")
+                .append(millis(total)).append(" total");
+        stages.forEach((stage, nanos) -> line.append(" | ").append(stage).append(' ').append(millis(nanos))
+                .append(" (").append(total > 0 ? Math.round(nanos * 100.0 / total) : 0).append("%)"));
+        if (rows > 0) {
+            line.append(" | ").append(rows).append(" rows (")
+                    .append(Math.round(rows / Math.max(total / 1e9, 1e-9))).append("/s)");
+        }
+        System.out.println(line);
+    }
+
+    private static String millis(long nanos) {
+        return (nanos / 1_000_000) + " ms";
+    }
+}
@@ -26,4 +26,5 @@ public class AzurePriceDTO {
     private int tierMinimumUnits;
     private int tierMaximumUnits;
     private String skuId;
+    private String reservationTerm;
 }
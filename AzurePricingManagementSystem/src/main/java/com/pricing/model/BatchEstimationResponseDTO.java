@@ -0,0 +1,19 @@
+package com.pricing.model;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BatchEstimationResponseDTO {
+
+	private long catalogVersion;
+    private int lineCount;
+    private int unpricedLines;
+    private int failedLines;
+    private List<Map<String, Object>> lines;
+    private Map<String, Double> totalsByCurrency;
+}
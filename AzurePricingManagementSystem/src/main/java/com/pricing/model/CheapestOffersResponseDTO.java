@@ -0,0 +1,42 @@
+package com.pricing.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cheapest region/SKU offers of one product, cheapest first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheapestOffersResponseDTO {
+
+    private long catalogVersion;
+    private String product;
+    private String unit;
+    private List<Offer> offers;
+    private String message;
+
+    /**
+     * One region + SKU, priced at the first paid tier of its cheapest meter
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Offer {
+
+        private int rank;
+        private String region;
+        private String location;
+        private String skuName;
+        private String skuId;
+        private String meterId;
+        private double unitPrice;
+        private String unitOfMeasure;
+        private String currency;
+        private int tiers;
+    }
+}
@@ -0,0 +1,48 @@
+package com.pricing.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last checkpoint of a resumable export, kept on local disk: where the
+ * crawl stands and which S3 parts already hold the rows written so far.
+ */
+@Data
+@NoArgsConstructor
+public class CrawlCheckpointDTO {
+
+    private String job;
+    private String source;
+    private String format;
+    private int columns;
+    private int rowHashVersion;
+    private String key;
+    private String uploadId;
+    private List<Part> parts = new ArrayList<>();
+    private long bytes;
+    private long rows;
+    private long pages;
+    private Map<String, String> nextPages = new LinkedHashMap<>();
+    private List<String> finished = new ArrayList<>();
+    private long keyCount;
+    private String startedAt;
+    private String updatedAt;
+
+    /**
+     * One uploaded multipart part
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Part {
+
+        private int number;
+        private String etag;
+    }
+}
@@ -0,0 +1,28 @@
+package com.pricing.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Manifest uploaded next to every delta file, also returned by the delta API.
+ */
+@Data
+@NoArgsConstructor
+public class DeltaManifestDTO {
+
+	private long snapshotId;
+    private long previousSnapshotId;
+    private boolean baseline;
+    private String generatedAt;
+    private String sourceUrl;
+    private String deltaFile;
+    private long added;
+    private long changed;
+    private long removed;
+    private long unchanged;
+    /**
+     * Rows skipped because their key repeats an earlier row of the same run
+     */
+    private long duplicates;
+    private long totalRows;
+}
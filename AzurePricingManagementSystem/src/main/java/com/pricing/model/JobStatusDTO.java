@@ -0,0 +1,25 @@
+package com.pricing.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Snapshot of a background job as returned by the job API.
+ */
+@Data
+@NoArgsConstructor
+public class JobStatusDTO {
+
+	private String jobId;
+    private String type;
+    private String state;
+    private boolean deduplicated;
+    private String submittedAt;
+    private String startedAt;
+    private String finishedAt;
+    private long pages;
+    private long rows;
+    private long bytes;
+    private Object result;
+    private String error;
+}
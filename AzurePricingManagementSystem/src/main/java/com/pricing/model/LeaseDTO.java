@@ -0,0 +1,18 @@
+package com.pricing.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Content of a lease object in the shared bucket: who holds it and until when.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaseDTO {
+
+    private String owner;
+    private String acquiredAt;
+    private long expiresAt; // epoch millis; 0 = released
+}
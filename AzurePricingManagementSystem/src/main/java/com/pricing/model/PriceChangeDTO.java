@@ -0,0 +1,29 @@
+package com.pricing.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a price time series: ADDED, CHANGED or REMOVED at {@code observedAt}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceChangeDTO {
+
+	private String observedAt;
+    private String change;
+    private String meterId;
+    private String productName;
+    private String skuName;
+    private String armRegionName;
+    private String unitOfMeasure;
+    private String currencyCode;
+    private String effectiveStartDate;
+    private String type;
+    private String reservationTerm;
+    private int tierMinimumUnits;
+    private double retailPrice;
+    private Double previousPrice;
+}
@@ -0,0 +1,17 @@
+package com.pricing.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PriceHistoryResponseDTO {
+
+	private String meterId;
+    private String productName;
+    private String region;
+    private int count;
+    private List<PriceChangeDTO> changes;
+}
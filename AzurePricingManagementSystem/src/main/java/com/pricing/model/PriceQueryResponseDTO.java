@@ -0,0 +1,20 @@
+package com.pricing.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One page of the price query API. {@code nextCursor} is null on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class PriceQueryResponseDTO {
+
+	private long catalogVersion;
+    private long total;
+    private int count;
+    private String nextCursor;
+    private List<AzurePriceDTO> prices;
+}
@@ -0,0 +1,27 @@
+package com.pricing.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Manifest of the latest shared snapshot. Every publish writes the next
+ * version; instances compare it with their own and pull the binary when
+ * it is newer.
+ */
+@Data
+@NoArgsConstructor
+public class SnapshotManifestDTO {
+
+    private String name;
+    private long version;
+    private String snapshotKey;
+    private long bytes;
+    private String sha256;
+    private long rows;
+    private String sourceUrl;
+    private String sourceEtag;
+    private String sourceLastModified;
+    private String previousSnapshotKey;
+    private String publishedBy;
+    private String publishedAt;
+}
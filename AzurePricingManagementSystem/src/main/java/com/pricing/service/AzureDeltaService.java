@@ -0,0 +1,260 @@
+package com.pricing.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pricing.delta.SnapshotFingerprint;
+import com.pricing.export.ExportFormat;
+import com.pricing.export.ExportSchema;
+import com.pricing.export.RecordWriter;
+import com.pricing.ingest.ParallelPageFetcher;
+import com.pricing.ingest.PartitionedCrawler;
+import com.pricing.job.JobProgress;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.metrics.RunTimer;
+import com.pricing.model.AzurePriceDTO;
+import com.pricing.model.DeltaManifestDTO;
+import com.pricing.storage.S3MultipartOutputStream;
+
+/**
+ * Incremental export: crawls the catalog, compares every row against the
+ * fingerprint of the previous run and uploads only added, changed and
+ * removed rows plus a manifest. The full export stays available on demand
+ * through {@link AzurePriceService#fetchAndUploadData(String, JobProgress)}.
+ */
+@Service
+public class AzureDeltaService {
+
+    private static final ExportSchema SCHEMA = ExportSchema.of("azure_price_delta", List.of(
+            ExportSchema.string("ChangeType"), ExportSchema.string("MeterId"), ExportSchema.string("SkuId"),
+            ExportSchema.integer("TierMinimumUnits"), ExportSchema.string("EffectiveDate"),
+            ExportSchema.string("ProductName"), ExportSchema.string("SKU"), ExportSchema.string("Region"),
+            ExportSchema.string("Location"), ExportSchema.number("Price"), ExportSchema.string("Currency"),
+            ExportSchema.string("ServiceFamily"), ExportSchema.string("Unit"), ExportSchema.string("Type"),
+            ExportSchema.string("ReservationTerm")));
+
+    @Value("${azure.pricing.start.url}")
+    private String defaultUrl;
+
+    @Value("${aws.s3.output.folder}")
+    private String outputFolder;
+
+    @Value("${aws.s3.delta.format:csv}")
+    private String deltaFormat;
+
+    @Value("${azure.delta.state.file:cache/azure_prices_fingerprint.bin}")
+    private String stateFile;
+
+    @Value("${azure.crawl.mode:single}")
+    private String crawlMode;
+
+    private final S3UploadService s3Uploads;
+    private final ParallelPageFetcher pageFetcher;
+    private final PartitionedCrawler partitionedCrawler;
+    private final PricingMetrics metrics;
+    private final PriceHistoryService priceHistory;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public AzureDeltaService(S3UploadService s3Uploads, ParallelPageFetcher pageFetcher,
+                             PartitionedCrawler partitionedCrawler, PricingMetrics metrics,
+                             PriceHistoryService priceHistory) {
+        this.s3Uploads = s3Uploads;
+        this.pageFetcher = pageFetcher;
+        this.partitionedCrawler = partitionedCrawler;
+        this.metrics = metrics;
+        this.priceHistory = priceHistory;
+    }
+
+    /**
+     * Crawl, diff against the previous snapshot and upload delta + manifest.
+     * The stored fingerprint only advances once both uploads succeed, so a
+     * cancelled or failed run leaves the previous baseline in place. Rows are
+     * also fed to the price history, which is committed on the same condition;
+     * only a partitioned crawl lists the whole catalog, so only it may close
+     * history series that were not seen.
+     * Without a custom URL and with {@code azure.crawl.mode=partitioned} the
+     * whole catalog is crawled as concurrent partitions.
+     */
+    public synchronized DeltaManifestDTO fetchAndUploadDelta(String customUrl, JobProgress progress) {
+        boolean custom = customUrl != null && !customUrl.isEmpty();
+        boolean partitioned = !custom && "partitioned".equalsIgnoreCase(crawlMode);
+        String url = custom ? customUrl : partitioned ? partitionedCrawler.describe() : defaultUrl;
+        Path statePath = Paths.get(stateFile);
+        long snapshotId = System.currentTimeMillis();
+        String prefix = outputFolder + "/delta/azure_prices_delta_" + snapshotId;
+        ExportFormat format = ExportFormat.of(deltaFormat);
+        String deltaKey = prefix + "." + format.getExtension();
+
+        DeltaManifestDTO manifest = new DeltaManifestDTO();
+        manifest.setSnapshotId(snapshotId);
+        manifest.setSourceUrl(url);
+        manifest.setDeltaFile("s3://" + s3Uploads.getBucketName() + "/" + deltaKey);
+
+        RunTimer run = metrics.run("delta");
+        boolean success = false;
+        try {
+            long stageStart = System.nanoTime();
+            SnapshotFingerprint previous = SnapshotFingerprint.load(statePath);
+            manifest.setPreviousSnapshotId(previous.getSnapshotId());
+            manifest.setBaseline(previous.isEmpty());
+            run.since("load_fingerprint", stageStart);
+
+            try (SnapshotFingerprint.Writer next = new SnapshotFingerprint.Writer(statePath, snapshotId);
+                 PriceHistoryService.Recorder history = priceHistory.begin("delta", snapshotId)) {
+                try (S3MultipartOutputStream out = s3Uploads.open(deltaKey, format)) {
+                    RecordWriter writer = format.open(SCHEMA, out);
+
+                    // diff / write nanos and rows written, summed inside the sink
+                    long[] sink = new long[3];
+                    stageStart = System.nanoTime();
+                    Consumer<AzurePriceDTO> rows = price -> {
+                        long t0 = System.nanoTime();
+                        history.accept(price);
+                        String key = SnapshotFingerprint.key(price);
+                        long hash = SnapshotFingerprint.valueHash(price);
+                        try {
+                            if (!next.add(key, SnapshotFingerprint.keyHash(price), hash)) {
+                                // A second row under one key cannot be told apart from the first; keep the first
+                                manifest.setDuplicates(manifest.getDuplicates() + 1);
+                                sink[0] += System.nanoTime() - t0;
+                                return;
+                            }
+                            Long before = previous.take(key);
+                            long t1 = System.nanoTime();
+                            if (before == null) {
+                                writeRow(writer, "ADDED", price);
+                                manifest.setAdded(manifest.getAdded() + 1);
+                                sink[2]++;
+                            } else if (before != hash) {
+                                writeRow(writer, "CHANGED", price);
+                                manifest.setChanged(manifest.getChanged() + 1);
+                                sink[2]++;
+                            } else {
+                                manifest.setUnchanged(manifest.getUnchanged() + 1);
+                            }
+                            sink[0] += t1 - t0;
+                            sink[1] += System.nanoTime() - t1;
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    };
+                    Runnable onPage = () -> {
+                        progress.page(manifest.getAdded() + manifest.getChanged() + manifest.getUnchanged(),
+                                out.getBytesWritten());
+                        progress.checkCancelled();
+                    };
+                    if (partitioned) {
+                        partitionedCrawler.crawl(rows, onPage);
+                    } else {
+                        pageFetcher.crawl(url, Integer.MAX_VALUE, rows, onPage);
+                    }
+                    long crawlNanos = System.nanoTime() - stageStart;
+
+                    stageStart = System.nanoTime();
+                    for (String key : previous.remainingKeys()) {
+                        writeRemoved(writer, key);
+                        manifest.setRemoved(manifest.getRemoved() + 1);
+                    }
+                    writer.finish();
+                    long writeNanos = sink[1] + (System.nanoTime() - stageStart);
+                    long uploadWait = out.getUploadWaitNanos();
+
+                    run.add("crawl_parse", crawlNanos - sink[0] - sink[1]);
+                    run.add("diff", sink[0]);
+                    run.add("write", writeNanos - uploadWait);
+                    run.add("s3_wait", uploadWait);
+                    metrics.exportWritten("delta", format.getExtension(), sink[2] + manifest.getRemoved(),
+                            writeNanos - uploadWait);
+
+                    progress.checkCancelled();
+                    stageStart = System.nanoTime();
+                    long bytes = out.commit();
+                    progress.bytes(bytes);
+                    metrics.exportBytes("delta", format.getExtension(), bytes);
+                    run.since("upload_commit", stageStart);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+
+                stageStart = System.nanoTime();
+                manifest.setTotalRows(manifest.getAdded() + manifest.getChanged() + manifest.getUnchanged());
+                manifest.setGeneratedAt(Instant.now().toString());
+                uploadManifest(prefix + ".manifest.json", manifest);
+                uploadManifest(outputFolder + "/delta/latest.manifest.json", manifest);
+
+                next.publish();
+                history.commit(partitioned);
+                run.since("manifest_publish", stageStart);
+            }
+
+            System.out.println("✅ Delta " + snapshotId + " uploaded: +" + manifest.getAdded()
+                    + " ~" + manifest.getChanged() + " -" + manifest.getRemoved()
+                    + " (" + manifest.getUnchanged() + " unchanged)");
+            if (manifest.getDuplicates() > 0) {
+                System.err.println("⚠️ Delta " + snapshotId + " skipped " + manifest.getDuplicates()
+                        + " rows whose key repeats an earlier row");
+            }
+            run.rows(manifest.getTotalRows());
+            success = true;
+            return manifest;
+
+        } catch (Exception e) {
+            throw new RuntimeException("Error building or uploading Azure price delta", e);
+        } finally {
+            run.finish(success);
+        }
+    }
+
+    private void uploadManifest(String key, DeltaManifestDTO manifest) throws IOException {
+        try (S3MultipartOutputStream out = s3Uploads.open(key, "application/json")) {
+            out.write(mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+            out.commit();
+        }
+    }
+
+    private void writeRow(RecordWriter writer, String change, AzurePriceDTO p) throws IOException {
+        writer.string(change);
+        writer.string(p.getMeterId());
+        writer.string(p.getSkuId());
+        writer.integer(p.getTierMinimumUnits());
+        writer.string(p.getEffectiveStartDate());
+        writer.string(p.getProductName());
+        writer.string(p.getSkuName());
+        writer.string(p.getArmRegionName());
+        writer.string(p.getLocation());
+        writer.number(p.getRetailPrice());
+        writer.string(p.getCurrencyCode());
+        writer.string(p.getServiceFamily());
+        writer.string(p.getUnitOfMeasure());
+        writer.string(p.getType());
+        writer.string(p.getReservationTerm());
+        writer.endRow();
+    }
+
+    /**
+     * Removed rows only carry their key (the first four and the last two columns); every other column is empty
+     */
+    private void writeRemoved(RecordWriter writer, String key) throws IOException {
+        String[] k = SnapshotFingerprint.splitKey(key);
+        writer.string("REMOVED");
+        writer.string(k[0]);
+        writer.string(k[1]);
+        writer.integer(Integer.parseInt(k[2]));
+        writer.string(k[3]);
+        for (int i = 5; i < SCHEMA.size() - 2; i++) {
+            writer.nullValue();
+        }
+        writer.string(k[4]);
+        writer.string(k[5]);
+        writer.endRow();
+    }
+}
@@ -1,149 +1,279 @@
 package com.pricing.service;
 
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import com.pricing.cache.CoalescingCache;
+import com.pricing.catalog.PriceCatalog;
+import com.pricing.catalog.TierTable;
+import com.pricing.metrics.PricingMetrics;
 import com.pricing.model.AzurePriceDTO;
+import com.pricing.model.BatchEstimationResponseDTO;
+import com.pricing.model.CheapestOffersResponseDTO;
 import com.pricing.model.EstimationRequestDTO;
 
 @Service
 public class AzureEstimateService {
 
-    @Value("${azure.retail.url}")
-    private String baseUrl;
+    private static final int PARALLEL_BATCH_THRESHOLD = 512;
+    private static final String PARTIAL = "Partial price data: the lookup for this product stopped at"
+            + " azure.lookup.max.pages, so cheaper offers may be missing.";
 
-    @Value("${azure.retail.source:azure}") // can be 'azure' or 's3'
-    private String sourceType;
+    private final PriceCatalogService catalogService;
+    private final Timer singleTimer;
+    private final Timer batchTimer;
+    private final Timer cheapestTimer;
+    private final PricingMetrics metrics;
+    private final ExecutorService lookupExecutor;
 
-    @Value("${aws.s3.offline.url:}")
-    private String s3OfflineUrl;
+    /**
+     * One product (region "" = all regions) a batch prices from an on-demand lookup
+     */
+    private record Lookup(String product, String region) {
+    }
 
-    @Value("${azure.api.max.pages:3}")
-    private int maxPages;
+    /**
+     * Outcome of one batch lookup: its catalog, or why there is none
+     */
+    private record Resolved(PriceCatalog catalog, String error) {
+    }
 
-    private final ObjectMapper mapper = new ObjectMapper();
+    public AzureEstimateService(PriceCatalogService catalogService, PricingMetrics metrics,
+                                @Value("${azure.estimate.lookup.concurrency:4}") int lookupConcurrency) {
+        this.catalogService = catalogService;
+        this.metrics = metrics;
+        this.singleTimer = metrics.estimateTimer("single");
+        this.batchTimer = metrics.estimateTimer("batch");
+        this.cheapestTimer = metrics.estimateTimer("cheapest");
+        AtomicInteger threads = new AtomicInteger();
+        this.lookupExecutor = Executors.newFixedThreadPool(Math.max(1, lookupConcurrency), r -> {
+            Thread t = new Thread(r, "estimate-lookup-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
 
-    private List<AzurePriceDTO> fetchAzurePrices(String product, String region) {
-        List<AzurePriceDTO> prices = new ArrayList<>();
-        try {
-            String url;
+    public List<String> getAllProducts() {
+        return catalogService.getCatalog().getProducts();
+    }
 
-            // ✅ S3 fallback logic
-            if ("s3".equalsIgnoreCase(sourceType)) {
-                try {
-                    System.out.println("🔹 Fetching from S3: " + s3OfflineUrl);
-                    JsonNode root = mapper.readTree(new URL(s3OfflineUrl));
-                    return parseAzureItems(root);
-                } catch (Exception s3ex) {
-                    System.err.println("⚠️ S3 fetch failed, falling back to Azure API...");
-                }
-            }
+    public List<String> getRegionsForProduct(String product) {
+        return catalogFor(catalogService.getCatalog(), product, null).getRegionsForProduct(product);
+    }
 
-            url = buildUrl(product, region);
-            int pageCount = 0;
+    public CoalescingCache.Stats getLookupStats() {
+        return catalogService.getLookupStats();
+    }
 
-            while (url != null && pageCount < maxPages) {
-                System.out.println("🔹 Fetching page " + (pageCount + 1) + " from Azure...");
-                JsonNode root = mapper.readTree(new URL(url));
-                prices.addAll(parseAzureItems(root));
+    public Map<String, Object> estimateCost(EstimationRequestDTO request) {
+        return singleTimer.record(() -> {
+            PriceCatalog snapshot = catalogService.getCatalog();
+            return estimate(snapshot, catalogFor(snapshot, request.getProductName(), request.getRegion()), request);
+        });
+    }
 
-                JsonNode next = root.get("NextPageLink");
-                url = (next != null && !next.isNull()) ? next.asText() : null;
-                pageCount++;
-            }
+    /**
+     * 🔹 Price a whole bill of materials against one catalog snapshot.
+     * Products the snapshot cannot price are looked up first, each once, on
+     * a bounded pool; then the lines are priced without any I/O (in parallel
+     * for large batches). A line that is empty, invalid or whose lookup
+     * failed gets an {@code error} instead of failing the batch. Totals are
+     * summed per currency.
+     */
+    public BatchEstimationResponseDTO estimateBatch(List<EstimationRequestDTO> requests) {
+        return batchTimer.record(() -> batch(requests));
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch Azure retail prices: " + e.getMessage(), e);
+    /**
+     * 🔹 Where is a product cheapest: its {@code n} cheapest region/SKU
+     * offers, optionally only those billed per {@code unit}. Read from the
+     * ranking built with the catalog, so the cost depends on n only. The
+     * message says so when the ranking comes from a partial lookup.
+     */
+    public CheapestOffersResponseDTO cheapestOffers(String product, String unit, int n) {
+        if (product == null || product.isBlank()) {
+            throw new IllegalArgumentException("product is required");
         }
-        return prices;
+        if (n < 1 || n > PriceCatalog.CHEAPEST_OFFERS) {
+            throw new IllegalArgumentException("n must be between 1 and " + PriceCatalog.CHEAPEST_OFFERS);
+        }
+        return cheapestTimer.record(() -> cheapest(catalogService.getCatalog(), product, unit, n));
     }
 
-    private List<AzurePriceDTO> parseAzureItems(JsonNode root) throws Exception {
-        List<AzurePriceDTO> prices = new ArrayList<>();
-        JsonNode items;
-        if (root.has("Items")) {
-            items = root.get("Items");
-        } else if (root.isArray()) {
-            items = root;
-        } else {
-            throw new RuntimeException("Unsupported JSON structure");
+    private CheapestOffersResponseDTO cheapest(PriceCatalog snapshot, String product, String unit, int n) {
+        PriceCatalog catalog = catalogFor(snapshot, product, null);
+        List<CheapestOffersResponseDTO.Offer> offers = new ArrayList<>();
+        for (AzurePriceDTO dto : catalog.cheapestOffers(product, unit, n)) {
+            TierTable tiers = catalog.tiers(dto.getMeterId());
+            offers.add(new CheapestOffersResponseDTO.Offer(offers.size() + 1, dto.getArmRegionName(),
+                    dto.getLocation(), dto.getSkuName(), dto.getSkuId(), dto.getMeterId(), dto.getRetailPrice(),
+                    dto.getUnitOfMeasure(), dto.getCurrencyCode(), tiers != null ? tiers.tierCount() : 1));
         }
 
-        for (JsonNode item : items) {
-            AzurePriceDTO dto = mapper.treeToValue(item, AzurePriceDTO.class);
-            prices.add(dto);
+        String message = null;
+        if (!catalog.isComplete()) {
+            message = PARTIAL;
+        } else if (offers.isEmpty()) {
+            message = snapshot.getVersion() == 0
+                    ? "Pricing catalog is still loading, please retry shortly."
+                    : "No pricing data available for this selection.";
         }
-        return prices;
+        return new CheapestOffersResponseDTO(catalog.getVersion(), product, unit, offers, message);
     }
 
-    private String buildUrl(String serviceName, String region) {
-        StringBuilder sb = new StringBuilder(baseUrl);
-        List<String> filters = new ArrayList<>();
+    private BatchEstimationResponseDTO batch(List<EstimationRequestDTO> requests) {
+        PriceCatalog snapshot = catalogService.getCatalog();
+        List<EstimationRequestDTO> items = requests != null ? requests : List.of();
+        metrics.estimateLines(items.size());
 
-        if (serviceName != null && !serviceName.isEmpty()) {
-            filters.add("productName eq '" + serviceName + "'");
-        }
-        if (region != null && !region.isEmpty()) {
-            filters.add("armRegionName eq '" + region + "'");
-        }
+        Map<Lookup, Resolved> lookups = resolveLookups(snapshot, items);
 
-        if (!filters.isEmpty()) {
-            String filterQuery = String.join(" and ", filters);
-            String encodedFilter = URLEncoder.encode(filterQuery, StandardCharsets.UTF_8);
-            sb.append("?$filter=").append(encodedFilter);
+        IntStream indexes = IntStream.range(0, items.size());
+        if (items.size() >= PARALLEL_BATCH_THRESHOLD) {
+            indexes = indexes.parallel();
         }
+        List<Map<String, Object>> lines = indexes.mapToObj(i -> {
+            EstimationRequestDTO item = items.get(i);
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("line", i + 1);
+            String error = validate(item);
+            Resolved lookup = error == null ? lookups.get(lookupOf(snapshot, item)) : null;
+            if (lookup != null && lookup.error() != null) error = lookup.error();
 
-        return sb.toString();
-    }
+            if (error != null) {
+                line.put("error", error);
+            } else {
+                line.putAll(estimate(snapshot, lookup != null ? lookup.catalog() : snapshot, item));
+                line.put("source", lookup != null ? "lookup" : "catalog");
+            }
+            return line;
+        }).collect(Collectors.toList());
 
-    public List<String> getAllProducts() {
-        List<AzurePriceDTO> prices = fetchAzurePrices(null, null);
-        Set<String> products = new TreeSet<>();
-        for (AzurePriceDTO dto : prices) {
-            if (dto.getProductName() != null) {
-                products.add(dto.getProductName());
+        Map<String, Double> totals = new TreeMap<>();
+        int unpriced = 0;
+        int failed = 0;
+        for (Map<String, Object> line : lines) {
+            if (line.containsKey("error")) failed++;
+            Object cost = line.get("estimatedCost");
+            if (cost == null) {
+                unpriced++;
+                continue;
             }
+            Object currency = line.get("currency");
+            totals.merge(currency != null ? (String) currency : "", (Double) cost, Double::sum);
         }
-        return new ArrayList<>(products);
+
+        return new BatchEstimationResponseDTO(snapshot.getVersion(), lines.size(), unpriced, failed, lines, totals);
     }
 
-    public List<String> getRegionsForProduct(String product) {
-        List<AzurePriceDTO> prices = fetchAzurePrices(product, null);
-        Set<String> regions = new TreeSet<>();
-        for (AzurePriceDTO dto : prices) {
-            if (dto.getArmRegionName() != null) {
-                regions.add(dto.getArmRegionName());
-            }
+    /**
+     * Why a batch line cannot be priced, or null if it can
+     */
+    private static String validate(EstimationRequestDTO item) {
+        if (item == null) return "Line is empty";
+        if (item.getProductName() == null || item.getProductName().isBlank()) return "productName is required";
+        if (item.getQuantity() < 0) return "quantity must not be negative";
+        return null;
+    }
+
+    /**
+     * The lookup a valid line needs, or null when the snapshot prices it
+     */
+    private static Lookup lookupOf(PriceCatalog snapshot, EstimationRequestDTO item) {
+        if (!needsLookup(snapshot, item.getProductName())) return null;
+        return new Lookup(item.getProductName(), item.getRegion() != null ? item.getRegion() : "");
+    }
+
+    /**
+     * ✅ Run every distinct lookup of a batch once on the lookup pool and wait for all of them
+     */
+    private Map<Lookup, Resolved> resolveLookups(PriceCatalog snapshot, List<EstimationRequestDTO> items) {
+        Map<Lookup, CompletableFuture<PriceCatalog>> pending = new LinkedHashMap<>();
+        for (EstimationRequestDTO item : items) {
+            if (validate(item) != null) continue;
+            Lookup lookup = lookupOf(snapshot, item);
+            if (lookup == null) continue;
+            pending.computeIfAbsent(lookup, k -> CompletableFuture.supplyAsync(
+                    () -> catalogService.lookup(k.product(), k.region()), lookupExecutor));
         }
-        return new ArrayList<>(regions);
+
+        Map<Lookup, Resolved> resolved = new HashMap<>();
+        pending.forEach((lookup, future) -> {
+            try {
+                resolved.put(lookup, new Resolved(future.join(), null));
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                System.err.println("⚠️ Batch lookup of " + lookup.product() + " failed: " + cause.getMessage());
+                resolved.put(lookup, new Resolved(null, "Price lookup failed: " + cause.getMessage()));
+            }
+        });
+        return resolved;
     }
 
-    public Map<String, Object> estimateCost(EstimationRequestDTO request) {
-        List<AzurePriceDTO> prices = fetchAzurePrices(request.getProductName(), request.getRegion());
-        Optional<AzurePriceDTO> cheapest = prices.stream()
-                .filter(p -> p.getRetailPrice() > 0)
-                .min(Comparator.comparingDouble(AzurePriceDTO::getRetailPrice));
+    /**
+     * Tiered meters are priced across their cumulative tier table; rows without
+     * a usable meter fall back to the flat cheapest non-zero price.
+     * {@code catalog} is the snapshot or the lookup that holds the product;
+     * a price from a partial lookup carries {@code partial} and a message.
+     */
+    Map<String, Object> estimate(PriceCatalog snapshot, PriceCatalog catalog, EstimationRequestDTO request) {
+        int quantity = request.getQuantity();
+        TierTable tiers = catalog.cheapestMeter(request.getProductName(), request.getRegion(), quantity);
+        AzurePriceDTO dto = tiers != null ? tiers.getMeter()
+                : catalog.cheapest(request.getProductName(), request.getRegion());
 
         Map<String, Object> result = new LinkedHashMap<>();
-        if (cheapest.isPresent()) {
-            AzurePriceDTO dto = cheapest.get();
-            double total = dto.getRetailPrice() * request.getQuantity();
+        if (dto != null) {
+            double total = tiers != null ? tiers.cost(quantity) : dto.getRetailPrice() * quantity;
+            double unitPrice = quantity > 0 ? total / quantity : dto.getRetailPrice();
 
             result.put("product", dto.getProductName());
             result.put("region", dto.getArmRegionName());
-            result.put("unitPrice", dto.getRetailPrice());
-            result.put("quantity", request.getQuantity());
+            result.put("meterId", dto.getMeterId());
+            result.put("unitPrice", unitPrice);
+            result.put("quantity", quantity);
+            result.put("unitOfMeasure", dto.getUnitOfMeasure());
+            result.put("tiers", tiers != null ? tiers.tierCount() : 1);
             result.put("currency", dto.getCurrencyCode());
             result.put("estimatedCost", total);
+            result.put("catalogVersion", catalog.getVersion());
+            if (!catalog.isComplete()) {
+                result.put("partial", true);
+                result.put("message", PARTIAL);
+            }
+        } else if (snapshot.getVersion() == 0) {
+            result.put("message", "Pricing catalog is still loading, please retry shortly.");
         } else {
             result.put("message", "No pricing data available for this selection.");
         }
 
         return result;
     }
+
+    /**
+     * The snapshot when it holds the whole source and knows the product,
+     * otherwise a coalesced on-demand lookup (a page-capped snapshot may
+     * hold only some of a product's regions and meters)
+     */
+    private PriceCatalog catalogFor(PriceCatalog snapshot, String product, String region) {
+        return needsLookup(snapshot, product) ? catalogService.lookup(product, region) : snapshot;
+    }
+
+    private static boolean needsLookup(PriceCatalog snapshot, String product) {
+        return product != null && !product.isEmpty() && !(snapshot.isComplete() && snapshot.hasProduct(product));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdownNow();
+    }
 }
@@ -1,29 +1,33 @@
 package com.pricing.service;
 
 import java.io.*;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pricing.catalog.PriceRows;
+import com.pricing.catalog.PriceSnapshot;
+import com.pricing.config.DerivedColumnProperties;
+import com.pricing.export.ExportFormat;
+import com.pricing.export.RecordWriter;
+import com.pricing.job.JobProgress;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.metrics.RunTimer;
 import com.pricing.model.AzurePriceDTO;
+import com.pricing.storage.S3MultipartOutputStream;
+import com.pricing.transform.DerivedColumnEngine;
 
 @Service
 public class AzurePriceProcessorService {
 
-    private final ObjectMapper mapper = new ObjectMapper();
-    private final AmazonS3 amazonS3;
+    private static final int PROGRESS_BATCH = 8192;
+
+    private final PriceCacheService priceCache;
+    private final S3UploadService s3Uploads;
+    private final DerivedColumnEngine derivedColumns;
+    private final PricingMetrics metrics;
 
     @Value("${aws.s3.bucket.name}")
     private String bucketName;
@@ -31,234 +35,92 @@ public class AzurePriceProcessorService {
     @Value("${aws.s3.processed.folder}")
     private String processedFolder;
 
-    @Value("${aws.s3.offline.url}")
-    private String sourceS3Url;
-
-    @Value("${local.cache.file:cache/azure_prices_cache.json}")
-    private String localCacheFilePath;
+    @Value("${aws.s3.processed.format:csv}")
+    private String processedFormat;
 
-    public AzurePriceProcessorService(AmazonS3 amazonS3) {
-        this.amazonS3 = amazonS3;
+    public AzurePriceProcessorService(PriceCacheService priceCache, S3UploadService s3Uploads,
+                                      DerivedColumnProperties derivedColumnProperties, PricingMetrics metrics) {
+        this.priceCache = priceCache;
+        this.metrics = metrics;
+        this.s3Uploads = s3Uploads;
+        this.derivedColumns = new DerivedColumnEngine(derivedColumnProperties.getColumns());
     }
 
-    public String processAndUploadPricingSheet() {
+    public String processAndUploadPricingSheet(JobProgress progress) {
+        RunTimer run = metrics.run("processed_sheet");
+        boolean success = false;
         try {
-            // 🔹 Step 1: Load pricing data (from cache or S3)
-            List<AzurePriceDTO> prices = loadPricingData();
+            // 🔹 Step 1: Load pricing data (cached snapshot, revalidated against S3 in the background)
+            long start = System.nanoTime();
+            PriceSnapshot prices = priceCache.getSnapshot();
+            run.since("load_snapshot", start);
 
-            // 🔹 Step 2: Transform and create processed CSV
-            File processedCsv = transformAndWriteCsv(prices);
-
-            // 🔹 Step 3: Upload to S3
+            // 🔹 Step 2: Transform and stream the processed sheet straight to S3
+            ExportFormat format = ExportFormat.of(processedFormat);
             String fileName = processedFolder + "/azure_prices_processed_" +
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmm")) + ".csv";
-
-            amazonS3.putObject(bucketName, fileName, processedCsv);
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmm")) + "." + format.getExtension();
+
+            try (S3MultipartOutputStream out = s3Uploads.open(fileName, format)) {
+                start = System.nanoTime();
+                RecordWriter writer = format.open(derivedColumns.getSchema(), out);
+                long transformNanos = transform(prices, writer, progress);
+                writer.finish();
+                long writeNanos = System.nanoTime() - start - transformNanos;
+                long uploadWait = out.getUploadWaitNanos();
+                run.add("transform", transformNanos);
+                run.add("write", writeNanos - uploadWait);
+                run.add("s3_wait", uploadWait);
+                metrics.exportWritten("processed", format.getExtension(), prices.size(), writeNanos - uploadWait);
+
+                progress.checkCancelled();
+                start = System.nanoTime();
+                long bytes = out.commit();
+                progress.bytes(bytes);
+                metrics.exportBytes("processed", format.getExtension(), bytes);
+                run.since("upload_commit", start);
+            }
             System.out.println("✅ Uploaded processed pricing sheet to S3: s3://" + bucketName + "/" + fileName);
 
+            run.rows(prices.size());
+            success = true;
             return "s3://" + bucketName + "/" + fileName;
 
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to process pricing sheet", e);
+        } finally {
+            run.finish(success);
         }
     }
 
     /**
-     * 🔹 Load data from cache or S3 (auto-detects JSON or CSV)
-     */
-    private List<AzurePriceDTO> loadPricingData() throws Exception {
-        File cacheFile = new File(localCacheFilePath);
-
-        // ✅ Step 1: Try using cached data if exists
-        if (cacheFile.exists() && Files.size(Paths.get(localCacheFilePath)) > 1000) {
-            System.out.println("⚡ Using local cache file: " + localCacheFilePath);
-            return parseFile(cacheFile.getPath());
-        }
-
-        // ✅ Step 2: Otherwise, download from S3
-        System.out.println("🔹 Downloading from S3: " + sourceS3Url);
-        String ext = getFileExtension(sourceS3Url);
-        String cachePath = localCacheFilePath.replace(".json", "." + ext);
-
-        Files.createDirectories(Paths.get(new File(cachePath).getParent()));
-        try (InputStream in = new URL(sourceS3Url).openStream()) {
-            System.out.println("♻️ Refreshing cache file: " + cachePath);
-            Files.copy(in, Paths.get(cachePath), StandardCopyOption.REPLACE_EXISTING);
-        }
-
-        System.out.println("✅ Cached data locally at: " + cachePath);
-        return parseFile(cachePath);
-    }
-
-    /**
-     * 🔹 Parse file based on extension (.json or .csv)
+     * 🔹 Transform rows and write base + derived columns in the export's format
+     *
+     * Progress and cancellation are checked every {@code PROGRESS_BATCH} rows.
+     *
+     * @return nanos spent decoding rows and deriving columns (the rest is serialisation)
      */
-    private List<AzurePriceDTO> parseFile(String filePath) throws Exception {
-        if (filePath.endsWith(".json")) {
-            System.out.println("📘 Parsing JSON file...");
-            JsonNode root = mapper.readTree(new File(filePath));
-            JsonNode items = root.has("Items") ? root.get("Items") : root;
-            List<AzurePriceDTO> list = new ArrayList<>();
-            for (JsonNode node : items) {
-                list.add(mapper.treeToValue(node, AzurePriceDTO.class));
+    long transform(PriceRows prices, RecordWriter writer, JobProgress progress) throws IOException {
+        // one reusable row: no per-row objects besides the output itself
+        AzurePriceDTO dto = new AzurePriceDTO();
+        String[] values = new String[derivedColumns.width()];
+        long transformNanos = 0;
+        for (int row = 0; row < prices.size(); row++) {
+            long t = System.nanoTime();
+            prices.readInto(row, dto);
+            derivedColumns.fill(dto, values);
+            transformNanos += System.nanoTime() - t;
+
+            // 🧩 Write in mapped order (Price as a number)
+            derivedColumns.write(dto, values, writer);
+
+            if ((row + 1) % PROGRESS_BATCH == 0) {
+                progress.rows(row + 1);
+                progress.checkCancelled();
             }
-            return list;
-        } else if (filePath.endsWith(".csv")) {
-            System.out.println("📗 Parsing CSV file...");
-            List<AzurePriceDTO> list = new ArrayList<>();
-            try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-                String line;
-                boolean headerSkipped = false;
-
-                while ((line = br.readLine()) != null) {
-                    // skip the header line
-                    if (!headerSkipped) {
-                        headerSkipped = true;
-                        continue;
-                    }
-
-                    String[] cols = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1); // safe split (handles commas inside quotes)
-
-                    AzurePriceDTO dto = new AzurePriceDTO();
-                    dto.setMeterId(get(cols, 0));
-                    dto.setProductName(get(cols, 1));
-                    dto.setSkuName(get(cols, 2));
-                    dto.setArmRegionName(get(cols, 3));
-                    dto.setLocation(get(cols, 4));
-                    dto.setRetailPrice(parseDouble(get(cols, 5)));
-                    dto.setCurrencyCode(get(cols, 6));
-                    dto.setServiceFamily(get(cols, 7));
-                    dto.setUnitOfMeasure(get(cols, 8));
-                    dto.setEffectiveStartDate(get(cols, 9));
-                    dto.setType(get(cols, 10));
-
-                    list.add(dto);
-                }
-            }
-            return list;
-        } else {
-            throw new RuntimeException("Unsupported file format: " + filePath);
-        }
-    }
-
-    private String get(String[] cols, int i) {
-        return (i < cols.length) ? cols[i].replace("\"", "").trim() : "";
-    }
-    
-    private double parseDouble(String val) {
-        try {
-            return Double.parseDouble(val.trim());
-        } catch (Exception e) {
-            return 0.0;
         }
-    }
-
-    private String getFileExtension(String url) {
-        int lastDot = url.lastIndexOf('.');
-        return (lastDot != -1) ? url.substring(lastDot + 1).toLowerCase() : "json";
-    }
-
-    /**
-     * 🔹 Transform and create new CSV with custom columns
-     */
-    private File transformAndWriteCsv(List<AzurePriceDTO> prices) throws Exception {
-        File file = File.createTempFile("processed_prices_", ".csv");
-
-        try (FileWriter writer = new FileWriter(file)) {
-            // 🧾 Header (Custom Order)
-            writer.write("MeterId,ProductName,DeploymentOption,Compute,SKU,VCore,Region,Location,Price,Currency,ServiceFamily,Unit,EffectiveDate,Type\n");
-
-            for (AzurePriceDTO dto : prices) {
-                // Base fields
-                String meterId = safeCsv(dto.getMeterId());
-                String productName = safeCsv(dto.getProductName());
-                String sku = safeCsv(dto.getSkuName());
-                String region = safeCsv(dto.getArmRegionName());
-                String location = safeCsv(dto.getLocation());
-                String price = String.valueOf(dto.getRetailPrice());
-                String currency = safeCsv(dto.getCurrencyCode());
-                String serviceFamily = safeCsv(dto.getServiceFamily());
-                String unit = safeCsv(dto.getUnitOfMeasure());
-                String effectiveDate = safeCsv(dto.getEffectiveStartDate());
-                String type = safeCsv(dto.getType());
-
-                // Derived fields
-                String deploymentOption = safeCsv(extractDeploymentOption(productName));
-                String compute = safeCsv(extractCompute(productName));
-                String vCore = safeCsv(extractVCoreFromSku(sku));
-
-                // 🧩 Write in mapped order
-                writer.write(String.join(",",
-                        quote(meterId),
-                        quote(productName),
-                        quote(deploymentOption),
-                        quote(compute),
-                        quote(sku),
-                        quote(vCore),
-                        quote(region),
-                        quote(location),
-                        quote(price),
-                        quote(currency),
-                        quote(serviceFamily),
-                        quote(unit),
-                        quote(effectiveDate),
-                        quote(type)));
-                writer.write("\n");
-            }
-        }
-
-        return file;
-    }
-
-    private String quote(String val) {
-        if (val == null) return "";
-        String v = val.replace("\"", "\"\"");
-        return "\"" + v + "\""; // always wrap in quotes
-    }
-
-    /**
-     * Safely handle commas and nulls for CSV.
-     */
-    private String safeCsv(String value) {
-        if (value == null) return "";
-        String v = value.replace("\"", "\"\""); // escape quotes
-        if (v.contains(",") || v.contains("\"")) {
-            return "\"" + v + "\""; // wrap in quotes if needed
-        }
-        return v;
-    }
-
-
-    // 🔹 Extract "Flexible Server" or "Single Server" after "MySQL"
-    private String extractDeploymentOption(String productName) {
-        if (productName == null) return "";
-        Pattern p = Pattern.compile("MySQL\\s+(\\w+\\s+\\w+)");
-        Matcher m = p.matcher(productName);
-        return m.find() ? m.group(1).trim() : "";
-    }
-
-    // 🔹 Extract text around "Compute"
-    private String extractCompute(String productName) {
-        if (productName == null) return "";
-        Pattern p = Pattern.compile("(Compute[^,]*)");
-        Matcher m = p.matcher(productName);
-        if (m.find()) return m.group(1).trim();
-        Pattern alt = Pattern.compile("([\\w\\s]*Compute[\\w\\s]*)");
-        Matcher altM = alt.matcher(productName);
-        return altM.find() ? altM.group(1).trim() : "";
-    }
-
-    // 🔹 Extract last 3 chars from SKU (LRS, ZRS, GRS)
-    private String extractVCoreFromSku(String sku) {
-        if (sku == null) return "";
-        sku = sku.toUpperCase();
-
-        if (sku.contains("LRS")) return "LRS";
-        if (sku.contains("ZRS")) return "ZRS";
-        if (sku.contains("GRS")) return "GRS";
-
-        return "";
+        progress.rows(prices.size());
+        return transformNanos;
     }
 
 }
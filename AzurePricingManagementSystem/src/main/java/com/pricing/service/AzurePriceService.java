@@ -1,25 +1,50 @@
 package com.pricing.service;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.net.URL;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.PutObjectRequest;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.amazonaws.services.s3.model.PartETag;
+import com.pricing.export.ExportFormat;
+import com.pricing.export.ExportSchema;
+import com.pricing.export.RecordWriter;
+import com.pricing.export.SegmentedRecordWriter;
+import com.pricing.ingest.CrawlCheckpointStore;
+import com.pricing.ingest.CrawlState;
+import com.pricing.ingest.ParallelPageFetcher;
+import com.pricing.ingest.PartitionedCrawler;
+import com.pricing.job.JobProgress;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.metrics.RunTimer;
 import com.pricing.model.AzureFetchResponseDTO;
 import com.pricing.model.AzurePriceDTO;
+import com.pricing.model.CrawlCheckpointDTO;
+import com.pricing.storage.S3MultipartOutputStream;
 
 @Service
 public class AzurePriceService {
 
+    static final ExportSchema SCHEMA = ExportSchema.of("azure_price", List.of(
+            ExportSchema.string("MeterId"), ExportSchema.string("ProductName"), ExportSchema.string("SKU"),
+            ExportSchema.string("Region"), ExportSchema.string("Location"), ExportSchema.number("Price"),
+            ExportSchema.string("Currency"), ExportSchema.string("ServiceFamily"), ExportSchema.string("Unit"),
+            ExportSchema.string("EffectiveDate"), ExportSchema.string("Type"),
+            ExportSchema.string("ReservationTerm")));
+
+    /**
+     * Crawl state key of a single-URL (not partitioned) export
+     */
+    private static final String SINGLE_CRAWL = "all";
+
     @Value("${azure.pricing.start.url}")
     private String defaultUrl;
 
@@ -29,79 +54,307 @@ public class AzurePriceService {
     @Value("${aws.s3.output.folder}")
     private String outputFolder;
 
-    private final AmazonS3 amazonS3;
-    private final ObjectMapper mapper = new ObjectMapper();
+    @Value("${aws.s3.output.format:csv}")
+    private String outputFormat;
+
+    @Value("${azure.crawl.mode:single}")
+    private String crawlMode;
+
+    @Value("${azure.checkpoint.enabled:true}")
+    private boolean checkpointEnabled;
 
-    public AzurePriceService(AmazonS3 amazonS3) {
-        this.amazonS3 = amazonS3;
+    @Value("${azure.checkpoint.interval.seconds:60}")
+    private long checkpointIntervalSeconds;
+
+    private final S3UploadService s3Uploads;
+    private final ParallelPageFetcher pageFetcher;
+    private final PartitionedCrawler partitionedCrawler;
+    private final CrawlCheckpointStore checkpoints;
+    private final PricingMetrics metrics;
+    private final Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+
+    public AzurePriceService(S3UploadService s3Uploads, ParallelPageFetcher pageFetcher,
+                             PartitionedCrawler partitionedCrawler, CrawlCheckpointStore checkpoints,
+                             PricingMetrics metrics) {
+        this.s3Uploads = s3Uploads;
+        this.pageFetcher = pageFetcher;
+        this.partitionedCrawler = partitionedCrawler;
+        this.checkpoints = checkpoints;
+        this.metrics = metrics;
     }
 
     /**
-     * Fetch all Azure pricing pages, convert to CSV, and upload to S3
+     * Fetch all Azure pricing pages, convert to the configured export format
+     * ({@code aws.s3.output.format}), and upload to S3.
+     * Pages are prefetched concurrently and streamed token by token in page
+     * order; every item is written out as soon as it is parsed and the
+     * output is streamed straight into a multipart S3 upload, so heap use does
+     * not grow with page count and nothing is staged on local disk.
+     * Progress is reported after every page, which is also where a
+     * cancelled job stops (the unfinished upload is aborted).
+     * Without a custom URL and with {@code azure.crawl.mode=partitioned} the
+     * whole catalog is crawled as concurrent partitions instead.
+     * <p>
+     * Text formats are checkpointed: at a page boundary, at most every
+     * {@code azure.checkpoint.interval.seconds}, the output is cut into an
+     * S3 part and the crawl position is saved locally. A run that fails (or
+     * dies with the JVM) leaves the multipart upload open, and the next
+     * export of the same source and format continues from the checkpoint.
      */
-    public AzureFetchResponseDTO fetchAndUploadData(String customUrl) {
-        List<AzurePriceDTO> allPrices = new ArrayList<>();
-        String currentUrl = (customUrl != null && !customUrl.isEmpty()) ? customUrl : defaultUrl;
+    public AzureFetchResponseDTO fetchAndUploadData(String customUrl, JobProgress progress) {
+        boolean custom = customUrl != null && !customUrl.isEmpty();
+        String currentUrl = custom ? customUrl : defaultUrl;
+        boolean partitioned = !custom && "partitioned".equalsIgnoreCase(crawlMode);
+        String source = partitioned ? partitionedCrawler.describe() : currentUrl;
+
+        ExportFormat format = ExportFormat.of(outputFormat);
+        String job = "full_export-" + Integer.toHexString((source + "|" + format.getExtension()).hashCode());
 
+        RunTimer run = metrics.run("full_export");
+        boolean success = false;
+        boolean exclusive = activeJobs.add(job);
         try {
-            while (currentUrl != null && !currentUrl.isEmpty()) {
-                JsonNode root = mapper.readTree(new URL(currentUrl));
-
-                // Parse current page
-                JsonNode items = root.get("Items");
-                if (items != null && items.isArray()) {
-                    for (JsonNode node : items) {
-                        AzurePriceDTO price = mapper.treeToValue(node, AzurePriceDTO.class);
-                        allPrices.add(price);
-                    }
-                }
+            ExportCheckpoint checkpoint = openCheckpoint(exclusive ? job : null, source, format);
+            String fileName = checkpoint.key;
 
-                // Check for next page
-                JsonNode nextLink = root.get("NextPageLink");
-                currentUrl = (nextLink != null && !nextLink.isNull()) ? nextLink.asText() : null;
-            }
+            // rows written and nanos spent writing them
+            long[] recordCount = {checkpoint.saved != null ? checkpoint.saved.getRows() : 0, 0};
 
-            // ✅ Generate CSV file from all collected records
-            File csvFile = createCsvFile(allPrices);
+            // ✅ Crawl and upload to AWS S3 in one pass
+            try (S3MultipartOutputStream out = checkpoint.out) {
+                try {
+                    RecordWriter writer = checkpoint.writer;
+                    long start = System.nanoTime();
+                    Consumer<AzurePriceDTO> sink = price -> {
+                        long t = System.nanoTime();
+                        writeRow(writer, price);
+                        recordCount[1] += System.nanoTime() - t;
+                        recordCount[0]++;
+                    };
+                    Runnable onPage = () -> {
+                        progress.page(recordCount[0], out.getBytesWritten());
+                        progress.checkCancelled();
+                        checkpoint.pageDone(recordCount[0]);
+                    };
+                    if (partitioned) {
+                        partitionedCrawler.crawl(sink, onPage, checkpoint.state);
+                    } else if (!checkpoint.state.isFinished(SINGLE_CRAWL)) {
+                        String next = checkpoint.state.nextPage(SINGLE_CRAWL);
+                        pageFetcher.crawl(next != null ? next : currentUrl, Integer.MAX_VALUE, sink, (String link) -> {
+                            checkpoint.state.advance(SINGLE_CRAWL, link);
+                            onPage.run();
+                        });
+                    }
+                    long t = System.nanoTime();
+                    writer.finish();
+                    recordCount[1] += System.nanoTime() - t;
+                    long uploadWait = out.getUploadWaitNanos();
+                    run.add("crawl_parse", System.nanoTime() - start - recordCount[1] - checkpoint.nanos);
+                    run.add("write", recordCount[1] - uploadWait);
+                    run.add("s3_wait", uploadWait);
+                    run.add("checkpoint", checkpoint.nanos);
+                    metrics.exportWritten("full", format.getExtension(), recordCount[0], recordCount[1] - uploadWait);
 
-            // ✅ Upload to AWS S3
-            String fileName = outputFolder + "/azure_prices_" + System.currentTimeMillis() + ".csv";
-            amazonS3.putObject(new PutObjectRequest(bucketName, fileName, csvFile));
+                    start = System.nanoTime();
+                    long bytes = out.commit();
+                    checkpoint.committed();
+                    progress.bytes(bytes);
+                    metrics.exportBytes("full", format.getExtension(), bytes);
+                    run.since("upload_commit", start);
+                } catch (IOException | RuntimeException e) {
+                    checkpoint.failed(progress.isCancelled());
+                    throw e;
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
 
+            run.rows(recordCount[0]);
+            success = true;
             return new AzureFetchResponseDTO(
-                    "Successfully uploaded CSV to S3",
+                    "Successfully uploaded " + format.getExtension() + " export to S3",
                     "s3://" + bucketName + "/" + fileName,
-                    allPrices.size()
+                    recordCount[0]
             );
 
         } catch (Exception e) {
             throw new RuntimeException("Error fetching or uploading Azure data", e);
+        } finally {
+            if (exclusive) activeJobs.remove(job);
+            run.finish(success);
+        }
+    }
+
+    private String newKey(ExportFormat format) {
+        return outputFolder + "/azure_prices_" + System.currentTimeMillis() + "." + format.getExtension();
+    }
+
+    /**
+     * Continue the saved checkpoint of {@code job} if it still matches and S3
+     * still has its parts, otherwise start a new upload. A null job (another
+     * run of the same export is active) or a non-resumable format runs
+     * without checkpoints.
+     */
+    private ExportCheckpoint openCheckpoint(String job, String source, ExportFormat format) throws IOException {
+        if (job == null || !checkpointEnabled || !format.isResumable()) {
+            String key = newKey(format);
+            S3MultipartOutputStream out = s3Uploads.open(key, format);
+            return new ExportCheckpoint(null, null, key, out, format.open(SCHEMA, out), null, new CrawlState());
+        }
+
+        CrawlCheckpointDTO saved = checkpoints.load(job);
+        if (saved != null) {
+            ExportCheckpoint resumed = resume(job, saved, format);
+            if (resumed != null) return resumed;
+        }
+        checkpoints.delete(job);
+
+        CrawlCheckpointDTO fresh = new CrawlCheckpointDTO();
+        fresh.setJob(job);
+        fresh.setSource(source);
+        fresh.setFormat(format.getExtension());
+        fresh.setColumns(SCHEMA.size());
+        fresh.setRowHashVersion(PartitionedCrawler.ROW_HASH_VERSION);
+        fresh.setKey(newKey(format));
+        fresh.setStartedAt(Instant.now().toString());
+        S3MultipartOutputStream out = s3Uploads.open(fresh.getKey(), format);
+        SegmentedRecordWriter writer = new SegmentedRecordWriter(format, SCHEMA, out, false);
+        return new ExportCheckpoint(job, fresh, fresh.getKey(), out, writer, writer, CrawlState.journaled());
+    }
+
+    private ExportCheckpoint resume(String job, CrawlCheckpointDTO saved, ExportFormat format) {
+        try {
+            if (saved.getColumns() != SCHEMA.size()) {
+                throw new IOException("it was written with " + saved.getColumns() + " columns, the export now has "
+                        + SCHEMA.size());
+            }
+            if (saved.getRowHashVersion() != PartitionedCrawler.ROW_HASH_VERSION) {
+                throw new IOException("its emitted rows were recorded with row hash version "
+                        + saved.getRowHashVersion() + ", the crawl now uses " + PartitionedCrawler.ROW_HASH_VERSION);
+            }
+            CrawlState state = checkpoints.restore(job, saved);
+            List<PartETag> parts = saved.getParts().stream()
+                    .map(p -> new PartETag(p.getNumber(), p.getEtag()))
+                    .toList();
+            S3MultipartOutputStream out = s3Uploads.resume(saved.getKey(), format, saved.getUploadId(), parts,
+                    saved.getBytes());
+            if (out == null) {
+                System.out.println("⚠️ Upload of s3://" + bucketName + "/" + saved.getKey()
+                        + " no longer exists, starting the export over");
+                return null;
+            }
+            System.out.println("♻️ Resuming export s3://" + bucketName + "/" + saved.getKey() + " after "
+                    + saved.getRows() + " rows (" + saved.getPages() + " pages, " + parts.size() + " parts)");
+            SegmentedRecordWriter writer = new SegmentedRecordWriter(format, SCHEMA, out, true);
+            ExportCheckpoint checkpoint = new ExportCheckpoint(job, saved, saved.getKey(), out, writer, writer, state);
+            checkpoint.onDisk = true;
+            return checkpoint;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Export checkpoint " + job + " unusable, starting over: " + e.getMessage());
+            s3Uploads.abort(saved.getKey(), saved.getUploadId());
+            return null;
         }
     }
 
     /**
-     * ✅ Helper method to create a temporary CSV file
+     * Upload, writer and crawl position of one export run, plus the
+     * checkpoint that lets a failed run continue where it stopped
+     * ({@code saved} is null when the run is not checkpointed)
      */
-    private File createCsvFile(List<AzurePriceDTO> prices) throws IOException {
-        File file = File.createTempFile("azure_prices_", ".csv");
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.write("MeterId,ProductName,SKU,Region,Location,Price,Currency,ServiceFamily,Unit,EffectiveDate,Type\n");
-            for (AzurePriceDTO p : prices) {
-                writer.write(String.join(",",
-                        nullSafe(p.getMeterId()), nullSafe(p.getProductName()), nullSafe(p.getSkuName()),
-                        nullSafe(p.getArmRegionName()), nullSafe(p.getLocation()),
-                        String.valueOf(p.getRetailPrice()), nullSafe(p.getCurrencyCode()),
-                        nullSafe(p.getServiceFamily()), nullSafe(p.getUnitOfMeasure()),
-                        nullSafe(p.getEffectiveStartDate()), nullSafe(p.getType())) + "\n");
+    private final class ExportCheckpoint {
+
+        private final String job;
+        private final CrawlCheckpointDTO saved;
+        private final String key;
+        private final S3MultipartOutputStream out;
+        private final RecordWriter writer;
+        private final SegmentedRecordWriter segments;
+        private final CrawlState state;
+        private boolean onDisk;
+        private long lastSave = System.nanoTime();
+        private long nanos;
+
+        ExportCheckpoint(String job, CrawlCheckpointDTO saved, String key, S3MultipartOutputStream out,
+                         RecordWriter writer, SegmentedRecordWriter segments, CrawlState state) {
+            this.job = job;
+            this.saved = saved;
+            this.key = key;
+            this.out = out;
+            this.writer = writer;
+            this.segments = segments;
+            this.state = state;
+        }
+
+        /**
+         * Called at every page boundary; saves a checkpoint once the interval
+         * has passed and enough is buffered to cut an S3 part here
+         */
+        void pageDone(long rows) {
+            if (saved == null) return;
+            saved.setPages(saved.getPages() + 1);
+            if (System.nanoTime() - lastSave < TimeUnit.SECONDS.toNanos(checkpointIntervalSeconds)
+                    || !out.canCut()) {
+                return;
             }
+            long start = System.nanoTime();
+            try {
+                segments.endSegment();
+                List<PartETag> parts = out.cut();
+                saved.setUploadId(out.getUploadId());
+                saved.setParts(parts.stream()
+                        .map(p -> new CrawlCheckpointDTO.Part(p.getPartNumber(), p.getETag()))
+                        .collect(Collectors.toList()));
+                saved.setBytes(out.getBytesWritten());
+                saved.setRows(rows);
+                checkpoints.save(job, saved, state);
+                onDisk = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lastSave = System.nanoTime();
+            nanos += lastSave - start;
+            metrics.checkpointSaved("full_export", lastSave - start);
+        }
+
+        void committed() {
+            if (saved != null) checkpoints.delete(job);
+        }
+
+        /**
+         * Keep the upload for the next run unless the job was cancelled or nothing was checkpointed yet
+         */
+        void failed(boolean cancelled) {
+            if (saved == null || !onDisk) return;
+            if (cancelled) {
+                checkpoints.delete(job);
+                return;
+            }
+            out.detach();
+            System.out.println("💾 Export s3://" + bucketName + "/" + key + " can resume after "
+                    + saved.getRows() + " rows (checkpoint " + job + ")");
         }
-        return file;
     }
 
     /**
-     * Helper to prevent null or comma errors in CSV
+     * ✅ Helper to append one price row to the export
      */
-    private String nullSafe(String value) {
-        return value == null ? "" : value.replace(",", " ");
+    void writeRow(RecordWriter writer, AzurePriceDTO p) {
+        try {
+            writer.string(p.getMeterId());
+            writer.string(p.getProductName());
+            writer.string(p.getSkuName());
+            writer.string(p.getArmRegionName());
+            writer.string(p.getLocation());
+            writer.number(p.getRetailPrice());
+            writer.string(p.getCurrencyCode());
+            writer.string(p.getServiceFamily());
+            writer.string(p.getUnitOfMeasure());
+            writer.string(p.getEffectiveStartDate());
+            writer.string(p.getType());
+            writer.string(p.getReservationTerm());
+            writer.endRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,399 @@
+package com.pricing.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pricing.catalog.PriceSnapshot;
+import com.pricing.catalog.PriceTable;
+import com.pricing.ingest.CsvPriceFileParser;
+import com.pricing.ingest.HttpFetcher;
+import com.pricing.ingest.RetailPricePageReader;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.SnapshotManifestDTO;
+import com.pricing.storage.ObjectStore;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Local cache of the {@code aws.s3.offline.url} price sheet.
+ * <p>
+ * The raw download is kept on disk next to a memory-mapped
+ * {@link PriceSnapshot}. Entries live for {@code local.cache.ttl.minutes};
+ * after that the source is revalidated with If-None-Match / If-Modified-Since,
+ * so an unchanged object costs one small 304 request. Revalidation runs in
+ * the background while readers keep the current snapshot, and concurrent
+ * refresh requests share a single in-flight refresh.
+ * <p>
+ * With {@code azure.shared.enabled} only the leader instance (see
+ * {@link SharedSnapshotService}) downloads the source; it publishes every
+ * new snapshot, and the other instances pull the published binary instead
+ * of downloading and parsing the sheet themselves.
+ */
+@Service
+public class PriceCacheService {
+
+    /**
+     * Name of this cache's snapshot in the shared bucket
+     */
+    private static final String SHARED_NAME = "price-cache";
+
+    @Value("${aws.s3.offline.url}")
+    private String sourceS3Url;
+
+    @Value("${local.cache.file:cache/azure_prices_cache.json}")
+    private String localCacheFilePath;
+
+    @Value("${local.cache.snapshot.file:cache/azure_prices_cache.snap}")
+    private String snapshotFilePath;
+
+    @Value("${local.cache.ttl.minutes:60}")
+    private long ttlMinutes;
+
+    private final HttpFetcher http;
+    private final RetailPricePageReader pageReader;
+    private final PricingMetrics metrics;
+    private final SharedSnapshotService shared;
+    private final CsvPriceFileParser csvParser = new CsvPriceFileParser();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "price-cache-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicReference<CompletableFuture<RefreshOutcome>> inFlight = new AtomicReference<>();
+    private volatile PriceSnapshot snapshot;
+    private volatile Instant validatedAt = Instant.EPOCH;
+    private volatile long sharedVersion;
+
+    public PriceCacheService(HttpFetcher http, RetailPricePageReader pageReader, PricingMetrics metrics,
+                             SharedSnapshotService shared) {
+        this.http = http;
+        this.metrics = metrics;
+        this.pageReader = pageReader;
+        this.shared = shared;
+    }
+
+    /**
+     * Outcome of one refresh: whether the source changed and the resulting row count.
+     */
+    public record RefreshOutcome(boolean modified, int rows, String etag) {
+    }
+
+    /**
+     * 🔹 Current snapshot. Only blocks when nothing is cached yet; a stale
+     * snapshot is returned immediately while a background refresh runs.
+     */
+    public PriceSnapshot getSnapshot() {
+        PriceSnapshot current = snapshot;
+        if (current == null) {
+            current = loadFromDisk();
+        }
+        if (current == null) {
+            metrics.priceCache("miss");
+            refresh().join();
+            return snapshot;
+        }
+        if (isExpired()) {
+            metrics.priceCache("stale");
+            refresh();
+        } else {
+            metrics.priceCache("hit");
+        }
+        return current;
+    }
+
+    /**
+     * 🔹 Revalidate against the source; concurrent callers share one refresh
+     */
+    public CompletableFuture<RefreshOutcome> refresh() {
+        while (true) {
+            CompletableFuture<RefreshOutcome> running = inFlight.get();
+            if (running != null) return running;
+
+            CompletableFuture<RefreshOutcome> mine = new CompletableFuture<>();
+            if (inFlight.compareAndSet(null, mine)) {
+                refreshExecutor.execute(() -> {
+                    RefreshOutcome outcome = null;
+                    Throwable failure = null;
+                    try {
+                        outcome = revalidate();
+                    } catch (Throwable e) {
+                        System.err.println("❌ Price cache refresh failed: " + e.getMessage());
+                        failure = e;
+                    }
+                    // ✅ Clear the slot first: a caller woken by the result must start a new refresh
+                    inFlight.set(null);
+                    if (failure == null) mine.complete(outcome);
+                    else mine.completeExceptionally(failure);
+                });
+                return mine;
+            }
+        }
+    }
+
+    /**
+     * 🔹 With a shared snapshot: the leader revalidates (and publishes) once
+     * the TTL has passed, the other instances pick up newly published
+     * versions. An instance that has never loaded the cache waits for its
+     * first reader.
+     */
+    @Scheduled(initialDelayString = "${azure.shared.poll.seconds:30}",
+            fixedDelayString = "${azure.shared.poll.seconds:30}", timeUnit = TimeUnit.SECONDS)
+    public void syncShared() {
+        if (!shared.isEnabled()) return;
+        boolean due = shared.isLeader()
+                ? isExpired() || sharedVersion == 0
+                : snapshot != null || sharedVersion > 0;
+        if (due) refresh();
+    }
+
+    private boolean isExpired() {
+        return Duration.between(validatedAt, Instant.now()).toMinutes() >= ttlMinutes;
+    }
+
+    /**
+     * Map the snapshot left by a previous run, or rebuild it from a raw cache file
+     */
+    private synchronized PriceSnapshot loadFromDisk() {
+        if (snapshot != null) return snapshot;
+        try {
+            Path snapshotPath = Paths.get(snapshotFilePath);
+            Properties meta = readMeta();
+            Path raw = Paths.get(downloadedCachePath());
+            if (!Files.exists(raw)) raw = Paths.get(localCacheFilePath);
+
+            if (Files.exists(snapshotPath) && (!Files.exists(raw)
+                    || Files.getLastModifiedTime(raw).compareTo(Files.getLastModifiedTime(snapshotPath)) <= 0)) {
+                System.out.println("⚡ Mapping binary snapshot: " + snapshotPath);
+            } else if (Files.exists(raw)) {
+                System.out.println("⚡ Using local cache file: " + raw);
+                writeSnapshot(parseFile(raw.toString()));
+            } else {
+                return null;
+            }
+            try {
+                snapshot = PriceSnapshot.open(snapshotPath);
+            } catch (IOException e) {
+                // e.g. written by a version with another column layout
+                if (!Files.exists(raw)) throw e;
+                System.out.println("⚡ Rebuilding binary snapshot from " + raw + " (" + e.getMessage() + ")");
+                writeSnapshot(parseFile(raw.toString()));
+                snapshot = PriceSnapshot.open(snapshotPath);
+            }
+            validatedAt = Instant.ofEpochMilli(Long.parseLong(meta.getProperty("validatedAt", "0")));
+            sharedVersion = Long.parseLong(meta.getProperty("sharedVersion", "0"));
+            return snapshot;
+        } catch (Exception e) {
+            System.err.println("⚠️ Could not load local price cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private RefreshOutcome revalidate() throws Exception {
+        Properties meta = readMeta();
+        if (!shared.isEnabled()) return revalidateSource(meta);
+
+        // ✅ Adopt a version published by the leader before anything else
+        ObjectStore.Versioned<SnapshotManifestDTO> published = shared.latest(SHARED_NAME);
+        if (published != null && !sourceS3Url.equals(published.value().getSourceUrl())) {
+            System.err.println("⚠️ Ignoring shared snapshot of a different source: " + published.value().getSourceUrl());
+            published = null;
+        }
+        long localVersion = Long.parseLong(meta.getProperty("sharedVersion", "0"));
+        if (published != null && published.value().getVersion() > localVersion) {
+            return pull(published.value(), meta);
+        }
+
+        if (!shared.isLeader()) {
+            if (published == null && snapshot == null && !Files.exists(Paths.get(snapshotFilePath))) {
+                System.out.println("⏳ No shared price snapshot published yet, building a local one");
+                return revalidateSource(meta);
+            }
+            markValidated(meta);
+            PriceSnapshot current = snapshot != null ? snapshot : loadFromDisk();
+            return new RefreshOutcome(false, current != null ? current.size() : 0, meta.getProperty("etag"));
+        }
+
+        RefreshOutcome outcome = revalidateSource(meta);
+        if (outcome.modified() || published == null) {
+            SnapshotManifestDTO manifest = shared.publish(SHARED_NAME, Paths.get(snapshotFilePath), outcome.rows(),
+                    published, sourceS3Url, meta.getProperty("etag"), meta.getProperty("lastModified"));
+            if (manifest != null) {
+                meta.setProperty("sharedVersion", String.valueOf(manifest.getVersion()));
+                writeMeta(meta);
+                sharedVersion = manifest.getVersion();
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * Replace the local snapshot with a published one; its source validators
+     * become ours, so a later revalidation by this instance stays conditional
+     */
+    private RefreshOutcome pull(SnapshotManifestDTO manifest, Properties meta) throws IOException {
+        Path snapshotPath = Paths.get(snapshotFilePath);
+        shared.pull(manifest, snapshotPath);
+        snapshot = PriceSnapshot.open(snapshotPath);
+        setOrRemove(meta, "etag", manifest.getSourceEtag());
+        setOrRemove(meta, "lastModified", manifest.getSourceLastModified());
+        meta.setProperty("sharedVersion", String.valueOf(manifest.getVersion()));
+        markValidated(meta);
+        sharedVersion = manifest.getVersion();
+        metrics.priceCache("pulled");
+        return new RefreshOutcome(true, snapshot.size(), manifest.getSourceEtag());
+    }
+
+    /**
+     * Conditional download of the source itself
+     */
+    private RefreshOutcome revalidateSource(Properties meta) throws Exception {
+        String etag = meta.getProperty("etag");
+        String lastModified = meta.getProperty("lastModified");
+        boolean haveCache = snapshot != null || Files.exists(Paths.get(snapshotFilePath));
+
+        Map<String, String> headers = new HashMap<>();
+        if (haveCache && etag != null) headers.put("If-None-Match", etag);
+        if (haveCache && lastModified != null) headers.put("If-Modified-Since", lastModified);
+
+        try (HttpFetcher.Response response = http.get(sourceS3Url, headers)) {
+            int status = response.status();
+            if (status == 304) {
+                markValidated(meta);
+                metrics.priceCache("not_modified");
+                System.out.println("✅ Price cache still current (304): " + sourceS3Url);
+                PriceSnapshot current = snapshot != null ? snapshot : loadFromDisk();
+                return new RefreshOutcome(false, current != null ? current.size() : 0, etag);
+            }
+            if (status != 200) {
+                throw new IOException("Unexpected HTTP " + status + " from " + sourceS3Url);
+            }
+
+            // ✅ Download to a temp file, then swap it in
+            Path cachePath = Paths.get(downloadedCachePath());
+            Files.createDirectories(cachePath.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(cachePath.toAbsolutePath().getParent(), "download", ".tmp");
+            try {
+                System.out.println("♻️ Refreshing cache file: " + cachePath);
+                Files.copy(response.body(), temp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temp, cachePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            PriceTable rows = parseFile(cachePath.toString());
+            writeSnapshot(rows);
+            snapshot = PriceSnapshot.open(Paths.get(snapshotFilePath));
+
+            String newEtag = response.header("ETag");
+            setOrRemove(meta, "etag", newEtag);
+            setOrRemove(meta, "lastModified", response.header("Last-Modified"));
+            markValidated(meta);
+            metrics.priceCache("modified");
+            System.out.println("✅ Cached data locally at: " + cachePath + " (" + rows.size() + " rows)");
+            return new RefreshOutcome(true, rows.size(), newEtag);
+        }
+    }
+
+    private void writeSnapshot(PriceTable rows) throws IOException {
+        Path snapshotPath = Paths.get(snapshotFilePath);
+        PriceSnapshot.write(snapshotPath, rows);
+        System.out.println("💾 Wrote binary snapshot (" + rows.size() + " rows): " + snapshotPath);
+    }
+
+    /**
+     * 🔹 Parse file based on extension (.json or .csv) into encoded rows
+     */
+    PriceTable parseFile(String filePath) throws Exception {
+        long start = System.nanoTime();
+        PriceTable rows;
+        String format;
+        if (filePath.endsWith(".json")) {
+            System.out.println("📘 Parsing JSON file...");
+            PriceTable.Builder builder = new PriceTable.Builder();
+            try (InputStream in = Files.newInputStream(Paths.get(filePath))) {
+                pageReader.read(in, builder);
+            }
+            rows = builder.build();
+            format = "json";
+        } else if (filePath.endsWith(".csv")) {
+            System.out.println("📗 Parsing CSV file...");
+            rows = csvParser.parse(Paths.get(filePath));
+            format = "csv";
+        } else {
+            throw new RuntimeException("Unsupported file format: " + filePath);
+        }
+        metrics.rowsParsed(format, rows.size(), System.nanoTime() - start);
+        return rows;
+    }
+
+    private String downloadedCachePath() {
+        return localCacheFilePath.replace(".json", "." + getFileExtension(sourceS3Url));
+    }
+
+    private String getFileExtension(String url) {
+        int lastDot = url.lastIndexOf('.');
+        return (lastDot != -1) ? url.substring(lastDot + 1).toLowerCase() : "json";
+    }
+
+    private void markValidated(Properties meta) throws IOException {
+        validatedAt = Instant.now();
+        meta.setProperty("validatedAt", String.valueOf(validatedAt.toEpochMilli()));
+        writeMeta(meta);
+    }
+
+    private void writeMeta(Properties meta) throws IOException {
+        Path metaPath = metaPath();
+        Files.createDirectories(metaPath.toAbsolutePath().getParent());
+        try (Writer w = Files.newBufferedWriter(metaPath)) {
+            meta.store(w, "Price cache validators for " + sourceS3Url);
+        }
+    }
+
+    private Properties readMeta() {
+        Properties meta = new Properties();
+        Path metaPath = metaPath();
+        if (Files.exists(metaPath)) {
+            try (Reader r = Files.newBufferedReader(metaPath)) {
+                meta.load(r);
+            } catch (IOException e) {
+                System.err.println("⚠️ Ignoring unreadable cache metadata: " + e.getMessage());
+            }
+        }
+        return meta;
+    }
+
+    private Path metaPath() {
+        return Paths.get(snapshotFilePath + ".meta");
+    }
+
+    private static void setOrRemove(Properties meta, String key, String value) {
+        if (value != null) meta.setProperty(key, value);
+        else meta.remove(key);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,260 @@
+package com.pricing.service;
+
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pricing.cache.CoalescingCache;
+import com.pricing.catalog.PriceCatalog;
+import com.pricing.catalog.PriceTable;
+import com.pricing.ingest.PageSource;
+import com.pricing.ingest.ParallelPageFetcher;
+import com.pricing.ingest.PartitionedCrawler;
+import com.pricing.ingest.RetailPricePageReader;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Owns the in-memory {@link PriceCatalog}. The catalog is loaded in the
+ * background on startup and on a fixed interval; readers always see the
+ * last complete snapshot and never wait on remote I/O.
+ * <p>
+ * Products missing from the snapshot, or every product while the snapshot
+ * stopped at {@code azure.api.max.pages}, are fetched on demand with a
+ * filtered query. Those lookups are coalesced per (product, region, source) and kept
+ * in a small LRU cache, so a burst of identical requests costs one crawl.
+ * A lookup has its own, much higher page cap ({@code azure.lookup.max.pages});
+ * one that still hits it yields a catalog that is not
+ * {@link PriceCatalog#isComplete() complete}, which the estimates report.
+ */
+@Service
+public class PriceCatalogService {
+
+    @Value("${azure.retail.url}")
+    private String baseUrl;
+
+    @Value("${azure.retail.source:azure}") // can be 'azure' or 's3'
+    private String sourceType;
+
+    @Value("${aws.s3.offline.url:}")
+    private String s3OfflineUrl;
+
+    @Value("${azure.api.max.pages:3}")
+    private int maxPages;
+
+    @Value("${azure.crawl.mode:single}") // 'single' (capped at max.pages) or 'partitioned' (whole catalog)
+    private String crawlMode;
+
+    private final CoalescingCache<LookupKey, PriceCatalog> lookups;
+    private final PageSource pageSource;
+    private final RetailPricePageReader pageReader;
+    private final ParallelPageFetcher pageFetcher;
+    private final PartitionedCrawler partitionedCrawler;
+    private final PriceHistoryService priceHistory;
+    private final int lookupMaxPages;
+    private final AtomicReference<PriceCatalog> current = new AtomicReference<>(PriceCatalog.empty());
+    private final AtomicLong versions = new AtomicLong();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "price-catalog-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicReference<Future<?>> scheduled = new AtomicReference<>();
+
+    public PriceCatalogService(PageSource pageSource, RetailPricePageReader pageReader,
+                               ParallelPageFetcher pageFetcher, PartitionedCrawler partitionedCrawler,
+                               @Value("${azure.lookup.cache.max.entries:1000}") int lookupCacheSize,
+                               @Value("${azure.lookup.cache.ttl.seconds:300}") long lookupCacheTtlSeconds,
+                               @Value("${azure.lookup.max.pages:200}") int lookupMaxPages,
+                               PricingMetrics metrics, PriceHistoryService priceHistory) {
+        this.lookups = new CoalescingCache<>(lookupCacheSize, lookupCacheTtlSeconds, TimeUnit.SECONDS);
+        metrics.bindLookupCache(lookups);
+        this.pageSource = pageSource;
+        this.pageReader = pageReader;
+        this.pageFetcher = pageFetcher;
+        this.partitionedCrawler = partitionedCrawler;
+        this.priceHistory = priceHistory;
+        this.lookupMaxPages = lookupMaxPages;
+    }
+
+    /**
+     * Latest complete snapshot (empty until the first load finishes)
+     */
+    public PriceCatalog getCatalog() {
+        return current.get();
+    }
+
+    /**
+     * Key of one on-demand lookup; region is "" when the lookup spans all regions
+     */
+    private record LookupKey(String product, String region, String source) {
+    }
+
+    /**
+     * Rows of one load; {@code complete} when the whole source was read (no
+     * page limit hit), {@code wholeCatalog} when that source is the entire
+     * retail catalog (a partitioned crawl), so a missing price was removed
+     */
+    private record Fetched(PriceTable rows, boolean complete, boolean wholeCatalog) {
+    }
+
+    /**
+     * 🔹 Prices for one product (optionally one region) that is not in the
+     * snapshot, paged up to {@code azure.lookup.max.pages}; the catalog is
+     * not complete if the lookup stopped there. Concurrent identical lookups
+     * share a single fetch.
+     */
+    public PriceCatalog lookup(String product, String region) {
+        LookupKey key = new LookupKey(product, region != null ? region : "", sourceType);
+        return lookups.get(key, k -> {
+            Fetched fetched;
+            try {
+                // ✅ The S3 sheet is already fully loaded, so lookups always use the filtered API
+                fetched = crawlAzure(k.product(), k.region(), lookupMaxPages,
+                        p -> k.product().equals(p.getProductName())
+                                && (k.region().isEmpty() || k.region().equals(p.getArmRegionName())));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to look up Azure retail prices for " + k.product(), e);
+            }
+            System.out.println("🔍 Lookup " + k.product() + (k.region().isEmpty() ? "" : " @ " + k.region())
+                    + ": " + fetched.rows().size() + " rows"
+                    + (fetched.complete() ? "" : " (stopped at azure.lookup.max.pages, partial)"));
+            return PriceCatalog.build(current.get().getVersion(), k.source(), fetched.rows(), fetched.complete());
+        });
+    }
+
+    public CoalescingCache.Stats getLookupStats() {
+        return lookups.stats();
+    }
+
+    /**
+     * 🔹 Reload the catalog on startup and then every refresh interval. The
+     * crawl runs on its own thread: the Spring scheduler only hands it over,
+     * and skips a tick while the previous reload is still running.
+     */
+    @Scheduled(initialDelayString = "${azure.catalog.initial.delay.ms:0}",
+            fixedDelayString = "${azure.catalog.refresh.interval.ms:3600000}")
+    public void scheduledRefresh() {
+        Future<?> running = scheduled.get();
+        if (running != null && !running.isDone()) return;
+        scheduled.set(refreshExecutor.submit(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                System.err.println("❌ Price catalog refresh failed, keeping version "
+                        + current.get().getVersion() + ": " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Build a new snapshot and swap it in. Returns the current snapshot
+     * unchanged if another refresh is already running.
+     */
+    public PriceCatalog refresh() {
+        if (!refreshLock.tryLock()) {
+            System.out.println("⏳ Price catalog refresh already in progress");
+            return current.get();
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Fetched fetched = fetchAzurePrices();
+            PriceCatalog next = PriceCatalog.build(versions.incrementAndGet(), sourceType, fetched.rows(),
+                    fetched.complete());
+            current.set(next);
+            lookups.invalidateAll();
+            System.out.println("✅ Price catalog v" + next.getVersion() + " loaded: " + next.size()
+                    + " rows, " + next.getProducts().size() + " products in "
+                    + (System.currentTimeMillis() - start) + " ms"
+                    + (fetched.complete() ? "" : " (page limit reached, products are looked up on demand)"));
+            priceHistory.record("catalog", fetched.rows(), fetched.wholeCatalog());
+            return next;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Fetched fetchAzurePrices() {
+        try {
+            // ✅ S3 fallback logic
+            if ("s3".equalsIgnoreCase(sourceType)) {
+                try (InputStream in = pageSource.open(s3OfflineUrl)) {
+                    System.out.println("🔹 Fetching from S3: " + s3OfflineUrl);
+                    PriceTable.Builder prices = new PriceTable.Builder();
+                    pageReader.read(in, prices);
+                    return new Fetched(prices.build(), true, false);
+                } catch (Exception s3ex) {
+                    System.err.println("⚠️ S3 fetch failed, falling back to Azure API...");
+                }
+            }
+
+            if ("partitioned".equalsIgnoreCase(crawlMode)) {
+                PriceTable.Builder prices = new PriceTable.Builder();
+                partitionedCrawler.crawl(prices, () -> { });
+                return new Fetched(prices.build(), true, true);
+            }
+            return crawlAzure(null, null, maxPages, p -> true);
+
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch Azure retail prices: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Crawl at most {@code pageLimit} pages straight into an encoded table,
+     * keeping only rows that pass {@code filter}
+     */
+    private Fetched crawlAzure(String product, String region, int pageLimit, Predicate<AzurePriceDTO> filter)
+            throws Exception {
+        PriceTable.Builder prices = new PriceTable.Builder();
+        String url = buildUrl(product, region);
+        ParallelPageFetcher.Crawled crawled = pageFetcher.crawl(url, pageLimit, p -> {
+            if (filter.test(p)) prices.accept(p);
+        });
+        System.out.println("🔹 Fetched " + crawled.pages() + " page(s) from Azure"
+                + (crawled.reachedEnd() ? "" : " (stopped at the " + pageLimit + " page limit)"));
+        return new Fetched(prices.build(), crawled.reachedEnd(), false);
+    }
+
+    private String buildUrl(String serviceName, String region) {
+        StringBuilder sb = new StringBuilder(baseUrl);
+        List<String> filters = new ArrayList<>();
+
+        if (serviceName != null && !serviceName.isEmpty()) {
+            filters.add("productName eq '" + serviceName + "'");
+        }
+        if (region != null && !region.isEmpty()) {
+            filters.add("armRegionName eq '" + region + "'");
+        }
+
+        if (!filters.isEmpty()) {
+            String filterQuery = String.join(" and ", filters);
+            String encodedFilter = URLEncoder.encode(filterQuery, StandardCharsets.UTF_8);
+            sb.append("?$filter=").append(encodedFilter);
+        }
+
+        return sb.toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
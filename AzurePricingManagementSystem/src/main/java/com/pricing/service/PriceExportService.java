@@ -0,0 +1,274 @@
+package com.pricing.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+
+import com.pricing.catalog.PriceCatalog;
+import com.pricing.catalog.PriceQuery;
+import com.pricing.catalog.PriceTable;
+import com.pricing.export.ExportFormat;
+import com.pricing.export.ExportSchema;
+import com.pricing.export.RecordWriter;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Streams the in-memory catalog for {@code GET /api/azure/prices/export}:
+ * every row matching the filters and sort of {@link PriceQueryService}
+ * (same parameters, no paging), written to the response while the matches
+ * are walked. Extra parameters:
+ * <ul>
+ * <li>{@code format}: ndjson (default) or csv</li>
+ * <li>{@code fields}: comma-separated columns to keep, in output order
+ * (default: every {@link AzurePriceDTO} property)</li>
+ * </ul>
+ * Nothing is collected first: each row is decoded into one reused DTO and
+ * written through the export writers, so memory stays flat however many
+ * rows match. The response has no length and goes out chunked; a write
+ * blocks while the client is not reading, which pauses the walk until it
+ * catches up. The body is gzip (zstd for CSV) encoded when the client
+ * accepts it. An export reads the catalog version it started on even if a
+ * refresh swaps in a newer one meanwhile.
+ */
+@Service
+public class PriceExportService {
+
+    /**
+     * One output column and how to write it from a decoded row
+     */
+    private record Field(ExportSchema.Column column, FieldWriter writer) {
+    }
+
+    @FunctionalInterface
+    private interface FieldWriter {
+        void write(RecordWriter out, AzurePriceDTO row) throws IOException;
+    }
+
+    private static final Map<String, Field> FIELDS = fields();
+
+    private final PriceCatalogService catalogService;
+    private final PricingMetrics metrics;
+    private final Semaphore slots;
+    private final int maxConcurrent;
+
+    public PriceExportService(PriceCatalogService catalogService, PricingMetrics metrics,
+                              @Value("${azure.export.stream.max.concurrent:4}") int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("azure.export.stream.max.concurrent must be at least 1");
+        }
+        this.catalogService = catalogService;
+        this.metrics = metrics;
+        this.slots = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * 🔹 Validate a request and take one of the export slots; the slot is
+     * given back by {@link Export#release}, which {@link Export#writeTo}
+     * calls when it returns. A caller that may never write the export must
+     * release it itself. Throws IllegalArgumentException for a malformed
+     * request and IllegalStateException while every slot is taken.
+     */
+    public Export open(MultiValueMap<String, String> params, String acceptEncoding) {
+        // Limit and cursor do not apply to a full walk
+        PriceQuery query = PriceQueryService.parse(params, 0, -1);
+        List<Field> fields = projection(params.get("fields"));
+        ExportFormat format = format(params.getFirst("format"), acceptEncoding);
+        ExportSchema schema = ExportSchema.of("azure_price", fields.stream().map(Field::column).toList());
+
+        if (!slots.tryAcquire()) {
+            metrics.exportStreamed(format.getExtension(), "rejected");
+            throw new IllegalStateException("Too many price exports running (max " + maxConcurrent
+                    + "); try again later");
+        }
+        return new Export(catalogService.getCatalog(), query, format, schema, fields);
+    }
+
+    private static List<Field> projection(List<String> params) {
+        if (params == null || params.isEmpty()) return List.copyOf(FIELDS.values());
+        List<Field> fields = new ArrayList<>();
+        for (String param : params) {
+            for (String name : param.split(",")) {
+                if (name.isBlank()) continue;
+                Field field = FIELDS.get(name.trim().toLowerCase(Locale.ROOT));
+                if (field == null) {
+                    throw new IllegalArgumentException("Unknown field '" + name.trim() + "', expected one of "
+                            + FIELDS.values().stream().map(f -> f.column().name()).toList());
+                }
+                if (fields.contains(field)) {
+                    throw new IllegalArgumentException("Field '" + field.column().name() + "' is listed twice");
+                }
+                fields.add(field);
+            }
+        }
+        if (fields.isEmpty()) throw new IllegalArgumentException("fields must name at least one column");
+        return fields;
+    }
+
+    private static ExportFormat format(String value, String acceptEncoding) {
+        String format = value == null || value.isEmpty() ? "ndjson" : value.toLowerCase(Locale.ROOT);
+        return switch (format) {
+            case "ndjson" -> accepts(acceptEncoding, "gzip") ? ExportFormat.NDJSON_GZIP : ExportFormat.NDJSON;
+            case "csv" -> accepts(acceptEncoding, "zstd") ? ExportFormat.CSV_ZSTD
+                    : accepts(acceptEncoding, "gzip") ? ExportFormat.CSV_GZIP : ExportFormat.CSV;
+            default -> throw new IllegalArgumentException("format must be ndjson or csv");
+        };
+    }
+
+    /**
+     * True if an Accept-Encoding header lists {@code coding} with a non-zero q
+     */
+    private static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) return false;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(coding)) continue;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (!param.startsWith("q=")) continue;
+                try {
+                    return Double.parseDouble(param.substring(2)) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static Map<String, Field> fields() {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        add(fields, ExportSchema.string("meterId"), (out, p) -> out.string(p.getMeterId()));
+        add(fields, ExportSchema.string("productName"), (out, p) -> out.string(p.getProductName()));
+        add(fields, ExportSchema.string("skuName"), (out, p) -> out.string(p.getSkuName()));
+        add(fields, ExportSchema.string("armRegionName"), (out, p) -> out.string(p.getArmRegionName()));
+        add(fields, ExportSchema.string("location"), (out, p) -> out.string(p.getLocation()));
+        add(fields, ExportSchema.number("retailPrice"), (out, p) -> out.number(p.getRetailPrice()));
+        add(fields, ExportSchema.string("currencyCode"), (out, p) -> out.string(p.getCurrencyCode()));
+        add(fields, ExportSchema.string("serviceFamily"), (out, p) -> out.string(p.getServiceFamily()));
+        add(fields, ExportSchema.string("unitOfMeasure"), (out, p) -> out.string(p.getUnitOfMeasure()));
+        add(fields, ExportSchema.string("effectiveStartDate"), (out, p) -> out.string(p.getEffectiveStartDate()));
+        add(fields, ExportSchema.string("type"), (out, p) -> out.string(p.getType()));
+        add(fields, ExportSchema.integer("tierMinimumUnits"), (out, p) -> out.integer(p.getTierMinimumUnits()));
+        add(fields, ExportSchema.integer("tierMaximumUnits"), (out, p) -> out.integer(p.getTierMaximumUnits()));
+        add(fields, ExportSchema.string("skuId"), (out, p) -> out.string(p.getSkuId()));
+        add(fields, ExportSchema.string("reservationTerm"), (out, p) -> out.string(p.getReservationTerm()));
+        return fields;
+    }
+
+    private static void add(Map<String, Field> fields, ExportSchema.Column column, FieldWriter writer) {
+        fields.put(column.name().toLowerCase(Locale.ROOT), new Field(column, writer));
+    }
+
+    /**
+     * One validated export holding a slot until released; write it at most once
+     */
+    public final class Export {
+
+        private final PriceCatalog catalog;
+        private final PriceQuery query;
+        private final ExportFormat format;
+        private final ExportSchema schema;
+        private final Field[] fields;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private long rows;
+
+        private Export(PriceCatalog catalog, PriceQuery query, ExportFormat format, ExportSchema schema,
+                       List<Field> fields) {
+            this.catalog = catalog;
+            this.query = query;
+            this.format = format;
+            this.schema = schema;
+            this.fields = fields.toArray(Field[]::new);
+        }
+
+        public ExportFormat getFormat() {
+            return format;
+        }
+
+        public long getCatalogVersion() {
+            return catalog.getVersion();
+        }
+
+        /**
+         * Download name, without the compression suffix (that is a transfer encoding here)
+         */
+        public String getFilename() {
+            String extension = format.getContentEncoding() == null ? format.getExtension()
+                    : format.getExtension().substring(0, format.getExtension().lastIndexOf('.'));
+            return "azure_prices_v" + catalog.getVersion() + "." + extension;
+        }
+
+        /**
+         * 🔹 Write every matching row to {@code out}, then give the slot back.
+         * Rows are read in walk order, so blocking writes slow the walk down
+         * rather than queueing rows in memory.
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            if (released.get()) throw new IllegalStateException("Export was released before it was written");
+            if (!started.compareAndSet(false, true)) throw new IllegalStateException("Export already written");
+            long start = System.nanoTime();
+            try {
+                RecordWriter writer = format.open(schema, out);
+                PriceTable table = catalog.getTable();
+                AzurePriceDTO row = new AzurePriceDTO();
+                catalog.forEach(query, id -> {
+                    table.readInto(id, row);
+                    try {
+                        for (Field field : fields) field.writer().write(writer, row);
+                        writer.endRow();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows++;
+                });
+                writer.finish();
+                metrics.exportWritten("stream", format.getExtension(), rows, System.nanoTime() - start);
+                metrics.exportStreamed(format.getExtension(), "completed");
+            } catch (UncheckedIOException e) {
+                aborted(e.getCause());
+                throw e.getCause();
+            } catch (IOException | RuntimeException e) {
+                aborted(e);
+                throw e;
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * 🔹 Give the slot back; only the first call counts. An export released
+         * before it was written (the response timed out or failed first) is
+         * counted as abandoned.
+         */
+        public void release() {
+            if (!released.compareAndSet(false, true)) return;
+            slots.release();
+            if (started.compareAndSet(false, true)) {
+                metrics.exportStreamed(format.getExtension(), "abandoned");
+                System.err.println("⚠️ Price export (" + format.getExtension() + ", catalog v" + catalog.getVersion()
+                        + ") released before it was written");
+            }
+        }
+
+        private void aborted(Exception e) {
+            metrics.exportStreamed(format.getExtension(), "aborted");
+            System.err.println("⚠️ Price export (" + format.getExtension() + ", catalog v" + catalog.getVersion()
+                    + ") stopped after " + rows + " rows: " + e.getMessage());
+        }
+    }
+}
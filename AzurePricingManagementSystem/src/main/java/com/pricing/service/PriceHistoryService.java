@@ -0,0 +1,214 @@
+package com.pricing.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pricing.catalog.PriceRows;
+import com.pricing.history.PriceHistoryLog;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+import com.pricing.model.PriceChangeDTO;
+import com.pricing.model.PriceHistoryResponseDTO;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the local {@link PriceHistoryLog} and answers price time series
+ * queries from it. Catalog refreshes and delta crawls feed every row
+ * through {@link #begin}; only changes are written.
+ * <p>
+ * History is best effort: if the log cannot be opened or written, ingests
+ * carry on without it and the failure is logged.
+ */
+@Service
+public class PriceHistoryService {
+
+    private static final int DEFAULT_LIMIT = 1000;
+    private static final int MAX_LIMIT = 10000;
+
+    private final PriceHistoryLog log;
+    private final PricingMetrics metrics;
+    private final Timer queryTimer;
+
+    public PriceHistoryService(@Value("${azure.history.enabled:true}") boolean enabled,
+                               @Value("${azure.history.dir:cache/history}") String dir,
+                               @Value("${azure.history.segment.mb:64}") int segmentMb,
+                               PricingMetrics metrics) {
+        this.metrics = metrics;
+        this.queryTimer = metrics.queryTimer("history");
+        PriceHistoryLog opened = null;
+        if (enabled) {
+            try {
+                opened = PriceHistoryLog.open(Paths.get(dir), segmentMb * 1024L * 1024L);
+                System.out.println("📜 Price history opened: " + opened.size() + " changes in " + dir);
+            } catch (Exception e) {
+                System.err.println("❌ Price history disabled, could not open " + dir + ": " + e.getMessage());
+            }
+        }
+        this.log = opened;
+    }
+
+    /**
+     * 🔹 Start recording one ingest. Returns a no-op recorder when history is
+     * disabled or another ingest is still being recorded.
+     */
+    public Recorder begin(String source, long observedAt) {
+        PriceHistoryLog.Ingest ingest = log != null ? log.begin(observedAt) : null;
+        if (log != null && ingest == null) {
+            System.out.println("⏭️ Price history busy, " + source + " ingest not recorded");
+        }
+        return new Recorder(source, ingest);
+    }
+
+    /**
+     * Record a table that is already loaded (catalog refresh); pass
+     * {@code complete} only when it holds the entire retail catalog
+     */
+    public void record(String source, PriceRows rows, boolean complete) {
+        try (Recorder recorder = begin(source, System.currentTimeMillis())) {
+            AzurePriceDTO dto = new AzurePriceDTO();
+            for (int row = 0; row < rows.size(); row++) {
+                rows.readInto(row, dto);
+                recorder.accept(dto);
+            }
+            recorder.commit(complete);
+        }
+    }
+
+    /**
+     * Feeds one ingest into the log. Write failures abandon the ingest
+     * instead of failing the caller; close() without commit() discards it.
+     */
+    public final class Recorder implements Consumer<AzurePriceDTO>, AutoCloseable {
+
+        private final String source;
+        private final long startNanos = System.nanoTime();
+        private PriceHistoryLog.Ingest ingest;
+
+        private Recorder(String source, PriceHistoryLog.Ingest ingest) {
+            this.source = source;
+            this.ingest = ingest;
+        }
+
+        @Override
+        public void accept(AzurePriceDTO price) {
+            if (ingest == null) return;
+            try {
+                ingest.accept(price);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Publish the changes; {@code complete} = the ingest listed the entire retail catalog, so missing
+         * prices are removals (never true for a filtered, page-capped or offline-sheet ingest, which would
+         * otherwise close every series it did not cover)
+         */
+        public void commit(boolean complete) {
+            if (ingest == null) return;
+            try {
+                PriceHistoryLog.Ingest.Stats stats = ingest.commit(complete);
+                long nanos = System.nanoTime() - startNanos;
+                metrics.historyIngest(source, stats.added(), stats.changed(), stats.removed(), nanos);
+                System.out.println("📜 Price history (" + source + "): +" + stats.added() + " ~" + stats.changed()
+                        + " -" + stats.removed() + " of " + stats.rows() + " rows in " + nanos / 1_000_000 + " ms");
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+            ingest = null;
+        }
+
+        private void fail(Exception e) {
+            System.err.println("❌ Price history (" + source + ") not recorded: " + e.getMessage());
+            close();
+        }
+
+        @Override
+        public void close() {
+            if (ingest != null) ingest.abort();
+            ingest = null;
+        }
+    }
+
+    // ----------------------------------------------------------------- query
+
+    public PriceHistoryResponseDTO meterHistory(String meterId, String from, String to) {
+        long fromMillis = time(from, false, "from");
+        long toMillis = time(to, true, "to");
+        return queryTimer.record(() -> {
+            List<PriceHistoryLog.Entry> entries = log != null
+                    ? log.meterHistory(meterId, fromMillis, toMillis) : List.of();
+            return response(meterId, null, null, entries);
+        });
+    }
+
+    public PriceHistoryResponseDTO productHistory(String product, String region, String from, String to,
+                                                  Integer limit) {
+        long fromMillis = time(from, false, "from");
+        long toMillis = time(to, true, "to");
+        int max = limit != null ? limit : DEFAULT_LIMIT;
+        if (max < 1 || max > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        return queryTimer.record(() -> {
+            List<PriceHistoryLog.Entry> entries = log != null
+                    ? log.productHistory(product, region, fromMillis, toMillis, max) : List.of();
+            return response(null, product, region, entries);
+        });
+    }
+
+    private static PriceHistoryResponseDTO response(String meterId, String product, String region,
+                                                    List<PriceHistoryLog.Entry> entries) {
+        List<PriceChangeDTO> changes = new ArrayList<>(entries.size());
+        for (PriceHistoryLog.Entry e : entries) {
+            changes.add(new PriceChangeDTO(Instant.ofEpochMilli(e.observedAt()).toString(), e.change().name(),
+                    e.meterId(), e.productName(), e.skuName(), e.armRegionName(), e.unitOfMeasure(),
+                    e.currencyCode(), e.effectiveStartDate(), e.type(), emptyToNull(e.reservationTerm()),
+                    e.tierMinimumUnits(), e.retailPrice(), e.previousPrice()));
+        }
+        return new PriceHistoryResponseDTO(meterId, product, region, changes.size(), changes);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * ISO instant or yyyy-MM-dd (a date covers the whole UTC day); blank = unbounded
+     */
+    private static long time(String value, boolean endOfRange, String name) {
+        if (value == null || value.isEmpty()) return endOfRange ? Long.MAX_VALUE : Long.MIN_VALUE;
+        try {
+            if (value.length() == 10) {
+                LocalDate date = LocalDate.parse(value);
+                return (endOfRange ? date.plusDays(1) : date).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli()
+                        - (endOfRange ? 1 : 0);
+            }
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(name + " must be an ISO instant or yyyy-MM-dd date");
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (log == null) return;
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.err.println("❌ Failed to close price history: " + e.getMessage());
+        }
+    }
+}
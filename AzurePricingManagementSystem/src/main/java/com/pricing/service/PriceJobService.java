@@ -0,0 +1,238 @@
+package com.pricing.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pricing.job.JobProgress;
+import com.pricing.model.JobStatusDTO;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs the long exports (full fetch-upload, delta, processed sheet) as
+ * background jobs on a small dedicated pool instead of on request threads.
+ * <p>
+ * Submitting returns immediately with a job id. A job whose key (type plus
+ * arguments) matches one that is still queued or running is not started
+ * again; the caller gets the running job instead. Finished jobs are kept
+ * for {@code azure.jobs.history} entries so results can be collected.
+ */
+@Service
+public class PriceJobService {
+
+    public static final String FETCH_UPLOAD = "fetch-upload";
+    public static final String DELTA = "delta";
+    public static final String PROCESS = "process";
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    @Value("${azure.jobs.history:100}")
+    private int historySize;
+
+    private final AzurePriceService priceService;
+    private final AzureDeltaService deltaService;
+    private final AzurePriceProcessorService processorService;
+
+    private final ExecutorService jobExecutor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Job> active = new ConcurrentHashMap<>();
+
+    public PriceJobService(AzurePriceService priceService, AzureDeltaService deltaService,
+                           AzurePriceProcessorService processorService,
+                           @Value("${azure.jobs.concurrency:2}") int concurrency) {
+        this.priceService = priceService;
+        this.deltaService = deltaService;
+        this.processorService = processorService;
+        AtomicInteger threads = new AtomicInteger();
+        this.jobExecutor = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+            Thread t = new Thread(r, "price-job-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        Object run(JobProgress progress) throws Exception;
+    }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String type;
+        final String key;
+        final Task task;
+        final JobProgress progress = new JobProgress();
+        final Instant submittedAt = Instant.now();
+        volatile State state = State.QUEUED;
+        volatile Instant startedAt;
+        volatile Instant finishedAt;
+        volatile Object result;
+        volatile String error;
+        volatile Future<?> future;
+
+        Job(String type, String key, Task task) {
+            this.type = type;
+            this.key = key;
+            this.task = task;
+        }
+
+        boolean isDone() {
+            return state != State.QUEUED && state != State.RUNNING;
+        }
+    }
+
+    // ----------------------------------------------------------- submission
+
+    public JobStatusDTO submitFetchUpload(String url) {
+        return submit(FETCH_UPLOAD, url, progress -> priceService.fetchAndUploadData(url, progress));
+    }
+
+    public JobStatusDTO submitDelta(String url) {
+        return submit(DELTA, url, progress -> deltaService.fetchAndUploadDelta(url, progress));
+    }
+
+    public JobStatusDTO submitProcess() {
+        return submit(PROCESS, null, processorService::processAndUploadPricingSheet);
+    }
+
+    /**
+     * 🔹 Queue a job, or return the identical job that is already queued or running
+     */
+    private JobStatusDTO submit(String type, String argument, Task task) {
+        String key = type + "|" + (argument != null && !argument.isEmpty() ? argument : "default");
+        Job candidate = new Job(type, key, task);
+        Job job = active.compute(key, (k, existing) -> existing != null && !existing.isDone() ? existing : candidate);
+
+        if (job != candidate) {
+            System.out.println("🔁 " + type + " job already running, reusing " + job.id);
+            return toStatus(job, true);
+        }
+        jobs.put(job.id, job);
+        job.future = jobExecutor.submit(() -> run(job));
+        System.out.println("🧾 Queued " + type + " job " + job.id);
+        trimHistory();
+        return toStatus(job, false);
+    }
+
+    private void run(Job job) {
+        synchronized (job) {
+            if (job.state != State.QUEUED) return;
+            job.state = State.RUNNING;
+            job.startedAt = Instant.now();
+        }
+        State outcome;
+        try {
+            job.result = job.task.run(job.progress);
+            outcome = State.SUCCEEDED;
+        } catch (Throwable e) {
+            if (job.progress.isCancelled()) {
+                outcome = State.CANCELLED;
+                job.error = "Cancelled";
+            } else {
+                outcome = State.FAILED;
+                job.error = describe(e);
+                System.err.println("❌ " + job.type + " job " + job.id + " failed: " + job.error);
+            }
+        }
+        finish(job, outcome);
+        System.out.println("🏁 " + job.type + " job " + job.id + " " + outcome);
+    }
+
+    private void finish(Job job, State outcome) {
+        synchronized (job) {
+            job.state = outcome;
+            job.finishedAt = Instant.now();
+        }
+        active.remove(job.key, job);
+    }
+
+    // ---------------------------------------------------------------- query
+
+    public JobStatusDTO getJob(String id) {
+        Job job = id != null ? jobs.get(id) : null;
+        return job != null ? toStatus(job, false) : null;
+    }
+
+    public List<JobStatusDTO> listJobs() {
+        List<Job> all = new ArrayList<>(jobs.values());
+        all.sort(Comparator.comparing((Job j) -> j.submittedAt).reversed());
+        List<JobStatusDTO> statuses = new ArrayList<>(all.size());
+        all.forEach(j -> statuses.add(toStatus(j, false)));
+        return statuses;
+    }
+
+    /**
+     * 🔹 Request cancellation. A queued job is cancelled at once; a running
+     * one stops at its next page or row-batch boundary and its upload is aborted.
+     */
+    public JobStatusDTO cancel(String id) {
+        Job job = id != null ? jobs.get(id) : null;
+        if (job == null) return null;
+
+        job.progress.cancel();
+        boolean wasQueued;
+        synchronized (job) {
+            wasQueued = job.state == State.QUEUED;
+            if (wasQueued) {
+                job.state = State.CANCELLED;
+                job.finishedAt = Instant.now();
+                job.error = "Cancelled";
+            }
+        }
+        if (wasQueued) active.remove(job.key, job);
+        Future<?> future = job.future;
+        if (future != null) future.cancel(true);
+        return toStatus(job, false);
+    }
+
+    private void trimHistory() {
+        int excess = jobs.size() - Math.max(1, historySize);
+        if (excess <= 0) return;
+        jobs.values().stream()
+                .filter(Job::isDone)
+                .sorted(Comparator.comparing((Job j) -> j.submittedAt))
+                .limit(excess)
+                .forEach(j -> jobs.remove(j.id));
+    }
+
+    private static JobStatusDTO toStatus(Job job, boolean deduplicated) {
+        JobStatusDTO dto = new JobStatusDTO();
+        dto.setJobId(job.id);
+        dto.setType(job.type);
+        dto.setState(job.state.name());
+        dto.setDeduplicated(deduplicated);
+        dto.setSubmittedAt(job.submittedAt.toString());
+        dto.setStartedAt(job.startedAt != null ? job.startedAt.toString() : null);
+        dto.setFinishedAt(job.finishedAt != null ? job.finishedAt.toString() : null);
+        dto.setPages(job.progress.getPages());
+        dto.setRows(job.progress.getRows());
+        dto.setBytes(job.progress.getBytes());
+        dto.setResult(job.result);
+        dto.setError(job.error);
+        return dto;
+    }
+
+    private static String describe(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) root = root.getCause();
+        return root == e ? String.valueOf(e.getMessage()) : e.getMessage() + ": " + root.getMessage();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        active.values().forEach(j -> j.progress.cancel());
+        jobExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,170 @@
+package com.pricing.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+
+import com.pricing.catalog.PriceCatalog;
+import com.pricing.catalog.PriceQuery;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.PriceQueryResponseDTO;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Filtered, sorted and paginated reads of the in-memory catalog for
+ * {@code GET /api/azure/prices}. Query parameters:
+ * <ul>
+ * <li>{@code serviceFamily}, {@code product}, {@code sku}, {@code region},
+ * {@code type}, {@code unit}: exact, case-insensitive; repeat a parameter
+ * to match any of several values</li>
+ * <li>{@code minPrice}, {@code maxPrice}: inclusive retail price range</li>
+ * <li>{@code sort}: price, product, sku, region or serviceFamily
+ * (default: catalog order); {@code order}: asc or desc</li>
+ * <li>{@code limit}: page size; {@code cursor}: {@code nextCursor} of the previous page</li>
+ * </ul>
+ * A cursor is bound to the catalog version that issued it; after a refresh
+ * the client has to start again from the first page.
+ */
+@Service
+public class PriceQueryService {
+
+    private static final Map<String, PriceQuery.Field> FILTERS = Map.of(
+            "serviceFamily", PriceQuery.Field.SERVICE_FAMILY,
+            "product", PriceQuery.Field.PRODUCT,
+            "sku", PriceQuery.Field.SKU,
+            "region", PriceQuery.Field.REGION,
+            "type", PriceQuery.Field.TYPE,
+            "unit", PriceQuery.Field.UNIT);
+
+    private static final Map<String, PriceQuery.Sort> SORTS = Map.of(
+            "price", PriceQuery.Sort.PRICE,
+            "product", PriceQuery.Sort.PRODUCT,
+            "sku", PriceQuery.Sort.SKU,
+            "region", PriceQuery.Sort.REGION,
+            "servicefamily", PriceQuery.Sort.SERVICE_FAMILY);
+
+    @Value("${azure.query.default.limit:100}")
+    private int defaultLimit;
+
+    @Value("${azure.query.max.limit:1000}")
+    private int maxLimit;
+
+    private final PriceCatalogService catalogService;
+    private final Timer queryTimer;
+
+    public PriceQueryService(PriceCatalogService catalogService, PricingMetrics metrics) {
+        this.catalogService = catalogService;
+        this.queryTimer = metrics.queryTimer("prices");
+    }
+
+    /**
+     * 🔹 Answer one page; throws IllegalArgumentException for a malformed
+     * request and IllegalStateException for a cursor from an older catalog
+     */
+    public PriceQueryResponseDTO query(MultiValueMap<String, String> params) {
+        return queryTimer.record(() -> run(catalogService.getCatalog(), params));
+    }
+
+    private PriceQueryResponseDTO run(PriceCatalog catalog, MultiValueMap<String, String> params) {
+        int limit = defaultLimit;
+        String limitParam = params.getFirst("limit");
+        if (limitParam != null && !limitParam.isEmpty()) {
+            try {
+                limit = Integer.parseInt(limitParam);
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+
+        int afterRow = decodeCursor(params.getFirst("cursor"), catalog.getVersion());
+        if (afterRow >= catalog.size()) throw new IllegalArgumentException("Invalid cursor");
+        PriceQuery.Page page = catalog.query(parse(params, limit, afterRow));
+
+        String nextCursor = page.hasMore() ? encodeCursor(catalog.getVersion(), page.lastRow()) : null;
+        return new PriceQueryResponseDTO(catalog.getVersion(), page.total(), page.prices().size(),
+                nextCursor, page.prices());
+    }
+
+    /**
+     * Filters, price range and sort of a request (shared with the streaming
+     * export); throws IllegalArgumentException when one of them is malformed
+     */
+    static PriceQuery parse(MultiValueMap<String, String> params, int limit, int afterRow) {
+        Map<PriceQuery.Field, List<String>> filters = new EnumMap<>(PriceQuery.Field.class);
+        FILTERS.forEach((name, field) -> {
+            List<String> values = params.get(name);
+            if (values != null && !values.isEmpty()) filters.put(field, values);
+        });
+
+        Double minPrice = number(params.getFirst("minPrice"), "minPrice");
+        Double maxPrice = number(params.getFirst("maxPrice"), "maxPrice");
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+
+        PriceQuery.Sort sort = PriceQuery.Sort.CATALOG;
+        String sortParam = params.getFirst("sort");
+        if (sortParam != null && !sortParam.isEmpty()) {
+            sort = SORTS.get(sortParam.toLowerCase(Locale.ROOT));
+            if (sort == null) {
+                throw new IllegalArgumentException("sort must be one of price, product, sku, region, serviceFamily");
+            }
+        }
+        String order = params.getFirst("order");
+        boolean descending = "desc".equalsIgnoreCase(order);
+        if (order != null && !order.isEmpty() && !descending && !"asc".equalsIgnoreCase(order)) {
+            throw new IllegalArgumentException("order must be asc or desc");
+        }
+        return new PriceQuery(filters, minPrice, maxPrice, sort, descending, limit, afterRow);
+    }
+
+    private static Double number(String value, String name) {
+        if (value == null || value.isEmpty()) return null;
+        try {
+            double parsed = Double.parseDouble(value);
+            if (Double.isNaN(parsed)) throw new NumberFormatException();
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
+
+    /**
+     * Cursor = base64url("catalogVersion:lastRow")
+     */
+    static String encodeCursor(long version, int row) {
+        String raw = version + ":" + row;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int decodeCursor(String cursor, long version) {
+        if (cursor == null || cursor.isEmpty()) return -1;
+        long cursorVersion;
+        int row;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = raw.indexOf(':');
+            cursorVersion = Long.parseLong(raw.substring(0, colon));
+            row = Integer.parseInt(raw.substring(colon + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (cursorVersion != version) {
+            throw new IllegalStateException("Price catalog was refreshed (v" + cursorVersion + " → v" + version
+                    + "); restart from the first page");
+        }
+        if (row < 0) throw new IllegalArgumentException("Invalid cursor");
+        return row;
+    }
+}
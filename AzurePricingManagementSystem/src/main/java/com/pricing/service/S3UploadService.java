@@ -0,0 +1,137 @@
+package com.pricing.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.pricing.export.ExportFormat;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.storage.S3MultipartOutputStream;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Opens streaming uploads into the configured bucket.
+ */
+@Service
+public class S3UploadService {
+
+    @Value("${aws.s3.bucket.name}")
+    private String bucketName;
+
+    @Value("${aws.s3.upload.part.size.mb:8}")
+    private int partSizeMb;
+
+    @Value("${aws.s3.upload.concurrency:4}")
+    private int concurrency;
+
+    private final AmazonS3 amazonS3;
+    private final PricingMetrics metrics;
+    private final AtomicInteger threads = new AtomicInteger();
+    private final ExecutorService uploadExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "s3-upload-" + threads.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    public S3UploadService(AmazonS3 amazonS3, PricingMetrics metrics) {
+        this.amazonS3 = amazonS3;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 🔹 Start a streaming upload to s3://bucket/key; call commit() when done
+     */
+    public S3MultipartOutputStream open(String key, String contentType) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        return open(key, metadata);
+    }
+
+    /**
+     * 🔹 Start a streaming upload whose Content-Type and export-format user
+     * metadata match {@code format}; compressed objects carry no Content-Encoding
+     */
+    public S3MultipartOutputStream open(String key, ExportFormat format) {
+        return open(key, metadata(format));
+    }
+
+    /**
+     * 🔹 Reattach to a multipart upload left open by an earlier run. Returns
+     * null when S3 no longer has the upload or one of the expected parts.
+     */
+    public S3MultipartOutputStream resume(String key, ExportFormat format, String uploadId,
+                                          List<PartETag> parts, long bytes) {
+        Map<Integer, String> listed = new HashMap<>();
+        try {
+            ListPartsRequest request = new ListPartsRequest(bucketName, key, uploadId);
+            PartListing listing;
+            do {
+                listing = amazonS3.listParts(request);
+                listing.getParts().forEach(p -> listed.put(p.getPartNumber(), unquote(p.getETag())));
+                request.setPartNumberMarker(listing.getNextPartNumberMarker());
+            } while (listing.isTruncated());
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) return null;
+            throw e;
+        }
+        for (PartETag part : parts) {
+            if (!unquote(part.getETag()).equals(listed.get(part.getPartNumber()))) return null;
+        }
+        return new S3MultipartOutputStream(amazonS3, uploadExecutor, bucketName, key, metadata(format),
+                partSize(), concurrency, metrics, uploadId, parts, bytes);
+    }
+
+    /**
+     * Drop a multipart upload that will not be resumed (best effort)
+     */
+    public void abort(String key, String uploadId) {
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Failed to abort multipart upload " + uploadId + ": " + e.getMessage());
+        }
+    }
+
+    private S3MultipartOutputStream open(String key, ObjectMetadata metadata) {
+        return new S3MultipartOutputStream(amazonS3, uploadExecutor, bucketName, key,
+                metadata, partSize(), concurrency, metrics);
+    }
+
+    private int partSize() {
+        return Math.max(S3MultipartOutputStream.MIN_PART_SIZE, partSizeMb * 1024 * 1024);
+    }
+
+    private static ObjectMetadata metadata(ExportFormat format) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(format.getObjectContentType());
+        metadata.addUserMetadata("export-format", format.getExtension());
+        return metadata;
+    }
+
+    private static String unquote(String etag) {
+        return etag == null ? "" : etag.replace("\"", "");
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdownNow();
+    }
+}
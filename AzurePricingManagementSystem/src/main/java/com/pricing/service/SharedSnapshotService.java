@@ -0,0 +1,188 @@
+package com.pricing.service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.SnapshotManifestDTO;
+import com.pricing.storage.ObjectStore;
+import com.pricing.storage.ObjectStoreLease;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Lets several instances behind a load balancer share work that only
+ * needs to be done once, through the bucket they already upload to.
+ * <p>
+ * One instance holds the leader lease ({@code <prefix>/leader.lease.json}),
+ * renewed every {@code azure.shared.poll.seconds} and taken over by another
+ * instance once the holder stops renewing it. Renewals run on a thread of
+ * their own, so a long crawl or upload on the shared Spring scheduler can
+ * never hold them up past the lease's TTL. The leader builds snapshots
+ * and publishes each one as a new object plus {@code <prefix>/<name>/manifest.json};
+ * every publish moves the manifest to the next version with a conditional
+ * write, so versions never fork. Other instances poll the manifest and pull
+ * versions they do not have. The leader also runs the weekly schedule.
+ * <p>
+ * Off by default ({@code azure.shared.enabled}); a lone instance is always
+ * the leader and never touches the bucket.
+ */
+@Service
+public class SharedSnapshotService {
+
+    private final boolean enabled;
+    private final String prefix;
+    private final ObjectStore store;
+    private final ObjectStoreLease lease;
+    private final PricingMetrics metrics;
+    private final ScheduledExecutorService renewer;
+    private volatile boolean leader;
+
+    public SharedSnapshotService(AmazonS3 amazonS3, PricingMetrics metrics,
+                                 @Value("${azure.shared.enabled:false}") boolean enabled,
+                                 @Value("${aws.s3.bucket.name}") String bucketName,
+                                 @Value("${azure.shared.prefix:shared}") String prefix,
+                                 @Value("${azure.shared.poll.seconds:30}") long pollSeconds,
+                                 @Value("${azure.shared.lease.ttl.seconds:120}") long leaseTtlSeconds,
+                                 @Value("${azure.shared.instance.id:}") String instanceId) {
+        if (enabled && leaseTtlSeconds < 3 * pollSeconds) {
+            // The holder gives the lease up after half the TTL, so it must renew well within that
+            throw new IllegalArgumentException("azure.shared.lease.ttl.seconds (" + leaseTtlSeconds
+                    + ") must be at least 3 x azure.shared.poll.seconds (" + pollSeconds + ")");
+        }
+        this.enabled = enabled;
+        this.prefix = prefix;
+        this.metrics = metrics;
+        this.store = new ObjectStore(amazonS3, bucketName);
+        String owner = instanceId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : instanceId;
+        this.lease = new ObjectStoreLease(store, prefix + "/leader.lease.json", owner,
+                Duration.ofSeconds(leaseTtlSeconds));
+        metrics.bindSharedLeader(this::isLeader);
+        if (enabled) {
+            renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "shared-lease-renewer");
+                t.setDaemon(true);
+                return t;
+            });
+            renewer.scheduleWithFixedDelay(this::renewLease, 0, pollSeconds, TimeUnit.SECONDS);
+        } else {
+            renewer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True if this instance should do the shared work (always, when sharing is off)
+     */
+    public boolean isLeader() {
+        return !enabled || lease.isHeld();
+    }
+
+    /**
+     * 🔹 Renew the leader lease, or take it over if its holder let it expire
+     * (every {@code azure.shared.poll.seconds} on the renewer thread)
+     */
+    public void renewLease() {
+        if (!enabled) return;
+        try {
+            lease.tryAcquire();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Could not renew leader lease s3://" + store.getBucket() + "/" + lease.getKey()
+                    + ": " + e.getMessage());
+        }
+        boolean now = lease.isHeld();
+        if (now != leader) {
+            System.out.println(now
+                    ? "👑 " + lease.getOwner() + " is now the leader for shared snapshots"
+                    : "⚠️ " + lease.getOwner() + " lost the leader lease");
+        }
+        leader = now;
+    }
+
+    /**
+     * Current manifest of snapshot {@code name}, or null if nothing was published yet
+     */
+    public ObjectStore.Versioned<SnapshotManifestDTO> latest(String name) throws IOException {
+        return store.read(manifestKey(name), SnapshotManifestDTO.class);
+    }
+
+    /**
+     * 🔹 Publish {@code file} as the version after {@code previous} (the
+     * manifest last read; null for the first). Returns null without
+     * publishing if this instance is not the leader, or if another instance
+     * published in the meantime.
+     */
+    public SnapshotManifestDTO publish(String name, Path file, long rows,
+                                       ObjectStore.Versioned<SnapshotManifestDTO> previous, String sourceUrl,
+                                       String sourceEtag, String sourceLastModified) throws IOException {
+        if (!isLeader()) return null;
+        long start = System.nanoTime();
+        long version = previous != null ? previous.value().getVersion() + 1 : 1;
+
+        SnapshotManifestDTO manifest = new SnapshotManifestDTO();
+        manifest.setName(name);
+        manifest.setVersion(version);
+        // Unique per attempt, so a publish that loses the race never clobbers the winner's object
+        manifest.setSnapshotKey(prefix + "/" + name + "/v" + version + "-" + UUID.randomUUID() + ".snap");
+        manifest.setBytes(Files.size(file));
+        manifest.setSha256(ObjectStore.sha256(file));
+        manifest.setRows(rows);
+        manifest.setSourceUrl(sourceUrl);
+        manifest.setSourceEtag(sourceEtag);
+        manifest.setSourceLastModified(sourceLastModified);
+        manifest.setPreviousSnapshotKey(previous != null ? previous.value().getSnapshotKey() : null);
+        manifest.setPublishedBy(lease.getOwner());
+        manifest.setPublishedAt(Instant.now().toString());
+
+        store.upload(manifest.getSnapshotKey(), file, "application/octet-stream");
+        if (store.putIfMatch(manifestKey(name), manifest, previous != null ? previous.etag() : null) == null) {
+            store.delete(manifest.getSnapshotKey());
+            System.out.println("⚠️ Shared snapshot " + name + " v" + version + " was published by another instance");
+            return null;
+        }
+        // Keep the previous version for instances still pulling it; drop the one before
+        if (previous != null && previous.value().getPreviousSnapshotKey() != null) {
+            store.delete(previous.value().getPreviousSnapshotKey());
+        }
+        metrics.sharedSnapshot(name, "published", manifest.getBytes(), System.nanoTime() - start);
+        System.out.println("📤 Published shared snapshot " + name + " v" + version + " (" + rows + " rows): s3://"
+                + store.getBucket() + "/" + manifest.getSnapshotKey());
+        return manifest;
+    }
+
+    /**
+     * 🔹 Download the snapshot of {@code manifest} to {@code target}, checksum verified
+     */
+    public void pull(SnapshotManifestDTO manifest, Path target) throws IOException {
+        long start = System.nanoTime();
+        store.download(manifest.getSnapshotKey(), target, manifest.getSha256());
+        metrics.sharedSnapshot(manifest.getName(), "pulled", manifest.getBytes(), System.nanoTime() - start);
+        System.out.println("📥 Pulled shared snapshot " + manifest.getName() + " v" + manifest.getVersion()
+                + " (" + manifest.getRows() + " rows, published by " + manifest.getPublishedBy() + ")");
+    }
+
+    private String manifestKey(String name) {
+        return prefix + "/" + name + "/manifest.json";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renewer != null) renewer.shutdownNow();
+        if (enabled) lease.release();
+    }
+}
@@ -0,0 +1,157 @@
+package com.pricing.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Small JSON documents and binary files in one bucket, with the conditional
+ * writes that several instances need to coordinate through it.
+ * <p>
+ * {@link #putIfMatch} sends {@code If-None-Match: *} (create only) or
+ * {@code If-Match: <etag>} (replace only the version that was read), so of
+ * two instances racing on the same object exactly one write succeeds. S3
+ * and S3-compatible stores such as MinIO honour both headers.
+ */
+public final class ObjectStore {
+
+    /**
+     * A document and the ETag of the version it was read from
+     */
+    public record Versioned<T>(T value, String etag) {
+    }
+
+    private final AmazonS3 amazonS3;
+    private final String bucket;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public ObjectStore(AmazonS3 amazonS3, String bucket) {
+        this.amazonS3 = amazonS3;
+        this.bucket = bucket;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    /**
+     * 🔹 Current version of a JSON document, or null if it does not exist
+     */
+    public <T> Versioned<T> read(String key, Class<T> type) throws IOException {
+        try (S3Object object = amazonS3.getObject(bucket, key)) {
+            T value = mapper.readValue(object.getObjectContent(), type);
+            return new Versioned<>(value, object.getObjectMetadata().getETag());
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) return null;
+            throw e;
+        }
+    }
+
+    /**
+     * 🔹 Write a JSON document if it is still at {@code etag} (null: only if
+     * it does not exist yet)
+     *
+     * @return the new ETag, or null when another writer got there first
+     */
+    public String putIfMatch(String key, Object value, String etag) throws IOException {
+        byte[] body = mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(value);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("application/json");
+        metadata.setContentLength(body.length);
+        PutObjectRequest request = new PutObjectRequest(bucket, key, new ByteArrayInputStream(body), metadata);
+        if (etag == null) {
+            request.putCustomRequestHeader("If-None-Match", "*");
+        } else {
+            request.putCustomRequestHeader("If-Match", quote(etag));
+        }
+        try {
+            return amazonS3.putObject(request).getETag();
+        } catch (AmazonS3Exception e) {
+            // 412: precondition failed; 409: a concurrent conditional write to the same key
+            if (e.getStatusCode() == 412 || e.getStatusCode() == 409) return null;
+            throw e;
+        }
+    }
+
+    /**
+     * Upload a file as-is
+     */
+    public void upload(String key, Path file, String contentType) throws IOException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        metadata.setContentLength(Files.size(file));
+        try (InputStream in = Files.newInputStream(file)) {
+            amazonS3.putObject(bucket, key, in, metadata);
+        }
+    }
+
+    /**
+     * 🔹 Download an object to {@code target} (temp file + atomic move); the
+     * target is left alone unless the bytes hash to {@code expectedSha256}
+     */
+    public void download(String key, Path target, String expectedSha256) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try (S3Object object = amazonS3.getObject(bucket, key);
+             DigestInputStream in = new DigestInputStream(object.getObjectContent(), sha256())) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            String digest = HexFormat.of().formatHex(in.getMessageDigest().digest());
+            if (!digest.equals(expectedSha256)) {
+                throw new IOException("Checksum mismatch for s3://" + bucket + "/" + key + ": " + digest);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Best effort; a failed delete only leaves garbage behind
+     */
+    public void delete(String key) {
+        try {
+            amazonS3.deleteObject(bucket, key);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Failed to delete s3://" + bucket + "/" + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hex SHA-256 of a local file
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String quote(String etag) {
+        return etag.startsWith("\"") ? etag : "\"" + etag + "\"";
+    }
+}
@@ -0,0 +1,89 @@
+package com.pricing.storage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+import com.pricing.model.LeaseDTO;
+
+/**
+ * Lease kept as a JSON object in a shared bucket, so that only one of
+ * several instances does a given piece of work.
+ * <p>
+ * Acquiring, renewing, taking over an expired lease and releasing it are
+ * all conditional writes against the version just read (see
+ * {@link ObjectStore#putIfMatch}), so two instances can never both win.
+ * The holder counts the lease from before its write and gives it up after
+ * half the TTL unless renewed, which leaves the other half for clock skew
+ * between instances and for a slow request.
+ */
+public final class ObjectStoreLease {
+
+    private final ObjectStore store;
+    private final String key;
+    private final String owner;
+    private final Duration ttl;
+    private volatile long heldUntilNanos;
+    private volatile boolean held;
+
+    public ObjectStoreLease(ObjectStore store, String key, String owner, Duration ttl) {
+        this.store = store;
+        this.key = key;
+        this.owner = owner;
+        this.ttl = ttl;
+    }
+
+    /**
+     * 🔹 Acquire the lease, renew it if already held, or take it over once
+     * the previous holder let it expire
+     *
+     * @return true if this instance holds the lease now
+     */
+    public synchronized boolean tryAcquire() throws IOException {
+        long start = System.nanoTime();
+        ObjectStore.Versioned<LeaseDTO> current = store.read(key, LeaseDTO.class);
+
+        if (current != null && !owner.equals(current.value().getOwner())
+                && current.value().getExpiresAt() > System.currentTimeMillis()) {
+            held = false;
+            return false;
+        }
+        Instant now = Instant.now();
+        LeaseDTO lease = new LeaseDTO(owner, now.toString(), now.plus(ttl).toEpochMilli());
+        String etag = store.putIfMatch(key, lease, current != null ? current.etag() : null);
+        held = etag != null;
+        heldUntilNanos = start + ttl.toNanos() / 2;
+        return held;
+    }
+
+    /**
+     * True while the last successful acquire or renewal is recent enough
+     */
+    public boolean isHeld() {
+        return held && System.nanoTime() - heldUntilNanos < 0;
+    }
+
+    /**
+     * Give the lease up early so another instance can take it right away
+     */
+    public synchronized void release() {
+        if (!isHeld()) return;
+        held = false;
+        try {
+            ObjectStore.Versioned<LeaseDTO> current = store.read(key, LeaseDTO.class);
+            if (current != null && owner.equals(current.value().getOwner())) {
+                store.putIfMatch(key, new LeaseDTO(owner, current.value().getAcquiredAt(), 0), current.etag());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("⚠️ Failed to release lease " + key + ": " + e.getMessage());
+        }
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,284 @@
+package com.pricing.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.pricing.metrics.PricingMetrics;
+
+/**
+ * OutputStream that uploads straight into an S3 object without a temp file.
+ * <p>
+ * Bytes are collected into part-sized buffers; every full buffer is sent as
+ * a multipart part on the executor while the producer keeps writing. At most
+ * {@code maxInFlight} parts are buffered or uploading at once, which bounds
+ * memory to roughly {@code (maxInFlight + 1) * partSize}. Objects smaller
+ * than one part are sent with a single putObject.
+ * <p>
+ * The object only becomes visible after {@link #commit()}. Closing without a
+ * commit (e.g. because the producer failed) aborts the upload, unless it was
+ * {@linkplain #detach() detached} to be resumed by a later run from the
+ * parts recorded at the last {@link #cut()}.
+ */
+public class S3MultipartOutputStream extends OutputStream {
+
+    /**
+     * S3's minimum size for every part but the last
+     */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final AmazonS3 amazonS3;
+    private final ExecutorService executor;
+    private final String bucket;
+    private final String key;
+    private final ObjectMetadata objectMetadata;
+    private final int partSize;
+    private final Semaphore inFlight;
+    private final PricingMetrics metrics;
+
+    private final List<Future<PartETag>> parts = new ArrayList<>();
+    private byte[] buffer;
+    private int position;
+    private long bytesWritten;
+    private long uploadWaitNanos;
+    private String uploadId;
+    private boolean committed;
+    private boolean closed;
+
+    public S3MultipartOutputStream(AmazonS3 amazonS3, ExecutorService executor, String bucket, String key,
+                                   ObjectMetadata objectMetadata, int partSize, int maxInFlight, PricingMetrics metrics) {
+        this.amazonS3 = amazonS3;
+        this.executor = executor;
+        this.bucket = bucket;
+        this.key = key;
+        this.objectMetadata = objectMetadata;
+        this.partSize = partSize;
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.metrics = metrics;
+        this.buffer = new byte[partSize];
+    }
+
+    /**
+     * Continue a multipart upload started by an earlier run; {@code uploaded}
+     * are its parts in order and {@code bytes} their total size
+     */
+    public S3MultipartOutputStream(AmazonS3 amazonS3, ExecutorService executor, String bucket, String key,
+                                   ObjectMetadata objectMetadata, int partSize, int maxInFlight, PricingMetrics metrics,
+                                   String uploadId, List<PartETag> uploaded, long bytes) {
+        this(amazonS3, executor, bucket, key, objectMetadata, partSize, maxInFlight, metrics);
+        this.uploadId = uploadId;
+        for (PartETag part : uploaded) {
+            parts.add(CompletableFuture.completedFuture(part));
+        }
+        this.bytesWritten = bytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[position++] = (byte) b;
+        if (position == partSize) {
+            flushPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, partSize - position);
+            System.arraycopy(b, off, buffer, position, n);
+            position += n;
+            off += n;
+            len -= n;
+            if (position == partSize) {
+                flushPart();
+            }
+        }
+    }
+
+    /**
+     * Upload whatever is left and make the object visible.
+     *
+     * @return total object size in bytes
+     */
+    public long commit() throws IOException {
+        ensureOpen();
+        long start = System.nanoTime();
+        try {
+            if (uploadId == null) {
+                ObjectMetadata metadata = metadata();
+                metadata.setContentLength(position);
+                amazonS3.putObject(bucket, key, new ByteArrayInputStream(buffer, 0, position), metadata);
+            } else {
+                if (position > 0) {
+                    flushPart();
+                }
+                List<PartETag> etags = new ArrayList<>(parts.size());
+                for (Future<PartETag> part : parts) {
+                    etags.add(await(part));
+                }
+                etags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+                amazonS3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, etags));
+            }
+            bytesWritten += position;
+            metrics.s3Committed(position, System.nanoTime() - start, uploadId != null);
+            position = 0;
+            committed = true;
+            return bytesWritten;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        } finally {
+            buffer = null;
+            closed = true;
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten + position;
+    }
+
+    /**
+     * True once enough is buffered for {@link #cut()}
+     */
+    public boolean canCut() {
+        return position >= MIN_PART_SIZE;
+    }
+
+    /**
+     * 🔹 Upload the buffered bytes as a part now, at a boundary chosen by the
+     * caller (e.g. the end of a page), and wait for every part so far.
+     *
+     * @return every uploaded part in order; together they hold exactly {@link #getBytesWritten()} bytes
+     */
+    public List<PartETag> cut() throws IOException {
+        ensureOpen();
+        if (!canCut()) throw new IllegalStateException("Only " + position + " bytes buffered, S3 parts need "
+                + MIN_PART_SIZE);
+        flushPart();
+        List<PartETag> etags = new ArrayList<>(parts.size());
+        for (Future<PartETag> part : parts) {
+            etags.add(await(part));
+        }
+        return etags;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    /**
+     * Close without aborting: uploaded parts stay in S3 for a later run to resume
+     */
+    public void detach() {
+        closed = true;
+        buffer = null;
+    }
+
+    /**
+     * Time the producer spent blocked waiting for a free upload slot
+     */
+    public long getUploadWaitNanos() {
+        return uploadWaitNanos;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        buffer = null;
+        if (!committed) {
+            abort();
+        }
+    }
+
+    private void flushPart() throws IOException {
+        if (uploadId == null) {
+            uploadId = amazonS3.initiateMultipartUpload(
+                    new InitiateMultipartUploadRequest(bucket, key, metadata())).getUploadId();
+        }
+        long waitStart = System.nanoTime();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        }
+        uploadWaitNanos += System.nanoTime() - waitStart;
+
+        byte[] data = buffer;
+        int length = position;
+        int partNumber = parts.size() + 1;
+        UploadPartRequest request = new UploadPartRequest()
+                .withBucketName(bucket)
+                .withKey(key)
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withPartSize(length)
+                .withInputStream(new ByteArrayInputStream(data, 0, length));
+        parts.add(executor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                PartETag etag = amazonS3.uploadPart(request).getPartETag();
+                metrics.s3PartUploaded(length, System.nanoTime() - start);
+                return etag;
+            } finally {
+                inFlight.release();
+            }
+        }));
+
+        bytesWritten += length;
+        buffer = new byte[partSize];
+        position = 0;
+    }
+
+    private void abort() {
+        parts.forEach(p -> p.cancel(true));
+        if (uploadId != null) {
+            try {
+                amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Failed to abort multipart upload " + uploadId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fresh copy of the caller's metadata (content type, encoding, user metadata) per request
+     */
+    private ObjectMetadata metadata() {
+        return objectMetadata.clone();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Upload stream already closed: s3://" + bucket + "/" + key);
+    }
+
+    private static PartETag await(Future<PartETag> part) throws IOException {
+        try {
+            return part.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Part upload failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.pricing.transform;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.pricing.config.DerivedColumnProperties;
+import com.pricing.export.ExportSchema;
+import com.pricing.export.RecordWriter;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * Builds the processed sheet's column layout: the base price columns plus
+ * config-defined derived columns. Every rule's patterns are compiled once,
+ * and because a full catalog has only a few thousand distinct product and
+ * SKU names, each rule memoizes its result per distinct input string.
+ */
+public class DerivedColumnEngine {
+
+    private static final int MAX_MEMO_ENTRIES = 100_000;
+    private static final Function<AzurePriceDTO, String> PRICE = dto -> String.valueOf(dto.getRetailPrice());
+
+    private static final Map<String, Function<AzurePriceDTO, String>> BASE_COLUMNS = new LinkedHashMap<>();
+    private static final Map<String, Function<AzurePriceDTO, String>> SOURCES = Map.ofEntries(
+            Map.entry("meterId", AzurePriceDTO::getMeterId),
+            Map.entry("productName", AzurePriceDTO::getProductName),
+            Map.entry("skuName", AzurePriceDTO::getSkuName),
+            Map.entry("skuId", AzurePriceDTO::getSkuId),
+            Map.entry("armRegionName", AzurePriceDTO::getArmRegionName),
+            Map.entry("location", AzurePriceDTO::getLocation),
+            Map.entry("currencyCode", AzurePriceDTO::getCurrencyCode),
+            Map.entry("serviceFamily", AzurePriceDTO::getServiceFamily),
+            Map.entry("unitOfMeasure", AzurePriceDTO::getUnitOfMeasure),
+            Map.entry("effectiveStartDate", AzurePriceDTO::getEffectiveStartDate),
+            Map.entry("type", AzurePriceDTO::getType),
+            Map.entry("reservationTerm", AzurePriceDTO::getReservationTerm));
+
+    static {
+        BASE_COLUMNS.put("MeterId", AzurePriceDTO::getMeterId);
+        BASE_COLUMNS.put("ProductName", AzurePriceDTO::getProductName);
+        BASE_COLUMNS.put("SKU", AzurePriceDTO::getSkuName);
+        BASE_COLUMNS.put("Region", AzurePriceDTO::getArmRegionName);
+        BASE_COLUMNS.put("Location", AzurePriceDTO::getLocation);
+        BASE_COLUMNS.put("Price", PRICE);
+        BASE_COLUMNS.put("Currency", AzurePriceDTO::getCurrencyCode);
+        BASE_COLUMNS.put("ServiceFamily", AzurePriceDTO::getServiceFamily);
+        BASE_COLUMNS.put("Unit", AzurePriceDTO::getUnitOfMeasure);
+        BASE_COLUMNS.put("EffectiveDate", AzurePriceDTO::getEffectiveStartDate);
+        BASE_COLUMNS.put("Type", AzurePriceDTO::getType);
+        BASE_COLUMNS.put("ReservationTerm", AzurePriceDTO::getReservationTerm);
+    }
+
+    private final List<String> header = new ArrayList<>();
+    private final List<Function<AzurePriceDTO, String>> columns = new ArrayList<>();
+    private final int priceColumn;
+    private final ExportSchema schema;
+
+    public DerivedColumnEngine(List<DerivedColumnProperties.Rule> rules) {
+        List<String> names = new ArrayList<>(BASE_COLUMNS.keySet());
+        List<Function<AzurePriceDTO, String>> values = new ArrayList<>(BASE_COLUMNS.values());
+
+        for (DerivedColumnProperties.Rule rule : rules) {
+            CompiledRule compiled = new CompiledRule(rule);
+            int at = (rule.getAfter() == null || rule.getAfter().isBlank())
+                    ? names.size() : names.indexOf(rule.getAfter()) + 1;
+            if (at == 0) {
+                throw new IllegalArgumentException("Derived column '" + rule.getName()
+                        + "' is placed after unknown column '" + rule.getAfter() + "'");
+            }
+            names.add(at, rule.getName());
+            values.add(at, compiled::apply);
+        }
+        header.addAll(names);
+        columns.addAll(values);
+        priceColumn = values.indexOf(PRICE);
+
+        List<ExportSchema.Column> typed = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            typed.add(i == priceColumn ? ExportSchema.number(names.get(i)) : ExportSchema.string(names.get(i)));
+        }
+        schema = ExportSchema.of("azure_price_processed", typed);
+    }
+
+    public List<String> getHeader() {
+        return header;
+    }
+
+    public int width() {
+        return columns.size();
+    }
+
+    /**
+     * Header as a typed schema: Price is numeric, everything else text
+     */
+    public ExportSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Fill {@code out} (length {@link #width()}) with the row's values in header order
+     */
+    public void fill(AzurePriceDTO dto, String[] out) {
+        for (int i = 0; i < out.length; i++) {
+            out[i] = columns.get(i).apply(dto);
+        }
+    }
+
+    /**
+     * 🔹 Write values produced by {@link #fill} for {@code dto}; Price goes out as a number
+     */
+    public void write(AzurePriceDTO dto, String[] values, RecordWriter out) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i == priceColumn) {
+                out.number(dto.getRetailPrice());
+            } else {
+                out.string(values[i]);
+            }
+        }
+        out.endRow();
+    }
+
+    /**
+     * One derived column: compiled patterns plus a per-input memo.
+     */
+    private static final class CompiledRule {
+
+        private final Function<AzurePriceDTO, String> source;
+        private final Pattern[] patterns;
+        private final boolean upperCase;
+        private final Map<String, String> memo = new ConcurrentHashMap<>();
+
+        CompiledRule(DerivedColumnProperties.Rule rule) {
+            this.source = SOURCES.get(rule.getSource());
+            if (source == null) {
+                throw new IllegalArgumentException("Derived column '" + rule.getName()
+                        + "' has unknown source field '" + rule.getSource() + "'");
+            }
+            this.patterns = rule.getPatterns().stream().map(Pattern::compile).toArray(Pattern[]::new);
+            this.upperCase = rule.isUpperCase();
+        }
+
+        String apply(AzurePriceDTO dto) {
+            String input = source.apply(dto);
+            if (input == null) return "";
+            String cached = memo.get(input);
+            if (cached != null) return cached;
+
+            String value = extract(input);
+            if (memo.size() < MAX_MEMO_ENTRIES) {
+                memo.put(input, value);
+            }
+            return value;
+        }
+
+        private String extract(String input) {
+            for (Pattern p : patterns) {
+                Matcher m = p.matcher(input);
+                if (m.find()) {
+                    String v = m.groupCount() > 0 ? m.group(1) : m.group();
+                    if (v == null) return "";
+                    v = v.trim();
+                    return upperCase ? v.toUpperCase(Locale.ROOT) : v;
+                }
+            }
+            return "";
+        }
+    }
+}
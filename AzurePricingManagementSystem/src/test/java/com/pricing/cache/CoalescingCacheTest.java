@@ -0,0 +1,148 @@
+package com.pricing.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class CoalescingCacheTest {
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CoalescingCache<String, Object> cache = new CoalescingCache<>(10, 1, TimeUnit.MINUTES);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object value = new Object();
+        int callers = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> cache.get("Storage", k -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return value;
+                })));
+            }
+            // Every caller but the loader must be parked on the running load before it finishes
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (cache.stats().coalesced() < callers - 1 && System.nanoTime() < deadline) Thread.sleep(5);
+            release.countDown();
+
+            for (Future<Object> result : results) assertSame(value, result.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        CoalescingCache.Stats stats = cache.stats();
+        assertEquals(1, stats.misses());
+        assertEquals(callers - 1, stats.coalesced());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(2, 1, TimeUnit.MINUTES);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", k -> load(loads, k));
+        cache.get("b", k -> load(loads, k));
+        cache.get("a", k -> load(loads, k)); // a is now the most recently used
+        cache.get("c", k -> load(loads, k)); // evicts b
+        assertEquals(3, loads.get());
+
+        cache.get("a", k -> load(loads, k));
+        assertEquals(3, loads.get());
+        cache.get("b", k -> load(loads, k));
+        assertEquals(4, loads.get());
+
+        CoalescingCache.Stats stats = cache.stats();
+        assertEquals(2, stats.evictions());
+        assertEquals(2, stats.size());
+        assertEquals(2, stats.hits());
+    }
+
+    @Test
+    void failedLoadIsNotCachedAndReachesWaitingCallers() throws Exception {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(10, 1, TimeUnit.MINUTES);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> loader = pool.submit(() -> cache.get("Broken", k -> {
+                await(release);
+                throw new IllegalStateException("API down");
+            }));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            List<Throwable> seen = new ArrayList<>();
+            Thread waiter = new Thread(() -> {
+                try {
+                    cache.get("Broken", k -> "never loaded twice at once");
+                } catch (RuntimeException e) {
+                    seen.add(e);
+                }
+            });
+            // Only start the waiter once the first load holds the key
+            while (cache.stats().misses() == 0 && System.nanoTime() < deadline) Thread.sleep(5);
+            waiter.start();
+            while (cache.stats().coalesced() == 0 && System.nanoTime() < deadline) Thread.sleep(5);
+            release.countDown();
+            waiter.join(5000);
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> loader.get(5, TimeUnit.SECONDS));
+            assertEquals("API down", e.getCause().getMessage());
+            assertEquals(1, seen.size());
+            assertEquals("API down", seen.get(0).getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals("ok", cache.get("Broken", k -> "ok"));
+        assertEquals(2, cache.stats().misses());
+    }
+
+    @Test
+    void expiredAndInvalidatedEntriesAreLoadedAgain() throws InterruptedException {
+        CoalescingCache<String, String> cache = new CoalescingCache<>(10, 20, TimeUnit.MILLISECONDS);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", k -> load(loads, k));
+        Thread.sleep(40);
+        cache.get("a", k -> load(loads, k));
+        assertEquals(2, loads.get());
+
+        CoalescingCache<String, String> longLived = new CoalescingCache<>(10, 1, TimeUnit.MINUTES);
+        longLived.get("a", k -> load(loads, k));
+        longLived.invalidateAll();
+        assertEquals(0, longLived.stats().size());
+        longLived.get("a", k -> load(loads, k));
+        assertEquals(4, loads.get());
+    }
+
+    private static String load(AtomicInteger loads, String key) {
+        loads.incrementAndGet();
+        return key.toUpperCase();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("Test latch timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
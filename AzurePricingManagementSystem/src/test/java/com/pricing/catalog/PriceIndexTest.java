@@ -0,0 +1,199 @@
+package com.pricing.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pricing.model.AzurePriceDTO;
+
+class PriceIndexTest {
+
+    private static final int ROWS = 400;
+    private static final String[] PRODUCTS = {"Alpha", "beta", "Gamma", "alpha", "delta"};
+    private static final String[] REGIONS = {"eastus", "westus", "EastUS", "northeurope"};
+
+    private List<AzurePriceDTO> rows;
+    private PriceCatalog catalog;
+
+    @BeforeEach
+    void build() {
+        rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            AzurePriceDTO dto = new AzurePriceDTO();
+            dto.setMeterId("m-" + i);
+            dto.setProductName(PRODUCTS[(i / 3) % PRODUCTS.length]);
+            dto.setArmRegionName(REGIONS[i % REGIONS.length]);
+            // every 13th row has no SKU, five scattered rows share a rare one
+            dto.setSkuName(i % 13 == 0 ? null : i % 80 == 79 ? "Rare" : "sku-" + (i % 9));
+            // few distinct prices, so most pages end in the middle of a tie
+            dto.setRetailPrice((i * 7 % 11) * 0.5);
+            dto.setCurrencyCode("USD");
+            dto.setType("Consumption");
+            dto.setUnitOfMeasure("1 Hour");
+            rows.add(dto);
+        }
+        catalog = PriceCatalog.build(1, "test", rows);
+        for (int i = 0; i < ROWS; i++) assertEquals("m-" + i, catalog.getTable().meterId(i));
+    }
+
+    @Test
+    void catalogOrderPagesResumeAfterTheCursor() {
+        assertPaging(Map.of(), null, null, PriceQuery.Sort.CATALOG, false);
+        assertPaging(Map.of(PriceQuery.Field.REGION, List.of("EASTUS")), null, null, PriceQuery.Sort.CATALOG, false);
+        assertPaging(Map.of(PriceQuery.Field.PRODUCT, List.of("alpha", "Gamma")), 1.0, 3.5,
+                PriceQuery.Sort.CATALOG, false);
+    }
+
+    @Test
+    void pricePagesKeepTiesInRowOrderAcrossPageBoundaries() {
+        for (boolean descending : new boolean[] {false, true}) {
+            assertPaging(Map.of(), null, null, PriceQuery.Sort.PRICE, descending);
+            assertPaging(Map.of(), 1.0, 4.0, PriceQuery.Sort.PRICE, descending);
+            assertPaging(Map.of(PriceQuery.Field.REGION, List.of("westus")), null, 2.5,
+                    PriceQuery.Sort.PRICE, descending);
+            // Five scattered matches: the walk over the price order gives up and the heap takes over
+            assertPaging(Map.of(PriceQuery.Field.SKU, List.of("rare")), null, null, PriceQuery.Sort.PRICE, descending);
+        }
+    }
+
+    @Test
+    void namePagesWalkValuesAlphabeticallyIgnoringCase() {
+        for (boolean descending : new boolean[] {false, true}) {
+            assertPaging(Map.of(), null, null, PriceQuery.Sort.PRODUCT, descending);
+            assertPaging(Map.of(), null, null, PriceQuery.Sort.REGION, descending);
+            assertPaging(Map.of(PriceQuery.Field.REGION, List.of("eastus")), 0.5, 4.5,
+                    PriceQuery.Sort.PRODUCT, descending);
+            assertPaging(Map.of(PriceQuery.Field.SKU, List.of("Rare")), null, null,
+                    PriceQuery.Sort.REGION, descending);
+        }
+    }
+
+    @Test
+    void rowsWithoutAValueSortFirstAscendingAndLastDescending() {
+        for (boolean descending : new boolean[] {false, true}) {
+            assertPaging(Map.of(), null, null, PriceQuery.Sort.SKU, descending);
+            assertPaging(Map.of(PriceQuery.Field.PRODUCT, List.of("beta")), null, 3.0, PriceQuery.Sort.SKU,
+                    descending);
+        }
+        List<Integer> ascending = page(Map.of(), null, null, PriceQuery.Sort.SKU, false, 3);
+        assertTrue(ascending.stream().allMatch(i -> rows.get(i).getSkuName() == null), ascending.toString());
+        List<Integer> descending = walk(Map.of(), null, null, PriceQuery.Sort.SKU, true, 7);
+        assertEquals(0, descending.get(descending.size() - 1).intValue());
+    }
+
+    @Test
+    void filtersMatchingNothingReturnAnEmptyPage() {
+        PriceQuery.Page page = catalog.query(query(Map.of(PriceQuery.Field.REGION, List.of("mars")), null, null,
+                PriceQuery.Sort.PRICE, false, 10, -1));
+
+        assertEquals(0, page.total());
+        assertTrue(page.prices().isEmpty());
+        assertFalse(page.hasMore());
+        assertEquals(0, catalog.query(query(Map.of(), 100.0, null, PriceQuery.Sort.PRODUCT, false, 10, -1)).total());
+    }
+
+    /**
+     * Page through the query at several page sizes and compare with a plain
+     * sort of the matching rows, and with the unpaged walk the export uses
+     */
+    private void assertPaging(Map<PriceQuery.Field, List<String>> filters, Double min, Double max,
+                              PriceQuery.Sort sort, boolean descending) {
+        List<Integer> expected = expected(filters, min, max, sort, descending);
+        String label = sort + (descending ? " desc " : " asc ") + filters + " [" + min + ", " + max + "]";
+        for (int limit : new int[] {1, 7, 50, 1000}) {
+            assertEquals(expected, walk(filters, min, max, sort, descending, limit), label + ", limit " + limit);
+        }
+        List<Integer> unpaged = new ArrayList<>();
+        catalog.forEach(query(filters, min, max, sort, descending, 0, -1), unpaged::add);
+        assertEquals(expected, unpaged, label + ", forEach");
+    }
+
+    private List<Integer> walk(Map<PriceQuery.Field, List<String>> filters, Double min, Double max,
+                               PriceQuery.Sort sort, boolean descending, int limit) {
+        long total = expected(filters, min, max, sort, descending).size();
+        List<Integer> seen = new ArrayList<>();
+        int after = -1;
+        for (int pages = 0; pages <= ROWS; pages++) {
+            PriceQuery.Page page = catalog.query(query(filters, min, max, sort, descending, limit, after));
+            assertEquals(total, page.total());
+            assertTrue(page.prices().size() <= limit);
+            page.prices().forEach(p -> seen.add(Integer.parseInt(p.getMeterId().substring(2))));
+            if (!page.hasMore()) {
+                assertEquals(seen.size(), new HashSet<>(seen).size(), "a row was returned twice");
+                return seen;
+            }
+            assertEquals(limit, page.prices().size());
+            assertEquals(seen.get(seen.size() - 1).intValue(), page.lastRow());
+            after = page.lastRow();
+        }
+        throw new AssertionError("paging did not terminate");
+    }
+
+    private List<Integer> page(Map<PriceQuery.Field, List<String>> filters, Double min, Double max,
+                               PriceQuery.Sort sort, boolean descending, int limit) {
+        return catalog.query(query(filters, min, max, sort, descending, limit, -1)).prices().stream()
+                .map(p -> Integer.parseInt(p.getMeterId().substring(2)))
+                .toList();
+    }
+
+    private static PriceQuery query(Map<PriceQuery.Field, List<String>> filters, Double min, Double max,
+                                    PriceQuery.Sort sort, boolean descending, int limit, int after) {
+        Map<PriceQuery.Field, List<String>> copy = new EnumMap<>(PriceQuery.Field.class);
+        copy.putAll(filters);
+        return new PriceQuery(copy, min, max, sort, descending, limit, after);
+    }
+
+    /**
+     * Reference result: filter every row, then sort by (key, row id), reversed when descending
+     */
+    private List<Integer> expected(Map<PriceQuery.Field, List<String>> filters, Double min, Double max,
+                                   PriceQuery.Sort sort, boolean descending) {
+        Predicate<Integer> matches = i -> {
+            AzurePriceDTO row = rows.get(i);
+            if (min != null && row.getRetailPrice() < min) return false;
+            if (max != null && row.getRetailPrice() > max) return false;
+            for (Map.Entry<PriceQuery.Field, List<String>> filter : filters.entrySet()) {
+                String value = value(row, filter.getKey());
+                if (filter.getValue().stream().noneMatch(v -> v.equalsIgnoreCase(value))) return false;
+            }
+            return true;
+        };
+        Comparator<Integer> order = switch (sort) {
+            case CATALOG -> Comparator.naturalOrder();
+            case PRICE -> Comparator.comparingDouble((Integer i) -> rows.get(i).getRetailPrice())
+                    .thenComparing(Comparator.naturalOrder());
+            default -> byName(i -> value(rows.get(i), sort.field)).thenComparing(Comparator.naturalOrder());
+        };
+        if (descending && sort != PriceQuery.Sort.CATALOG) order = order.reversed();
+        return IntStream.range(0, ROWS).boxed().filter(matches).sorted(order).toList();
+    }
+
+    private static Comparator<Integer> byName(Function<Integer, String> value) {
+        Comparator<String> names = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+        return Comparator.comparing(value, Comparator.nullsFirst(names));
+    }
+
+    private static String value(AzurePriceDTO row, PriceQuery.Field field) {
+        return switch (field) {
+            case SERVICE_FAMILY -> row.getServiceFamily();
+            case PRODUCT -> row.getProductName();
+            case SKU -> row.getSkuName();
+            case REGION -> row.getArmRegionName();
+            case TYPE -> row.getType();
+            case UNIT -> row.getUnitOfMeasure();
+        };
+    }
+}
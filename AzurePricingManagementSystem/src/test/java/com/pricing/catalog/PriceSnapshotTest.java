@@ -0,0 +1,81 @@
+package com.pricing.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.pricing.model.AzurePriceDTO;
+
+class PriceSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void rowsSurviveAWriteAndMapRoundTrip() throws IOException {
+        List<AzurePriceDTO> rows = List.of(
+                row("m-1", "DZH318Z0BQ4L/0001", "Virtual Machines", 0.25, null),
+                row(null, null, "Virtual Machines", 1.5, "1 Year"),
+                row("m-ü-3", "sku-é", "Storage", 0, "3 Years"),
+                row("", "", null, 7.75, null));
+        Path file = dir.resolve("prices.bin");
+
+        PriceSnapshot.write(file, rows);
+        PriceSnapshot snapshot = PriceSnapshot.open(file);
+
+        assertEquals(rows.size(), snapshot.size());
+        for (int i = 0; i < rows.size(); i++) {
+            AzurePriceDTO expected = rows.get(i);
+            AzurePriceDTO read = new AzurePriceDTO();
+            snapshot.readInto(i, read);
+            assertEquals(expected.getMeterId(), read.getMeterId(), "meterId of row " + i);
+            assertEquals(expected.getSkuId(), read.getSkuId(), "skuId of row " + i);
+            assertEquals(expected.getProductName(), read.getProductName(), "productName of row " + i);
+            assertEquals(expected.getReservationTerm(), read.getReservationTerm(), "reservationTerm of row " + i);
+            assertEquals(expected.getRetailPrice(), read.getRetailPrice(), 0.0);
+            assertEquals(expected.getMeterId(), snapshot.meterId(i));
+        }
+        assertNull(snapshot.meterId(1));
+    }
+
+    @Test
+    void meterAndSkuIdsAreKeptPerRowThroughConcat() {
+        PriceTable first = PriceTable.of(List.of(row("m-1", "s-1", "A", 1, null), row("m-2", "s-2", "A", 2, null)));
+        PriceTable second = PriceTable.of(List.of(row("m-3", null, "B", 3, "1 Year"), row("m-1", "s-1", "A", 4, null)));
+
+        PriceTable table = PriceTable.concat(List.of(first, second));
+
+        assertEquals(4, table.size());
+        assertEquals(List.of("m-1", "m-2", "m-3", "m-1"), List.of(table.meterIds()));
+        assertEquals("s-2", table.skuIds()[1]);
+        assertNull(table.skuIds()[2]);
+        // only the repeated columns carry a dictionary
+        assertEquals(2, table.dictionary(PriceTable.PRODUCT_NAME).length);
+        assertEquals(PriceTable.STRING_COLUMNS.size(), PriceTable.RESERVATION_TERM + 1);
+    }
+
+    private static AzurePriceDTO row(String meterId, String skuId, String product, double price, String term) {
+        AzurePriceDTO dto = new AzurePriceDTO();
+        dto.setMeterId(meterId);
+        dto.setSkuId(skuId);
+        dto.setProductName(product);
+        dto.setSkuName("D2s v5");
+        dto.setArmRegionName("eastus");
+        dto.setLocation("US East");
+        dto.setRetailPrice(price);
+        dto.setCurrencyCode("USD");
+        dto.setServiceFamily("Compute");
+        dto.setUnitOfMeasure("1 Hour");
+        dto.setEffectiveStartDate("2024-01-01T00:00:00Z");
+        dto.setType(term == null ? "Consumption" : "Reservation");
+        dto.setTierMinimumUnits(0);
+        dto.setReservationTerm(term);
+        return dto;
+    }
+}
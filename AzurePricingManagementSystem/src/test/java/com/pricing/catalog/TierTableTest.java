@@ -0,0 +1,91 @@
+package com.pricing.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.pricing.model.AzurePriceDTO;
+
+class TierTableTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    void flatMeterCostsPriceTimesQuantity() {
+        TierTable table = table(tier(0, 0.25, "2024-01-01"));
+
+        assertEquals(0.0, table.cost(0), EPSILON);
+        assertEquals(2.5, table.cost(10), EPSILON);
+        assertEquals(0.125, table.cost(0.5), EPSILON);
+        assertEquals(1, table.tierCount());
+    }
+
+    @Test
+    void quantitiesAreChargedCumulativelyAcrossTiers() {
+        // first 5 units free, then 0.10 up to 100, then 0.08 (rows deliberately out of order)
+        TierTable table = table(tier(100, 0.08, "2024-01-01"), tier(0, 0, "2024-01-01"), tier(5, 0.10, "2024-01-01"));
+
+        assertEquals(3, table.tierCount());
+        assertEquals(0.0, table.cost(3), EPSILON);
+        assertEquals(0.0, table.cost(5), EPSILON);
+        assertEquals(4.5, table.cost(50), EPSILON);
+        assertEquals(9.5, table.cost(100), EPSILON);
+        assertEquals(21.5, table.cost(250), EPSILON);
+        assertEquals(0.0, table.priceAt(4.99), EPSILON);
+        assertEquals(0.10, table.priceAt(5), EPSILON);
+        assertEquals(0.10, table.priceAt(99.5), EPSILON);
+        assertEquals(0.08, table.priceAt(100), EPSILON);
+    }
+
+    @Test
+    void quantityBelowTheFirstTierIsFree() {
+        TierTable table = table(tier(1, 2.0, "2024-01-01"), tier(10, 1.0, "2024-01-01"));
+
+        assertEquals(0.0, table.cost(0.5), EPSILON);
+        assertEquals(0.0, table.priceAt(0.5), EPSILON);
+        assertEquals(18.0 + 5.0, table.cost(15), EPSILON);
+    }
+
+    @Test
+    void latestEffectiveDateWinsForTheSameTierStart() {
+        TierTable table = table(tier(0, 1.0, "2024-03-01"), tier(0, 1.5, "2023-01-01"), tier(10, 0.5, "2024-03-01"));
+
+        assertEquals(2, table.tierCount());
+        assertEquals(10.0 + 5 * 0.5, table.cost(15), EPSILON);
+    }
+
+    @Test
+    void meterIsReportedByItsFirstPaidTier() {
+        TierTable table = table(tier(0, 0, "2024-01-01"), tier(5, 0.10, "2024-01-01"));
+
+        assertTrue(table.isBillable());
+        assertEquals(0.10, table.getMeter().getRetailPrice(), EPSILON);
+        assertEquals("meter-1", table.getMeterId());
+        assertFalse(table(tier(0, 0, "2024-01-01")).isBillable());
+    }
+
+    private static TierTable table(AzurePriceDTO... tiers) {
+        PriceTable rows = PriceTable.of(List.of(tiers));
+        int[] ids = new int[rows.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = i;
+        return TierTable.of(rows, ids);
+    }
+
+    private static AzurePriceDTO tier(int minimumUnits, double price, String effectiveDate) {
+        AzurePriceDTO dto = new AzurePriceDTO();
+        dto.setMeterId("meter-1");
+        dto.setProductName("Bandwidth");
+        dto.setArmRegionName("eastus");
+        dto.setCurrencyCode("USD");
+        dto.setUnitOfMeasure("1 GB");
+        dto.setType("Consumption");
+        dto.setTierMinimumUnits(minimumUnits);
+        dto.setRetailPrice(price);
+        dto.setEffectiveStartDate(effectiveDate);
+        return dto;
+    }
+}
@@ -0,0 +1,127 @@
+package com.pricing.delta;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.pricing.model.AzurePriceDTO;
+
+class SnapshotFingerprintTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reservationTermsAndDevTestRowsOfOneMeterHaveTheirOwnKeys() {
+        AzurePriceDTO oneYear = row("Reservation", "1 Year", 621.0);
+        AzurePriceDTO threeYears = row("Reservation", "3 Years", 1241.0);
+        AzurePriceDTO consumption = row("Consumption", null, 0.096);
+        AzurePriceDTO devTest = row("DevTestConsumption", null, 0.07);
+
+        assertNotEquals(SnapshotFingerprint.key(oneYear), SnapshotFingerprint.key(threeYears));
+        assertNotEquals(SnapshotFingerprint.keyHash(oneYear), SnapshotFingerprint.keyHash(threeYears));
+        assertNotEquals(SnapshotFingerprint.key(consumption), SnapshotFingerprint.key(devTest));
+        assertNotEquals(SnapshotFingerprint.keyHash(consumption), SnapshotFingerprint.keyHash(devTest));
+
+        String[] parts = SnapshotFingerprint.splitKey(SnapshotFingerprint.key(threeYears));
+        assertEquals(6, parts.length);
+        assertEquals("Reservation", parts[4]);
+        assertEquals("3 Years", parts[5]);
+    }
+
+    @Test
+    void rowHashOnlyMatchesExactRepeats() {
+        AzurePriceDTO row = row("Consumption", null, 0.096);
+        AzurePriceDTO repeat = row("Consumption", null, 0.096);
+        AzurePriceDTO otherPrice = row("Consumption", null, 0.1);
+        AzurePriceDTO otherLocation = row("Consumption", null, 0.096);
+        otherLocation.setLocation("US West");
+
+        assertEquals(SnapshotFingerprint.keyHash(row), SnapshotFingerprint.keyHash(otherPrice));
+        assertEquals(SnapshotFingerprint.rowHash(row), SnapshotFingerprint.rowHash(repeat));
+        assertNotEquals(SnapshotFingerprint.rowHash(row), SnapshotFingerprint.rowHash(otherPrice));
+        assertNotEquals(SnapshotFingerprint.rowHash(row), SnapshotFingerprint.rowHash(otherLocation));
+        assertNotEquals(SnapshotFingerprint.rowHash(row), SnapshotFingerprint.valueHash(row));
+    }
+
+    @Test
+    void writerKeepsTheFirstRowOfARepeatedKey() throws IOException {
+        Path file = dir.resolve("fingerprint.bin");
+        AzurePriceDTO first = row("Reservation", "1 Year", 621.0);
+        AzurePriceDTO repeat = row("Reservation", "1 Year", 640.0);
+
+        try (SnapshotFingerprint.Writer writer = new SnapshotFingerprint.Writer(file, 42)) {
+            assertTrue(add(writer, first));
+            assertFalse(add(writer, repeat));
+            assertTrue(add(writer, row("Reservation", "3 Years", 1241.0)));
+            writer.publish();
+        }
+
+        SnapshotFingerprint loaded = SnapshotFingerprint.load(file);
+        assertEquals(42, loaded.getSnapshotId());
+        assertEquals(Long.valueOf(SnapshotFingerprint.valueHash(first)), loaded.take(SnapshotFingerprint.key(first)));
+        assertNull(loaded.take(SnapshotFingerprint.key(first)));
+        assertFalse(loaded.isEmpty());
+    }
+
+    @Test
+    void unpublishedWriterLeavesThePreviousFingerprint() throws IOException {
+        Path file = dir.resolve("fingerprint.bin");
+        try (SnapshotFingerprint.Writer writer = new SnapshotFingerprint.Writer(file, 1)) {
+            add(writer, row("Consumption", null, 1.0));
+            writer.publish();
+        }
+        try (SnapshotFingerprint.Writer writer = new SnapshotFingerprint.Writer(file, 2)) {
+            add(writer, row("Consumption", null, 2.0));
+        }
+
+        assertEquals(1, SnapshotFingerprint.load(file).getSnapshotId());
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void fingerprintWithOlderKeysStartsANewBaseline() throws IOException {
+        Path file = dir.resolve("fingerprint.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x415a4650);
+            out.writeInt(1);
+            out.writeLong(7);
+            out.writeLong(1);
+            out.writeUTF("meter|sku|0|2024-01-01");
+            out.writeLong(123);
+        }
+
+        SnapshotFingerprint loaded = SnapshotFingerprint.load(file);
+        assertTrue(loaded.isEmpty());
+        assertEquals(0, loaded.getSnapshotId());
+    }
+
+    private static boolean add(SnapshotFingerprint.Writer writer, AzurePriceDTO row) throws IOException {
+        return writer.add(SnapshotFingerprint.key(row), SnapshotFingerprint.keyHash(row),
+                SnapshotFingerprint.valueHash(row));
+    }
+
+    private static AzurePriceDTO row(String type, String term, double price) {
+        AzurePriceDTO dto = new AzurePriceDTO();
+        dto.setMeterId("3d85aad3-8b2f-4a61-9d5c-6f0f7c0a1e11");
+        dto.setSkuId("DZH318Z0BP04/00CV");
+        dto.setProductName("Virtual Machines Dv3 Series");
+        dto.setEffectiveStartDate("2024-01-01T00:00:00Z");
+        dto.setType(type);
+        dto.setReservationTerm(term);
+        dto.setRetailPrice(price);
+        return dto;
+    }
+}
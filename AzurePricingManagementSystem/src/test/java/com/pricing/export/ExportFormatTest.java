@@ -0,0 +1,313 @@
+package com.pricing.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.DelegatingSeekableInputStream;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.io.SeekableInputStream;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdInputStream;
+
+class ExportFormatTest {
+
+    private static final ExportSchema SCHEMA = ExportSchema.of("price", List.of(
+            ExportSchema.string("MeterId"), ExportSchema.string("Region"), ExportSchema.number("Price"),
+            ExportSchema.integer("Tiers")));
+
+    @Test
+    void gzipExportContinuedAfterACheckpointDecodesAsOneCsv() throws IOException {
+        byte[] object = segments(ExportFormat.CSV_GZIP, 3, 2);
+
+        assertEquals(csv(5), text(new GZIPInputStream(new ByteArrayInputStream(object))));
+    }
+
+    @Test
+    void zstdExportContinuedAfterACheckpointDecodesAsOneCsv() throws IOException {
+        byte[] object = segments(ExportFormat.CSV_ZSTD, 3, 2);
+
+        assertEquals(csv(5), text(new ZstdInputStream(new ByteArrayInputStream(object))));
+    }
+
+    @Test
+    void gzipNdjsonContinuedAfterACheckpointDecodesAsOneStream() throws IOException {
+        byte[] object = segments(ExportFormat.NDJSON_GZIP, 2, 2);
+
+        List<String> lines = text(new GZIPInputStream(new ByteArrayInputStream(object))).lines().toList();
+        assertEquals(4, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            JsonNode row = new ObjectMapper().readTree(lines.get(i));
+            assertEquals("m-" + i, row.get("MeterId").asText());
+            assertEquals(i * 0.5, row.get("Price").asDouble());
+            assertEquals(i, row.get("Tiers").asInt());
+        }
+    }
+
+    @Test
+    void csvQuotesOnlyFieldsThatNeedIt() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordWriter writer = ExportFormat.CSV.open(SCHEMA, out);
+        row(writer, "a,b", "say \"hi\"", 1.5, 2);
+        row(writer, "line\nbreak", null, 0, 0);
+        writer.finish();
+
+        assertEquals("MeterId,Region,Price,Tiers\n"
+                + "\"a,b\",\"say \"\"hi\"\"\",1.5,2\n"
+                + "\"line\nbreak\",,0.0,0\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ndjsonEscapesEveryStringIntoOneLinePerRow() throws IOException {
+        String[] values = {"quote \" and \\ backslash", "line\nbreak\r\ttab", "control \u0001 char",
+                "unicode é ☃ 😀", "</script>"};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordWriter writer = ExportFormat.NDJSON.open(SCHEMA, out);
+        for (String value : values) {
+            row(writer, value, null, 1, 1);
+        }
+        writer.string("no-price");
+        writer.string("eastus");
+        writer.nullValue();
+        writer.nullValue();
+        writer.endRow();
+        writer.finish();
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(values.length + 1, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < values.length; i++) {
+            JsonNode row = mapper.readTree(lines.get(i));
+            assertEquals(values[i], row.get("MeterId").asText());
+            assertTrue(row.get("Region").isNull());
+        }
+        JsonNode last = mapper.readTree(lines.get(values.length));
+        assertEquals(List.of("MeterId", "Region", "Price", "Tiers"), fieldNames(last));
+        assertTrue(last.get("Price").isNull());
+    }
+
+    @Test
+    void parquetKeepsTypedColumnsAndDictionaryEncodesRepeatedStrings() throws IOException {
+        int rows = 10_000;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordWriter writer = ExportFormat.PARQUET.open(SCHEMA, out);
+        for (int i = 0; i < rows; i++) {
+            if (i % 100 == 0) {
+                writer.string("m-" + i);
+                writer.nullValue();
+                writer.nullValue();
+                writer.integer(i);
+                writer.endRow();
+            } else {
+                row(writer, "m-" + i, "region-" + i % 4, i * 0.5, i);
+            }
+        }
+        writer.finish();
+
+        byte[] file = out.toByteArray();
+        try (ParquetFileReader reader = ParquetFileReader.open(new BytesInputFile(file))) {
+            ParquetMetadata footer = reader.getFooter();
+            MessageType schema = footer.getFileMetaData().getSchema();
+            assertEquals("price", schema.getName());
+            assertColumn(schema, "MeterId", PrimitiveTypeName.BINARY, LogicalTypeAnnotation.stringType());
+            assertColumn(schema, "Region", PrimitiveTypeName.BINARY, LogicalTypeAnnotation.stringType());
+            assertColumn(schema, "Price", PrimitiveTypeName.DOUBLE, null);
+            assertColumn(schema, "Tiers", PrimitiveTypeName.INT32, null);
+
+            ColumnChunkMetaData region = footer.getBlocks().get(0).getColumns().get(1);
+            assertEquals("Region", region.getPath().toDotString());
+            assertEquals(CompressionCodecName.ZSTD, region.getCodec());
+            assertTrue(region.getEncodingStats().hasDictionaryPages());
+            assertFalse(region.getEncodingStats().hasNonDictionaryEncodedPages());
+
+            List<Group> read = new ArrayList<>();
+            PageReadStore pages;
+            while ((pages = reader.readNextRowGroup()) != null) {
+                RecordReader<Group> records = new ColumnIOFactory().getColumnIO(schema)
+                        .getRecordReader(pages, new GroupRecordConverter(schema));
+                for (long i = 0; i < pages.getRowCount(); i++) {
+                    read.add(records.read());
+                }
+            }
+            assertEquals(rows, read.size());
+            for (int i = 0; i < rows; i++) {
+                Group row = read.get(i);
+                assertEquals("m-" + i, row.getString("MeterId", 0));
+                assertEquals(i, row.getInteger("Tiers", 0));
+                if (i % 100 == 0) {
+                    assertEquals(0, row.getFieldRepetitionCount("Region"));
+                    assertEquals(0, row.getFieldRepetitionCount("Price"));
+                } else {
+                    assertEquals("region-" + i % 4, row.getString("Region", 0));
+                    assertEquals(i * 0.5, row.getDouble("Price", 0));
+                }
+            }
+        }
+    }
+
+    @Test
+    void onlyTextFormatsResume() throws IOException {
+        assertFalse(ExportFormat.PARQUET.isResumable());
+        assertThrows(IllegalStateException.class, () -> ExportFormat.PARQUET.resume(SCHEMA,
+                new ByteArrayOutputStream()));
+
+        // a continuation of a CSV export starts without a header
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordWriter writer = ExportFormat.CSV.resume(SCHEMA, out);
+        row(writer, "m-0", "eastus", 1, 1);
+        writer.finish();
+        assertEquals("m-0,eastus,1.0,1\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void compressedObjectsAreStoredAsTheirCompressionType() {
+        assertEquals("application/gzip", ExportFormat.CSV_GZIP.getObjectContentType());
+        assertEquals("application/gzip", ExportFormat.NDJSON_GZIP.getObjectContentType());
+        assertEquals("application/zstd", ExportFormat.CSV_ZSTD.getObjectContentType());
+        assertEquals("text/csv", ExportFormat.CSV.getObjectContentType());
+        assertEquals("application/vnd.apache.parquet", ExportFormat.PARQUET.getObjectContentType());
+        assertNull(ExportFormat.PARQUET.getContentEncoding());
+    }
+
+    /**
+     * One object written as two runs: {@code first} rows through open, a
+     * checkpoint, then {@code second} rows through resume
+     */
+    private static byte[] segments(ExportFormat format, int first, int second) throws IOException {
+        ClosingTracker out = new ClosingTracker();
+        RecordWriter writer = format.open(SCHEMA, out);
+        for (int i = 0; i < first; i++) {
+            row(writer, "m-" + i, "eastus", i * 0.5, i);
+        }
+        writer.finish();
+        writer = format.resume(SCHEMA, out);
+        for (int i = first; i < first + second; i++) {
+            row(writer, "m-" + i, "eastus", i * 0.5, i);
+        }
+        writer.finish();
+        assertFalse(out.closed, "finish closed the upload stream");
+        return out.toByteArray();
+    }
+
+    private static String csv(int rows) {
+        StringBuilder csv = new StringBuilder("MeterId,Region,Price,Tiers\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("m-").append(i).append(",eastus,").append(i * 0.5).append(',').append(i).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static void row(RecordWriter writer, String meterId, String region, double price, int tiers)
+            throws IOException {
+        writer.string(meterId);
+        writer.string(region);
+        writer.number(price);
+        writer.integer(tiers);
+        writer.endRow();
+    }
+
+    private static String text(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private static void assertColumn(MessageType schema, String name, PrimitiveTypeName type,
+                                     LogicalTypeAnnotation logicalType) {
+        PrimitiveType column = schema.getType(name).asPrimitiveType();
+        assertEquals(type, column.getPrimitiveTypeName(), name);
+        assertEquals(Type.Repetition.OPTIONAL, column.getRepetition(), name);
+        assertEquals(logicalType, column.getLogicalTypeAnnotation(), name);
+    }
+
+    private static final class ClosingTracker extends ByteArrayOutputStream {
+        boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * Parquet input over an in-memory file
+     */
+    private static final class BytesInputFile implements InputFile {
+
+        private final byte[] file;
+
+        BytesInputFile(byte[] file) {
+            this.file = file;
+        }
+
+        @Override
+        public long getLength() {
+            return file.length;
+        }
+
+        @Override
+        public SeekableInputStream newStream() {
+            Seekable in = new Seekable(file);
+            return new DelegatingSeekableInputStream(in) {
+                @Override
+                public long getPos() {
+                    return in.position();
+                }
+
+                @Override
+                public void seek(long position) {
+                    in.seek(position);
+                }
+            };
+        }
+    }
+
+    private static final class Seekable extends ByteArrayInputStream {
+
+        Seekable(byte[] bytes) {
+            super(bytes);
+        }
+
+        long position() {
+            return pos;
+        }
+
+        void seek(long position) {
+            pos = Math.toIntExact(position);
+        }
+    }
+}
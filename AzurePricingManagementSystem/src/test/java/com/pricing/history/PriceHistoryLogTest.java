@@ -0,0 +1,220 @@
+package com.pricing.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.pricing.history.PriceHistoryLog.Change;
+import com.pricing.history.PriceHistoryLog.Entry;
+import com.pricing.history.PriceHistoryLog.Ingest;
+import com.pricing.model.AzurePriceDTO;
+
+class PriceHistoryLogTest {
+
+    private static final long SEGMENT_BYTES = 16 + 4 * PriceHistoryLog.RECORD_BYTES;
+
+    @TempDir
+    Path dir;
+
+    private PriceHistoryLog log;
+
+    @BeforeEach
+    void open() throws IOException {
+        // four records per segment, so every test also crosses segment boundaries
+        log = PriceHistoryLog.open(dir, SEGMENT_BYTES);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        log.close();
+    }
+
+    @Test
+    void onlyNewAndMovedPricesAreAppended() throws IOException {
+        Ingest.Stats first = ingest(1000, true, price("m-1", 0, 1.0), price("m-1", 100, 0.8), price("m-2", 0, 5.0));
+        Ingest.Stats second = ingest(2000, true, price("m-1", 0, 1.0), price("m-1", 100, 0.7), price("m-2", 0, 5.0));
+
+        assertEquals(3, first.added());
+        assertEquals(0, second.added());
+        assertEquals(1, second.changed());
+        assertEquals(0, second.removed());
+        assertEquals(4, log.size());
+
+        List<Entry> history = log.meterHistory("m-1", Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(3, history.size());
+        Entry changed = history.get(2);
+        assertEquals(Change.CHANGED, changed.change());
+        assertEquals(2000, changed.observedAt());
+        assertEquals(100, changed.tierMinimumUnits());
+        assertEquals(0.7, changed.retailPrice(), 0.0);
+        assertEquals(0.8, changed.previousPrice(), 0.0);
+        assertNull(history.get(0).previousPrice());
+    }
+
+    @Test
+    void reservationTermsOfOneMeterAreSeparateSeries() throws IOException {
+        Ingest.Stats first = ingest(1000, true, reservation("m-1", "1 Year", 500), reservation("m-1", "3 Years", 1200));
+        Ingest.Stats second = ingest(2000, true, reservation("m-1", "1 Year", 500), reservation("m-1", "3 Years", 1100));
+
+        assertEquals(2, first.added());
+        assertEquals(0, first.duplicates());
+        assertEquals(1, second.changed());
+        assertEquals(0, second.removed());
+
+        Entry last = log.meterHistory("m-1", 2000, 2000).get(0);
+        assertEquals("3 Years", last.reservationTerm());
+        assertEquals(1100, last.retailPrice(), 0.0);
+        assertEquals(1200, last.previousPrice(), 0.0);
+    }
+
+    @Test
+    void onlyACompleteIngestClosesSeriesItDidNotList() throws IOException {
+        ingest(1000, true, price("m-1", 0, 1.0), price("m-2", 0, 2.0), price("m-3", 0, 3.0));
+
+        Ingest.Stats partial = ingest(2000, false, price("m-1", 0, 1.0));
+        assertEquals(0, partial.removed());
+        assertEquals(3, log.size());
+
+        Ingest.Stats complete = ingest(3000, true, price("m-1", 0, 1.0), price("m-3", 0, 3.0));
+        assertEquals(1, complete.removed());
+        List<Entry> removed = log.meterHistory("m-2", 3000, 3000);
+        assertEquals(Change.REMOVED, removed.get(0).change());
+        assertEquals(2.0, removed.get(0).retailPrice(), 0.0);
+
+        // a removed series that comes back is ADDED again, and is not removed twice
+        Ingest.Stats back = ingest(4000, true, price("m-1", 0, 1.0), price("m-2", 0, 2.5), price("m-3", 0, 3.0));
+        assertEquals(1, back.added());
+        assertEquals(0, back.removed());
+        assertEquals(Change.ADDED, log.meterHistory("m-2", 4000, 4000).get(0).change());
+    }
+
+    @Test
+    void seriesUnchangedSinceAnOldIngestIsStillClosed() throws IOException {
+        ingest(1000, true, price("m-1", 0, 1.0), price("m-2", 0, 2.0), price("m-3", 0, 3.0), price("m-3", 10, 2.5));
+        // m-1 keeps moving, m-2 goes away, the m-3 tiers never change and so get no new records
+        for (int i = 1; i <= 5; i++) {
+            Ingest.Stats stats = ingest(1000 + i * 1000L, true, price("m-1", 0, 1.0 + i), price("m-3", 0, 3.0),
+                    price("m-3", 10, 2.5));
+            assertEquals(i == 1 ? 1 : 0, stats.removed());
+        }
+        log.close();
+
+        // the open series are rebuilt on reopening: the removed m-2 is not closed twice
+        log = PriceHistoryLog.open(dir, SEGMENT_BYTES);
+        Ingest.Stats stats = ingest(7000, true, price("m-1", 0, 6.0), price("m-3", 10, 2.5));
+        assertEquals(1, stats.removed());
+        List<Entry> m3 = log.meterHistory("m-3", 7000, 7000);
+        assertEquals(1, m3.size());
+        assertEquals(Change.REMOVED, m3.get(0).change());
+        assertEquals(0, m3.get(0).tierMinimumUnits());
+        assertEquals(3.0, m3.get(0).retailPrice(), 0.0);
+        assertTrue(log.meterHistory("m-2", 3000, 7000).isEmpty());
+
+        // a changed series replaces its open head instead of adding a second one
+        assertEquals(1, ingest(8000, true, price("m-1", 0, 7.0)).removed());
+        assertEquals(0, ingest(9000, true, price("m-1", 0, 7.0)).removed());
+    }
+
+    @Test
+    void repeatedSeriesInOneIngestIsCountedOnce() throws IOException {
+        Ingest.Stats stats = ingest(1000, true, price("m-1", 0, 1.0), price("m-1", 0, 9.0), price("m-1", 10, 0.5));
+
+        assertEquals(3, stats.rows());
+        assertEquals(2, stats.added());
+        assertEquals(1, stats.duplicates());
+        assertEquals(1.0, log.meterHistory("m-1", 0, 1000).get(0).retailPrice(), 0.0);
+    }
+
+    @Test
+    void abortedIngestLeavesNothingBehind() throws IOException {
+        ingest(1000, true, price("m-1", 0, 1.0));
+
+        Ingest aborted = log.begin(2000);
+        assertNotNull(aborted);
+        assertNull(log.begin(2500), "only one ingest at a time");
+        for (int i = 0; i < 10; i++) aborted.accept(price("m-" + i, 0, 9.0));
+        aborted.abort();
+
+        assertEquals(1, log.size());
+        assertTrue(log.meterHistory("m-5", Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+        assertThrows(IllegalStateException.class, () -> aborted.commit(true));
+
+        // the next ingest writes over the dropped records and sees the committed state only
+        Ingest.Stats next = ingest(3000, true, price("m-1", 0, 1.5), price("m-5", 0, 1.0));
+        assertEquals(1, next.added());
+        assertEquals(1, next.changed());
+        assertEquals(3, log.size());
+        assertEquals(1.0, log.meterHistory("m-1", 3000, 3000).get(0).previousPrice(), 0.0);
+    }
+
+    @Test
+    void committedRecordsSurviveReopening() throws IOException {
+        ingest(1000, true, price("m-1", 0, 1.0), price("m-2", 0, 2.0), reservation("m-3", "1 Year", 10));
+        ingest(2000, true, price("m-1", 0, 1.1), price("m-2", 0, 2.0), reservation("m-3", "1 Year", 10));
+        log.close();
+
+        log = PriceHistoryLog.open(dir, SEGMENT_BYTES);
+        assertEquals(4, log.size());
+        assertEquals(2, log.meterHistory("m-1", Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertEquals(4, log.productHistory("Virtual Machines", "eastus", Long.MIN_VALUE, Long.MAX_VALUE, 100).size());
+
+        Ingest.Stats stats = ingest(3000, true, price("m-1", 0, 1.1), reservation("m-3", "1 Year", 10));
+        assertEquals(0, stats.changed());
+        assertEquals(1, stats.removed());
+    }
+
+    @Test
+    void logInAnOlderLayoutIsMovedAside() throws IOException {
+        log.close();
+        Path segment = dir.resolve("segment-0000000000.log");
+        ByteBuffer header = ByteBuffer.allocate(16).putInt(0x415a5048).putInt(1).putInt(0).putInt(4);
+        Files.write(segment, header.array());
+
+        log = PriceHistoryLog.open(dir, SEGMENT_BYTES);
+
+        assertEquals(0, log.size());
+        assertTrue(Files.exists(dir.resolve("v1").resolve("segment-0000000000.log")));
+        assertEquals(1, ingest(1000, true, price("m-1", 0, 1.0)).added());
+    }
+
+    private Ingest.Stats ingest(long observedAt, boolean complete, AzurePriceDTO... prices) throws IOException {
+        Ingest ingest = log.begin(observedAt);
+        for (AzurePriceDTO price : prices) ingest.accept(price);
+        return ingest.commit(complete);
+    }
+
+    private static AzurePriceDTO price(String meterId, int tierMin, double price) {
+        AzurePriceDTO dto = new AzurePriceDTO();
+        dto.setMeterId(meterId);
+        dto.setProductName("Virtual Machines");
+        dto.setSkuName("D2s v5");
+        dto.setArmRegionName("eastus");
+        dto.setUnitOfMeasure("1 Hour");
+        dto.setCurrencyCode("USD");
+        dto.setEffectiveStartDate("2024-01-01T00:00:00Z");
+        dto.setType("Consumption");
+        dto.setTierMinimumUnits(tierMin);
+        dto.setRetailPrice(price);
+        return dto;
+    }
+
+    private static AzurePriceDTO reservation(String meterId, String term, double price) {
+        AzurePriceDTO dto = price(meterId, 0, price);
+        dto.setType("Reservation");
+        dto.setReservationTerm(term);
+        return dto;
+    }
+}
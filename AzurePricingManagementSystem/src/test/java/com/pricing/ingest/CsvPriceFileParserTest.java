@@ -0,0 +1,123 @@
+package com.pricing.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.pricing.catalog.PriceTable;
+import com.pricing.model.AzurePriceDTO;
+
+class CsvPriceFileParserTest {
+
+    private static final String HEADER =
+            "MeterId,ProductName,SKU,Region,Location,Price,Currency,ServiceFamily,Unit,EffectiveDate,Type";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void quotedCommasNewlinesAndEscapesSurviveChunkBoundaries() throws IOException {
+        // ~4 MB, so the parser splits it into several 1 MB chunks; every record holds quoted
+        // delimiters, so a boundary that ignored quotes would start a chunk mid-record
+        int rows = 30_000;
+        StringBuilder csv = new StringBuilder(HEADER).append("\r\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(meterId(i)).append(',')
+                    .append('"').append(product(i).replace("\"", "\"\"")).append('"').append(',')
+                    .append("D2s v5,eastus,\"US East, Virginia\",")
+                    .append(price(i)).append(",USD,Compute,1 Hour,2024-01-01T00:00:00Z,Consumption")
+                    .append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        Path file = write(csv.toString());
+        assertTrue(Files.size(file) > 3 * (1 << 20));
+
+        PriceTable table = new CsvPriceFileParser(4).parse(file);
+
+        assertEquals(rows, table.size());
+        for (int i = 0; i < rows; i++) {
+            AzurePriceDTO row = table.get(i);
+            assertEquals(meterId(i), row.getMeterId());
+            assertEquals(product(i), row.getProductName());
+            assertEquals("US East, Virginia", row.getLocation());
+            assertEquals(price(i), row.getRetailPrice());
+            assertEquals("Consumption", row.getType());
+        }
+    }
+
+    @Test
+    void crlfLineEndingsAreNotPartOfValues() throws IOException {
+        Path file = write(HEADER + "\r\n"
+                + "m1,Storage,LRS,westeurope,EU West,0.02,EUR,Storage,1 GB/Month,2024-02-01,Consumption\r\n"
+                + "m2,\"Storage\",LRS,westeurope,EU West,0.5,EUR,Storage,1 GB/Month,2024-02-01,\"Reservation\",1 Year\r\n");
+
+        PriceTable table = new CsvPriceFileParser(2).parse(file);
+
+        assertEquals(2, table.size());
+        assertEquals("Consumption", table.get(0).getType());
+        assertEquals("", table.get(0).getReservationTerm());
+        assertEquals("Reservation", table.get(1).getType());
+        assertEquals("1 Year", table.get(1).getReservationTerm());
+        assertEquals("Storage", table.get(1).getProductName());
+        assertEquals(0.5, table.get(1).getRetailPrice());
+    }
+
+    @Test
+    void doubledQuotesAndEmbeddedLineBreaksAreUnescaped() throws IOException {
+        Path file = write(HEADER + "\n"
+                + "m1,\"He said \"\"hi\"\"\",\"\"\"\",eastus,\"a\r\nb\",1,USD,Compute,1 Hour,2024-01-01,Consumption\n");
+
+        AzurePriceDTO row = new CsvPriceFileParser(1).parse(file).get(0);
+
+        assertEquals("He said \"hi\"", row.getProductName());
+        assertEquals("\"", row.getSkuName());
+        assertEquals("a\r\nb", row.getLocation());
+        assertEquals("Consumption", row.getType());
+    }
+
+    @Test
+    void blankLinesShortRowsAndBadPricesAreTolerated() throws IOException {
+        Path file = write(HEADER + "\n"
+                + "\n"
+                + "m1,Bandwidth,Standard,eastus,US East,n/a,USD\n"
+                + "m2,Bandwidth,Standard,eastus,US East,,USD,Networking,1 GB,2024-01-01,Consumption");
+
+        PriceTable table = new CsvPriceFileParser(1).parse(file);
+
+        assertEquals(2, table.size());
+        assertEquals(0.0, table.get(0).getRetailPrice());
+        assertEquals("", table.get(0).getType());
+        assertEquals("m2", table.get(1).getMeterId());
+        assertEquals("Consumption", table.get(1).getType());
+    }
+
+    @Test
+    void headerOnlyAndEmptyFilesHaveNoRows() throws IOException {
+        assertEquals(0, new CsvPriceFileParser(1).parse(write(HEADER + "\n")).size());
+        assertEquals(0, new CsvPriceFileParser(1).parse(write("")).size());
+    }
+
+    private Path write(String csv) throws IOException {
+        Path file = Files.createTempFile(dir, "prices", ".csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static String meterId(int i) {
+        return String.format("%08x-0000-4000-8000-%012d", i, i);
+    }
+
+    private static String product(int i) {
+        return "Virtual Machines, \"Dv5\" Series " + i + "\nline two";
+    }
+
+    private static double price(int i) {
+        return i / 100.0;
+    }
+}
@@ -0,0 +1,133 @@
+package com.pricing.ingest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pricing.model.AzurePriceDTO;
+
+/**
+ * In-memory stand-in for the Azure Retail Prices API: serves a fixed list
+ * of items in {@code $skip} pages with a NextPageLink, honouring the
+ * {@code eq} / {@code ne} clauses of a {@code $filter} joined by "and".
+ * Public so that the service tests can share it.
+ */
+public class FakeRetailApi implements PageSource {
+
+    private static final Pattern FILTER = Pattern.compile("[?&](?:\\$|%24)filter=([^&]*)");
+    private static final Pattern CLAUSE = Pattern.compile("(\\w+) (eq|ne) '((?:[^']|'')*)'");
+
+    private final List<AzurePriceDTO> items;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private final int pageSize;
+    private volatile long resizeAt = Long.MAX_VALUE;
+    private volatile int resizedPageSize;
+    private volatile LongUnaryOperator delayMillis = skip -> 0;
+    private volatile Predicate<String> fail = url -> false;
+
+    public FakeRetailApi(List<AzurePriceDTO> items, int pageSize) {
+        this.items = List.copyOf(items);
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * From {@code skip} on, serve pages of {@code size} items, as when the API changes its page size
+     */
+    public void resizePagesFrom(long skip, int size) {
+        this.resizedPageSize = size;
+        this.resizeAt = skip;
+    }
+
+    /**
+     * Hold the response for a page back; the function maps its {@code $skip} to milliseconds
+     */
+    public void delay(LongUnaryOperator millisBySkip) {
+        this.delayMillis = millisBySkip;
+    }
+
+    /**
+     * Answer every matching URL with an IOException
+     */
+    public void failWhen(Predicate<String> urls) {
+        this.fail = urls;
+    }
+
+    /**
+     * URLs requested so far, in the order the requests arrived
+     */
+    public List<String> requests() {
+        synchronized (requests) {
+            return List.copyOf(requests);
+        }
+    }
+
+    /**
+     * The {@code $skip} of a requested URL; 0 for the first page
+     */
+    public static long skipOf(String url) {
+        return ParallelPageFetcher.skipOf(url, 0);
+    }
+
+    @Override
+    public InputStream open(String url) throws IOException {
+        requests.add(url);
+        long skip = skipOf(url);
+        long delay = delayMillis.applyAsLong(skip);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+        }
+        if (fail.test(url)) throw new IOException("Injected failure for " + url);
+
+        List<AzurePriceDTO> matching = items.stream().filter(filter(url)).toList();
+        int size = skip >= resizeAt ? resizedPageSize : pageSize;
+        int from = (int) Math.min(skip, matching.size());
+        int to = (int) Math.min(skip + size, matching.size());
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("Items", matching.subList(from, to));
+        page.put("NextPageLink", to < matching.size() ? ParallelPageFetcher.withSkip(url, to) : null);
+        return new ByteArrayInputStream(mapper.writeValueAsBytes(page));
+    }
+
+    private static Predicate<AzurePriceDTO> filter(String url) {
+        Matcher m = FILTER.matcher(url);
+        if (!m.find()) return p -> true;
+        String filter = URLDecoder.decode(m.group(1), StandardCharsets.UTF_8);
+        Predicate<AzurePriceDTO> all = p -> true;
+        for (String clause : filter.split(" and ")) {
+            Matcher c = CLAUSE.matcher(clause.trim());
+            if (!c.matches()) throw new IllegalArgumentException("Unsupported filter clause: " + clause);
+            String field = c.group(1);
+            String value = c.group(3).replace("''", "'");
+            boolean eq = "eq".equals(c.group(2));
+            all = all.and(p -> value.equals(field(p, field)) == eq);
+        }
+        return all;
+    }
+
+    private static String field(AzurePriceDTO p, String name) {
+        return switch (name) {
+            case "serviceFamily" -> p.getServiceFamily();
+            case "armRegionName" -> p.getArmRegionName();
+            case "productName" -> p.getProductName();
+            default -> throw new IllegalArgumentException("Unsupported filter field: " + name);
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package com.pricing.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pricing.metrics.PricingMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class HttpFetcherTest {
+
+    private static final byte[] PAGE = new byte[64 * 1024];
+
+    static {
+        for (int i = 0; i < PAGE.length; i++) PAGE[i] = (byte) ('a' + i % 26);
+    }
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private HttpFetcher fetcher;
+    private String url;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(handlers);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/page";
+        fetcher = new HttpFetcher(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+                Duration.ofSeconds(5), Duration.ofMillis(300), 2, Duration.ofMillis(1), Duration.ofMillis(5),
+                new RateLimiter(0), PricingMetrics.noop());
+    }
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        fetcher.shutdown();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void bodyThatStallsAfterTheHeadersIsRetried() throws IOException {
+        server.createContext("/page", exchange -> {
+            if (requests.incrementAndGet() == 1) {
+                stallHalfWay(exchange);
+            } else {
+                send(exchange, PAGE);
+            }
+        });
+
+        long start = System.nanoTime();
+        assertArrayEquals(PAGE, fetcher.read(url));
+        assertEquals(2, requests.get());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4), "read timeout did not fire");
+    }
+
+    @Test
+    void bodyCutOffMidStreamIsRetried() throws IOException {
+        server.createContext("/page", exchange -> {
+            if (requests.incrementAndGet() == 1) {
+                // Promise the whole page, send half and drop the connection
+                exchange.sendResponseHeaders(200, PAGE.length);
+                exchange.getResponseBody().write(PAGE, 0, PAGE.length / 2);
+                exchange.getResponseBody().flush();
+                exchange.close();
+            } else {
+                send(exchange, PAGE);
+            }
+        });
+
+        assertArrayEquals(PAGE, fetcher.read(url));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void openStreamFailsWithTimeoutWhenTheBodyStalls() throws IOException {
+        server.createContext("/page", this::stallHalfWay);
+
+        try (InputStream in = fetcher.open(url)) {
+            assertThrows(HttpTimeoutException.class, in::readAllBytes);
+        }
+    }
+
+    @Test
+    void slowConsumerIsNotTimedOut() throws Exception {
+        server.createContext("/page", exchange -> send(exchange, PAGE));
+
+        try (InputStream in = fetcher.open(url)) {
+            byte[] first = in.readNBytes(10);
+            // Longer than the read timeout, but spent by the caller rather than waiting on the server
+            Thread.sleep(700);
+            byte[] rest = in.readAllBytes();
+            assertEquals(PAGE.length, first.length + rest.length);
+        }
+    }
+
+    @Test
+    void errorStatusIsNotRetriedAsABodyFailure() {
+        server.createContext("/page", exchange -> {
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+
+        IOException e = assertThrows(IOException.class, () -> fetcher.read(url));
+        assertTrue(e.getMessage().contains("HTTP 404"), e.getMessage());
+        assertEquals(1, requests.get());
+    }
+
+    private void stallHalfWay(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, PAGE.length);
+        OutputStream body = exchange.getResponseBody();
+        body.write(PAGE, 0, PAGE.length / 2);
+        body.flush();
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.close();
+    }
+
+    private static void send(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.pricing.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+
+class ParallelPageFetcherTest {
+
+    private static final String START = "https://prices.example/api/retail/prices?api-version=2023-01-01-preview";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void crawlEndingExactlyAtTheCapReachedTheEnd() throws IOException {
+        for (int concurrency : new int[] {1, 4}) {
+            FakeRetailApi api = new FakeRetailApi(items(30), 10);
+
+            ParallelPageFetcher.Crawled crawled = fetcher(api, concurrency).crawl(START, 3, p -> { });
+
+            assertEquals(3, crawled.pages());
+            assertTrue(crawled.reachedEnd(), "concurrency " + concurrency);
+            assertNull(crawled.nextPageLink());
+        }
+    }
+
+    @Test
+    void crawlStoppedByTheCapReportsWhereItStopped() throws IOException {
+        for (int concurrency : new int[] {1, 4}) {
+            FakeRetailApi api = new FakeRetailApi(items(31), 10);
+            List<String> meters = new ArrayList<>();
+
+            ParallelPageFetcher.Crawled crawled = fetcher(api, concurrency).crawl(START, 3, p -> meters.add(p.getMeterId()));
+
+            assertEquals(3, crawled.pages());
+            assertFalse(crawled.reachedEnd(), "concurrency " + concurrency);
+            assertEquals(30, ParallelPageFetcher.skipOf(crawled.nextPageLink(), -1));
+            assertEquals(30, meters.size());
+        }
+    }
+
+    @Test
+    void pagesFinishingOutOfOrderAreParsedInPageOrder() throws IOException {
+        FakeRetailApi api = new FakeRetailApi(items(95), 10);
+        // every other page is slow, so later pages finish before earlier ones
+        api.delay(skip -> skip % 20 == 10 ? 60 : 0);
+        List<String> meters = new ArrayList<>();
+
+        ParallelPageFetcher.Crawled crawled = fetcher(api, 4).crawl(START, 100, p -> meters.add(p.getMeterId()));
+
+        assertEquals(10, crawled.pages());
+        assertTrue(crawled.reachedEnd());
+        assertEquals(meters(0, 95), meters);
+    }
+
+    @Test
+    void changedPageSizeFallsBackToFollowingLinks() throws IOException {
+        FakeRetailApi api = new FakeRetailApi(items(100), 10);
+        api.resizePagesFrom(30, 7);
+        List<String> meters = new ArrayList<>();
+
+        ParallelPageFetcher.Crawled crawled = fetcher(api, 4).crawl(START, 100, p -> meters.add(p.getMeterId()));
+
+        assertEquals(meters(0, 100), meters);
+        // 0, 10, 20, then 30, 37, ... 93 by link
+        assertEquals(3 + 10, crawled.pages());
+        assertTrue(crawled.reachedEnd());
+    }
+
+    @Test
+    void nothingIsReadPastTheCap() throws IOException {
+        FakeRetailApi api = new FakeRetailApi(items(200), 10);
+
+        fetcher(api, 4).crawl(START, 5, p -> { });
+
+        List<String> requests = api.requests();
+        assertEquals(5, requests.size(), requests.toString());
+        assertTrue(requests.stream().allMatch(url -> ParallelPageFetcher.skipOf(url, 0) < 50), requests.toString());
+    }
+
+    @Test
+    void nothingPastTheLastPageReachesTheSink() throws IOException {
+        FakeRetailApi api = new FakeRetailApi(items(42), 10);
+        List<String> meters = new ArrayList<>();
+        List<String> links = new ArrayList<>();
+
+        ParallelPageFetcher.Crawled crawled = fetcher(api, 4).crawl(START, 100, p -> meters.add(p.getMeterId()),
+                links::add);
+
+        assertEquals(5, crawled.pages());
+        assertEquals(meters(0, 42), meters);
+        assertEquals(5, links.size());
+        assertNull(links.get(4));
+        // Past the end only the speculative rest of the prefetch window may have been requested
+        assertTrue(api.requests().size() <= 5 + 3, api.requests().toString());
+    }
+
+    @Test
+    void failingOnPageStopsTheCrawlAndCancelsPrefetches() throws Exception {
+        FakeRetailApi api = new FakeRetailApi(items(200), 10);
+        api.delay(skip -> skip >= 20 ? 5_000 : 0);
+        RuntimeException cancelled = new IllegalStateException("job cancelled");
+        int[] pages = {0};
+
+        long start = System.nanoTime();
+        RuntimeException e = assertThrows(RuntimeException.class, () -> fetcher(api, 4).crawl(START, 100, p -> { },
+                () -> {
+                    if (++pages[0] == 2) throw cancelled;
+                }));
+
+        assertSame(cancelled, e);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "crawl waited for a prefetch");
+        // The cancelled prefetches were interrupted, so the pool is free again right away
+        assertEquals(1, executor.submit(() -> 1).get(1, TimeUnit.SECONDS).intValue());
+    }
+
+    static ParallelPageFetcher fetcher(PageSource api, int concurrency, ExecutorService executor) {
+        return new ParallelPageFetcher(api, new RetailPricePageReader(new JsonFactory()), executor, concurrency,
+                PricingMetrics.noop());
+    }
+
+    private ParallelPageFetcher fetcher(PageSource api, int concurrency) {
+        return fetcher(api, concurrency, executor);
+    }
+
+    private static List<String> meters(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "m-" + i).toList();
+    }
+
+    static List<AzurePriceDTO> items(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            AzurePriceDTO dto = new AzurePriceDTO();
+            dto.setMeterId("m-" + i);
+            dto.setProductName("Virtual Machines");
+            dto.setServiceFamily("Compute");
+            dto.setArmRegionName("eastus");
+            dto.setRetailPrice(i * 0.01);
+            return dto;
+        }).toList();
+    }
+}
@@ -0,0 +1,137 @@
+package com.pricing.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+
+class PartitionedCrawlerTest {
+
+    private static final String BASE = "https://prices.example/api/retail/prices";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void planCoversEveryRowExactlyOnce() throws IOException {
+        List<String> families = List.of("Compute", "Partner's Services", "Storage");
+        List<String> regions = List.of("eastus", "westeurope");
+        List<AzurePriceDTO> catalog = new ArrayList<>();
+        for (String family : List.of("Compute", "Partner's Services", "Storage", "Networking", "AI + ML")) {
+            for (String region : List.of("eastus", "westeurope", "northeurope", "")) {
+                for (int i = 0; i < 9; i++) {
+                    catalog.add(price(family + "|" + region + "|" + i, family, region, i));
+                }
+            }
+        }
+        Collections.shuffle(catalog, new Random(7));
+        List<PartitionedCrawler.Partition> plan = PartitionedCrawler.plan(families, List.of("Compute"), regions);
+        assertEquals(List.of("Compute/eastus", "Compute/westeurope", "Compute/other regions", "Partner's Services",
+                "Storage", "other families"), plan.stream().map(PartitionedCrawler.Partition::name).toList());
+
+        List<AzurePriceDTO> emitted = Collections.synchronizedList(new ArrayList<>());
+        int[] pages = {0};
+        PartitionedCrawler.Result result = crawler(new FakeRetailApi(catalog, 4), plan)
+                .crawl(emitted::add, () -> pages[0]++);
+
+        Map<String, Long> times = emitted.stream()
+                .collect(Collectors.groupingBy(AzurePriceDTO::getMeterId, Collectors.counting()));
+        assertEquals(catalog.size(), times.size());
+        assertTrue(times.values().stream().allMatch(n -> n == 1), "rows emitted more than once");
+        assertEquals(catalog.size(), result.rows());
+        assertEquals(0, result.duplicates());
+        assertEquals(plan.size(), result.partitions());
+        assertEquals(pages[0], result.pages());
+    }
+
+    @Test
+    void onlyExactRepeatsAreDropped() throws IOException {
+        AzurePriceDTO row = price("m-1", "Compute", "eastus", 1);
+        AzurePriceDTO repeat = price("m-1", "Compute", "eastus", 1);
+        // same row key, another price: a different price of the same meter
+        AzurePriceDTO otherPrice = price("m-1", "Compute", "eastus", 2);
+        AzurePriceDTO otherTier = price("m-1", "Compute", "eastus", 1);
+        otherTier.setTierMaximumUnits(100);
+        List<AzurePriceDTO> catalog = new ArrayList<>(List.of(row, price("m-2", "Compute", "eastus", 3), repeat,
+                otherPrice, otherTier, price("m-3", "Storage", "eastus", 4)));
+
+        List<AzurePriceDTO> emitted = new ArrayList<>();
+        PartitionedCrawler.Result result = crawler(new FakeRetailApi(catalog, 2),
+                PartitionedCrawler.plan(List.of("Compute"), List.of(), List.of())).crawl(emitted::add, () -> { });
+
+        assertEquals(1, result.duplicates());
+        assertEquals(5, result.rows());
+        Map<String, List<Double>> prices = new HashMap<>();
+        for (AzurePriceDTO p : emitted) {
+            prices.computeIfAbsent(p.getMeterId(), k -> new ArrayList<>()).add(p.getRetailPrice());
+        }
+        assertEquals(List.of(1.0, 2.0, 1.0), prices.get("m-1"));
+        assertEquals(List.of(3.0), prices.get("m-2"));
+        assertEquals(List.of(4.0), prices.get("m-3"));
+    }
+
+    @Test
+    void resumedCrawlSkipsFinishedPartitionsAndEmittedRows() throws IOException {
+        List<AzurePriceDTO> catalog = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            catalog.add(price("c-" + i, "Compute", "eastus", i));
+            catalog.add(price("s-" + i, "Storage", "eastus", i));
+        }
+        FakeRetailApi api = new FakeRetailApi(catalog, 5);
+        List<PartitionedCrawler.Partition> plan = PartitionedCrawler.plan(List.of("Compute", "Storage"), List.of(),
+                List.of());
+        api.failWhen(url -> url.contains("Storage") && FakeRetailApi.skipOf(url) >= 10);
+        CrawlState state = CrawlState.journaled();
+        List<AzurePriceDTO> first = Collections.synchronizedList(new ArrayList<>());
+        // the Storage partition fails after two pages and stops the others
+        assertThrows(IOException.class, () -> crawler(api, plan).crawl(first::add, () -> { }, state));
+
+        api.failWhen(url -> false);
+        CrawlState restored = CrawlState.restore(state.getNextPages(), state.getFinished(), state.drainNewKeys());
+        List<AzurePriceDTO> second = new ArrayList<>();
+        crawler(api, plan).crawl(second::add, () -> { }, restored);
+
+        List<String> all = new ArrayList<>();
+        first.forEach(p -> all.add(p.getMeterId()));
+        second.forEach(p -> all.add(p.getMeterId()));
+        assertEquals(catalog.size(), all.size());
+        assertEquals(catalog.size(), all.stream().distinct().count());
+        assertTrue(restored.isFinished("Storage"));
+        assertTrue(restored.isFinished("other families"));
+    }
+
+    private PartitionedCrawler crawler(FakeRetailApi api, List<PartitionedCrawler.Partition> plan) {
+        return new PartitionedCrawler(BASE, plan, ParallelPageFetcherTest.fetcher(api, 2, executor), 3,
+                PricingMetrics.noop());
+    }
+
+    private static AzurePriceDTO price(String meterId, String family, String region, double price) {
+        AzurePriceDTO dto = new AzurePriceDTO();
+        dto.setMeterId(meterId);
+        dto.setProductName("Product " + family);
+        dto.setServiceFamily(family);
+        dto.setArmRegionName(region);
+        dto.setRetailPrice(price);
+        return dto;
+    }
+}
@@ -0,0 +1,88 @@
+package com.pricing.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+
+    @Test
+    void concurrentThreadsNeverExceedThePermitsPerSecond() throws Exception {
+        int permitsPerSecond = 100;
+        int threads = 6;
+        int perThread = 25;
+        RateLimiter limiter = new RateLimiter(permitsPerSecond);
+        List<Long> granted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        limiter.acquire();
+                        granted.add(System.nanoTime());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<Long> times = new ArrayList<>(granted);
+        Collections.sort(times);
+        assertEquals(threads * perThread, times.size());
+        // n permits are spread over at least (n - 1) intervals
+        long interval = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        assertTrue(times.get(times.size() - 1) - times.get(0) >= (times.size() - 1) * interval - interval / 2);
+        // no one-second window holds more than its permits (+1 for the one due at its start, +2 for wake-up jitter)
+        int busiest = 0;
+        for (int i = 0, j = 0; i < times.size(); i++) {
+            while (j < times.size() && times.get(j) - times.get(i) < TimeUnit.SECONDS.toNanos(1)) j++;
+            busiest = Math.max(busiest, j - i);
+        }
+        assertTrue(busiest <= permitsPerSecond + 3, busiest + " permits within one second");
+    }
+
+    @Test
+    void pauseHoldsBackEveryWaitingPermit() throws InterruptedIOException {
+        RateLimiter limiter = new RateLimiter(1000);
+        limiter.acquire();
+
+        limiter.pause(200);
+        long start = System.nanoTime();
+        limiter.acquire();
+        limiter.acquire();
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(190));
+    }
+
+    @Test
+    void unlimitedNeverWaitsUnlessPaused() throws InterruptedIOException {
+        RateLimiter limiter = RateLimiter.unlimited();
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(0, limiter.acquire());
+        }
+
+        limiter.pause(50);
+        assertTrue(limiter.acquire() > 0);
+        assertEquals(0, limiter.acquire());
+    }
+}
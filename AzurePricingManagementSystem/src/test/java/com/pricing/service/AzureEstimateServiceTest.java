@@ -0,0 +1,211 @@
+package com.pricing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pricing.catalog.PriceCatalog;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.pricing.catalog.PriceTable;
+import com.pricing.ingest.FakeRetailApi;
+import com.pricing.ingest.ParallelPageFetcher;
+import com.pricing.ingest.RetailPricePageReader;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzurePriceDTO;
+import com.pricing.model.BatchEstimationResponseDTO;
+import com.pricing.model.CheapestOffersResponseDTO;
+import com.pricing.model.EstimationRequestDTO;
+
+class AzureEstimateServiceTest {
+
+    private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+    private final ExecutorService pageExecutor = Executors.newFixedThreadPool(4);
+    private AzureEstimateService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) service.shutdown();
+        pageExecutor.shutdownNow();
+    }
+
+    @Test
+    void badLinesAndFailedLookupsAreReportedPerLine() {
+        service = service(PriceCatalog.build(3, "test", List.of(row("Storage", "eastus", "USD", 0.5))));
+
+        BatchEstimationResponseDTO response = service.estimateBatch(Arrays.asList(
+                line("Storage", "eastus", 10),
+                null,
+                line(" ", "eastus", 1),
+                line("Storage", "eastus", -1),
+                line("Broken", null, 1),
+                line("Bandwidth", "eastus", 4)));
+
+        assertEquals(3, response.getCatalogVersion());
+        assertEquals(6, response.getLineCount());
+        assertEquals(4, response.getFailedLines());
+        assertEquals(4, response.getUnpricedLines());
+        List<Map<String, Object>> lines = response.getLines();
+        assertEquals(5.0, lines.get(0).get("estimatedCost"));
+        assertEquals("catalog", lines.get(0).get("source"));
+        assertEquals("Line is empty", lines.get(1).get("error"));
+        assertEquals("productName is required", lines.get(2).get("error"));
+        assertEquals("quantity must not be negative", lines.get(3).get("error"));
+        assertTrue(((String) lines.get(4).get("error")).startsWith("Price lookup failed"));
+        assertEquals(8.0, lines.get(5).get("estimatedCost"));
+        assertEquals("lookup", lines.get(5).get("source"));
+        assertEquals(Map.of("USD", 13.0), response.getTotalsByCurrency());
+    }
+
+    @Test
+    void eachMissingProductIsLookedUpOncePerBatch() {
+        service = service(PriceCatalog.build(1, "test", List.of(row("Storage", "eastus", "USD", 0.5))));
+        List<EstimationRequestDTO> items = new ArrayList<>();
+        for (int i = 0; i < 600; i++) items.add(line("Bandwidth", "eastus", 1));
+
+        BatchEstimationResponseDTO response = service.estimateBatch(items);
+
+        assertEquals(0, response.getFailedLines());
+        assertEquals(1, lookups.get("Bandwidth@eastus").get());
+        assertEquals(1200.0, response.getTotalsByCurrency().get("USD"), 1e-9);
+    }
+
+    @Test
+    void pageCappedSnapshotIsNotTrustedForKnownProducts() {
+        PriceTable rows = PriceTable.of(List.of(row("Storage", "eastus", "USD", 0.5)));
+        service = service(PriceCatalog.build(1, "test", rows, false));
+
+        BatchEstimationResponseDTO response = service.estimateBatch(List.of(line("Storage", "eastus", 1)));
+
+        assertEquals("lookup", response.getLines().get(0).get("source"));
+        assertEquals(1, lookups.get("Storage@eastus").get());
+    }
+
+    @Test
+    void rowsWithoutCurrencyAreTotalledUnderAnEmptyKey() {
+        service = service(PriceCatalog.build(1, "test", List.of(
+                row("Storage", "eastus", null, 0.5), row("Compute", "eastus", "EUR", 1.0))));
+
+        BatchEstimationResponseDTO response = service.estimateBatch(List.of(
+                line("Storage", "eastus", 2), line("Compute", "eastus", 3)));
+
+        assertEquals(Map.of("", 1.0, "EUR", 3.0), response.getTotalsByCurrency());
+        assertFalse(response.getLines().get(0).containsKey("error"));
+    }
+
+    @Test
+    void cheapestOffersReadTheWholeProductWhenTheLookupReachesTheEnd() {
+        // 35 regions in pages of 10, cheapest last, and a snapshot too small to hold the product
+        service = lookupService(35, 100);
+
+        CheapestOffersResponseDTO response = service.cheapestOffers("Virtual Machines", null, 3);
+
+        assertNull(response.getMessage());
+        assertEquals(List.of("region-34", "region-33", "region-32"),
+                response.getOffers().stream().map(CheapestOffersResponseDTO.Offer::getRegion).toList());
+    }
+
+    @Test
+    void lookupEndingExactlyOnItsPageCapIsComplete() {
+        service = lookupService(30, 3);
+
+        assertNull(service.cheapestOffers("Virtual Machines", null, 1).getMessage());
+        assertFalse(service.estimateCost(line("Virtual Machines", null, 1)).containsKey("partial"));
+    }
+
+    @Test
+    void answersFromACappedLookupAreFlaggedPartial() {
+        service = lookupService(35, 2);
+
+        CheapestOffersResponseDTO cheapest = service.cheapestOffers("Virtual Machines", null, 3);
+        assertTrue(cheapest.getMessage().startsWith("Partial price data"), cheapest.getMessage());
+        assertEquals("region-19", cheapest.getOffers().get(0).getRegion());
+
+        Map<String, Object> single = service.estimateCost(line("Virtual Machines", null, 1));
+        assertEquals(Boolean.TRUE, single.get("partial"));
+        assertTrue(single.containsKey("estimatedCost"));
+
+        // a regional lookup fits in one page and is complete
+        List<Map<String, Object>> lines = service.estimateBatch(List.of(line("Virtual Machines", null, 2),
+                line("Virtual Machines", "region-3", 2))).getLines();
+        assertEquals(Boolean.TRUE, lines.get(0).get("partial"));
+        assertEquals("lookup", lines.get(0).get("source"));
+        assertFalse(lines.get(1).containsKey("partial"));
+        assertEquals("region-3", lines.get(1).get("region"));
+    }
+
+    /**
+     * Estimates over a real catalog service whose lookups crawl a fake API
+     * holding {@code regions} rows of one product, in pages of 10
+     */
+    private AzureEstimateService lookupService(int regions, int lookupMaxPages) {
+        List<AzurePriceDTO> rows = IntStream.range(0, regions).mapToObj(i -> {
+            AzurePriceDTO dto = row("Virtual Machines", "region-" + i, "USD", 100 - i);
+            dto.setMeterId("meter-" + i);
+            dto.setSkuName("D2s v5");
+            return dto;
+        }).toList();
+        PricingMetrics metrics = PricingMetrics.noop();
+        FakeRetailApi api = new FakeRetailApi(rows, 10);
+        RetailPricePageReader reader = new RetailPricePageReader(new JsonFactory());
+        ParallelPageFetcher fetcher = new ParallelPageFetcher(api, reader, pageExecutor, 4, metrics);
+        PriceCatalogService catalogService = new PriceCatalogService(api, reader, fetcher, null, 10, 60,
+                lookupMaxPages, metrics, null);
+        ReflectionTestUtils.setField(catalogService, "baseUrl", "https://prices.example/api/retail/prices");
+        return new AzureEstimateService(catalogService, metrics, 2);
+    }
+
+    private AzureEstimateService service(PriceCatalog snapshot) {
+        PricingMetrics metrics = PricingMetrics.noop();
+        PriceCatalogService catalogService = new PriceCatalogService(null, null, null, null, 10, 60, 200, metrics,
+                null) {
+            @Override
+            public PriceCatalog getCatalog() {
+                return snapshot;
+            }
+
+            @Override
+            public PriceCatalog lookup(String product, String region) {
+                lookups.computeIfAbsent(product + "@" + region, k -> new AtomicInteger()).incrementAndGet();
+                if ("Broken".equals(product)) throw new RuntimeException("Azure retail API unavailable");
+                double price = "Bandwidth".equals(product) ? 2.0 : 0.5;
+                return PriceCatalog.build(snapshot.getVersion(), "lookup", List.of(row(product, region, "USD", price)));
+            }
+        };
+        return new AzureEstimateService(catalogService, metrics, 2);
+    }
+
+    private static EstimationRequestDTO line(String product, String region, int quantity) {
+        EstimationRequestDTO line = new EstimationRequestDTO();
+        line.setProductName(product);
+        line.setRegion(region);
+        line.setQuantity(quantity);
+        return line;
+    }
+
+    private static AzurePriceDTO row(String product, String region, String currency, double price) {
+        AzurePriceDTO dto = new AzurePriceDTO();
+        dto.setMeterId(product + "-meter");
+        dto.setProductName(product);
+        dto.setArmRegionName(region);
+        dto.setCurrencyCode(currency);
+        dto.setRetailPrice(price);
+        dto.setUnitOfMeasure("1 Hour");
+        dto.setType("Consumption");
+        return dto;
+    }
+}
@@ -0,0 +1,188 @@
+package com.pricing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pricing.ingest.CrawlCheckpointStore;
+import com.pricing.ingest.FakeRetailApi;
+import com.pricing.ingest.ParallelPageFetcher;
+import com.pricing.ingest.PartitionedCrawler;
+import com.pricing.ingest.RetailPricePageReader;
+import com.pricing.job.JobProgress;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.AzureFetchResponseDTO;
+import com.pricing.model.AzurePriceDTO;
+import com.pricing.model.CrawlCheckpointDTO;
+import com.pricing.storage.InMemoryS3;
+
+class AzurePriceServiceTest {
+
+    private static final String START = "https://prices.example/api/retail/prices?api-version=2023-01-01-preview";
+    private static final String HEADER = "MeterId,ProductName,SKU,Region,Location,Price,Currency,ServiceFamily,Unit,"
+            + "EffectiveDate,Type,ReservationTerm";
+    // random ids keep the gzip output large enough for a few 5 MB checkpoint parts
+    private static final int ROWS = 100_000;
+    private static final int PAGE_SIZE = 1000;
+    private static final long FAIL_AT = 90_000;
+
+    @TempDir
+    Path dir;
+
+    private final InMemoryS3 s3 = new InMemoryS3();
+    private final ExecutorService pageExecutor = Executors.newFixedThreadPool(4);
+    private final List<AzurePriceDTO> rows = rows();
+    private final FakeRetailApi api = new FakeRetailApi(rows, PAGE_SIZE);
+    private S3UploadService uploads;
+
+    @AfterEach
+    void stop() {
+        pageExecutor.shutdownNow();
+        if (uploads != null) uploads.shutdown();
+    }
+
+    @Test
+    void failedExportResumesFromItsCheckpointWithoutRepeatingRows() throws IOException {
+        AzurePriceService service = service();
+        api.failWhen(url -> FakeRetailApi.skipOf(url) >= FAIL_AT);
+        assertThrows(RuntimeException.class, () -> service.fetchAndUploadData(null, JobProgress.untracked()));
+        CrawlCheckpointDTO saved = checkpoint();
+        assertTrue(saved.getRows() > 0 && saved.getRows() < FAIL_AT, "checkpoint after " + saved.getRows());
+        assertTrue(s3.keys().isEmpty());
+
+        api.failWhen(url -> false);
+        int before = api.requests().size();
+        AzureFetchResponseDTO response = service.fetchAndUploadData(null, JobProgress.untracked());
+
+        // the rerun continues at the checkpointed page instead of the first one
+        assertEquals(saved.getRows(), FakeRetailApi.skipOf(api.requests().get(before)));
+        assertEquals(ROWS, response.getRecordCount());
+        assertEquals("s3://bucket/" + saved.getKey(), response.getS3FilePath());
+        assertExportedOnce(saved.getKey());
+        assertFalse(Files.exists(dir.resolve(saved.getJob() + ".json")));
+        assertTrue(s3.aborted().isEmpty());
+    }
+
+    @Test
+    void checkpointWithOtherColumnsStartsOver() throws IOException {
+        startsOverFrom(saved -> saved.setColumns(saved.getColumns() - 1));
+    }
+
+    @Test
+    void checkpointWithAnotherRowHashVersionStartsOver() throws IOException {
+        startsOverFrom(saved -> saved.setRowHashVersion(PartitionedCrawler.ROW_HASH_VERSION - 1));
+    }
+
+    private void startsOverFrom(Consumer<CrawlCheckpointDTO> change) throws IOException {
+        AzurePriceService service = service();
+        api.failWhen(url -> FakeRetailApi.skipOf(url) >= FAIL_AT);
+        assertThrows(RuntimeException.class, () -> service.fetchAndUploadData(null, JobProgress.untracked()));
+        CrawlCheckpointDTO saved = checkpoint();
+        change.accept(saved);
+        new ObjectMapper().writeValue(dir.resolve(saved.getJob() + ".json").toFile(), saved);
+
+        api.failWhen(url -> false);
+        int before = api.requests().size();
+        AzureFetchResponseDTO response = service.fetchAndUploadData(null, JobProgress.untracked());
+
+        assertEquals(START, api.requests().get(before));
+        assertEquals(ROWS, response.getRecordCount());
+        assertEquals(List.of(saved.getUploadId()), s3.aborted());
+        assertEquals(1, s3.keys().size());
+        assertExportedOnce(s3.keys().iterator().next());
+    }
+
+    /**
+     * The object decompresses to one header and every row exactly once
+     */
+    private void assertExportedOnce(String key) throws IOException {
+        byte[] object = s3.object(key);
+        assertNotNull(object, key);
+        String csv;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(object))) {
+            csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> lines = csv.lines().toList();
+        assertEquals(HEADER, lines.get(0));
+        assertEquals(1, lines.stream().filter(HEADER::equals).count());
+        assertEquals(ROWS + 1, lines.size());
+        Set<String> meters = new HashSet<>();
+        for (String line : lines.subList(1, lines.size())) {
+            assertTrue(meters.add(line.substring(0, line.indexOf(','))), "row written twice: " + line);
+        }
+        assertEquals(ROWS, meters.size());
+    }
+
+    private CrawlCheckpointDTO checkpoint() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> saved = files.filter(f -> f.toString().endsWith(".json")).toList();
+            assertEquals(1, saved.size(), "checkpoints " + saved);
+            return new ObjectMapper().readValue(saved.get(0).toFile(), CrawlCheckpointDTO.class);
+        }
+    }
+
+    private AzurePriceService service() {
+        PricingMetrics metrics = PricingMetrics.noop();
+        uploads = new S3UploadService(s3, metrics);
+        ReflectionTestUtils.setField(uploads, "bucketName", "bucket");
+        ReflectionTestUtils.setField(uploads, "partSizeMb", 8);
+        ReflectionTestUtils.setField(uploads, "concurrency", 2);
+        ParallelPageFetcher fetcher = new ParallelPageFetcher(api, new RetailPricePageReader(new JsonFactory()),
+                pageExecutor, 4, metrics);
+        AzurePriceService service = new AzurePriceService(uploads, fetcher, null, new CrawlCheckpointStore(dir),
+                metrics);
+        ReflectionTestUtils.setField(service, "defaultUrl", START);
+        ReflectionTestUtils.setField(service, "bucketName", "bucket");
+        ReflectionTestUtils.setField(service, "outputFolder", "exports");
+        ReflectionTestUtils.setField(service, "outputFormat", "csv.gz");
+        ReflectionTestUtils.setField(service, "crawlMode", "single");
+        ReflectionTestUtils.setField(service, "checkpointEnabled", true);
+        ReflectionTestUtils.setField(service, "checkpointIntervalSeconds", 0L);
+        return service;
+    }
+
+    private static List<AzurePriceDTO> rows() {
+        Random random = new Random(42);
+        return IntStream.range(0, ROWS).mapToObj(i -> {
+            AzurePriceDTO dto = new AzurePriceDTO();
+            dto.setMeterId("m-" + i);
+            dto.setProductName("Virtual Machines");
+            dto.setSkuName(new UUID(random.nextLong(), random.nextLong()).toString());
+            dto.setArmRegionName("eastus");
+            dto.setLocation(new UUID(random.nextLong(), random.nextLong()).toString());
+            dto.setRetailPrice(i * 0.01);
+            dto.setCurrencyCode("USD");
+            dto.setServiceFamily("Compute");
+            dto.setUnitOfMeasure("1 Hour");
+            dto.setEffectiveStartDate(new UUID(random.nextLong(), random.nextLong()).toString());
+            dto.setType("Consumption");
+            return dto;
+        }).toList();
+    }
+}
@@ -0,0 +1,216 @@
+package com.pricing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.pricing.catalog.PriceSnapshot;
+import com.pricing.ingest.HttpFetcher;
+import com.pricing.ingest.RateLimiter;
+import com.pricing.ingest.RetailPricePageReader;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.storage.InMemoryS3;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class PriceCacheServiceTest {
+
+    private static final String LAST_MODIFIED = "Wed, 01 Jan 2025 00:00:00 GMT";
+
+    @TempDir
+    Path dir;
+
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger bodies = new AtomicInteger();
+    private final List<String> conditions = Collections.synchronizedList(new ArrayList<>());
+    private volatile CountDownLatch hold = new CountDownLatch(0);
+    private volatile String etag = "\"v1\"";
+    private volatile byte[] body = page(3);
+    private HttpServer server;
+    private HttpFetcher http;
+    private PriceCacheService cache;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(handlers);
+        server.createContext("/prices.json", this::serve);
+        server.start();
+        http = new HttpFetcher(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(),
+                Duration.ofSeconds(5), Duration.ofSeconds(5), 0, Duration.ofMillis(1), Duration.ofMillis(5),
+                new RateLimiter(0), PricingMetrics.noop());
+        SharedSnapshotService shared = new SharedSnapshotService(new InMemoryS3(), PricingMetrics.noop(), false,
+                "bucket", "shared", 30, 120, "test");
+        cache = new PriceCacheService(http, new RetailPricePageReader(new JsonFactory()), PricingMetrics.noop(),
+                shared);
+        ReflectionTestUtils.setField(cache, "sourceS3Url",
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/prices.json");
+        ReflectionTestUtils.setField(cache, "localCacheFilePath", dir.resolve("cache.json").toString());
+        ReflectionTestUtils.setField(cache, "snapshotFilePath", dir.resolve("cache.snap").toString());
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 60L);
+    }
+
+    @AfterEach
+    void stop() {
+        hold.countDown();
+        cache.shutdown();
+        http.shutdown();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Test
+    void freshSnapshotIsServedWithoutAskingTheSource() {
+        PriceSnapshot first = cache.getSnapshot();
+        assertEquals(3, first.size());
+        assertEquals(1, requests.get());
+        assertNull(conditions.get(0), "nothing cached yet, so the first GET is unconditional");
+
+        for (int i = 0; i < 5; i++) {
+            assertSame(first, cache.getSnapshot());
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void expiredSnapshotIsRevalidatedAndKeptOn304() throws IOException {
+        PriceSnapshot first = cache.getSnapshot();
+        Path raw = dir.resolve("cache.json");
+        FileTime downloaded = Files.getLastModifiedTime(raw);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 0L);
+
+        // a stale snapshot is returned right away while the revalidation runs
+        assertSame(first, cache.getSnapshot());
+        PriceCacheService.RefreshOutcome outcome = cache.refresh().join();
+
+        assertFalse(outcome.modified());
+        assertEquals(3, outcome.rows());
+        assertEquals(etag, outcome.etag());
+        assertEquals(2, requests.get());
+        assertEquals(1, bodies.get(), "the 304 must not re-send the body");
+        assertEquals(etag + " | " + LAST_MODIFIED, conditions.get(1));
+        assertEquals(downloaded, Files.getLastModifiedTime(raw));
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 60L);
+        assertSame(first, cache.getSnapshot());
+    }
+
+    @Test
+    void changedSourceReplacesTheSnapshot() {
+        PriceSnapshot first = cache.getSnapshot();
+        etag = "\"v2\"";
+        body = page(5);
+
+        PriceCacheService.RefreshOutcome outcome = cache.refresh().join();
+
+        assertTrue(outcome.modified());
+        assertEquals(5, outcome.rows());
+        assertEquals("\"v2\"", outcome.etag());
+        assertEquals("\"v1\" | " + LAST_MODIFIED, conditions.get(1));
+        PriceSnapshot second = cache.getSnapshot();
+        assertNotSame(first, second);
+        assertEquals(5, second.size());
+    }
+
+    @Test
+    void concurrentRefreshesShareOneRequest() throws Exception {
+        cache.getSnapshot();
+        hold = new CountDownLatch(1);
+        int callers = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<CompletableFuture<PriceCacheService.RefreshOutcome>>> calls = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                calls.add(pool.submit(() -> {
+                    go.await();
+                    return cache.refresh();
+                }));
+            }
+            go.countDown();
+            CompletableFuture<PriceCacheService.RefreshOutcome> shared = calls.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<CompletableFuture<PriceCacheService.RefreshOutcome>> call : calls) {
+                assertSame(shared, call.get(5, TimeUnit.SECONDS));
+            }
+            assertFalse(shared.isDone());
+
+            hold.countDown();
+            assertFalse(shared.get(5, TimeUnit.SECONDS).modified());
+            assertEquals(2, requests.get());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // once it has finished, the next refresh is a new one
+        assertEquals(3, cache.refresh().join().rows());
+        assertEquals(3, requests.get());
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        conditions.add(ifNoneMatch == null && ifModifiedSince == null ? null : ifNoneMatch + " | " + ifModifiedSince);
+        try {
+            hold.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try (exchange) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+            if (etag.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            bodies.incrementAndGet();
+            byte[] sent = body;
+            exchange.sendResponseHeaders(200, sent.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(sent);
+            }
+        }
+    }
+
+    private static byte[] page(int rows) {
+        StringBuilder json = new StringBuilder("{\"Items\":[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"meterId\":\"m-").append(i)
+                    .append("\",\"productName\":\"Virtual Machines\",\"skuName\":\"D2s v5\"")
+                    .append(",\"armRegionName\":\"eastus\",\"retailPrice\":").append(0.1 * (i + 1))
+                    .append(",\"currencyCode\":\"USD\",\"unitOfMeasure\":\"1 Hour\",\"type\":\"Consumption\"}");
+        }
+        return json.append("],\"NextPageLink\":null}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
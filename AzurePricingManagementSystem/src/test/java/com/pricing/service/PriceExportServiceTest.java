@@ -0,0 +1,61 @@
+package com.pricing.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+
+import com.pricing.metrics.PricingMetrics;
+
+class PriceExportServiceTest {
+
+    private final PriceCatalogService catalog = new PriceCatalogService(null, null, null, null, 10, 60, 200,
+            PricingMetrics.noop(), null);
+    private final PriceExportService exports = new PriceExportService(catalog, PricingMetrics.noop(), 1);
+
+    @AfterEach
+    void stop() {
+        catalog.shutdown();
+    }
+
+    @Test
+    void writtenExportGivesItsSlotBackOnce() throws IOException {
+        PriceExportService.Export export = open();
+        assertThrows(IllegalStateException.class, this::open);
+
+        export.writeTo(new ByteArrayOutputStream());
+        // the completion callback releases again; that must not free a second slot
+        export.release();
+
+        PriceExportService.Export next = open();
+        assertThrows(IllegalStateException.class, this::open);
+        next.release();
+    }
+
+    @Test
+    void exportNeverWrittenGivesItsSlotBackWhenReleased() {
+        PriceExportService.Export abandoned = open();
+
+        abandoned.release();
+
+        assertThrows(IllegalStateException.class, () -> abandoned.writeTo(new ByteArrayOutputStream()));
+        open().release();
+    }
+
+    @Test
+    void malformedRequestTakesNoSlot() {
+        LinkedMultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("format", "xml");
+
+        assertThrows(IllegalArgumentException.class, () -> exports.open(params, null));
+        open().release();
+    }
+
+    private PriceExportService.Export open() {
+        return exports.open(new LinkedMultiValueMap<>(), null);
+    }
+}
@@ -0,0 +1,73 @@
+package com.pricing.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.LinkedMultiValueMap;
+
+import com.pricing.catalog.PriceQuery;
+
+class PriceQueryServiceTest {
+
+    @Test
+    void cursorRoundTripsTheLastRowOfItsCatalogVersion() {
+        String cursor = PriceQueryService.encodeCursor(42, 1234);
+
+        assertEquals(1234, PriceQueryService.decodeCursor(cursor, 42));
+        assertEquals(-1, PriceQueryService.decodeCursor(null, 42));
+        assertEquals(-1, PriceQueryService.decodeCursor("", 42));
+    }
+
+    @Test
+    void cursorFromAnOlderCatalogIsAConflict() {
+        String cursor = PriceQueryService.encodeCursor(41, 10);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> PriceQueryService.decodeCursor(cursor, 42));
+        assertTrue(e.getMessage().contains("first page"), e.getMessage());
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String cursor : List.of("not base64!", PriceQueryService.encodeCursor(42, -5), "NDI")) {
+            assertThrows(IllegalArgumentException.class, () -> PriceQueryService.decodeCursor(cursor, 42), cursor);
+        }
+    }
+
+    @Test
+    void sortOrderAndFiltersAreParsed() {
+        LinkedMultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("region", "eastus");
+        params.add("region", "westus");
+        params.add("sort", "ServiceFamily");
+        params.add("order", "DESC");
+        params.add("minPrice", "0.5");
+
+        PriceQuery query = PriceQueryService.parse(params, 25, 7);
+
+        assertEquals(List.of("eastus", "westus"), query.filters().get(PriceQuery.Field.REGION));
+        assertEquals(PriceQuery.Sort.SERVICE_FAMILY, query.sort());
+        assertTrue(query.descending());
+        assertEquals(0.5, query.minPrice(), 0.0);
+        assertEquals(25, query.limit());
+        assertEquals(7, query.afterRow());
+    }
+
+    @Test
+    void malformedSortOrderAndPriceRangeAreRejected() {
+        for (String[] param : new String[][] {{"sort", "meterId"}, {"order", "up"}, {"maxPrice", "NaN"},
+                {"minPrice", "cheap"}}) {
+            LinkedMultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+            params.add(param[0], param[1]);
+            assertThrows(IllegalArgumentException.class, () -> PriceQueryService.parse(params, 10, -1), param[0]);
+        }
+        LinkedMultiValueMap<String, String> inverted = new LinkedMultiValueMap<>();
+        inverted.add("minPrice", "5");
+        inverted.add("maxPrice", "1");
+        assertThrows(IllegalArgumentException.class, () -> PriceQueryService.parse(inverted, 10, -1));
+    }
+}
@@ -0,0 +1,144 @@
+package com.pricing.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pricing.metrics.PricingMetrics;
+import com.pricing.model.SnapshotManifestDTO;
+import com.pricing.storage.InMemoryS3;
+import com.pricing.storage.ObjectStore;
+
+class SharedSnapshotServiceTest {
+
+    private static final String NAME = "price-cache";
+    private static final String MANIFEST = "shared/" + NAME + "/manifest.json";
+
+    @TempDir
+    Path dir;
+
+    private final InMemoryS3 s3 = new InMemoryS3();
+    private final List<SharedSnapshotService> instances = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        instances.forEach(SharedSnapshotService::shutdown);
+    }
+
+    @Test
+    void leaseIsRenewedWithoutTheSpringScheduler() throws InterruptedException {
+        SharedSnapshotService a = instance("a");
+
+        for (int i = 0; i < 100 && !a.isLeader(); i++) Thread.sleep(20);
+
+        assertTrue(a.isLeader(), "the renewer thread did not take the lease");
+    }
+
+    @Test
+    void followerPullsEveryNewerVersion() throws IOException {
+        SharedSnapshotService leader = leader("a");
+        SharedSnapshotService follower = instance("b");
+        follower.renewLease();
+        assertFalse(follower.isLeader());
+        assertNull(follower.latest(NAME));
+
+        SnapshotManifestDTO first = leader.publish(NAME, file("v1", "first snapshot"), 1, null, "src", null, null);
+        assertNotNull(first);
+        assertNull(follower.publish(NAME, file("mine", "not published"), 1, null, "src", null, null));
+
+        ObjectStore.Versioned<SnapshotManifestDTO> seen = follower.latest(NAME);
+        assertEquals(1, seen.value().getVersion());
+        Path local = dir.resolve("pulled.snap");
+        follower.pull(seen.value(), local);
+        assertEquals("first snapshot", Files.readString(local));
+
+        SnapshotManifestDTO second = leader.publish(NAME, file("v2", "second snapshot"), 2, leader.latest(NAME),
+                "src", null, null);
+        assertEquals(2, second.getVersion());
+        assertEquals(first.getSnapshotKey(), second.getPreviousSnapshotKey());
+
+        ObjectStore.Versioned<SnapshotManifestDTO> newer = follower.latest(NAME);
+        assertEquals(2, newer.value().getVersion());
+        follower.pull(newer.value(), local);
+        assertEquals("second snapshot", Files.readString(local));
+
+        // v1 is kept for instances still pulling it until v3 replaces v2
+        assertNotNull(s3.object(first.getSnapshotKey()));
+        leader.publish(NAME, file("v3", "third snapshot"), 3, leader.latest(NAME), "src", null, null);
+        assertNull(s3.object(first.getSnapshotKey()));
+        assertNotNull(s3.object(second.getSnapshotKey()));
+    }
+
+    @Test
+    void publishLosingTheIfMatchRaceLeavesTheWinnersVersion() throws IOException {
+        SharedSnapshotService leader = leader("a");
+        leader.publish(NAME, file("v1", "first snapshot"), 1, null, "src", null, null);
+        ObjectStore.Versioned<SnapshotManifestDTO> read = leader.latest(NAME);
+
+        // Another instance publishes v2 between our read of the manifest and our write
+        SnapshotManifestDTO winner = new SnapshotManifestDTO();
+        winner.setName(NAME);
+        winner.setVersion(2);
+        winner.setSnapshotKey("shared/" + NAME + "/v2-winner.snap");
+        winner.setPublishedBy("b");
+        s3.put(winner.getSnapshotKey(), "winner".getBytes(StandardCharsets.UTF_8));
+        byte[] winnerManifest = new ObjectMapper().writeValueAsBytes(winner);
+        s3.put(MANIFEST, winnerManifest);
+
+        assertNull(leader.publish(NAME, file("v2", "losing snapshot"), 2, read, "src", null, null));
+
+        assertArrayEquals(winnerManifest, s3.object(MANIFEST));
+        assertEquals("b", leader.latest(NAME).value().getPublishedBy());
+        // the loser's object is deleted again, the winner's and v1 are untouched
+        assertEquals(2, s3.keys().stream().filter(k -> k.endsWith(".snap")).count());
+        assertNotNull(s3.object(winner.getSnapshotKey()));
+        assertNotNull(s3.object(read.value().getSnapshotKey()));
+    }
+
+    @Test
+    void firstPublishLosesToAManifestCreatedMeanwhile() throws IOException {
+        SharedSnapshotService leader = leader("a");
+        SnapshotManifestDTO other = new SnapshotManifestDTO();
+        other.setName(NAME);
+        other.setVersion(1);
+        other.setSnapshotKey("shared/" + NAME + "/v1-other.snap");
+        s3.put(MANIFEST, new ObjectMapper().writeValueAsBytes(other));
+
+        assertNull(leader.publish(NAME, file("v1", "late snapshot"), 1, null, "src", null, null));
+        assertEquals(other.getSnapshotKey(), leader.latest(NAME).value().getSnapshotKey());
+        assertTrue(s3.keys().stream().noneMatch(k -> k.endsWith(".snap")));
+    }
+
+    private SharedSnapshotService leader(String id) {
+        SharedSnapshotService service = instance(id);
+        service.renewLease();
+        assertTrue(service.isLeader());
+        return service;
+    }
+
+    private SharedSnapshotService instance(String id) {
+        SharedSnapshotService service = new SharedSnapshotService(s3, PricingMetrics.noop(), true, "bucket",
+                "shared", 3600, 3 * 3600, id);
+        instances.add(service);
+        return service;
+    }
+
+    private Path file(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name + ".snap"), content);
+    }
+}
@@ -0,0 +1,256 @@
+package com.pricing.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+/**
+ * In-memory stand-in for one S3 bucket with the calls this application
+ * makes: plain and conditional puts (If-Match / If-None-Match, answered
+ * with 412 like S3 and MinIO), gets, deletes and multipart uploads. Keys
+ * are not bucket-qualified; every request is served from the same map.
+ * Public so that the service tests can share it.
+ */
+public class InMemoryS3 extends AbstractAmazonS3 {
+
+    private final Map<String, byte[]> objects = new HashMap<>();
+    private final Map<String, String> etags = new HashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new HashMap<>();
+    private final List<Integer> uploadedParts = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> aborted = new ArrayList<>();
+    private final AtomicInteger uploadIds = new AtomicInteger();
+    private volatile IntPredicate failPart = n -> false;
+    private volatile IntPredicate slowPart = n -> false;
+
+    /**
+     * Make every uploadPart call for a matching part number fail with a 500
+     */
+    void failParts(IntPredicate partNumbers) {
+        this.failPart = partNumbers;
+    }
+
+    /**
+     * Hold every uploadPart call for a matching part number back for a while
+     */
+    void delayParts(IntPredicate partNumbers) {
+        this.slowPart = partNumbers;
+    }
+
+    public synchronized byte[] object(String key) {
+        return objects.get(key);
+    }
+
+    public synchronized Set<String> keys() {
+        return Set.copyOf(objects.keySet());
+    }
+
+    synchronized String etag(String key) {
+        return etags.get(key);
+    }
+
+    /**
+     * Replace an object behind the application's back, as another instance would
+     */
+    public synchronized void put(String key, byte[] body) {
+        objects.put(key, body);
+        etags.put(key, md5(body));
+    }
+
+    /**
+     * Part numbers in the order their uploads finished
+     */
+    List<Integer> uploadedParts() {
+        synchronized (uploadedParts) {
+            return List.copyOf(uploadedParts);
+        }
+    }
+
+    public synchronized List<String> aborted() {
+        return List.copyOf(aborted);
+    }
+
+    synchronized int openUploads() {
+        return uploads.size();
+    }
+
+    @Override
+    public synchronized S3Object getObject(String bucketName, String key) {
+        byte[] body = objects.get(key);
+        if (body == null) throw error(404, "NoSuchKey");
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(body.length);
+        metadata.setHeader(Headers.ETAG, etags.get(key));
+        S3Object object = new S3Object();
+        object.setBucketName(bucketName);
+        object.setKey(key);
+        object.setObjectMetadata(metadata);
+        object.setObjectContent(new ByteArrayInputStream(body));
+        return object;
+    }
+
+    @Override
+    public synchronized PutObjectResult putObject(PutObjectRequest request) {
+        String key = request.getKey();
+        Map<String, String> headers = request.getCustomRequestHeaders();
+        String ifMatch = headers != null ? headers.get("If-Match") : null;
+        String ifNoneMatch = headers != null ? headers.get("If-None-Match") : null;
+        if ("*".equals(ifNoneMatch) && objects.containsKey(key)) throw error(412, "PreconditionFailed");
+        if (ifMatch != null && !unquote(ifMatch).equals(etags.get(key))) throw error(412, "PreconditionFailed");
+
+        put(key, read(request.getInputStream()));
+        PutObjectResult result = new PutObjectResult();
+        result.setETag(etags.get(key));
+        return result;
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, InputStream input, ObjectMetadata metadata) {
+        return putObject(new PutObjectRequest(bucketName, key, input, metadata));
+    }
+
+    @Override
+    public synchronized void deleteObject(String bucketName, String key) {
+        objects.remove(key);
+        etags.remove(key);
+    }
+
+    @Override
+    public synchronized InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        String uploadId = "upload-" + uploadIds.incrementAndGet();
+        uploads.put(uploadId, new TreeMap<>());
+        InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+        return result;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        // Read outside the lock so that parts really upload concurrently
+        byte[] body = read(request.getInputStream());
+        if (slowPart.test(request.getPartNumber())) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failPart.test(request.getPartNumber())) throw error(500, "InternalError");
+        synchronized (this) {
+            Map<Integer, byte[]> parts = uploads.get(request.getUploadId());
+            if (parts == null) throw error(404, "NoSuchUpload");
+            parts.put(request.getPartNumber(), body);
+        }
+        uploadedParts.add(request.getPartNumber());
+        UploadPartResult result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(md5(body));
+        return result;
+    }
+
+    @Override
+    public synchronized CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        Map<Integer, byte[]> parts = uploads.remove(request.getUploadId());
+        if (parts == null) throw error(404, "NoSuchUpload");
+        ByteArrayOutputStream object = new ByteArrayOutputStream();
+        int previous = 0;
+        for (PartETag etag : request.getPartETags()) {
+            byte[] part = parts.get(etag.getPartNumber());
+            if (part == null || etag.getPartNumber() <= previous || !md5(part).equals(unquote(etag.getETag()))) {
+                throw error(400, "InvalidPart");
+            }
+            object.writeBytes(part);
+            previous = etag.getPartNumber();
+        }
+        put(request.getKey(), object.toByteArray());
+        CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+        result.setKey(request.getKey());
+        result.setETag(etags.get(request.getKey()));
+        return result;
+    }
+
+    @Override
+    public synchronized void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        uploads.remove(request.getUploadId());
+        aborted.add(request.getUploadId());
+    }
+
+    @Override
+    public synchronized PartListing listParts(ListPartsRequest request) {
+        Map<Integer, byte[]> parts = uploads.get(request.getUploadId());
+        if (parts == null) throw error(404, "NoSuchUpload");
+        PartListing listing = new PartListing();
+        List<PartSummary> summaries = new ArrayList<>();
+        parts.forEach((number, body) -> {
+            PartSummary summary = new PartSummary();
+            summary.setPartNumber(number);
+            summary.setETag(md5(body));
+            summary.setSize(body.length);
+            summaries.add(summary);
+        });
+        listing.setParts(summaries);
+        listing.setTruncated(false);
+        return listing;
+    }
+
+    private static AmazonS3Exception error(int status, String code) {
+        AmazonS3Exception e = new AmazonS3Exception(code);
+        e.setStatusCode(status);
+        e.setErrorCode(code);
+        return e;
+    }
+
+    private static byte[] read(InputStream in) {
+        try (in) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String unquote(String etag) {
+        return etag.startsWith("\"") && etag.endsWith("\"") ? etag.substring(1, etag.length() - 1) : etag;
+    }
+
+    private static String md5(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
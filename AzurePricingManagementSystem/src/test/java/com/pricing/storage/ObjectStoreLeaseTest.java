@@ -0,0 +1,109 @@
+package com.pricing.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.pricing.model.LeaseDTO;
+
+class ObjectStoreLeaseTest {
+
+    private static final String KEY = "shared/leader.lease.json";
+
+    private final InMemoryS3 s3 = new InMemoryS3();
+    private final ObjectStore store = new ObjectStore(s3, "bucket");
+
+    @Test
+    void racingInstancesHaveExactlyOneWinner() throws Exception {
+        int instances = 8;
+        List<ObjectStoreLease> leases = new ArrayList<>();
+        for (int i = 0; i < instances; i++) leases.add(lease("instance-" + i, Duration.ofMinutes(2)));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(instances);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (ObjectStoreLease lease : leases) {
+                attempts.add(pool.submit(() -> {
+                    start.await();
+                    return lease.tryAcquire();
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            String winner = null;
+            for (int i = 0; i < instances; i++) {
+                if (attempts.get(i).get()) {
+                    winners++;
+                    winner = leases.get(i).getOwner();
+                }
+            }
+            assertEquals(1, winners);
+            assertEquals(winner, holder());
+            assertEquals(1, leases.stream().filter(ObjectStoreLease::isHeld).count());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void holderRenewsWhileOthersWait() throws IOException {
+        ObjectStoreLease a = lease("a", Duration.ofMinutes(2));
+        ObjectStoreLease b = lease("b", Duration.ofMinutes(2));
+
+        assertTrue(a.tryAcquire());
+        assertFalse(b.tryAcquire());
+        assertTrue(a.tryAcquire());
+        assertTrue(a.isHeld());
+        assertFalse(b.isHeld());
+        assertEquals("a", holder());
+    }
+
+    @Test
+    void expiredLeaseIsTakenOver() throws Exception {
+        ObjectStoreLease a = lease("a", Duration.ofMillis(200));
+        ObjectStoreLease b = lease("b", Duration.ofMillis(200));
+        assertTrue(a.tryAcquire());
+        assertFalse(b.tryAcquire());
+
+        // a stops renewing: it gives the lease up after half the TTL, b takes it once the TTL has passed
+        Thread.sleep(300);
+        assertFalse(a.isHeld());
+        assertTrue(b.tryAcquire());
+        assertEquals("b", holder());
+
+        assertFalse(a.tryAcquire());
+        assertFalse(a.isHeld());
+    }
+
+    @Test
+    void releasedLeaseIsTakenOverRightAway() throws IOException {
+        ObjectStoreLease a = lease("a", Duration.ofMinutes(2));
+        ObjectStoreLease b = lease("b", Duration.ofMinutes(2));
+        assertTrue(a.tryAcquire());
+
+        a.release();
+
+        assertFalse(a.isHeld());
+        assertTrue(b.tryAcquire());
+        assertEquals("b", holder());
+    }
+
+    private ObjectStoreLease lease(String owner, Duration ttl) {
+        return new ObjectStoreLease(store, KEY, owner, ttl);
+    }
+
+    private String holder() throws IOException {
+        return store.read(KEY, LeaseDTO.class).value().getOwner();
+    }
+}
@@ -0,0 +1,143 @@
+package com.pricing.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.pricing.metrics.PricingMetrics;
+
+class S3MultipartOutputStreamTest {
+
+    private static final int PART_SIZE = 16;
+
+    private InMemoryS3 s3;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        s3 = new InMemoryS3();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void partsAreCompletedInOrderEvenWhenTheyFinishOutOfOrder() throws IOException {
+        byte[] data = bytes(100);
+        s3.delayParts(n -> n == 1);
+
+        S3MultipartOutputStream out = open(3);
+        // Uneven writes so that buffers fill across write calls
+        int off = 0;
+        for (int len : new int[]{1, 7, 30, 2, 45, 15}) {
+            out.write(data, off, len);
+            off += len;
+        }
+        assertEquals(100, out.getBytesWritten());
+
+        assertEquals(100, out.commit());
+        assertArrayEquals(data, s3.object("prices.csv"));
+        List<Integer> finished = s3.uploadedParts();
+        assertEquals(7, finished.size());
+        assertNotEquals(1, finished.get(0), "part 1 was held back, a later part should finish first");
+        assertEquals(0, s3.openUploads());
+    }
+
+    @Test
+    void commitCountsBytesWrittenOneAtATime() throws IOException {
+        S3MultipartOutputStream out = open(2);
+        byte[] data = bytes(PART_SIZE * 2 + 5);
+        for (byte b : data) out.write(b);
+
+        assertEquals(data.length, out.commit());
+        assertArrayEquals(data, s3.object("prices.csv"));
+        assertEquals(3, s3.uploadedParts().size());
+    }
+
+    @Test
+    void objectSmallerThanOnePartIsPutInOneRequest() throws IOException {
+        S3MultipartOutputStream out = open(2);
+        byte[] data = bytes(PART_SIZE - 1);
+        out.write(data);
+
+        assertEquals(data.length, out.commit());
+        assertNull(out.getUploadId());
+        assertArrayEquals(data, s3.object("prices.csv"));
+        assertTrue(s3.uploadedParts().isEmpty());
+    }
+
+    @Test
+    void failedPartAbortsTheUpload() throws IOException {
+        s3.failParts(n -> n == 2);
+        S3MultipartOutputStream out = open(2);
+        out.write(bytes(PART_SIZE * 4));
+
+        IOException e = assertThrows(IOException.class, out::commit);
+        assertTrue(e.getMessage().startsWith("Part upload failed"), e.getMessage());
+        assertNotNull(out.getUploadId());
+        assertEquals(List.of(out.getUploadId()), s3.aborted());
+        assertNull(s3.object("prices.csv"));
+        assertEquals(0, s3.openUploads());
+    }
+
+    @Test
+    void closeWithoutCommitAbortsAndRejectsFurtherWrites() throws IOException {
+        S3MultipartOutputStream out = open(2);
+        out.write(bytes(PART_SIZE * 2 + 3));
+        out.close();
+
+        assertEquals(List.of(out.getUploadId()), s3.aborted());
+        assertNull(s3.object("prices.csv"));
+        assertThrows(IOException.class, () -> out.write(1));
+        assertThrows(IOException.class, out::commit);
+    }
+
+    @Test
+    void detachedUploadIsResumedFromItsCutParts() throws IOException {
+        int partSize = S3MultipartOutputStream.MIN_PART_SIZE;
+        byte[] data = bytes(partSize + 10);
+
+        S3MultipartOutputStream first = new S3MultipartOutputStream(s3, executor, "bucket", "prices.csv",
+                new ObjectMetadata(), partSize * 2, 2, PricingMetrics.noop());
+        first.write(data, 0, partSize);
+        var parts = first.cut();
+        first.detach();
+        assertEquals(1, parts.size());
+        assertTrue(s3.aborted().isEmpty());
+
+        S3MultipartOutputStream resumed = new S3MultipartOutputStream(s3, executor, "bucket", "prices.csv",
+                new ObjectMetadata(), partSize * 2, 2, PricingMetrics.noop(), first.getUploadId(), parts, partSize);
+        resumed.write(data, partSize, 10);
+        assertEquals(data.length, resumed.commit());
+        assertArrayEquals(data, s3.object("prices.csv"));
+    }
+
+    private S3MultipartOutputStream open(int maxInFlight) {
+        return new S3MultipartOutputStream(s3, executor, "bucket", "prices.csv", new ObjectMetadata(),
+                PART_SIZE, maxInFlight, PricingMetrics.noop());
+    }
+
+    private static byte[] bytes(int n) {
+        byte[] data = new byte[n];
+        new Random(n).nextBytes(data);
+        return data;
+    }
+}